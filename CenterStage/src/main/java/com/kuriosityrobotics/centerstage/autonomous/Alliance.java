@@ -0,0 +1,29 @@
+package com.kuriosityrobotics.centerstage.autonomous;
+
+import com.kuriosityrobotics.centerstage.cameras.SpikeLocation;
+import com.kuriosityrobotics.centerstage.mpc.DriveRecord;
+
+import java.util.function.Function;
+
+/**
+ * The side of the field an autonomous runs on.  Paths are measured for each side, in {@link RedAutoConstants} and
+ * {@link BlueAutoConstants}, and the blue ones are {@linkplain DriveRecord#mirror() mirrored} before they are followed.
+ */
+public enum Alliance {
+	RED, BLUE;
+
+	/**
+	 * @return <code>red</code> on red, and <code>blue</code>, mirrored, on blue
+	 */
+	public DriveRecord path(DriveRecord red, DriveRecord blue) {
+		return this == RED ? red : blue.mirror();
+	}
+
+	/**
+	 * @return the path to follow for <code>spike</code>, from <code>red</code> on red, and from <code>blue</code>,
+	 * mirrored, on blue
+	 */
+	public DriveRecord path(Function<SpikeLocation, DriveRecord> red, Function<SpikeLocation, DriveRecord> blue, SpikeLocation spike) {
+		return path(red.apply(spike), blue.apply(spike));
+	}
+}
@@ -0,0 +1,407 @@
+package com.kuriosityrobotics.centerstage.autonomous;
+
+import com.kuriosityrobotics.centerstage.concurrent.HardwareTaskScope;
+import com.kuriosityrobotics.centerstage.concurrent.HardwareTaskScope.HardwareTask;
+import com.kuriosityrobotics.centerstage.mpc.DriveRecord;
+import com.kuriosityrobotics.centerstage.mpc.MPCNode;
+import com.kuriosityrobotics.centerstage.util.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+/**
+ * A plan for an autonomous, or part of one: steps, such as following paths and moving mechanisms, each with an
+ * estimated duration, and what each step has to wait for.
+ * <p>
+ * A step can wait for other steps to {@linkplain Step#after finish}, and for another step to be
+ * {@linkplain Step#whenRemaining nearly finished}, such as raising the slides once the robot is as close to the board
+ * as the slides take to rise.  Running the plan starts every step as soon as what it waits for is done, so everything
+ * which can overlap does, rather than waiting at a join for the slowest branch.
+ * <p>
+ * Before running, the plan works out when each step should start and finish from the estimates, and which chain of
+ * steps, the critical path, decides when the plan finishes; every other step has slack, time it could slip by without
+ * delaying the end.  After running, the {@link Report} shows the same for what
+ * actually happened, so estimates can be corrected and the steps which held the plan up can be found.
+ * <p>
+ * Steps can only wait for steps added before them, so a plan can't deadlock on itself.  A plan runs once.
+ */
+public class AutoPlan {
+	private static final Logger logger = LoggerFactory.getLogger(AutoPlan.class);
+
+	/**
+	 * How often a step waiting for another to be nearly finished checks on it.
+	 */
+	private static final long POLL_MILLIS = 10;
+
+	private final List<Step> steps = new ArrayList<>();
+	private boolean ran;
+	private volatile long origin; // System.nanoTime() at the start of the run
+
+	/**
+	 * Adds a step which runs <code>task</code>, and is expected to take <code>estimate</code>.
+	 */
+	public Step step(String name, Duration estimate, HardwareTask<RuntimeException> task) {
+		var step = new Step(name, estimate, task, null);
+		steps.add(step);
+		return step;
+	}
+
+	/**
+	 * Adds a step which follows <code>path</code>, and is expected to take as long as the path does.  While it runs,
+	 * the time it has left is the follower's.
+	 */
+	public Step drive(String name, MPCNode follower, DriveRecord path) {
+		var step = new Step(name, Duration.ofSeconds(path.maxTime() - path.minTime()), () -> follower.followPath(path),
+			() -> follower.timeRemaining(path));
+		steps.add(step);
+		return step;
+	}
+
+	/**
+	 * Works out when each step should start and finish, from the estimates, relative to the start of the plan.
+	 */
+	private void plan() {
+		for (var step : steps) {
+			long start = 0;
+			Step cause = null;
+			for (var before : step.after) {
+				if (before.plannedFinish > start) {
+					start = before.plannedFinish;
+					cause = before;
+				}
+			}
+
+			if (step.nearlyFinished != null) {
+				var other = step.nearlyFinished;
+				long released = Math.max(other.plannedStart, other.plannedFinish - step.leadNanos);
+				if (released > start) {
+					start = released;
+					cause = other;
+				}
+			}
+
+			step.plannedStart = start;
+			step.plannedFinish = start + step.estimate.toNanos();
+			step.plannedCause = cause;
+		}
+
+		// then, backwards, the latest each step can finish without delaying the end of the plan
+		long end = 0;
+		for (var step : steps)
+			end = Math.max(end, step.plannedFinish);
+		for (var step : steps)
+			step.latestFinish = end;
+
+		for (int i = steps.size() - 1; i >= 0; i--) {
+			var step = steps.get(i);
+			long latestStart = step.latestFinish - step.estimate.toNanos();
+			for (var before : step.after)
+				before.latestFinish = Math.min(before.latestFinish, latestStart);
+			if (step.nearlyFinished != null)
+				step.nearlyFinished.latestFinish = Math.min(step.nearlyFinished.latestFinish, latestStart + step.leadNanos);
+		}
+	}
+
+	/**
+	 * Runs every step, each as soon as what it waits for is done, and waits for them all to finish.  If a step throws,
+	 * the steps waiting for it don't run, the steps still running are interrupted, and the exception is rethrown.
+	 *
+	 * @return how the run compared to the plan
+	 */
+	public Report run() throws InterruptedException {
+		if (ran)
+			throw new IllegalStateException("Plan has already run");
+		ran = true;
+
+		plan();
+		origin = System.nanoTime();
+		try (var scope = HardwareTaskScope.open()) {
+			for (var step : steps)
+				scope.fork(step::run);
+			scope.join();
+		}
+
+		var report = new Report(steps);
+		logger.info("Auto plan finished\n" + report);
+		return report;
+	}
+
+	/**
+	 * @return how the run compared to the plan so far, or the plan alone if it hasn't run
+	 */
+	public Report report() {
+		if (!ran)
+			plan();
+		return new Report(steps);
+	}
+
+	/**
+	 * One step of a plan.
+	 */
+	public final class Step {
+		private final String name;
+		private final Duration estimate;
+		private final HardwareTask<RuntimeException> task;
+		private final Supplier<Optional<Duration>> remaining; // null if only the estimate is known
+
+		private final List<Step> after = new ArrayList<>();
+		private Step nearlyFinished;
+		private long leadNanos;
+
+		private final CountDownLatch finished = new CountDownLatch(1);
+		private volatile boolean failed; // it threw, or didn't run because a step it waited for did
+		private volatile long startNanos = -1; // from the start of the run
+		private volatile long finishNanos = -1;
+		private volatile Step cause; // what this step waited for last
+
+		private long plannedStart, plannedFinish, latestFinish;
+		private Step plannedCause;
+
+		private Step(String name, Duration estimate, HardwareTask<RuntimeException> task, Supplier<Optional<Duration>> remaining) {
+			this.name = name;
+			this.estimate = estimate;
+			this.task = task;
+			this.remaining = remaining;
+		}
+
+		/**
+		 * Makes this step wait for <code>steps</code> to finish before starting.
+		 *
+		 * @return this step
+		 */
+		public Step after(Step... steps) {
+			for (var step : steps) {
+				checkEarlier(step);
+				after.add(step);
+			}
+			return this;
+		}
+
+		/**
+		 * Makes this step wait for <code>step</code> to have at most <code>lead</code> left before starting, such as
+		 * starting a mechanism move which takes <code>lead</code> so that it finishes as <code>step</code> does.
+		 *
+		 * @return this step
+		 */
+		public Step whenRemaining(Step step, Duration lead) {
+			checkEarlier(step);
+			nearlyFinished = step;
+			leadNanos = lead.toNanos();
+			return this;
+		}
+
+		private void checkEarlier(Step step) {
+			int index = steps.indexOf(step);
+			if (index < 0)
+				throw new IllegalArgumentException(step + " is not part of this plan");
+			if (index >= steps.indexOf(this))
+				throw new IllegalArgumentException(name + " can only wait for steps added before it, not " + step.name);
+		}
+
+		public String name() {
+			return name;
+		}
+
+		public Duration estimate() {
+			return estimate;
+		}
+
+		/**
+		 * @return the time this step has left: zero once it has finished, its own measure of it while it runs if it
+		 * has one, and otherwise what is left of its estimate.  Empty if it hasn't started.
+		 */
+		public Optional<Duration> remaining() {
+			if (finishNanos >= 0)
+				return Optional.of(Duration.ofNanos(0));
+			if (startNanos < 0)
+				return Optional.empty();
+
+			if (remaining != null) {
+				var measured = remaining.get();
+				if (measured.isPresent())
+					return measured;
+			}
+
+			long elapsed = System.nanoTime() - origin - startNanos;
+			return Optional.of(Duration.ofNanos(Math.max(0, estimate.toNanos() - elapsed)));
+		}
+
+		private void run() throws InterruptedException {
+			Step last = null;
+			long lastFinish = -1;
+			for (var before : after) {
+				before.finished.await();
+				if (before.failed) {
+					abandon();
+					return;
+				}
+				if (before.finishNanos > lastFinish) {
+					lastFinish = before.finishNanos;
+					last = before;
+				}
+			}
+
+			if (nearlyFinished != null && !isNearlyFinished(nearlyFinished)) {
+				do {
+					Thread.sleep(POLL_MILLIS);
+				} while (!isNearlyFinished(nearlyFinished));
+				last = nearlyFinished;
+			}
+			if (nearlyFinished != null && nearlyFinished.failed) {
+				abandon();
+				return;
+			}
+
+			cause = last;
+			startNanos = System.nanoTime() - origin;
+			try {
+				task.run();
+			} catch (Throwable e) {
+				failed = true;
+				throw e;
+			} finally {
+				finishNanos = System.nanoTime() - origin;
+				finished.countDown();
+			}
+		}
+
+		/**
+		 * Gives up on this step without running it, so the steps waiting for it give up too.
+		 */
+		private void abandon() {
+			failed = true;
+			finished.countDown();
+		}
+
+		private boolean isNearlyFinished(Step step) {
+			if (step.failed)
+				return true;
+
+			var left = step.remaining();
+			return left.isPresent() && left.get().toNanos() <= leadNanos;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	/**
+	 * When each step was planned to run, and when it did.
+	 */
+	public static final class Report {
+		private final List<Step> steps;
+
+		private Report(List<Step> steps) {
+			this.steps = List.copyOf(steps);
+		}
+
+		/**
+		 * @return how long the plan was expected to take
+		 */
+		public Duration plannedDuration() {
+			long finish = 0;
+			for (var step : steps)
+				finish = Math.max(finish, step.plannedFinish);
+			return Duration.ofNanos(finish);
+		}
+
+		/**
+		 * @return how long each step is expected to take, by name
+		 */
+		public Map<String, Duration> plannedTimes() {
+			var times = new LinkedHashMap<String, Duration>();
+			for (var step : steps)
+				times.put(step.name, step.estimate);
+			return times;
+		}
+
+		/**
+		 * @return how much later than planned each step could finish without delaying the end of the plan, by name.
+		 * Steps on the critical path have none.
+		 */
+		public Map<String, Duration> plannedSlack() {
+			var slack = new LinkedHashMap<String, Duration>();
+			for (var step : steps)
+				slack.put(step.name, Duration.ofNanos(step.latestFinish - step.plannedFinish));
+			return slack;
+		}
+
+		/**
+		 * @return how long the plan took, or empty if it hasn't finished
+		 */
+		public Optional<Duration> actualDuration() {
+			long finish = 0;
+			for (var step : steps) {
+				if (step.finishNanos < 0)
+					return Optional.empty();
+				finish = Math.max(finish, step.finishNanos);
+			}
+			return Optional.of(Duration.ofNanos(finish));
+		}
+
+		/**
+		 * @return the chain of steps which was expected to decide when the plan finishes, first step first
+		 */
+		public List<String> plannedCriticalPath() {
+			Step last = null;
+			for (var step : steps) {
+				if (last == null || step.plannedFinish > last.plannedFinish)
+					last = step;
+			}
+
+			var path = new ArrayList<String>();
+			for (var step = last; step != null; step = step.plannedCause)
+				path.add(step.name);
+			Collections.reverse(path);
+			return path;
+		}
+
+		/**
+		 * @return the chain of steps which decided when the plan finished, first step first, or empty if it hasn't
+		 */
+		public List<String> actualCriticalPath() {
+			if (actualDuration().isEmpty())
+				return List.of();
+
+			Step last = null;
+			for (var step : steps) {
+				if (last == null || step.finishNanos > last.finishNanos)
+					last = step;
+			}
+
+			var path = new ArrayList<String>();
+			for (var step = last; step != null; step = step.cause)
+				path.add(step.name);
+			Collections.reverse(path);
+			return path;
+		}
+
+		@Override
+		public String toString() {
+			var out = new StringBuilder();
+			out.append(String.format("%-24s %17s %9s %17s%n", "step", "planned (s)", "slack (s)", "actual (s)"));
+			for (var step : steps) {
+				out.append(String.format("%-24s %7.2f - %7.2f %9.2f", step.name, step.plannedStart / 1e9, step.plannedFinish / 1e9,
+					(step.latestFinish - step.plannedFinish) / 1e9));
+				if (step.finishNanos >= 0)
+					out.append(String.format(" %7.2f - %7.2f", step.startNanos / 1e9, step.finishNanos / 1e9));
+				out.append('\n');
+			}
+
+			out.append(String.format("planned %.2f s: %s%n", plannedDuration().toSeconds(), String.join(" -> ", plannedCriticalPath())));
+			actualDuration().ifPresent(actual -> out.append(String.format("took %.2f s: %s%n", actual.toSeconds(), String.join(" -> ", actualCriticalPath()))));
+			return out.toString();
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package com.kuriosityrobotics.centerstage.autonomous;
+
+import com.kuriosityrobotics.centerstage.mechanisms.MechanismManager;
+import com.kuriosityrobotics.centerstage.util.Duration;
+
+/**
+ * How long each {@link MechanismManager} move is expected to take, for planning autonomouses with {@link AutoPlan}
+ * and simulating them.
+ * <p>
+ * These are rough: each move combines several servos and slides, so they are measured rather than derived.  Correct
+ * them from the reports of plans run on the robot.
+ */
+public final class MechanismTimings {
+	public static final Duration PURPLE_PRELOAD = Duration.ofMillis(500);
+	public static final Duration LIFT_INTAKE = Duration.ofMillis(300);
+	public static final Duration DEPOSIT_PURPLE = Duration.ofMillis(500);
+	/**
+	 * Raising the slides from resting to a deposit height.
+	 */
+	public static final Duration RAISE_SLIDES = Duration.ofMillis(800);
+	public static final Duration FLATTEN_WRIST = Duration.ofMillis(300);
+	public static final Duration RELEASE_AND_COLLAPSE = Duration.ofMillis(700);
+
+	public static final Duration EXTEND_INTAKE = Duration.ofMillis(500);
+	/**
+	 * Running the intake into a stack once it is extended, until the pixels are in.
+	 */
+	public static final Duration INTAKE_PIXELS = Duration.ofMillis(750);
+	public static final Duration TRANSFER = Duration.ofMillis(1000);
+
+	private MechanismTimings() {
+	}
+}
@@ -9,11 +9,14 @@ import com.kuriosityrobotics.centerstage.cameras.TeamElementProcessor;
 import com.kuriosityrobotics.centerstage.hardware.HardwareProvider;
 import com.kuriosityrobotics.centerstage.hardware.HardwareProviderImpl;
 import com.kuriosityrobotics.centerstage.localisation.OdometryIntegrator;
+import com.kuriosityrobotics.centerstage.localisation.replay.LocalisationRecorder;
 import com.kuriosityrobotics.centerstage.concurrent.HardwareTaskScope;
+import com.kuriosityrobotics.centerstage.concurrent.TaskTrace;
 import com.kuriosityrobotics.centerstage.mechanisms.intake.IntakeLiftServo;
 import com.kuriosityrobotics.centerstage.mechanisms.outtake.OuttakeExtensionSlides;
 import com.kuriosityrobotics.centerstage.mpc.MPCNode;
 import com.kuriosityrobotics.centerstage.teleop.Robot;
+import com.kuriosityrobotics.centerstage.test.Tester;
 import com.qualcomm.robotcore.eventloop.opmode.Autonomous;
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 
@@ -23,15 +26,19 @@ public class BackBlueBoardAuto extends LinearOpMode {
 	@Override
 	public void runOpMode() throws InterruptedException {
 		var ses = Robot.createScheduledExecutor();
+		var trace = Robot.startTaskTrace();
+		LocalisationRecorder recorder = null;
 
 		try (var scope = HardwareTaskScope.open()) {
 			HardwareProvider hardwareProvider = new HardwareProviderImpl(hardwareMap);
 
-			var dt = Robot.createDrivetrainNode(hardwareProvider);
-
 			var bulkDataFetcher = Robot.createBulkDataFetcher(ses, hardwareProvider);
+			var dt = Robot.createDrivetrainNode(hardwareProvider, bulkDataFetcher);
+
 			var imu = Robot.createIMUNode(hardwareProvider);
 			var odometryIntegrator = new OdometryIntegrator(ses, imu, bulkDataFetcher);
+			recorder = Robot.startLocalisationRecording(bulkDataFetcher, odometryIntegrator);
+			Robot.reportLocalisationMetrics(ses, new Tester(ses, telemetry, gamepad1), odometryIntegrator);
 			var teamElementProcessor = new TeamElementProcessor(GameElementAnalyzer.BLUE_BOARD);
 			CameraNode cam = Robot.createCameraNode(ses, hardwareProvider, teamElementProcessor);
 
@@ -154,6 +161,9 @@ public class BackBlueBoardAuto extends LinearOpMode {
 //			scope.join();
 		} finally {
 			ses.shutdownNow();
+			Robot.dumpNodeTimings();
+			Robot.dumpTaskTrace(trace);
+			Robot.stopLocalisationRecording(recorder);
 		}
 	}
 
@@ -2,8 +2,10 @@
 
 package com.kuriosityrobotics.centerstage.autonomous.opmodes;
 
+import static com.kuriosityrobotics.centerstage.autonomous.MechanismTimings.*;
 import static com.kuriosityrobotics.centerstage.autonomous.RedAutoConstants.*;
 
+import com.kuriosityrobotics.centerstage.autonomous.AutoPlan;
 import com.kuriosityrobotics.centerstage.cameras.CameraNode;
 import com.kuriosityrobotics.centerstage.cameras.GameElementAnalyzer;
 import com.kuriosityrobotics.centerstage.cameras.SpikeLocation;
@@ -11,11 +13,13 @@ import com.kuriosityrobotics.centerstage.cameras.TeamElementProcessor;
 import com.kuriosityrobotics.centerstage.hardware.HardwareProvider;
 import com.kuriosityrobotics.centerstage.hardware.HardwareProviderImpl;
 import com.kuriosityrobotics.centerstage.localisation.OdometryIntegrator;
-import com.kuriosityrobotics.centerstage.concurrent.HardwareTaskScope;
+import com.kuriosityrobotics.centerstage.localisation.replay.LocalisationRecorder;
+import com.kuriosityrobotics.centerstage.concurrent.TaskTrace;
 import com.kuriosityrobotics.centerstage.mechanisms.intake.IntakeLiftServo;
 import com.kuriosityrobotics.centerstage.mechanisms.outtake.OuttakeExtensionSlides;
 import com.kuriosityrobotics.centerstage.mpc.MPCNode;
 import com.kuriosityrobotics.centerstage.teleop.Robot;
+import com.kuriosityrobotics.centerstage.test.Tester;
 import com.qualcomm.robotcore.eventloop.opmode.Autonomous;
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 
@@ -24,15 +28,19 @@ public class BackRedBoardAuto extends LinearOpMode {
 	@Override
 	public void runOpMode() throws InterruptedException {
 		var ses = Robot.createScheduledExecutor();
+		var trace = Robot.startTaskTrace();
+		LocalisationRecorder recorder = null;
 
-		try (var scope = HardwareTaskScope.open()) {
+		try {
 			HardwareProvider hardwareProvider = new HardwareProviderImpl(hardwareMap);
 
-			var dt = Robot.createDrivetrainNode(hardwareProvider);
-
 			var bulkDataFetcher = Robot.createBulkDataFetcher(ses, hardwareProvider);
+			var dt = Robot.createDrivetrainNode(hardwareProvider, bulkDataFetcher);
+
 			var imu = Robot.createIMUNode(hardwareProvider);
 			var odometryIntegrator = new OdometryIntegrator(ses, imu, bulkDataFetcher);
+			recorder = Robot.startLocalisationRecording(bulkDataFetcher, odometryIntegrator);
+			Robot.reportLocalisationMetrics(ses, new Tester(ses, telemetry, gamepad1), odometryIntegrator);
 			var teamElementProcessor = new TeamElementProcessor(GameElementAnalyzer.RED_BOARD);
 			CameraNode cam = Robot.createCameraNode(ses, hardwareProvider, teamElementProcessor);
 
@@ -54,30 +62,38 @@ public class BackRedBoardAuto extends LinearOpMode {
 //
 			var pathToSpike = boardToSpike(spike);
 //
-//			// go to spike
-			mechanisms.toPurplePreload();
-			scope.fork(() -> follower.followPath(pathToSpike));
-			scope.fork(() -> mechanisms.toIntakeHeight(IntakeLiftServo.IntakeHeight.LIFTED));
-			scope.join();
+			var plan = new AutoPlan();
 
-			mechanisms.depositPurple();
+//			// go to spike
+			var purplePreload = plan.step("purple preload", PURPLE_PRELOAD, mechanisms::toPurplePreload);
+			var liftIntake = plan.step("lift intake", LIFT_INTAKE, () -> mechanisms.toIntakeHeight(IntakeLiftServo.IntakeHeight.LIFTED))
+				.after(purplePreload);
+			var toSpike = plan.drive("to spike", follower, pathToSpike)
+				.after(purplePreload);
+			var depositPurple = plan.step("deposit purple", DEPOSIT_PURPLE, mechanisms::depositPurple)
+				.after(toSpike, liftIntake);
 
 			// ^ works
 
-			var toCorner = boardSpikeToCorner(spike);
-			scope.fork(() -> follower.followPath(toCorner));
+			var toCorner = plan.drive("to corner", follower, boardSpikeToCorner(spike))
+				.after(depositPurple);
 
 			// REAL
-			scope.join();
-			scope.fork(() -> follower.followPath(cornerToDeposit(spike)));
-			scope.fork(() -> mechanisms.toDepositHeight(OuttakeExtensionSlides.OuttakeSlidePosition.RETRACTED));
-			scope.join();
+			var toBoard = plan.drive("to board", follower, cornerToDeposit(spike))
+				.after(toCorner);
+			var raiseSlides = plan.step("raise slides", RAISE_SLIDES, () -> mechanisms.toDepositHeight(OuttakeExtensionSlides.OuttakeSlidePosition.RETRACTED))
+				.after(depositPurple)
+				.whenRemaining(toBoard, RAISE_SLIDES);
+
+			var flattenWrist = plan.step("flatten wrist", FLATTEN_WRIST, mechanisms::flattenWrist)
+				.after(toBoard, raiseSlides);
 
-			mechanisms.flattenWrist();
+			plan.drive("to backstage", follower, depositToBackstage(spike))
+				.after(flattenWrist);
+			plan.step("release and collapse", RELEASE_AND_COLLAPSE, mechanisms::releaseAndCollapse)
+				.after(flattenWrist);
 
-			scope.fork(() -> follower.followPath(depositToBackstage(spike)));
-			scope.fork(mechanisms::releaseAndCollapse);
-			scope.join();
+			plan.run();
 //
 //			// deposit
 //			var toCorner = fieldSpikeToCorner(spike);
@@ -150,6 +166,9 @@ public class BackRedBoardAuto extends LinearOpMode {
 //			scope.join();
 		} finally {
 			ses.shutdownNow();
+			Robot.dumpNodeTimings();
+			Robot.dumpTaskTrace(trace);
+			Robot.stopLocalisationRecording(recorder);
 		}
 	}
 }
\ No newline at end of file
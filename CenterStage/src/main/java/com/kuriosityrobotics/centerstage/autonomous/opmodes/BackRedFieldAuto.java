@@ -1,17 +1,21 @@
 package com.kuriosityrobotics.centerstage.autonomous.opmodes;
 
 import static com.kuriosityrobotics.centerstage.autonomous.RedAutoConstants.*;
+import static com.kuriosityrobotics.centerstage.autonomous.simulation.AutoSimulator.AUTONOMOUS_PERIOD;
 import com.kuriosityrobotics.centerstage.cameras.GameElementAnalyzer;
 import com.kuriosityrobotics.centerstage.cameras.SpikeLocation;
 import com.kuriosityrobotics.centerstage.cameras.TeamElementProcessor;
 import com.kuriosityrobotics.centerstage.hardware.HardwareProvider;
 import com.kuriosityrobotics.centerstage.hardware.HardwareProviderImpl;
 import com.kuriosityrobotics.centerstage.localisation.OdometryIntegrator;
+import com.kuriosityrobotics.centerstage.localisation.replay.LocalisationRecorder;
 import com.kuriosityrobotics.centerstage.concurrent.HardwareTaskScope;
+import com.kuriosityrobotics.centerstage.concurrent.TaskTrace;
 import com.kuriosityrobotics.centerstage.mechanisms.intake.IntakeLiftServo;
 import com.kuriosityrobotics.centerstage.mechanisms.outtake.OuttakeExtensionSlides;
 import com.kuriosityrobotics.centerstage.mpc.MPCNode;
 import com.kuriosityrobotics.centerstage.teleop.Robot;
+import com.kuriosityrobotics.centerstage.test.Tester;
 import com.qualcomm.robotcore.eventloop.opmode.Autonomous;
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 
@@ -21,18 +25,22 @@ public class BackRedFieldAuto extends LinearOpMode {
 	@Override
 	public void runOpMode() throws InterruptedException {
 		var ses = Robot.createScheduledExecutor();
+		var trace = Robot.startTaskTrace();
+		LocalisationRecorder recorder = null;
 
-		try (var scope = HardwareTaskScope.open()) {
+		try {
 			HardwareProvider hardwareProvider = new HardwareProviderImpl(hardwareMap);
 
-			var dt = Robot.createDrivetrainNode(hardwareProvider);
-
 			var bulkDataFetcher = Robot.createBulkDataFetcher(ses, hardwareProvider);
+			var dt = Robot.createDrivetrainNode(hardwareProvider, bulkDataFetcher);
+
 			var imu = Robot.createIMUNode(hardwareProvider);
 			var teamElementProcessor = new TeamElementProcessor(GameElementAnalyzer.RED_FIELD);
 			var cam = Robot.createCameraNode(ses, hardwareProvider, teamElementProcessor);
 
 			var odometryIntegrator = new OdometryIntegrator(ses, imu, bulkDataFetcher);
+			recorder = Robot.startLocalisationRecording(bulkDataFetcher, odometryIntegrator);
+			Robot.reportLocalisationMetrics(ses, new Tester(ses, telemetry, gamepad1), odometryIntegrator);
 			var follower = new MPCNode(ses, dt, odometryIntegrator, Robot.createStableVoltageSensor(ses, hardwareProvider));
 			odometryIntegrator.resetPosition(FIELD_START_POSE);
 
@@ -41,37 +49,47 @@ public class BackRedFieldAuto extends LinearOpMode {
 
 			waitForStart();
 
-			SpikeLocation spike = teamElementProcessor.awaitMeasurement();
-			System.out.println("AUTO: going to spike " + spike);
+			// everything from here has to be done by the end of the period; once it passes, paths and mechanisms stop
+			// where they are, and the phases after are skipped
+			try (var scope = HardwareTaskScope.openWithin(InterruptedException.class, AUTONOMOUS_PERIOD)) {
+				SpikeLocation spike = teamElementProcessor.awaitMeasurement();
+				System.out.println("AUTO: going to spike " + spike);
 //
-			var pathToSpike = fieldToSpike(spike);
+				var pathToSpike = fieldToSpike(spike);
 //
-//			// go to spike
-			mechanisms.toPurplePreload();
-			scope.fork(() -> follower.followPath(pathToSpike));
-			scope.fork(() -> mechanisms.toIntakeHeight(IntakeLiftServo.IntakeHeight.LIFTED));
-			scope.join();
-
-			mechanisms.depositPurple();
-
-			// ^ works
-
-			var toCorner = fieldSpikeToCorner(spike);
-			scope.fork(() -> follower.followPath(toCorner));
-
-			// REAL
-			scope.join();
-			scope.fork(() -> follower.followPath(cornerToDeposit(spike)));
-			scope.fork(() -> mechanisms.toDepositHeight(OuttakeExtensionSlides.OuttakeSlidePosition.RETRACTED));
-			scope.join();
-
-			mechanisms.flattenWrist();
-
-			scope.fork(() -> follower.followPath(depositToCorner(spike)));
-			scope.fork(mechanisms::releaseAndCollapse);
-			scope.join();
+//				// go to spike
+				mechanisms.toPurplePreload();
+				scope.fork(() -> follower.followPath(pathToSpike));
+				scope.fork(() -> mechanisms.toIntakeHeight(IntakeLiftServo.IntakeHeight.LIFTED));
+				if (scope.join().hasExpired())
+					return;
+
+				mechanisms.depositPurple();
+
+				// ^ works
+
+				var toCorner = fieldSpikeToCorner(spike);
+				scope.fork(() -> follower.followPath(toCorner));
+
+				// REAL
+				if (scope.join().hasExpired())
+					return;
+				scope.fork(() -> follower.followPath(cornerToDeposit(spike)));
+				scope.fork(() -> mechanisms.toDepositHeight(OuttakeExtensionSlides.OuttakeSlidePosition.RETRACTED));
+				if (scope.join().hasExpired())
+					return;
+
+				mechanisms.flattenWrist();
+
+				scope.fork(() -> follower.followPath(depositToCorner(spike)));
+				scope.fork(mechanisms::releaseAndCollapse);
+				scope.join();
+			}
 		} finally {
 			ses.shutdownNow();
+			Robot.dumpNodeTimings();
+			Robot.dumpTaskTrace(trace);
+			Robot.stopLocalisationRecording(recorder);
 		}
 	}
 }
\ No newline at end of file
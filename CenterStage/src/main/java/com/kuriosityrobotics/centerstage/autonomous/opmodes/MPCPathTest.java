@@ -28,9 +28,9 @@ public class MPCPathTest extends LinearOpMode {
 		try {
 			HardwareProvider hardwareProvider = new HardwareProviderImpl(hardwareMap);
 
-			var dt = Robot.createDrivetrainNode(hardwareProvider);
-
 			var bulkDataFetcher = Robot.createBulkDataFetcher(ses, hardwareProvider);
+			var dt = Robot.createDrivetrainNode(hardwareProvider, bulkDataFetcher);
+
 			var imu = Robot.createIMUNode(hardwareProvider);
 			var odometryIntegrator = new OdometryIntegrator(ses, imu, bulkDataFetcher);
 
@@ -92,6 +92,7 @@ public class MPCPathTest extends LinearOpMode {
 
 		} finally {
 			ses.shutdownNow();
+			Robot.dumpNodeTimings();
 		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,260 @@
+package com.kuriosityrobotics.centerstage.autonomous.simulation;
+
+import static com.kuriosityrobotics.centerstage.autonomous.MechanismTimings.*;
+
+import com.kuriosityrobotics.centerstage.autonomous.Alliance;
+import com.kuriosityrobotics.centerstage.autonomous.AutoPlan;
+import com.kuriosityrobotics.centerstage.autonomous.BlueAutoConstants;
+import com.kuriosityrobotics.centerstage.autonomous.RedAutoConstants;
+import com.kuriosityrobotics.centerstage.cameras.SpikeLocation;
+import com.kuriosityrobotics.centerstage.concurrent.HardwareTaskScope;
+import com.kuriosityrobotics.centerstage.concurrent.StructuredTaskScope.Subtask;
+import com.kuriosityrobotics.centerstage.util.Duration;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Works out how long autonomous routes take, off the robot, so routes can be compared and checked against the
+ * autonomous period before they are tried on the field.
+ * <p>
+ * A {@link Route} declares an autonomous as an {@link AutoPlan}, for either alliance and any spike.  Paths take as long
+ * as a {@link DriveModel} expects MPCNode to take to follow them, and mechanism moves as long as
+ * {@link com.kuriosityrobotics.centerstage.autonomous.MechanismTimings} says.  Every route is simulated for both
+ * alliances and every spike, in parallel, giving how long each takes, how long each step takes, and how much each step
+ * could slip without making the route longer.  Variants of a route, such as taking a leg quickly or adding a cycle,
+ * are simulated as separate routes.
+ */
+public class AutoSimulator {
+	public static final Duration AUTONOMOUS_PERIOD = Duration.ofSeconds(30);
+
+	/**
+	 * An autonomous, declared for any alliance and spike.
+	 */
+	public interface Route {
+		void declare(SimulatedPlan plan, Alliance alliance, SpikeLocation spike);
+	}
+
+	private final DriveModel driveModel;
+
+	public AutoSimulator(DriveModel driveModel) {
+		this.driveModel = driveModel;
+	}
+
+	public AutoSimulator() {
+		this(new DriveModel());
+	}
+
+	/**
+	 * Simulates one route for one alliance and spike.
+	 */
+	public Result simulate(String name, Route route, Alliance alliance, SpikeLocation spike) {
+		var plan = new SimulatedPlan(driveModel);
+		route.declare(plan, alliance, spike);
+		return new Result(name, alliance, spike, plan.report());
+	}
+
+	/**
+	 * Simulates every route for both alliances and every spike, each on its own thread.
+	 *
+	 * @param routes the routes, by name
+	 * @return the results, in the order of <code>routes</code>, then alliance, then spike
+	 */
+	public List<Result> simulate(Map<String, Route> routes) throws InterruptedException {
+		var subtasks = new ArrayList<Subtask<Result>>();
+		try (var scope = HardwareTaskScope.open()) {
+			for (var route : routes.entrySet()) {
+				for (var alliance : Alliance.values()) {
+					for (var spike : SpikeLocation.values())
+						subtasks.add(scope.fork(() -> simulate(route.getKey(), route.getValue(), alliance, spike)));
+				}
+			}
+			scope.join();
+		}
+
+		var results = new ArrayList<Result>();
+		for (var subtask : subtasks)
+			results.add(subtask.get());
+		return results;
+	}
+
+	/**
+	 * How long a route took for one alliance and spike.
+	 */
+	public static final class Result {
+		private final String route;
+		private final Alliance alliance;
+		private final SpikeLocation spike;
+		private final AutoPlan.Report report;
+
+		private Result(String route, Alliance alliance, SpikeLocation spike, AutoPlan.Report report) {
+			this.route = route;
+			this.alliance = alliance;
+			this.spike = spike;
+			this.report = report;
+		}
+
+		public String route() {
+			return route;
+		}
+
+		public Alliance alliance() {
+			return alliance;
+		}
+
+		public SpikeLocation spike() {
+			return spike;
+		}
+
+		/**
+		 * @return when each step starts and finishes, its slack, and the critical path
+		 */
+		public AutoPlan.Report report() {
+			return report;
+		}
+
+		public Duration duration() {
+			return report.plannedDuration();
+		}
+
+		/**
+		 * @return whether the route finishes within the autonomous period
+		 */
+		public boolean fits() {
+			return !duration().isGreaterThan(AUTONOMOUS_PERIOD);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s, %s, %s spike: %.2f s (%+.2f s to spare)",
+				route, alliance, spike, duration().toSeconds(), AUTONOMOUS_PERIOD.toSeconds() - duration().toSeconds());
+		}
+	}
+
+	/**
+	 * @return a table of each route's slowest and mean time over every alliance and spike, and whether it always fits
+	 * in the autonomous period
+	 */
+	public static String summarise(List<Result> results) {
+		var out = new StringBuilder();
+		out.append(String.format("%-32s %9s %9s %5s  %s%n", "route", "worst (s)", "mean (s)", "fits", "worst case"));
+		for (var route : byRoute(results).entrySet()) {
+			var worst = slowest(route.getValue());
+			double mean = route.getValue().stream().mapToDouble(result -> result.duration().toSeconds()).average().orElse(0);
+			boolean fits = route.getValue().stream().allMatch(Result::fits);
+			out.append(String.format("%-32s %9.2f %9.2f %5s  %s %s%n", route.getKey(), worst.duration().toSeconds(), mean,
+				fits ? "yes" : "no", worst.alliance(), worst.spike()));
+		}
+		return out.toString();
+	}
+
+	private static Map<String, List<Result>> byRoute(List<Result> results) {
+		var byRoute = new LinkedHashMap<String, List<Result>>();
+		for (var result : results)
+			byRoute.computeIfAbsent(result.route(), route -> new ArrayList<>()).add(result);
+		return byRoute;
+	}
+
+	private static Result slowest(List<Result> results) {
+		return results.stream().max(Comparator.comparing(Result::duration)).orElseThrow();
+	}
+
+	/**
+	 * The board-side routes: the purple pixel, the yellow pixel on the board, then parking or cycling to the stacks.
+	 */
+	public static Map<String, Route> boardRoutes() {
+		var routes = new LinkedHashMap<String, Route>();
+		routes.put("board, park backstage", (plan, alliance, spike) -> {
+			var wrist = toBoard(plan, alliance, spike);
+			plan.drive("park backstage", alliance.path(RedAutoConstants::depositToBackstage, BlueAutoConstants::depositToBackstage, spike))
+				.after(wrist);
+			plan.move("release and collapse", RELEASE_AND_COLLAPSE).after(wrist);
+		});
+		routes.put("board, park in corner", (plan, alliance, spike) -> {
+			var wrist = toBoard(plan, alliance, spike);
+			plan.drive("park in corner", alliance.path(RedAutoConstants::depositToCorner, BlueAutoConstants::depositToCorner, spike))
+				.after(wrist);
+			plan.move("release and collapse", RELEASE_AND_COLLAPSE).after(wrist);
+		});
+		routes.put("board, 1 cycle", cycles(1));
+		routes.put("board, 2 cycles", cycles(2));
+		return routes;
+	}
+
+	/**
+	 * Declares the purple pixel and the drive to the board, as in the back board autos.
+	 *
+	 * @return the step which readies the yellow pixel at the board
+	 */
+	private static AutoPlan.Step toBoard(SimulatedPlan plan, Alliance alliance, SpikeLocation spike) {
+		var purplePreload = plan.move("purple preload", PURPLE_PRELOAD);
+		var liftIntake = plan.move("lift intake", LIFT_INTAKE).after(purplePreload);
+		var toSpike = plan.drive("to spike", alliance.path(RedAutoConstants::boardToSpike, BlueAutoConstants::boardToSpike, spike))
+			.after(purplePreload);
+		var depositPurple = plan.move("deposit purple", DEPOSIT_PURPLE).after(toSpike, liftIntake);
+
+		var toCorner = plan.drive("to corner", alliance.path(RedAutoConstants::boardSpikeToCorner, BlueAutoConstants::boardSpikeToCorner, spike))
+			.after(depositPurple);
+		var toBoard = plan.drive("to board", alliance.path(RedAutoConstants::cornerToDeposit, BlueAutoConstants::cornerToDeposit, spike))
+			.after(toCorner);
+		var raiseSlides = plan.move("raise slides", RAISE_SLIDES)
+			.after(depositPurple)
+			.whenRemaining(toBoard, RAISE_SLIDES);
+		return plan.move("flatten wrist", FLATTEN_WRIST).after(toBoard, raiseSlides);
+	}
+
+	/**
+	 * @return the board route, followed by <code>cycles</code> trips through the gutter to the stack and back to the
+	 * board, as sketched in the back red board auto
+	 */
+	private static Route cycles(int cycles) {
+		return (plan, alliance, spike) -> {
+			var wrist = toBoard(plan, alliance, spike);
+			var release = plan.move("release and collapse", RELEASE_AND_COLLAPSE).after(wrist);
+			var toCorner = plan.drive("board to corner", alliance.path(RedAutoConstants::depositToCorner, BlueAutoConstants::depositToCorner, spike))
+				.after(wrist);
+
+			for (int cycle = 1; cycle <= cycles; cycle++) {
+				var toStack = plan.drive("to stack " + cycle, alliance.path(RedAutoConstants.CORNER_TO_CYCLE, BlueAutoConstants.CORNER_TO_CYCLE))
+					.after(toCorner);
+				var extend = plan.move("extend intake " + cycle, EXTEND_INTAKE)
+					.after(release)
+					.whenRemaining(toStack, EXTEND_INTAKE);
+				var intake = plan.move("intake " + cycle, INTAKE_PIXELS).after(toStack, extend);
+
+				var fromStack = plan.drive("from stack " + cycle, alliance.path(RedAutoConstants.CYCLE_TO_CORNER, BlueAutoConstants.CYCLE_TO_CORNER))
+					.after(intake);
+				var transfer = plan.move("transfer " + cycle, TRANSFER).after(intake);
+				var toBoard = plan.drive("to board " + cycle, alliance.path(RedAutoConstants.CORNER_TO_BOARD, BlueAutoConstants.CORNER_TO_BOARD))
+					.after(fromStack);
+				var raiseSlides = plan.move("raise slides " + cycle, RAISE_SLIDES)
+					.after(transfer)
+					.whenRemaining(toBoard, RAISE_SLIDES);
+
+				release = plan.move("release and collapse " + cycle, RELEASE_AND_COLLAPSE).after(toBoard, raiseSlides);
+				toCorner = plan.drive("board to corner " + cycle, alliance.path(RedAutoConstants.BOARD_TO_CORNER, BlueAutoConstants.BOARD_TO_CORNER))
+					.after(toBoard, raiseSlides);
+			}
+		};
+	}
+
+	/**
+	 * Simulates the {@linkplain #boardRoutes() board routes} from the command line, and prints how long each takes, and
+	 * the steps of its slowest case.
+	 * <p>
+	 * Usage: <code>AutoSimulator</code>
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		var results = new AutoSimulator().simulate(boardRoutes());
+
+		System.out.println(summarise(results));
+		for (var route : byRoute(results).values()) {
+			var worst = slowest(route);
+			System.out.println(worst);
+			System.out.println(worst.report());
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package com.kuriosityrobotics.centerstage.autonomous.simulation;
+
+import com.kuriosityrobotics.centerstage.drive.MotorPowers;
+import com.kuriosityrobotics.centerstage.localisation.messages.LocalisationDatum;
+import com.kuriosityrobotics.centerstage.math.Pose;
+import com.kuriosityrobotics.centerstage.math.Twist;
+import com.kuriosityrobotics.centerstage.mpc.DriveRecord;
+import com.kuriosityrobotics.centerstage.mpc.MPCNode;
+import com.kuriosityrobotics.centerstage.mpc.SystemState;
+import com.kuriosityrobotics.centerstage.util.Duration;
+
+import static java.lang.Math.toRadians;
+
+/**
+ * A model of how long {@link MPCNode} takes to follow a path, for simulating autonomouses off the robot, where the
+ * solver can't run.
+ * <p>
+ * The robot is a point which follows the path's velocity, plus a correction towards where the path says it should be,
+ * limited in speed and acceleration.  Time along the path advances as it does in MPCNode's follower: by a solver
+ * period at a time, pulled back to the nearest point on the path whenever the robot falls more than 2 cm behind.  The
+ * path finishes by the follower's rules, then the robot is held at the end, as MPCNode does, until it settles.
+ * <p>
+ * The default limits are rough; fit them from localisation logs.  This class is immutable, so can be shared between
+ * simulations running in parallel.
+ */
+public class DriveModel {
+	public static final double DEFAULT_MAXIMUM_SPEED = 1.8; // m/s
+	public static final double DEFAULT_MAXIMUM_ACCELERATION = 3; // m/s^2
+	public static final double DEFAULT_MAXIMUM_ANGULAR_SPEED = 6; // rad/s
+	public static final double DEFAULT_MAXIMUM_ANGULAR_ACCELERATION = 20; // rad/s^2
+
+	private static final double GAIN = 5; // 1/s
+	private static final double SOLVER_PERIOD = 0.05; // as MPCNode
+	private static final double STEP = 0.005;
+	/**
+	 * How much longer than the path a follow can take before the simulation gives up on it.
+	 */
+	private static final double TIMEOUT = 5;
+
+	private final double maximumSpeed;
+	private final double maximumAcceleration;
+	private final double maximumAngularSpeed;
+	private final double maximumAngularAcceleration;
+
+	/**
+	 * @param maximumSpeed               in metres per second
+	 * @param maximumAcceleration        in metres per second squared
+	 * @param maximumAngularSpeed        in radians per second
+	 * @param maximumAngularAcceleration in radians per second squared
+	 */
+	public DriveModel(double maximumSpeed, double maximumAcceleration, double maximumAngularSpeed, double maximumAngularAcceleration) {
+		this.maximumSpeed = maximumSpeed;
+		this.maximumAcceleration = maximumAcceleration;
+		this.maximumAngularSpeed = maximumAngularSpeed;
+		this.maximumAngularAcceleration = maximumAngularAcceleration;
+	}
+
+	public DriveModel() {
+		this(DEFAULT_MAXIMUM_SPEED, DEFAULT_MAXIMUM_ACCELERATION, DEFAULT_MAXIMUM_ANGULAR_SPEED, DEFAULT_MAXIMUM_ANGULAR_ACCELERATION);
+	}
+
+	/**
+	 * @return how long {@link MPCNode#followPath} is expected to take to follow <code>path</code> from a standstill at
+	 * its start, including settling at its end
+	 */
+	public Duration timeToFollow(DriveRecord path) {
+		var robot = new Robot(path.get(path.minTime()));
+		double time = robot.follow(path);
+		time += robot.follow(DriveRecord.ofStationary(path.endPoint())); // position lock
+		return Duration.ofSeconds(time);
+	}
+
+	private class Robot {
+		double x, y, heading;
+		double xVelocity, yVelocity, angularVelocity; // field frame
+
+		Robot(SystemState start) {
+			x = start.getX();
+			y = start.getY();
+			heading = start.getTheta();
+		}
+
+		/**
+		 * @return the time taken to finish <code>path</code>, by the rules of MPCNode's follower
+		 */
+		double follow(DriveRecord path) {
+			double timeAlongPath = path.minTime();
+			double limit = path.maxTime() - path.minTime() + TIMEOUT;
+			double stableSince = Double.NaN;
+
+			for (double time = 0; time < limit; time += SOLVER_PERIOD) {
+				timeAlongPath = correct(path, timeAlongPath);
+				for (double t = 0; t < SOLVER_PERIOD; t += STEP)
+					step(path, timeAlongPath + t);
+				timeAlongPath = correct(path, Math.min(timeAlongPath + SOLVER_PERIOD, path.maxTime()));
+
+				if (isFinished(path, timeAlongPath))
+					return time + SOLVER_PERIOD;
+
+				if (!isStable(path, timeAlongPath))
+					stableSince = Double.NaN;
+				else if (Double.isNaN(stableSince))
+					stableSince = time;
+				else if (time - stableSince > 1)
+					return time + SOLVER_PERIOD;
+			}
+
+			return limit;
+		}
+
+		private SystemState state() {
+			return SystemState.ofLocalisationAndPowers(LocalisationDatum.of(new Pose(x, y, heading), Twist.zero()), MotorPowers.zero());
+		}
+
+		private double correct(DriveRecord path, double timeAlongPath) {
+			var state = state();
+			if (path.get(timeAlongPath).linearDistanceTo(state) > 0.02)
+				return path.nearestInterpolatedTimeInRange(state, timeAlongPath - 0.04, timeAlongPath + 0.05, 0.005);
+			return timeAlongPath;
+		}
+
+		private void step(DriveRecord path, double time) {
+			var target = path.get(time);
+			var next = path.get(time + STEP);
+
+			double xCommand = (next.getX() - target.getX()) / STEP + GAIN * (target.getX() - x);
+			double yCommand = (next.getY() - target.getY()) / STEP + GAIN * (target.getY() - y);
+			double angularCommand = (next.getTheta() - target.getTheta()) / STEP + GAIN * (target.getTheta() - heading);
+
+			double speed = Math.hypot(xCommand, yCommand);
+			if (speed > maximumSpeed) {
+				xCommand *= maximumSpeed / speed;
+				yCommand *= maximumSpeed / speed;
+			}
+			angularCommand = clamp(angularCommand, maximumAngularSpeed);
+
+			double xChange = xCommand - xVelocity;
+			double yChange = yCommand - yVelocity;
+			double change = Math.hypot(xChange, yChange);
+			double maximumChange = maximumAcceleration * STEP;
+			if (change > maximumChange) {
+				xChange *= maximumChange / change;
+				yChange *= maximumChange / change;
+			}
+			xVelocity += xChange;
+			yVelocity += yChange;
+			angularVelocity += clamp(angularCommand - angularVelocity, maximumAngularAcceleration * STEP);
+
+			x += xVelocity * STEP;
+			y += yVelocity * STEP;
+			heading += angularVelocity * STEP;
+		}
+
+		private boolean isFinished(DriveRecord path, double timeAlongPath) {
+			var target = path.get(timeAlongPath);
+			return path.maxTime() - timeAlongPath <= 0.5
+				&& target.linearDistanceTo(state()) < 0.03
+				&& Math.abs(heading - target.getTheta()) < toRadians(3);
+		}
+
+		private boolean isStable(DriveRecord path, double timeAlongPath) {
+			var target = path.get(timeAlongPath);
+			return path.maxTime() - timeAlongPath <= 1
+				&& path.get(path.maxTime()).linearDistanceTo(state()) < 0.1
+				&& Math.abs(heading - target.getTheta()) < toRadians(10)
+				&& Math.hypot(xVelocity, yVelocity) < 0.1 && Math.abs(angularVelocity) < 0.1;
+		}
+	}
+
+	private static double clamp(double value, double magnitude) {
+		return Math.max(-magnitude, Math.min(magnitude, value));
+	}
+}
@@ -0,0 +1,40 @@
+package com.kuriosityrobotics.centerstage.autonomous.simulation;
+
+import com.kuriosityrobotics.centerstage.autonomous.AutoPlan;
+import com.kuriosityrobotics.centerstage.concurrent.HardwareTaskScope.HardwareTask;
+import com.kuriosityrobotics.centerstage.mpc.DriveRecord;
+import com.kuriosityrobotics.centerstage.util.Duration;
+
+/**
+ * An {@link AutoPlan} which is only planned, never run, for simulating an autonomous: paths take as long as a
+ * {@link DriveModel} says, rather than as long as they are timed for.
+ */
+public final class SimulatedPlan {
+	private static final HardwareTask<RuntimeException> NOTHING = () -> {
+	};
+
+	private final AutoPlan plan = new AutoPlan();
+	private final DriveModel driveModel;
+
+	SimulatedPlan(DriveModel driveModel) {
+		this.driveModel = driveModel;
+	}
+
+	/**
+	 * Adds a step which follows <code>path</code>.
+	 */
+	public AutoPlan.Step drive(String name, DriveRecord path) {
+		return plan.step(name, driveModel.timeToFollow(path), NOTHING);
+	}
+
+	/**
+	 * Adds a step which moves mechanisms, and takes <code>estimate</code>.
+	 */
+	public AutoPlan.Step move(String name, Duration estimate) {
+		return plan.step(name, estimate, NOTHING);
+	}
+
+	AutoPlan.Report report() {
+		return plan.report();
+	}
+}
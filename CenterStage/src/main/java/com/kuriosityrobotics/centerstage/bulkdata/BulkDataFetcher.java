@@ -1,14 +1,27 @@
 package com.kuriosityrobotics.centerstage.bulkdata;
 
+import com.kuriosityrobotics.centerstage.bus.Topic;
 import com.kuriosityrobotics.centerstage.hardware.LynxHub;
+import com.kuriosityrobotics.centerstage.metrics.Counter;
+import com.kuriosityrobotics.centerstage.metrics.Histogram;
+import com.kuriosityrobotics.centerstage.metrics.NodeTimer;
+import com.kuriosityrobotics.centerstage.metrics.NodeTimers;
+import com.kuriosityrobotics.centerstage.metrics.RateMeter;
+import com.kuriosityrobotics.centerstage.test.Tester;
+import com.kuriosityrobotics.centerstage.util.Clock;
+import com.kuriosityrobotics.centerstage.util.Duration;
 import com.qualcomm.hardware.lynx.LynxModule;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Phaser;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
 
 import static com.kuriosityrobotics.centerstage.hardware.LynxHub.CONTROL_HUB;
@@ -21,44 +34,237 @@ import org.slf4j.LoggerFactory;
  * The BulkDataFetcher class is responsible for fetching bulk data from the Control Hub and Expansion Hub,
  * converting it to RevHubBulkData objects, and dispatching it to registered listeners.
  * <p>
- * The bulk data is fetched at a fixed rate specified by the {@link ScheduledExecutorService} passed in the constructor.
- * The fetched data is then converted using the dispatchBulkData method and dispatched through different topics.
+ * Each hub is read in its own loop, on a dedicated thread of the {@link ScheduledExecutorService} passed in the
+ * constructor, at its own rate.  Each hub's data is published to its {@link #topic(LynxHub) topic} as soon as it is
+ * read, so a slow read from one hub never delays the other hub's listeners.  Listeners which do slow work, such as
+ * writing files, should subscribe to the topic on their own executor so that they don't delay the next read.
+ * Listeners which need both hubs at once can instead receive {@link Snapshot}s, which pair the latest read from each
+ * hub and report how far apart they were taken.
+ * <p>
+ * A hub is only read as often as something needs it to be: each {@link Demand} asks for a rate, for a while, and the
+ * hub is read at the highest rate demanded (up to its maximum), or not at all if nothing is demanded.  This leaves
+ * the Lynx bus free for motor and servo writes when, say, the only consumers are mechanisms which are not moving.
+ * Adding a listener demands its hub's maximum rate for as long as the fetcher exists.
  */
 public class BulkDataFetcher {
 	private static final Logger logger = LoggerFactory.getLogger(BulkDataFetcher.class);
-	private final Collection<Consumer<RevHubBulkData>> controlHubListeners = new LinkedBlockingQueue<>();
-	private final Collection<Consumer<RevHubBulkData>> expansionHubListeners = new LinkedBlockingQueue<>();
 
-	private final LynxModule controlHub;
-	private final LynxModule expansionHub;
+	/**
+	 * The default shortest time between bulk reads of each hub, i.e. the inverse of its maximum rate.
+	 */
+	public static final Duration DEFAULT_READ_PERIOD = Duration.ofMillis(1000 / 50);
+
+	/**
+	 * How long a {@link BulkDataNotifier} keeps demanding reads after each {@link BulkDataNotifier#await()}.
+	 */
+	private static final Duration NOTIFIER_DEMAND_LIFETIME = Duration.ofMillis(250);
+
+	private static final Duration RATE_WINDOW = Duration.ofSeconds(1);
+
+	private final Map<LynxHub, Hub> hubs = new EnumMap<>(LynxHub.class);
+	private final Collection<Consumer<Snapshot>> snapshotListeners = new CopyOnWriteArrayList<>();
+	private final Histogram snapshotSkewMicros = new Histogram();
+
+	// guarded by this; indexed by hub ordinal
+	private final RevHubBulkData[] unpairedData = new RevHubBulkData[LynxHub.values().length];
+	private final long[] unpairedReadNanos = new long[LynxHub.values().length];
+
+	private volatile ScheduledExecutorService executor; // null until started
+	private CurrentMonitor currentMonitor; // guarded by this
 
 	public BulkDataFetcher(ScheduledExecutorService ses, LynxModule controlHub, LynxModule expansionHub) {
-		this.controlHub = controlHub;
-		this.expansionHub = expansionHub;
+		this(ses, controlHub, DEFAULT_READ_PERIOD, expansionHub, DEFAULT_READ_PERIOD);
+	}
 
-		ses.scheduleWithFixedDelay(this::updateData, 0, 1000 / 50, TimeUnit.MILLISECONDS);
+	/**
+	 * @param ses                the executor to run the read loops on; one thread is held per hub until it is shut down
+	 * @param controlHub         the Control Hub
+	 * @param controlHubPeriod   the shortest time between bulk reads of the Control Hub
+	 * @param expansionHub       the Expansion Hub
+	 * @param expansionHubPeriod the shortest time between bulk reads of the Expansion Hub
+	 */
+	public BulkDataFetcher(ScheduledExecutorService ses, LynxModule controlHub, Duration controlHubPeriod, LynxModule expansionHub, Duration expansionHubPeriod) {
+		this(new LynxBulkDataSource(controlHub), controlHubPeriod, new LynxBulkDataSource(expansionHub), expansionHubPeriod);
+		start(ses);
+	}
+
+	/**
+	 * Creates a fetcher which reads from any source, such as a simulation.
+	 *
+	 * @param ses          the executor to run the read loops on; one thread is held per hub until it is shut down
+	 * @param controlHub   the source of Control Hub bulk data
+	 * @param expansionHub the source of Expansion Hub bulk data
+	 */
+	public BulkDataFetcher(ScheduledExecutorService ses, BulkDataSource controlHub, BulkDataSource expansionHub) {
+		this(controlHub, expansionHub);
+		start(ses);
+	}
+
+	/**
+	 * Creates a fetcher which only reads when {@link #read(LynxHub)} is called, until it is {@link #start started}.
+	 */
+	BulkDataFetcher(BulkDataSource controlHub, Duration controlHubPeriod, BulkDataSource expansionHub, Duration expansionHubPeriod) {
+		hubs.put(CONTROL_HUB, new Hub(CONTROL_HUB, controlHub, controlHubPeriod));
+		hubs.put(EXPANSION_HUB, new Hub(EXPANSION_HUB, expansionHub, expansionHubPeriod));
+	}
+
+	BulkDataFetcher(BulkDataSource controlHub, BulkDataSource expansionHub) {
+		this(controlHub, DEFAULT_READ_PERIOD, expansionHub, DEFAULT_READ_PERIOD);
+	}
+
+	void start(ScheduledExecutorService ses) {
+		executor = ses;
+		for (var hub : hubs.values())
+			ses.execute(() -> readLoop(hub));
+	}
+
+	/**
+	 * Demands reads of a hub at a given rate until the demand is closed.
+	 *
+	 * @param hub  the hub
+	 * @param rate the rate, in Hz.  Rates above the hub's maximum are capped.
+	 * @return the demand
+	 */
+	public Demand demand(LynxHub hub, double rate) {
+		var demand = new Demand(hubs.get(hub), rate);
+		demand.renew();
+		return demand;
+	}
+
+	/**
+	 * Demands reads of a hub at a given rate for a limited time.
+	 *
+	 * @param hub      the hub
+	 * @param rate     the rate, in Hz.  Rates above the hub's maximum are capped.
+	 * @param lifetime how long to demand reads for, unless renewed or closed first
+	 * @return the demand
+	 */
+	public Demand demand(LynxHub hub, double rate, Duration lifetime) {
+		var demand = new Demand(hubs.get(hub), rate);
+		demand.renew(lifetime);
+		return demand;
+	}
+
+	/**
+	 * @param hub the hub
+	 * @return the rate <code>hub</code> is currently being asked to be read at, in Hz, or 0 if it is idle
+	 */
+	public double demandedRate(LynxHub hub) {
+		long period = hubs.get(hub).periodNanos(System.nanoTime());
+		return period == Hub.IDLE ? 0 : 1e9 / period;
 	}
 
 	/**
 	 * Adds a listener to receive bulk data from the Control Hub.
+	 * The data is only valid until the listener returns; see {@link RevHubBulkData#retain()}.
 	 *
 	 * @param listener The listener to add.
 	 */
 	public void addControlHubListener(Consumer<RevHubBulkData> listener) {
-		controlHubListeners.add(listener);
+		demand(CONTROL_HUB, Double.POSITIVE_INFINITY);
+		hubs.get(CONTROL_HUB).topic.subscribe(listener);
 	}
 
 	/**
 	 * Adds a listener to receive bulk data from the Expansion Hub.
+	 * The data is only valid until the listener returns; see {@link RevHubBulkData#retain()}.
 	 *
 	 * @param listener The listener to add.
 	 */
 	public void addExpansionHubListener(Consumer<RevHubBulkData> listener) {
-		expansionHubListeners.add(listener);
+		demand(EXPANSION_HUB, Double.POSITIVE_INFINITY);
+		hubs.get(EXPANSION_HUB).topic.subscribe(listener);
 	}
 
 	/**
-	 * Returns a {@link BulkDataNotifier} for the specified LynxHubs.
+	 * Subscribing to the topic does not demand any reads; see {@link #demand(LynxHub, double)}.
+	 *
+	 * @param hub the hub
+	 * @return the topic which every bulk read from <code>hub</code> is published to
+	 */
+	public Topic<RevHubBulkData> topic(LynxHub hub) {
+		return hubs.get(hub).topic;
+	}
+
+	/**
+	 * Adds a listener to receive the position and velocity of a single encoder at every bulk read.
+	 *
+	 * @param hub      the hub the encoder is connected to
+	 * @param port     the motor port the encoder is connected to
+	 * @param listener The listener to add.
+	 */
+	public void addEncoderListener(LynxHub hub, int port, EncoderListener listener) {
+		if (port < 0 || port >= RevHubBulkData.MOTOR_PORTS)
+			throw new IllegalArgumentException("No motor port " + port);
+
+		demand(hub, Double.POSITIVE_INFINITY);
+		hubs.get(hub).encoderListeners.add(new PortListener(port, listener));
+	}
+
+	/**
+	 * Adds a listener to receive synchronised snapshots of both hubs.  A snapshot is dispatched whenever both hubs
+	 * have been read since the last snapshot, and pairs the latest read from each, so it arrives at the rate of the
+	 * slower hub.  Like bulk data, a snapshot is only valid until the listener returns.
+	 *
+	 * @param listener The listener to add.
+	 */
+	public void addSnapshotListener(Consumer<Snapshot> listener) {
+		for (var hub : LynxHub.values())
+			demand(hub, Double.POSITIVE_INFINITY);
+		snapshotListeners.add(listener);
+	}
+
+	/**
+	 * @param hub the hub
+	 * @return the achieved rate of bulk reads from <code>hub</code>, in Hz
+	 */
+	public double achievedRate(LynxHub hub) {
+		return hubs.get(hub).rate.perSecond();
+	}
+
+	/**
+	 * @param hub the hub
+	 * @return the time taken by each bulk read from <code>hub</code>, in microseconds
+	 */
+	public Histogram readTime(LynxHub hub) {
+		return hubs.get(hub).readTimeMicros;
+	}
+
+	/**
+	 * @return the time between the two reads paired in each {@link Snapshot}, in microseconds
+	 */
+	public Histogram snapshotSkew() {
+		return snapshotSkewMicros;
+	}
+
+	/**
+	 * @return the number of {@link RevHubBulkData} ever allocated for <code>hub</code>
+	 */
+	int allocated(LynxHub hub) {
+		return hubs.get(hub).pool.allocated();
+	}
+
+	/**
+	 * The monitor samples on the executor the fetcher was started on, which needs a thread to spare beyond the read
+	 * loops.
+	 *
+	 * @return the monitor which samples motor currents after this fetcher's reads, created on first use
+	 * @throws IllegalStateException if the fetcher has not been started
+	 */
+	public synchronized CurrentMonitor currentMonitor() {
+		if (currentMonitor == null) {
+			if (executor == null)
+				throw new IllegalStateException("Bulk data fetcher has not been started");
+
+			currentMonitor = new CurrentMonitor(this, executor);
+		}
+
+		return currentMonitor;
+	}
+
+	/**
+	 * Returns a {@link BulkDataNotifier} for the specified LynxHubs.  The hubs are read at their maximum rate while
+	 * anyone is awaiting the notifier, and shortly afterwards.
 	 *
 	 * @param lynxHub The LynxHubs to notify.
 	 * @return The BulkDataNotifier instance.
@@ -68,86 +274,338 @@ public class BulkDataFetcher {
 		if (lynxHub.length == 0)
 			throw new IllegalArgumentException("Must specify at least one hub");
 
-		var notifier = new BulkDataNotifier();
-
-		var set = Set.of(lynxHub);
-		if (set.contains(CONTROL_HUB))
-			addControlHubListener(data -> notifier.sendNotification());
+		var hubs = Set.of(lynxHub);
+		var demands = new Demand[hubs.size()];
+		int i = 0;
+		for (var hub : hubs)
+			demands[i++] = new Demand(this.hubs.get(hub), Double.POSITIVE_INFINITY);
 
-		if (set.contains(EXPANSION_HUB))
-			addExpansionHubListener(data -> notifier.sendNotification());
+		var notifier = new BulkDataNotifier(demands);
+		// subscribe to the topics directly, since the notifier only demands reads while it is awaited
+		for (var hub : hubs)
+			this.hubs.get(hub).topic.subscribe(data -> notifier.sendNotification());
 
 		return notifier;
 	}
 
 	/**
-	 * Updates the data by dispatching the bulk data from the Control Hub and Expansion Hub.
+	 * Shows the achieved read rate and read time of each hub, and the skew between synchronised snapshots.
+	 */
+	public void testRoutine(Tester tester) {
+		tester.header("[Bulk Data]");
+		for (var hub : LynxHub.values()) {
+			tester.info(hub.hardwareName() + " rate", () -> String.format("%.1f Hz", achievedRate(hub)));
+			tester.info(hub.hardwareName() + " read time (us)", () -> readTime(hub).toString());
+		}
+
+		addSnapshotListener(snapshot -> {}); // snapshots are only paired while someone is listening
+		tester.info("Snapshot skew (us)", () -> snapshotSkew().toString());
+		for (var hub : LynxHub.values())
+			tester.info(hub.hardwareName() + " demanded rate", () -> String.format("%.1f Hz", demandedRate(hub)));
+	}
+
+	private void readLoop(Hub hub) {
+		hub.reader = Thread.currentThread();
+
+		// time with raw nanoTime, since Instants would be garbage
+		try {
+			boolean idle = true;
+			long lastRead = 0;
+			while (!Thread.interrupted()) {
+				long now = System.nanoTime();
+				hub.pruneExpired(now);
+				long period = hub.periodNanos(now);
+				if (period == Hub.IDLE) {
+					idle = true;
+					LockSupport.park(this); // until a demand wakes us
+					continue;
+				}
+
+				long nextRead = idle ? now : lastRead + period;
+				if (nextRead - now > 0) {
+					LockSupport.parkNanos(this, nextRead - now); // or until a faster demand wakes us
+					continue;
+				}
+
+				long start = hub.timer.start(nextRead);
+				try {
+					read(hub);
+				} finally {
+					hub.timer.stop(start);
+				}
+				// keep to the schedule, unless we fell behind; then don't try to catch up
+				lastRead = idle || now - nextRead > period ? now : nextRead;
+				idle = false;
+			}
+
+			Thread.currentThread().interrupt();
+		} catch (RuntimeException e) {
+			logger.error(hub.hub.hardwareName() + " bulk reads stopped", e);
+			throw e;
+		} finally {
+			hub.reader = null;
+		}
+	}
+
+	/**
+	 * Reads one hub once, and dispatches the data.
 	 */
-	private void updateData() {
-		dispatchBulkData(CONTROL_HUB, controlHub.getBulkData());
-		dispatchBulkData(EXPANSION_HUB, expansionHub.getBulkData());
+	void read(LynxHub hub) {
+		read(hubs.get(hub));
+	}
+
+	private void read(Hub hub) {
+		var data = hub.pool.acquire();
+
+		long start = System.nanoTime();
+		hub.source.read(data);
+		long readNanos = System.nanoTime() - start;
+
+		hub.reads.increment();
+		hub.readTimeMicros.record(TimeUnit.NANOSECONDS.toMicros(readNanos));
+
+		try {
+			dispatch(hub, data);
+			if (!snapshotListeners.isEmpty())
+				pair(hub.hub, data, start + readNanos / 2); // the hub sampled somewhere during the transaction; assume the middle
+		} finally {
+			data.release();
+		}
 	}
 
 	/**
-	 * Converts the BulkData to a {@link RevHubBulkData}.
-	 * <p>
-	 * Dispatches the bulk data through many topics.
-	 *
-	 * @param data The bulk data to convert.
+	 * Dispatches bulk data to a hub's listeners.  Indexes rather than iterates the listeners, as iterators are garbage.
 	 */
-	private void dispatchBulkData(LynxHub hub, LynxModule.BulkData data) {
-		var result = new RevHubBulkData(hub);
+	private static void dispatch(Hub hub, RevHubBulkData data) {
+		hub.topic.publish(data);
 
-		for (int i = 0; i < result.encoders.length; i++) {
-			var position = data.getMotorCurrentPosition(i);
-			result.encoders[i] = position;
+		var encoderListeners = hub.encoderListeners;
+		for (int i = 0; i < encoderListeners.size(); i++) {
+			var listener = encoderListeners.get(i);
+			listener.listener.onEncoder(data.encoder(listener.port), data.velocity(listener.port));
 		}
+	}
+
+	private void pair(LynxHub hub, RevHubBulkData data, long readNanos) {
+		RevHubBulkData controlHubData, expansionHubData;
+		long skewNanos;
+		synchronized (this) {
+			var replaced = unpairedData[hub.ordinal()];
+			if (replaced != null)
+				replaced.release();
 
+			unpairedData[hub.ordinal()] = data.retain();
+			unpairedReadNanos[hub.ordinal()] = readNanos;
 
-		for (int i = 0; i < result.velocities.length; i++) {
-			var correctedVelocity = correctOverflow(data.getMotorVelocity(i));
-			result.velocities[i] = correctedVelocity;
+			controlHubData = unpairedData[CONTROL_HUB.ordinal()];
+			expansionHubData = unpairedData[EXPANSION_HUB.ordinal()];
+			if (controlHubData == null || expansionHubData == null)
+				return;
+
+			skewNanos = Math.abs(unpairedReadNanos[CONTROL_HUB.ordinal()] - unpairedReadNanos[EXPANSION_HUB.ordinal()]);
+			unpairedData[CONTROL_HUB.ordinal()] = null;
+			unpairedData[EXPANSION_HUB.ordinal()] = null;
 		}
 
-		for (int i = 0; i < result.analogInputs.length; i++) {
-			var voltage = data.getAnalogInputVoltage(i);
-			result.analogInputs[i] = voltage;
+		try {
+			snapshotSkewMicros.record(TimeUnit.NANOSECONDS.toMicros(skewNanos));
+			var snapshot = new Snapshot(controlHubData, expansionHubData, Duration.ofNanos(skewNanos));
+			for (var listener : snapshotListeners)
+				listener.accept(snapshot);
+		} finally {
+			controlHubData.release();
+			expansionHubData.release();
 		}
+	}
 
-		for (int i = 0; i < result.digitalInputs.length; i++) {
-			var state = data.getDigitalChannelState(i);
-			result.digitalInputs[i] = state;
+	/**
+	 * A read from each hub, paired together.
+	 */
+	public static final class Snapshot {
+		public final RevHubBulkData controlHub;
+		public final RevHubBulkData expansionHub;
+		/**
+		 * The time between the two reads.
+		 */
+		public final Duration skew;
+
+		private Snapshot(RevHubBulkData controlHub, RevHubBulkData expansionHub, Duration skew) {
+			this.controlHub = controlHub;
+			this.expansionHub = expansionHub;
+			this.skew = skew;
 		}
+	}
 
-		switch (hub) {
-			case CONTROL_HUB:
-				controlHubListeners.forEach(listener -> listener.accept(result));
-				break;
-			case EXPANSION_HUB:
-				expansionHubListeners.forEach(listener -> listener.accept(result));
-				break;
+	/**
+	 * Receives the position and velocity of a single encoder, without the rest of the bulk data.
+	 */
+	@FunctionalInterface
+	public interface EncoderListener {
+		/**
+		 * @param position the encoder position, in ticks
+		 * @param velocity the encoder velocity, in ticks per second
+		 */
+		void onEncoder(int position, int velocity);
+	}
+
+	private static final class PortListener {
+		final int port;
+		final EncoderListener listener;
+
+		PortListener(int port, EncoderListener listener) {
+			this.port = port;
+			this.listener = listener;
 		}
 	}
 
-	private int correctOverflow(int input) {
-		if (input % 20 == 0) {
-			return input;
-		} else if ((input + (1 << 16)) % 20 == 0) {
-			return input + (1 << 16);
-		} else if ((input - (1 << 16)) % 20 == 0) {
-			return input - (1 << 16);
-		} else if ((input + 2 * (1 << 16)) % 20 == 0) {
-			return input + 2 * (1 << 16);
-		} else if ((input - 2 * (1 << 16)) % 20 == 0) {
-			return input - 2 * (1 << 16);
-		} else {
-			logger.warn("Could not figure out how to prevent overflow and cast vel to multiple of 20");
-			return input; // this edge case is not possible when using a throughbore encoder, where the reported velocity is always a multiple of 20 in some form
+	/**
+	 * A request for a hub to be read at some rate, for as long as the demand is live.
+	 */
+	public static final class Demand implements AutoCloseable {
+		private final Hub hub;
+		private final double rate;
+		private volatile boolean expires;
+		private volatile long expiryNanos;
+		private volatile boolean closed;
+
+		private Demand(Hub hub, double rate) {
+			if (!(rate > 0))
+				throw new IllegalArgumentException("Demanded rate must be positive");
+
+			this.hub = hub;
+			this.rate = rate;
+		}
+
+		/**
+		 * Makes the demand live until it is closed.
+		 */
+		public void renew() {
+			expires = false;
+			activate();
+		}
+
+		/**
+		 * Makes the demand live for <code>lifetime</code> from now, unless it is closed first.
+		 *
+		 * @param lifetime how long the demand lasts
+		 */
+		public void renew(Duration lifetime) {
+			expiryNanos = System.nanoTime() + lifetime.toNanos();
+			expires = true;
+			activate();
+		}
+
+		private void activate() {
+			if (closed)
+				throw new IllegalStateException("Demand is closed");
+
+			hub.addDemand(this);
+		}
+
+		boolean isLive(long now) {
+			return !closed && (!expires || expiryNanos - now > 0);
+		}
+
+		/**
+		 * Ends the demand.  It cannot be renewed afterwards.
+		 */
+		@Override
+		public void close() {
+			closed = true;
+			hub.removeDemand(this);
+		}
+	}
+
+	/**
+	 * Everything belonging to one hub.
+	 */
+	private static final class Hub {
+		static final long IDLE = Long.MAX_VALUE;
+
+		final LynxHub hub;
+		final BulkDataSource source;
+		final BulkDataPool pool;
+		final Topic<RevHubBulkData> topic;
+		final CopyOnWriteArrayList<PortListener> encoderListeners = new CopyOnWriteArrayList<>();
+		/**
+		 * The demands, including any which have expired since the reader last pruned them.  Copied on write, under
+		 * this, so that they can be scanned without locking or allocating.
+		 */
+		private volatile Demand[] demands = new Demand[0];
+		final long minimumPeriodNanos;
+		volatile Thread reader;
+
+		final Counter reads = new Counter();
+		final RateMeter rate = new RateMeter(reads, Clock.system(), RATE_WINDOW);
+		final Histogram readTimeMicros = new Histogram();
+		/**
+		 * Times each read and dispatch made by the read loop, against the schedule the loop set itself.
+		 */
+		final NodeTimer timer;
+
+		Hub(LynxHub hub, BulkDataSource source, Duration minimumPeriod) {
+			this.hub = hub;
+			this.source = source;
+			this.pool = new BulkDataPool(hub);
+			this.topic = new Topic<>(hub.hardwareName() + " bulk data");
+			this.minimumPeriodNanos = minimumPeriod.toNanos();
+			this.timer = NodeTimers.forNode(hub.hardwareName() + " bulk read", minimumPeriod);
+		}
+
+		void addDemand(Demand demand) {
+			synchronized (this) {
+				if (!Arrays.asList(demands).contains(demand)) {
+					var added = Arrays.copyOf(demands, demands.length + 1);
+					added[demands.length] = demand;
+					demands = added;
+				}
+			}
+			LockSupport.unpark(reader); // it may now need to read sooner
+		}
+
+		synchronized void removeDemand(Demand demand) {
+			demands = Arrays.stream(demands).filter(d -> d != demand).toArray(Demand[]::new);
+		}
+
+		/**
+		 * Forgets demands which have expired by <code>now</code>; renewing one adds it back.  Only the reader calls
+		 * this, so that asking for the {@linkplain #periodNanos period} from other threads doesn't change the demands.
+		 */
+		void pruneExpired(long now) {
+			for (var demand : demands) {
+				if (!demand.isLive(now)) {
+					synchronized (this) {
+						demands = Arrays.stream(demands).filter(d -> d.isLive(now)).toArray(Demand[]::new);
+					}
+					return;
+				}
+			}
+		}
+
+		/**
+		 * @return the time between reads demanded at <code>now</code>, or {@link #IDLE} if no reads are demanded
+		 */
+		long periodNanos(long now) {
+			double rate = 0;
+			for (var demand : demands) {
+				if (demand.isLive(now))
+					rate = Math.max(rate, demand.rate);
+			}
+
+			if (rate == 0)
+				return IDLE;
+
+			return Math.max(minimumPeriodNanos, (long) (1e9 / rate));
 		}
 	}
 
 	public static class BulkDataNotifier {
 		private final Phaser barrier = new Phaser(1);
+		private final Demand[] demands;
+
+		private BulkDataNotifier(Demand[] demands) {
+			this.demands = demands;
+		}
 
 		/**
 		 * A barrier for notifications which notifies waiters
@@ -171,7 +629,11 @@ public class BulkDataFetcher {
 		 * as usual for the next advancement.
 		 */
 		public void await() throws InterruptedException {
-			barrier.awaitAdvanceInterruptibly(barrier.getPhase());
+			int phase = barrier.getPhase();
+			for (var demand : demands)
+				demand.renew(NOTIFIER_DEMAND_LIFETIME);
+
+			barrier.awaitAdvanceInterruptibly(phase);
 		}
 	}
 }
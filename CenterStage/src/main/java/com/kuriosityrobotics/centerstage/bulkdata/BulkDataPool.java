@@ -0,0 +1,48 @@
+package com.kuriosityrobotics.centerstage.bulkdata;
+
+import com.kuriosityrobotics.centerstage.hardware.LynxHub;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of {@link RevHubBulkData} from one hub.  Instances return to the pool when their last reference is released.
+ * <p>
+ * Once the pool holds as many instances as are in use at once, acquiring and recycling allocate nothing.
+ */
+class BulkDataPool {
+	private static final int CAPACITY = 16;
+
+	private final LynxHub hub;
+	private final ArrayBlockingQueue<RevHubBulkData> free = new ArrayBlockingQueue<>(CAPACITY);
+	private final AtomicInteger allocated = new AtomicInteger();
+
+	BulkDataPool(LynxHub hub) {
+		this.hub = hub;
+	}
+
+	/**
+	 * @return an instance with a single reference, whose contents are stale
+	 */
+	RevHubBulkData acquire() {
+		var data = free.poll();
+		if (data == null) {
+			allocated.incrementAndGet();
+			return new RevHubBulkData(hub, this);
+		}
+
+		data.revive();
+		return data;
+	}
+
+	void recycle(RevHubBulkData data) {
+		free.offer(data); // if the pool is full, let the garbage collector have it
+	}
+
+	/**
+	 * @return the number of instances this pool has ever allocated
+	 */
+	int allocated() {
+		return allocated.get();
+	}
+}
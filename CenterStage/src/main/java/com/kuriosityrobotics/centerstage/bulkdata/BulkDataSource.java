@@ -0,0 +1,22 @@
+package com.kuriosityrobotics.centerstage.bulkdata;
+
+import com.qualcomm.hardware.lynx.LynxModule;
+
+/**
+ * A source of bulk reads from one hub.
+ */
+public interface BulkDataSource {
+	/**
+	 * @return a source which bulk reads <code>module</code>
+	 */
+	static BulkDataSource of(LynxModule module) {
+		return new LynxBulkDataSource(module);
+	}
+
+	/**
+	 * Performs a bulk read, overwriting every field of <code>data</code>.
+	 *
+	 * @param data the data to read into
+	 */
+	void read(RevHubBulkData data);
+}
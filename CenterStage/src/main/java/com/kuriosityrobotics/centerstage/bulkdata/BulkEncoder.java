@@ -0,0 +1,120 @@
+package com.kuriosityrobotics.centerstage.bulkdata;
+
+import com.kuriosityrobotics.centerstage.hardware.LynxHub;
+import com.kuriosityrobotics.centerstage.hardware.MetricPositionSensor;
+import com.kuriosityrobotics.centerstage.hardware.MetricVelocitySensor;
+import com.kuriosityrobotics.centerstage.util.Duration;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.DcMotorSimple;
+
+/**
+ * A motor's encoder, read from the latest bulk data for its hub and port rather than with a transaction of its own.
+ * <p>
+ * Reading the encoder demands bulk reads of its hub for a short while, so that polling it keeps the data fresh.  If
+ * the latest bulk data is too old, or is from before the encoder was {@link #invalidate() invalidated}, the motor is
+ * read directly instead.
+ */
+public class BulkEncoder implements MetricPositionSensor, MetricVelocitySensor {
+	private static final Duration MAX_AGE = Duration.ofMillis(100);
+	private static final Duration DEMAND_LIFETIME = Duration.ofMillis(250);
+
+	private final DcMotorEx motor;
+	private final double ticksPerMetre;
+	private final int sign;
+	private final BulkDataFetcher.Demand demand;
+
+	// written by the bulk data reader only; samples is written last
+	private volatile int position;
+	private volatile int velocity;
+	private volatile long receivedNanos;
+	private volatile long samples;
+
+	private volatile long samplesAtInvalidation;
+	private volatile double offset;
+
+	/**
+	 * @param fetcher       the fetcher reading the motor's hub
+	 * @param hub           the hub the motor is connected to
+	 * @param motor         the motor, read directly when the bulk data is stale.  Its direction is applied to the bulk
+	 *                      data, and must not change.
+	 * @param ticksPerMetre encoder ticks per metre of travel
+	 */
+	public BulkEncoder(BulkDataFetcher fetcher, LynxHub hub, DcMotorEx motor, double ticksPerMetre) {
+		this.motor = motor;
+		this.ticksPerMetre = ticksPerMetre;
+		this.sign = motor.getDirection() == DcMotorSimple.Direction.REVERSE ? -1 : 1;
+
+		int port = motor.getPortNumber();
+		if (port < 0 || port >= RevHubBulkData.MOTOR_PORTS)
+			throw new IllegalArgumentException("No motor port " + port);
+
+		this.demand = fetcher.demand(hub, Double.POSITIVE_INFINITY, DEMAND_LIFETIME);
+		fetcher.topic(hub).subscribe(data -> {
+			position = data.encoder(port);
+			velocity = data.velocity(port);
+			receivedNanos = System.nanoTime();
+			samples++;
+		});
+	}
+
+	private boolean isFresh() {
+		demand.renew(DEMAND_LIFETIME);
+
+		// a read which was in progress at invalidation may predate it, but the one after it can't
+		return samples - samplesAtInvalidation >= 2
+			&& System.nanoTime() - receivedNanos <= MAX_AGE.toNanos();
+	}
+
+	/**
+	 * Discards the bulk data read so far, after something (such as resetting the encoder) changes its reading.  Until
+	 * the next full bulk read, the motor is read directly.
+	 */
+	public void invalidate() {
+		samplesAtInvalidation = samples;
+	}
+
+	/**
+	 * @return the encoder position, in ticks, with the motor's direction applied
+	 */
+	public int getPositionTicks() {
+		return isFresh() ? sign * position : motor.getCurrentPosition();
+	}
+
+	/**
+	 * @return the encoder velocity, in ticks per second, with the motor's direction applied
+	 */
+	public double getVelocityTicks() {
+		return isFresh() ? sign * velocity : motor.getVelocity();
+	}
+
+	@Override
+	public double getPositionMeters() {
+		return (getPositionTicks() + offset) / ticksPerMetre;
+	}
+
+	@Override
+	public double getVelocityMeters() {
+		return getVelocityTicks() / ticksPerMetre;
+	}
+
+	@Override
+	public void updateOffsetToMatch(double currentPosition) {
+		offset = currentPosition * ticksPerMetre - getPositionTicks();
+	}
+
+	/**
+	 * @param position a position, in metres
+	 * @return the encoder reading, in ticks, at <code>position</code>
+	 */
+	public int toTicks(double position) {
+		return (int) (position * ticksPerMetre - offset);
+	}
+
+	/**
+	 * @param ticks an encoder reading, in ticks
+	 * @return the position, in metres, at <code>ticks</code>
+	 */
+	public double toMetres(int ticks) {
+		return (ticks + offset) / ticksPerMetre;
+	}
+}
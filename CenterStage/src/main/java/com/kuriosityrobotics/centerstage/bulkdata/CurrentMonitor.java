@@ -0,0 +1,295 @@
+package com.kuriosityrobotics.centerstage.bulkdata;
+
+import com.kuriosityrobotics.centerstage.bus.Topic;
+import com.kuriosityrobotics.centerstage.hardware.LynxHub;
+import com.kuriosityrobotics.centerstage.test.Tester;
+import com.kuriosityrobotics.centerstage.util.Clock;
+import com.kuriosityrobotics.centerstage.util.Duration;
+import com.kuriosityrobotics.centerstage.util.Instant;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+
+import org.firstinspires.ftc.robotcore.external.navigation.CurrentUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * Watches motors for stalls and over-currents, sampling their currents after each hub's bulk reads.
+ * <p>
+ * Bulk reads don't include motor currents, so each current sample is a blocking transaction of its own.  The currents
+ * are therefore sampled on the monitor's executor, from a queued subscription to each hub's bulk data, so that they
+ * never delay the bulk read thread or its inline listeners.  To bound what they cost, the currents on a hub are
+ * sampled at most once per the hub's sample period, and only for watches which are {@link Watch#setActive active}.
+ * Speeds come from the bulk read itself.
+ * <p>
+ * A watch trips when its motor's current stays at or above its trip current, with the motor's speed at or below its
+ * trip speed, for its trip time.  It trips once per episode: the current or speed must recover before it trips again.
+ * Trips are counted by the watch, so that a blocked motion can poll {@link Watch#trips()} and abort, and published to
+ * {@link #events()}.  Each watch also keeps a smoothed mean and the peak of its current.
+ */
+public class CurrentMonitor {
+	private static final Logger logger = LoggerFactory.getLogger(CurrentMonitor.class);
+
+	public static final Duration DEFAULT_SAMPLE_PERIOD = Duration.ofMillis(20);
+	private static final double SMOOTHING = 0.25; // weight of each sample in the mean
+
+	private final BulkDataFetcher fetcher;
+	private final Clock clock;
+	private final Map<LynxHub, Hub> hubs = new EnumMap<>(LynxHub.class);
+	private final List<Watch> watches = new CopyOnWriteArrayList<>();
+	private final Topic<Event> events = new Topic<>("motor current events");
+
+	/**
+	 * @param fetcher  the fetcher whose bulk reads to sample after
+	 * @param executor the executor to sample currents on
+	 */
+	public CurrentMonitor(BulkDataFetcher fetcher, Executor executor) {
+		this(fetcher, executor, Clock.system());
+	}
+
+	CurrentMonitor(BulkDataFetcher fetcher, Executor executor, Clock clock) {
+		this.fetcher = fetcher;
+		this.clock = clock;
+
+		for (var hub : LynxHub.values()) {
+			var state = new Hub(hub, DEFAULT_SAMPLE_PERIOD);
+			hubs.put(hub, state);
+			// reading currents blocks on the Lynx bus, so don't do it on the bulk read thread
+			fetcher.topic(hub).subscribe(executor, data -> sample(state, data));
+		}
+	}
+
+	/**
+	 * Sets how often the currents on <code>hub</code> are sampled.  Every active watch on the hub costs a transaction
+	 * per sample.
+	 */
+	public void setSamplePeriod(LynxHub hub, Duration samplePeriod) {
+		hubs.get(hub).samplePeriodNanos = samplePeriod.toNanos();
+	}
+
+	/**
+	 * Watches a motor for stalls: a high current while it is barely moving.
+	 *
+	 * @param hub         the hub the motor is connected to
+	 * @param name        the motor's name, for events and telemetry
+	 * @param motor       the motor
+	 * @param tripCurrent the current at or above which the motor may be stalled, in amps
+	 * @param tripSpeed   the speed at or below which the motor may be stalled, in ticks per second
+	 * @param tripTime    how long the motor must be stalled for the watch to trip
+	 * @return the watch, which is active
+	 */
+	public Watch watch(LynxHub hub, String name, DcMotorEx motor, double tripCurrent, double tripSpeed, Duration tripTime) {
+		int port = motor.getPortNumber();
+		if (port < 0 || port >= RevHubBulkData.MOTOR_PORTS)
+			throw new IllegalArgumentException("No motor port " + port);
+
+		var watch = new Watch(hubs.get(hub), name, motor, port, tripCurrent, tripSpeed, tripTime.toNanos());
+		watch.setActive(true);
+		hubs.get(hub).watches.add(watch);
+		watches.add(watch);
+		return watch;
+	}
+
+	/**
+	 * Watches a motor for over-currents, whatever its speed.
+	 *
+	 * @see #watch(LynxHub, String, DcMotorEx, double, double, Duration)
+	 */
+	public Watch watch(LynxHub hub, String name, DcMotorEx motor, double tripCurrent, Duration tripTime) {
+		return watch(hub, name, motor, tripCurrent, Double.POSITIVE_INFINITY, tripTime);
+	}
+
+	/**
+	 * @return the topic every trip is published to, on the monitor's executor
+	 */
+	public Topic<Event> events() {
+		return events;
+	}
+
+	private void sample(Hub hub, RevHubBulkData data) {
+		long now = clock.now().nanos();
+		if (hub.sampledNanos != Long.MIN_VALUE && now - hub.sampledNanos < hub.samplePeriodNanos)
+			return;
+		hub.sampledNanos = now;
+
+		for (var watch : hub.watches) {
+			if (!watch.active)
+				continue;
+
+			double current;
+			try {
+				current = watch.motor.getCurrent(CurrentUnit.AMPS);
+			} catch (RuntimeException e) {
+				logger.warn("Could not read the current of " + watch.name, e);
+				continue;
+			}
+
+			var event = watch.record(now, current, Math.abs(data.velocity(watch.port)));
+			if (event != null) {
+				logger.warn("{} tripped: {}", watch.name, event);
+				events.publish(event);
+			}
+		}
+	}
+
+	public void addTo(Tester tester) {
+		tester.header("[Motor Currents]");
+		for (var watch : watches)
+			tester.info(watch.name, watch::toString);
+	}
+
+	private static final class Hub {
+		final LynxHub hub;
+		final List<Watch> watches = new CopyOnWriteArrayList<>();
+		volatile long samplePeriodNanos;
+		long sampledNanos = Long.MIN_VALUE; // only used by the hub's subscription, which never runs concurrently
+
+		Hub(LynxHub hub, Duration samplePeriod) {
+			this.hub = hub;
+			this.samplePeriodNanos = samplePeriod.toNanos();
+		}
+	}
+
+	/**
+	 * One watched motor.
+	 */
+	public final class Watch {
+		private final String name;
+		private final DcMotorEx motor;
+		private final int port;
+		private final double tripCurrent;
+		private final double tripSpeed;
+		private final long tripTimeNanos;
+		private final Hub hub;
+		private BulkDataFetcher.Demand demand; // guarded by this
+
+		private volatile boolean active;
+		private volatile long trips;
+
+		// guarded by this
+		private long samples;
+		private double lastCurrent, meanCurrent, peakCurrent;
+		private long stalledSinceNanos;
+		private boolean stalled, tripped;
+
+		private Watch(Hub hub, String name, DcMotorEx motor, int port, double tripCurrent, double tripSpeed, long tripTimeNanos) {
+			this.name = name;
+			this.motor = motor;
+			this.port = port;
+			this.tripCurrent = tripCurrent;
+			this.tripSpeed = tripSpeed;
+			this.tripTimeNanos = tripTimeNanos;
+			this.hub = hub;
+		}
+
+		private synchronized Event record(long now, double current, double speed) {
+			samples++;
+			lastCurrent = current;
+			meanCurrent = samples == 1 ? current : meanCurrent + SMOOTHING * (current - meanCurrent);
+			peakCurrent = Math.max(peakCurrent, current);
+
+			if (current < tripCurrent || speed > tripSpeed) {
+				stalled = tripped = false;
+				return null;
+			}
+
+			if (!stalled) {
+				stalled = true;
+				stalledSinceNanos = now;
+			}
+			if (tripped || now - stalledSinceNanos < tripTimeNanos)
+				return null;
+
+			tripped = true;
+			trips++;
+			return new Event(this, Instant.createInstant(now), current, speed);
+		}
+
+		/**
+		 * Starts or stops sampling this motor.  While active, its hub is bulk read at least once per sample period.
+		 */
+		public synchronized void setActive(boolean active) {
+			stalled = tripped = false;
+			this.active = active;
+
+			if (demand != null)
+				demand.close();
+			demand = active ? fetcher.demand(hub.hub, 1e9 / Math.max(1, hub.samplePeriodNanos)) : null;
+		}
+
+		public boolean isActive() {
+			return active;
+		}
+
+		/**
+		 * @return the number of times this watch has tripped
+		 */
+		public long trips() {
+			return trips;
+		}
+
+		public String name() {
+			return name;
+		}
+
+		/**
+		 * @return the latest current sampled, in amps
+		 */
+		public synchronized double lastCurrent() {
+			return lastCurrent;
+		}
+
+		/**
+		 * @return the exponentially smoothed mean of the currents sampled, in amps
+		 */
+		public synchronized double meanCurrent() {
+			return meanCurrent;
+		}
+
+		/**
+		 * @return the highest current sampled, in amps
+		 */
+		public synchronized double peakCurrent() {
+			return peakCurrent;
+		}
+
+		@Override
+		public synchronized String toString() {
+			return String.format("%.2fA (mean %.2fA, peak %.2fA), %d trips%s",
+				lastCurrent, meanCurrent, peakCurrent, trips, active ? "" : ", inactive");
+		}
+	}
+
+	/**
+	 * A watch tripping.
+	 */
+	public static final class Event {
+		public final Watch watch;
+		public final Instant time;
+		/**
+		 * The current when the watch tripped, in amps.
+		 */
+		public final double current;
+		/**
+		 * The motor's speed when the watch tripped, in ticks per second.
+		 */
+		public final double speed;
+
+		Event(Watch watch, Instant time, double current, double speed) {
+			this.watch = watch;
+			this.time = time;
+			this.current = current;
+			this.speed = speed;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s at %.2fA and %.0f ticks/s", watch.name, current, speed);
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package com.kuriosityrobotics.centerstage.bulkdata;
+
+import com.qualcomm.hardware.lynx.LynxModule;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads bulk data from a {@link LynxModule}.
+ */
+class LynxBulkDataSource implements BulkDataSource {
+	private static final Logger logger = LoggerFactory.getLogger(LynxBulkDataSource.class);
+
+	private final LynxModule module;
+
+	LynxBulkDataSource(LynxModule module) {
+		this.module = module;
+	}
+
+	@Override
+	public void read(RevHubBulkData result) {
+		var data = module.getBulkData();
+
+		for (int i = 0; i < RevHubBulkData.MOTOR_PORTS; i++)
+			result.set(i, data.getMotorCurrentPosition(i), correctOverflow(data.getMotorVelocity(i)));
+
+		for (int i = 0; i < RevHubBulkData.ANALOG_INPUTS; i++)
+			result.setAnalogInput(i, data.getAnalogInputVoltage(i));
+
+		for (int i = 0; i < RevHubBulkData.DIGITAL_CHANNELS; i++)
+			result.setDigitalInput(i, data.getDigitalChannelState(i));
+	}
+
+	private int correctOverflow(int input) {
+		if (input % 20 == 0) {
+			return input;
+		} else if ((input + (1 << 16)) % 20 == 0) {
+			return input + (1 << 16);
+		} else if ((input - (1 << 16)) % 20 == 0) {
+			return input - (1 << 16);
+		} else if ((input + 2 * (1 << 16)) % 20 == 0) {
+			return input + 2 * (1 << 16);
+		} else if ((input - 2 * (1 << 16)) % 20 == 0) {
+			return input - 2 * (1 << 16);
+		} else {
+			logger.warn("Could not figure out how to prevent overflow and cast vel to multiple of 20");
+			return input; // this edge case is not possible when using a throughbore encoder, where the reported velocity is always a multiple of 20 in some form
+		}
+	}
+}
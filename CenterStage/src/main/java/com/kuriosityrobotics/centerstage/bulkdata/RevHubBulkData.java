@@ -1,25 +1,156 @@
 package com.kuriosityrobotics.centerstage.bulkdata;
 
+import com.kuriosityrobotics.centerstage.bus.ReferenceCounted;
 import com.kuriosityrobotics.centerstage.hardware.LynxHub;
 
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The <code>RevHubBulkData</code> class is a container for bulk data from the Control Hub. Not to be
  * confused with the LynxModule.BulkData class, from which this class can be constructed.
+ * <p>
+ * Instances dispatched by {@link BulkDataFetcher} are pooled and reused, so they are only valid for the duration of
+ * the listener call.  A listener which keeps one for longer must {@link #retain()} it, and {@link #release()} it when
+ * it is done.  Subscribers which are queued on the bulk data {@link com.kuriosityrobotics.centerstage.bus.Topic} don't need
+ * to, since the topic holds a reference while it delivers.
  */
-public class RevHubBulkData implements Serializable {
+public class RevHubBulkData implements Serializable, ReferenceCounted {
+	public static final int MOTOR_PORTS = 4; // 4 motors on CH/EH
+	public static final int ANALOG_INPUTS = 4; // 4 analogue inputs on CH/EH
+	public static final int DIGITAL_CHANNELS = 8;
 
-	public final LynxHub origin;
-	public int[] encoders = new int[4]; // 4 motors on CH/EH
-	public final int[] velocities = new int[4]; // 4 motors on CH/EH
-	public double[] analogInputs = new double[4]; // 4 analogue inputs on CH/EJ
+	private final LynxHub origin;
+	private final int[] encoders = new int[MOTOR_PORTS];
+	private final int[] velocities = new int[MOTOR_PORTS];
+	private final double[] analogInputs = new double[ANALOG_INPUTS];
+	private final boolean[] digitalInputs = new boolean[DIGITAL_CHANNELS];
 
-	public boolean[] digitalInputs = new boolean[8];
+	private final transient BulkDataPool pool; // null if not pooled
+	private final transient AtomicInteger references = new AtomicInteger(1);
 
-
-	RevHubBulkData(LynxHub origin) {
+	RevHubBulkData(LynxHub origin, BulkDataPool pool) {
 		this.origin = origin;
+		this.pool = pool;
+	}
+
+	/**
+	 * Creates an unpooled copy of some bulk data, for example when replaying a log.
+	 */
+	public static RevHubBulkData of(LynxHub origin, int[] encoders, int[] velocities, double[] analogInputs, boolean[] digitalInputs) {
+		var data = new RevHubBulkData(origin, null);
+		System.arraycopy(encoders, 0, data.encoders, 0, MOTOR_PORTS);
+		System.arraycopy(velocities, 0, data.velocities, 0, MOTOR_PORTS);
+		System.arraycopy(analogInputs, 0, data.analogInputs, 0, ANALOG_INPUTS);
+		System.arraycopy(digitalInputs, 0, data.digitalInputs, 0, DIGITAL_CHANNELS);
+		return data;
+	}
+
+	public LynxHub origin() {
+		return origin;
+	}
+
+	/**
+	 * @return the position of the encoder on motor port <code>port</code>, in ticks
+	 */
+	public int encoder(int port) {
+		return encoders[port];
+	}
+
+	/**
+	 * @return the velocity of the encoder on motor port <code>port</code>, in ticks per second
+	 */
+	public int velocity(int port) {
+		return velocities[port];
+	}
+
+	/**
+	 * @return the voltage on analogue input <code>input</code>
+	 */
+	public double analogInput(int input) {
+		return analogInputs[input];
+	}
+
+	/**
+	 * @return the state of digital channel <code>channel</code>
+	 */
+	public boolean digitalInput(int channel) {
+		return digitalInputs[channel];
+	}
+
+	/**
+	 * Sets the encoder on motor port <code>port</code>.  Only for {@link BulkDataSource}s; everyone else must treat
+	 * bulk data as read-only.
+	 */
+	public void set(int port, int encoder, int velocity) {
+		encoders[port] = encoder;
+		velocities[port] = velocity;
+	}
+
+	/**
+	 * Only for {@link BulkDataSource}s.
+	 */
+	public void setAnalogInput(int input, double voltage) {
+		analogInputs[input] = voltage;
+	}
+
+	/**
+	 * Only for {@link BulkDataSource}s.
+	 */
+	public void setDigitalInput(int channel, boolean state) {
+		digitalInputs[channel] = state;
+	}
+
+	/**
+	 * Keeps this data valid after the listener it was dispatched to returns.  Must be paired with {@link #release()}.
+	 *
+	 * @return this
+	 */
+	public RevHubBulkData retain() {
+		if (!tryRetain())
+			throw new IllegalStateException("Bulk data retained after it was released");
+
+		return this;
+	}
+
+	@Override
+	public boolean tryRetain() {
+		int count;
+		do {
+			count = references.get();
+			if (count <= 0)
+				return false;
+		} while (!references.compareAndSet(count, count + 1));
+
+		return true;
+	}
+
+	/**
+	 * Gives up a reference taken by {@link #retain()}.  The data may be reused once every reference is released.
+	 */
+	@Override
+	public void release() {
+		int remaining = references.decrementAndGet();
+		if (remaining < 0)
+			throw new IllegalStateException("Bulk data released more times than it was retained");
+
+		if (remaining == 0 && pool != null)
+			pool.recycle(this);
+	}
+
+	/**
+	 * Makes a recycled instance live again, with a single reference.
+	 */
+	void revive() {
+		references.set(1);
+	}
+
+	/**
+	 * The pool and reference count aren't serialised, so a deserialised instance is replaced with an unpooled copy
+	 * holding a single reference.
+	 */
+	private Object readResolve() {
+		return of(origin, encoders, velocities, analogInputs, digitalInputs);
 	}
 
 	@Override
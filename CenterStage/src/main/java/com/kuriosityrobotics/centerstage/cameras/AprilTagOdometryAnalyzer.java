@@ -1,5 +1,6 @@
 package com.kuriosityrobotics.centerstage.cameras;
 
+import com.kuriosityrobotics.centerstage.math.Point;
 import com.kuriosityrobotics.centerstage.math.Pose;
 import com.kuriosityrobotics.centerstage.math.Twist;
 
@@ -7,6 +8,7 @@ import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
 
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public enum AprilTagOdometryAnalyzer {
 	RED_TEAM(Map.of(
@@ -28,21 +30,59 @@ public enum AprilTagOdometryAnalyzer {
 	}
 
 	public Optional<Pose> poseFor(AprilTagDetection detection) {
-		Pose pose = mapping.get(detection.id);
-		if (pose == null) return Optional.empty();
+		return poseFor(TagObservation.of(detection));
+	}
 
-		var detectionPose = detection.ftcPose;
+	/**
+	 * Estimates the robot's pose from a single tag.
+	 *
+	 * @return the robot's pose, or empty if the tag is not one of this team's, or the detection is unreliable
+	 */
+	public Optional<Pose> poseFor(TagObservation observation) {
+		Pose pose = mapping.get(observation.id);
+		if (pose == null) return Optional.empty();
 
-		if (detectionPose.range < 0.05) return Optional.empty();
-//		if (detectionPose.range > 0.5) return Optional.empty();
+		if (observation.range < 0.05) return Optional.empty();
+//		if (observation.range > 0.5) return Optional.empty();
 
-		double offsetAngle = pose.orientation() - detectionPose.yaw;
-		var offset = Twist.of(detectionPose.y, -detectionPose.x, offsetAngle).subtract(OFFSET);
+		double offsetAngle = pose.orientation() - observation.yaw;
+		var offset = Twist.of(observation.y, -observation.x, offsetAngle).subtract(OFFSET);
 
-		if (Math.abs(detectionPose.bearing) > Math.toRadians(30)) return Optional.empty();
+		if (Math.abs(observation.bearing) > Math.toRadians(30)) return Optional.empty();
 
 		return Optional.of(
 			pose.add(offset.rotate(offsetAngle))
 		);
 	}
+
+	/**
+	 * Estimates the robot's position from a single tag, given the robot's heading.  This is the position part of
+	 * {@link #poseFor(TagObservation)}, but with the heading solved for elsewhere (e.g. from several tags).
+	 *
+	 * @param observation  a tag for which {@link #poseFor(TagObservation)} is present
+	 * @param robotHeading the robot's heading
+	 */
+	Point positionFor(TagObservation observation, double robotHeading) {
+		Pose pose = mapping.get(observation.id);
+
+		// inverse of the heading computed by poseFor
+		double offsetAngle = robotHeading - pose.orientation() + OFFSET.angular();
+		var offset = Twist.of(observation.y, -observation.x, 0).subtract(OFFSET).rotate(offsetAngle);
+
+		return new Point(pose.x() + offset.x(), pose.y() + offset.y());
+	}
+
+	/**
+	 * @return where the tag with the given id is on the field, or empty if it is not one of this team's tags
+	 */
+	public Optional<Pose> tagPose(int id) {
+		return Optional.ofNullable(mapping.get(id));
+	}
+
+	/**
+	 * @return the ids of this team's tags
+	 */
+	public Set<Integer> tagIds() {
+		return mapping.keySet();
+	}
 }
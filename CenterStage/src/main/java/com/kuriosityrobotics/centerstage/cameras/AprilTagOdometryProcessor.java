@@ -5,6 +5,7 @@ import static org.firstinspires.ftc.vision.apriltag.AprilTagGameDatabase.getCent
 import android.graphics.Canvas;
 
 import com.kuriosityrobotics.centerstage.math.Pose;
+import com.kuriosityrobotics.centerstage.util.Instant;
 
 import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
 import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
@@ -12,48 +13,115 @@ import org.firstinspires.ftc.robotcore.internal.camera.calibration.CameraCalibra
 import org.firstinspires.ftc.vision.VisionProcessor;
 import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
 import org.firstinspires.ftc.vision.apriltag.AprilTagProcessor;
+import org.opencv.calib3d.Calib3d;
+import org.opencv.core.CvType;
 import org.opencv.core.Mat;
+import org.opencv.core.MatOfDouble;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.MatOfPoint3f;
+import org.opencv.core.Point;
+import org.opencv.core.Point3;
+import org.opencv.core.Rect;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+/**
+ * Detects this team's backdrop AprilTags and estimates the robot's pose from them.
+ * <p>
+ * If given a pose predictor (see {@link #setPosePredictor(Supplier)}), only the part of each frame where the tags are
+ * predicted to be is searched, with a decimation chosen for the predicted size of the tags.  When the tags are lost,
+ * or none are predicted to be in view, the processor falls back to searching the full frame.
+ */
 public class AprilTagOdometryProcessor implements VisionProcessor {
+	// logitech c920
+	private static final double FX = 622.001, FY = 622.001, CX = 319.803, CY = 241.251;
+
+	/**
+	 * How many consecutive region-of-interest frames without a detection before searching the full frame
+	 */
+	private static final int MISSES_BEFORE_FULL_FRAME = 3;
+	/**
+	 * When no tags are predicted to be in view, only every this many frames is searched, in case the prediction is wrong
+	 */
+	private static final int FULL_FRAME_INTERVAL = 5;
+	private static final float FULL_FRAME_DECIMATION = 2;
+
 	private final AprilTagProcessor processor = new AprilTagProcessor.Builder()
 		.setOutputUnits(DistanceUnit.METER, AngleUnit.RADIANS)
-		.setLensIntrinsics(622.001, 622.001, 319.803, 241.251) // logitech c920
+		.setLensIntrinsics(FX, FY, CX, CY)
 		.setTagLibrary(getCenterStageTagLibrary())
 		.build();
 
-	private final AprilTagOdometryAnalyzer analyzer;
-	private final AtomicBoolean isStale = new AtomicBoolean(true);
+	private final VisionPoseEstimator estimator;
+	private final TagRegionPredictor regionPredictor;
+	private final Collection<Consumer<VisionPoseEstimate>> listeners = new CopyOnWriteArrayList<>();
+	private final AtomicReference<VisionPoseEstimate> latestEstimate = new AtomicReference<>();
+	private volatile Supplier<Pose> posePredictor;
+
+	// only used on the vision thread
+	private final Mat cameraMatrix = new Mat(3, 3, CvType.CV_64FC1);
+	private final MatOfDouble distortionCoefficients = new MatOfDouble();
+	private final MatOfPoint3f tagCorners;
+	private float decimation = FULL_FRAME_DECIMATION;
+	private int consecutiveMisses;
+	private int framesSinceSearch;
+	private TagRegionPredictor.Region predictedRegion;
+
+	private final FrameStatistics statistics = new FrameStatistics();
 
 	public AprilTagOdometryProcessor(AprilTagOdometryAnalyzer anal){
-		this.analyzer = anal;
-	}
+		this.estimator = new VisionPoseEstimator(anal);
+		this.regionPredictor = new TagRegionPredictor(anal, FX, FY, CX, CY);
 
-	public Optional<Pose> getPoseEstimate() {
-		if (!isStale.compareAndSet(false, true)) return Optional.empty();
-		var detections = processor.getFreshDetections();
-		if (detections == null || detections.isEmpty()) return Optional.empty();
+		cameraMatrix.put(0, 0,
+			FX, 0, CX,
+			0, FY, CY,
+			0, 0, 1);
 
-		int count = 0;
-		double x = 0;
-		double y = 0;
-		double theta = 0;
+		// same order as AprilTagDetection.corners
+		double halfSize = TagRegionPredictor.TAG_SIZE / 2;
+		tagCorners = new MatOfPoint3f(
+			new Point3(-halfSize, halfSize, 0),
+			new Point3(halfSize, halfSize, 0),
+			new Point3(halfSize, -halfSize, 0),
+			new Point3(-halfSize, -halfSize, 0));
+	}
 
-		for (AprilTagDetection detection : detections) {
-			Pose estimate = analyzer.poseFor(detection).orElse(null);
-			if (estimate != null) {
-				count++;
-				x += estimate.x();
-				y += estimate.y();
-				theta += estimate.orientation();
-			}
-		}
+	/**
+	 * Adds a listener which is given a pose estimate for every frame in which usable tags are detected.
+	 * Listeners are called on the vision thread, so should return quickly.
+	 *
+	 * @param listener the listener to add
+	 */
+	public void addListener(Consumer<VisionPoseEstimate> listener) {
+		listeners.add(listener);
+	}
 
-		if (count == 0) return Optional.empty();
+	/**
+	 * Enables region-of-interest detection.
+	 *
+	 * @param posePredictor supplies the current estimate of the robot's pose on the field
+	 */
+	public void setPosePredictor(Supplier<Pose> posePredictor) {
+		this.posePredictor = posePredictor;
+	}
+
+	/**
+	 * @return the pose estimate from the latest frame, if it has not already been returned
+	 */
+	public Optional<Pose> getPoseEstimate() {
+		return Optional.ofNullable(latestEstimate.getAndSet(null)).map(estimate -> estimate.pose);
+	}
 
-		return Optional.of(new Pose(x / count, y / count, theta / count));
+	public FrameStatistics getStatistics() {
+		return statistics;
 	}
 
 	@Override
@@ -63,15 +131,248 @@ public class AprilTagOdometryProcessor implements VisionProcessor {
 
 	@Override
 	public Object processFrame(Mat frame, long captureTimeNanos) {
+		long start = System.nanoTime();
+
+		var search = chooseSearch(frame.width(), frame.height());
+		if (search == Search.SKIP) {
+			statistics.recordSkipped();
+			return null;
+		}
+
+		Object result;
+		List<TagObservation> observations;
+		long pixels;
+		if (search == Search.FULL_FRAME) {
+			setDecimation(FULL_FRAME_DECIMATION);
+			result = processor.processFrame(frame, captureTimeNanos);
+			observations = observationsFromFullFrame();
+			pixels = (long) frame.width() * frame.height();
+		} else {
+			var region = predictedRegion;
+			setDecimation(decimationFor(region.smallestTagPixels));
+			var submat = frame.submat(new Rect(region.x, region.y, region.width, region.height));
+			try {
+				result = processor.processFrame(submat, captureTimeNanos);
+			} finally {
+				submat.release();
+			}
+			if (result != null)
+				result = new RegionDrawContext(result, region.x, region.y);
+			observations = observationsFromRegion(region);
+			pixels = (long) region.width * region.height;
+		}
+
+		if (observations.isEmpty())
+			consecutiveMisses++;
+		else
+			consecutiveMisses = 0;
+
+		estimator.estimate(observations, Instant.ofNanoTime(captureTimeNanos)).ifPresent(estimate -> {
+			latestEstimate.set(estimate);
+			listeners.forEach(listener -> listener.accept(estimate));
+		});
+
+		statistics.recordProcessed(search == Search.REGION, System.nanoTime() - start, (double) pixels / ((long) frame.width() * frame.height()));
+
+		return result;
+	}
+
+	private enum Search {
+		FULL_FRAME,
+		/**
+		 * Search only {@link #predictedRegion}
+		 */
+		REGION,
+		SKIP
+	}
+
+	private Search chooseSearch(int width, int height) {
+		var predictor = posePredictor;
+		if (predictor == null)
+			return Search.FULL_FRAME;
+
+		if (consecutiveMisses >= MISSES_BEFORE_FULL_FRAME) {
+			consecutiveMisses = 0; // give the region another chance after this frame
+			framesSinceSearch = 0;
+			return Search.FULL_FRAME;
+		}
+
+		var region = regionPredictor.predict(predictor.get(), width, height);
+		if (region.isPresent()) {
+			predictedRegion = region.get();
+			framesSinceSearch = 0;
+			return Search.REGION;
+		}
+
+		// no tags should be in view; look occasionally in case the pose estimate is wrong
+		if (++framesSinceSearch >= FULL_FRAME_INTERVAL) {
+			framesSinceSearch = 0;
+			return Search.FULL_FRAME;
+		}
+		return Search.SKIP;
+	}
+
+	/**
+	 * Larger decimation is faster, but loses small (distant) tags.
+	 */
+	private static float decimationFor(double tagPixels) {
+		if (tagPixels >= 80) return 3;
+		if (tagPixels >= 40) return 2;
+		return 1;
+	}
+
+	private void setDecimation(float newDecimation) {
+		if (newDecimation != decimation) {
+			processor.setDecimation(newDecimation);
+			decimation = newDecimation;
+		}
+	}
+
+	private List<TagObservation> observationsFromFullFrame() {
+		var detections = processor.getFreshDetections();
+		var observations = new ArrayList<TagObservation>(detections == null ? 0 : detections.size());
+		if (detections != null) {
+			for (AprilTagDetection detection : detections)
+				observations.add(TagObservation.of(detection));
+		}
+
+		return observations;
+	}
+
+	/**
+	 * The detector solved each tag's pose as if the region were the full image, which is wrong for any region not
+	 * centred on the principal point, so the poses are re-solved from the detected corners.
+	 */
+	private List<TagObservation> observationsFromRegion(TagRegionPredictor.Region region) {
+		var detections = processor.getFreshDetections();
+		var observations = new ArrayList<TagObservation>(detections == null ? 0 : detections.size());
+		if (detections == null)
+			return observations;
+
+		for (AprilTagDetection detection : detections) {
+			var corners = new Point[detection.corners.length];
+			for (int i = 0; i < corners.length; i++)
+				corners[i] = new Point(detection.corners[i].x + region.x, detection.corners[i].y + region.y);
+
+			solveObservation(detection.id, corners, detection.decisionMargin).ifPresent(observations::add);
+		}
+
+		return observations;
+	}
+
+	private Optional<TagObservation> solveObservation(int id, Point[] corners, double decisionMargin) {
+		var imagePoints = new MatOfPoint2f(corners);
+		var rotationVector = new Mat();
+		var translation = new Mat();
+		var rotation = new Mat();
 		try {
-			return processor.processFrame(frame, captureTimeNanos);
+			if (!Calib3d.solvePnP(tagCorners, imagePoints, cameraMatrix, distortionCoefficients, rotationVector, translation, false, Calib3d.SOLVEPNP_IPPE_SQUARE))
+				return Optional.empty();
+
+			Calib3d.Rodrigues(rotationVector, rotation);
+
+			// convert from the OpenCV camera frame (x right, y down, z forwards) to the FTC one (x right, y forwards),
+			// matching AprilTagDetection.ftcPose
+			double x = translation.get(0, 0)[0];
+			double z = translation.get(2, 0)[0];
+			double yaw = -Math.atan2(rotation.get(0, 2)[0], rotation.get(2, 2)[0]);
+
+			return Optional.of(new TagObservation(id, x, z, yaw, Math.hypot(x, z), Math.atan2(-x, z), decisionMargin));
 		} finally {
-			isStale.set(false);
+			imagePoints.release();
+			rotationVector.release();
+			translation.release();
+			rotation.release();
 		}
 	}
 
 	@Override
 	public void onDrawFrame(Canvas canvas, int onscreenWidth, int onscreenHeight, float scaleBmpPxToCanvasPx, float scaleCanvasDensity, Object userContext) {
-		processor.onDrawFrame(canvas, onscreenWidth, onscreenHeight, scaleBmpPxToCanvasPx, scaleCanvasDensity, userContext);
+		if (userContext instanceof RegionDrawContext) {
+			// the detector draws relative to the region's corner, so move the canvas's origin there
+			var context = (RegionDrawContext) userContext;
+			int saved = canvas.save();
+			try {
+				canvas.translate(context.x * scaleBmpPxToCanvasPx, context.y * scaleBmpPxToCanvasPx);
+				processor.onDrawFrame(canvas, onscreenWidth, onscreenHeight, scaleBmpPxToCanvasPx, scaleCanvasDensity, context.detectorContext);
+			} finally {
+				canvas.restoreToCount(saved);
+			}
+		} else if (userContext != null) {
+			processor.onDrawFrame(canvas, onscreenWidth, onscreenHeight, scaleBmpPxToCanvasPx, scaleCanvasDensity, userContext);
+		}
+	}
+
+	/**
+	 * The detector's drawing context for a frame searched in a region of interest, with where the region was.
+	 */
+	private static final class RegionDrawContext {
+		final Object detectorContext;
+		final int x, y; // the region's corner, in frame pixels
+
+		RegionDrawContext(Object detectorContext, int x, int y) {
+			this.detectorContext = detectorContext;
+			this.x = x;
+			this.y = y;
+		}
+	}
+
+	/**
+	 * Statistics about the frames processed, to compare region-of-interest and full-frame detection.
+	 * <p>
+	 * This class is thread-safe.
+	 */
+	public static class FrameStatistics {
+		private final Instant start = Instant.now();
+
+		// all guarded by this
+		private long fullFrames, regionFrames, skippedFrames;
+		private long processingNanos;
+		private double searchedFraction;
+
+		synchronized void recordProcessed(boolean region, long nanos, double fractionSearched) {
+			if (region)
+				regionFrames++;
+			else
+				fullFrames++;
+
+			processingNanos += nanos;
+			searchedFraction += fractionSearched;
+		}
+
+		synchronized void recordSkipped() {
+			skippedFrames++;
+		}
+
+		/**
+		 * @return the number of frames handled per second, including skipped frames
+		 */
+		public synchronized double frameRate() {
+			double elapsed = Instant.now().since(start).toSeconds();
+			return elapsed > 0 ? (fullFrames + regionFrames + skippedFrames) / elapsed : 0;
+		}
+
+		/**
+		 * @return the mean time spent processing a frame, including skipped frames, in milliseconds.
+		 * This is the vision thread's CPU cost per frame.
+		 */
+		public synchronized double meanProcessingMillis() {
+			long frames = fullFrames + regionFrames + skippedFrames;
+			return frames == 0 ? 0 : processingNanos / 1e6 / frames;
+		}
+
+		/**
+		 * @return the mean fraction of each frame searched, including skipped frames
+		 */
+		public synchronized double meanSearchedFraction() {
+			long frames = fullFrames + regionFrames + skippedFrames;
+			return frames == 0 ? 0 : searchedFraction / frames;
+		}
+
+		@Override
+		public synchronized String toString() {
+			return String.format("%.1f fps, %.2f ms/frame, %.0f%% searched (%d region, %d full, %d skipped)",
+				frameRate(), meanProcessingMillis(), 100 * meanSearchedFraction(), regionFrames, fullFrames, skippedFrames);
+		}
 	}
 }
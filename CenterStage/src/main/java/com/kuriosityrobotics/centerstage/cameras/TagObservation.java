@@ -0,0 +1,45 @@
+package com.kuriosityrobotics.centerstage.cameras;
+
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+
+/**
+ * A single AprilTag detection, reduced to what vision localisation needs.
+ * Positions are in metres and angles in radians, in the FTC camera frame of {@link AprilTagDetection#ftcPose}.
+ */
+public class TagObservation {
+	public final int id;
+	/**
+	 * The rightwards distance from the camera to the tag
+	 */
+	public final double x;
+	/**
+	 * The forwards distance from the camera to the tag
+	 */
+	public final double y;
+	public final double yaw;
+	public final double range;
+	public final double bearing;
+	/**
+	 * How confidently the detector decoded the tag; higher is better.
+	 */
+	public final double decisionMargin;
+
+	public TagObservation(int id, double x, double y, double yaw, double range, double bearing, double decisionMargin) {
+		this.id = id;
+		this.x = x;
+		this.y = y;
+		this.yaw = yaw;
+		this.range = range;
+		this.bearing = bearing;
+		this.decisionMargin = decisionMargin;
+	}
+
+	/**
+	 * @param detection a detection from an {@link org.firstinspires.ftc.vision.apriltag.AprilTagProcessor} which
+	 *                  outputs metres and radians
+	 */
+	public static TagObservation of(AprilTagDetection detection) {
+		var pose = detection.ftcPose;
+		return new TagObservation(detection.id, pose.x, pose.y, pose.yaw, pose.range, pose.bearing, detection.decisionMargin);
+	}
+}
@@ -0,0 +1,115 @@
+package com.kuriosityrobotics.centerstage.cameras;
+
+import static com.kuriosityrobotics.centerstage.util.Units.IN;
+
+import com.kuriosityrobotics.centerstage.math.Pose;
+
+import java.util.Optional;
+
+/**
+ * Predicts where in the camera image this team's backdrop tags should appear, given an estimate of the robot's pose.
+ * <p>
+ * Tag centres are projected through the pinhole model of the camera.  The tags' height relative to the camera is not
+ * known, so the vertical extent of a region is widened by {@link #VERTICAL_UNCERTAINTY}.  Regions are also widened to
+ * allow for error in the pose estimate.
+ */
+class TagRegionPredictor {
+	/**
+	 * The side length of the backdrop tags
+	 */
+	static final double TAG_SIZE = 2 * IN;
+
+	/**
+	 * The distance from the robot's centre to the camera, along the robot's (backwards-facing) camera axis
+	 */
+	static final double CAMERA_SETBACK = 0.2;
+	static final double POSITION_UNCERTAINTY = 0.05;
+	static final double HEADING_UNCERTAINTY = Math.toRadians(3);
+	static final double VERTICAL_UNCERTAINTY = 0.15;
+	/**
+	 * Tags nearer to the camera than this are not predicted, since the projection is unreliable
+	 */
+	static final double MIN_DEPTH = 0.1;
+
+	private final AprilTagOdometryAnalyzer analyzer;
+	private final double fx, fy, cx, cy;
+
+	TagRegionPredictor(AprilTagOdometryAnalyzer analyzer, double fx, double fy, double cx, double cy) {
+		this.analyzer = analyzer;
+		this.fx = fx;
+		this.fy = fy;
+		this.cx = cx;
+		this.cy = cy;
+	}
+
+	/**
+	 * A rectangle of the image, in pixels, which should contain all visible tags.
+	 */
+	static class Region {
+		final int x, y, width, height;
+		/**
+		 * The predicted side length, in pixels, of the smallest tag in the region
+		 */
+		final double smallestTagPixels;
+
+		Region(int x, int y, int width, int height, double smallestTagPixels) {
+			this.x = x;
+			this.y = y;
+			this.width = width;
+			this.height = height;
+			this.smallestTagPixels = smallestTagPixels;
+		}
+	}
+
+	/**
+	 * @param robotPose   the estimated pose of the robot
+	 * @param imageWidth  the width of the image, in pixels
+	 * @param imageHeight the height of the image, in pixels
+	 * @return a region containing all tags predicted to be in view, or empty if none are
+	 */
+	Optional<Region> predict(Pose robotPose, int imageWidth, int imageHeight) {
+		// the camera faces backwards
+		double cameraHeading = robotPose.orientation() + Math.PI;
+		double cameraX = robotPose.x() + CAMERA_SETBACK * Math.cos(cameraHeading);
+		double cameraY = robotPose.y() + CAMERA_SETBACK * Math.sin(cameraHeading);
+
+		double minU = Double.POSITIVE_INFINITY, maxU = Double.NEGATIVE_INFINITY;
+		double minV = Double.POSITIVE_INFINITY, maxV = Double.NEGATIVE_INFINITY;
+		double smallestTagPixels = Double.POSITIVE_INFINITY;
+
+		for (int id : analyzer.tagIds()) {
+			var tag = analyzer.tagPose(id).orElseThrow();
+
+			double dx = tag.x() - cameraX, dy = tag.y() - cameraY;
+			double depth = dx * Math.cos(cameraHeading) + dy * Math.sin(cameraHeading);
+			double left = -dx * Math.sin(cameraHeading) + dy * Math.cos(cameraHeading);
+			if (depth < MIN_DEPTH)
+				continue;
+
+			double u = cx - fx * left / depth;
+			double halfWidth = fx * (TAG_SIZE / 2 + POSITION_UNCERTAINTY) / depth + fx * Math.tan(HEADING_UNCERTAINTY);
+			double halfHeight = fy * (TAG_SIZE / 2 + VERTICAL_UNCERTAINTY) / depth;
+
+			if (u + halfWidth < 0 || u - halfWidth > imageWidth)
+				continue; // out of view
+
+			minU = Math.min(minU, u - halfWidth);
+			maxU = Math.max(maxU, u + halfWidth);
+			minV = Math.min(minV, cy - halfHeight);
+			maxV = Math.max(maxV, cy + halfHeight);
+			smallestTagPixels = Math.min(smallestTagPixels, fx * TAG_SIZE / depth);
+		}
+
+		if (minU == Double.POSITIVE_INFINITY)
+			return Optional.empty();
+
+		int x = (int) Math.max(0, Math.floor(minU));
+		int y = (int) Math.max(0, Math.floor(minV));
+		int right = (int) Math.min(imageWidth, Math.ceil(maxU));
+		int bottom = (int) Math.min(imageHeight, Math.ceil(maxV));
+		if (right <= x || bottom <= y)
+			return Optional.empty();
+
+		return Optional.of(new Region(x, y, right - x, bottom - y, smallestTagPixels));
+	}
+}
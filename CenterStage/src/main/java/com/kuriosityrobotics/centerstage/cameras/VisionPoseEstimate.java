@@ -0,0 +1,27 @@
+package com.kuriosityrobotics.centerstage.cameras;
+
+import com.kuriosityrobotics.centerstage.math.Pose;
+import com.kuriosityrobotics.centerstage.util.Instant;
+
+/**
+ * A robot pose solved from the AprilTags visible in one camera frame.
+ */
+public class VisionPoseEstimate {
+	public final Pose pose;
+	/**
+	 * When the frame was captured, which is earlier than when the estimate was made.
+	 */
+	public final Instant captureTime;
+	public final int tagCount;
+
+	public VisionPoseEstimate(Pose pose, Instant captureTime, int tagCount) {
+		this.pose = pose;
+		this.captureTime = captureTime;
+		this.tagCount = tagCount;
+	}
+
+	@Override
+	public String toString() {
+		return pose + " from " + tagCount + " tag(s) at " + captureTime;
+	}
+}
@@ -0,0 +1,97 @@
+package com.kuriosityrobotics.centerstage.cameras;
+
+import static java.lang.Math.atan2;
+import static java.lang.Math.cos;
+import static java.lang.Math.sin;
+
+import com.kuriosityrobotics.centerstage.math.MathUtil;
+import com.kuriosityrobotics.centerstage.math.Pose;
+import com.kuriosityrobotics.centerstage.util.Instant;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Solves a single robot pose from all the AprilTags visible in a frame.
+ * <p>
+ * Each tag's estimate is weighted by how much it can be trusted: estimates get worse with range (the tag covers
+ * fewer pixels), towards the edge of the frame (lens distortion), and with a low decision margin (a marginal decode
+ * usually means blur or glare).  The heading is solved first, as a weighted circular mean, and each tag's position
+ * is then recomputed with that joint heading before being averaged, since a small heading error on one tag would
+ * otherwise swing its position estimate by the range times the error.
+ */
+public class VisionPoseEstimator {
+	/**
+	 * Detections with a lower decision margin than this are ignored.
+	 */
+	static final double MIN_DECISION_MARGIN = 10;
+	/**
+	 * Detections with at least this decision margin are fully trusted.
+	 */
+	static final double GOOD_DECISION_MARGIN = 50;
+	/**
+	 * The range, in metres, at which a tag's weight has halved.
+	 */
+	static final double RANGE_SCALE = 1.0;
+
+	private final AprilTagOdometryAnalyzer analyzer;
+
+	public VisionPoseEstimator(AprilTagOdometryAnalyzer analyzer) {
+		this.analyzer = analyzer;
+	}
+
+	/**
+	 * @param observations the tags detected in a frame
+	 * @param captureTime  when the frame was captured
+	 * @return the robot's pose, or empty if none of the observations are usable
+	 */
+	public Optional<VisionPoseEstimate> estimate(Collection<TagObservation> observations, Instant captureTime) {
+		var usable = new ArrayList<TagObservation>(observations.size());
+		double sinSum = 0, cosSum = 0, weightSum = 0;
+
+		for (var observation : observations) {
+			double weight = weightFor(observation);
+			if (weight <= 0)
+				continue;
+
+			var pose = analyzer.poseFor(observation);
+			if (pose.isEmpty())
+				continue;
+
+			usable.add(observation);
+			sinSum += weight * sin(pose.get().orientation());
+			cosSum += weight * cos(pose.get().orientation());
+			weightSum += weight;
+		}
+
+		if (usable.isEmpty())
+			return Optional.empty();
+
+		double heading = atan2(sinSum, cosSum);
+
+		double x = 0, y = 0;
+		for (var observation : usable) {
+			double weight = weightFor(observation);
+			var position = analyzer.positionFor(observation, heading);
+			x += weight * position.x();
+			y += weight * position.y();
+		}
+
+		return Optional.of(new VisionPoseEstimate(new Pose(x / weightSum, y / weightSum, heading), captureTime, usable.size()));
+	}
+
+	/**
+	 * @return how much to trust an observation, from 0 (not at all) to 1
+	 */
+	static double weightFor(TagObservation observation) {
+		if (observation.decisionMargin < MIN_DECISION_MARGIN)
+			return 0;
+
+		double marginWeight = MathUtil.clamp(observation.decisionMargin / GOOD_DECISION_MARGIN, 0., 1.);
+		double rangeWeight = 1 / (1 + (observation.range / RANGE_SCALE) * (observation.range / RANGE_SCALE));
+		double bearingWeight = cos(observation.bearing) * cos(observation.bearing);
+
+		return marginWeight * rangeWeight * bearingWeight;
+	}
+}
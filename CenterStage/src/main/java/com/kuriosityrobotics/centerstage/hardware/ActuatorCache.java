@@ -0,0 +1,412 @@
+package com.kuriosityrobotics.centerstage.hardware;
+
+import com.kuriosityrobotics.centerstage.metrics.Counter;
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorControllerEx;
+import com.qualcomm.robotcore.hardware.PIDFCoefficients;
+import com.qualcomm.robotcore.hardware.ServoControllerEx;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Shadows the actuator commands sent to one hub, so that redundant writes never reach the bus.
+ * <p>
+ * Motor powers and servo positions are written behind: setting one only records it, and {@link #flush()} writes every
+ * value which changed by more than the tolerance since it was last written, prioritised motors first.  Setting the
+ * same port several times between flushes costs one transaction.  A power of zero is always written exactly, so that
+ * a stop is never lost to the tolerance.
+ * <p>
+ * Everything else is written through immediately, after any pending write to the same motor, so that commands to one
+ * motor reach the hub in the order they were given.  Run modes and PIDF coefficients are shadowed too: setting the
+ * mode or coefficients a motor already has is skipped, and reading them back costs nothing once they are known.
+ * Together with the shadowed powers, this makes saving a motor's state free, and restoring it only writes what
+ * changed.
+ * <p>
+ * A hub which browns out or is re-initialised comes back with its defaults, so writes the cache skips as redundant
+ * would leave it unpowered or in the wrong mode.  {@link #checkForReset()} notices this and writes everything the
+ * cache knows to the hub again.
+ */
+class ActuatorCache {
+	static final int MOTOR_PORTS = 4;
+	static final int SERVO_PORTS = 6;
+
+	private final DcMotorControllerEx motors;
+	private final ServoControllerEx servos;
+	private final double tolerance;
+
+	// held while writing to the bus, so that writes to a port are never reordered
+	private final ReentrantLock bus = new ReentrantLock();
+
+	// guarded by this; NaN if unknown or none
+	private final double[] writtenPowers = new double[MOTOR_PORTS];
+	private final double[] pendingPowers = new double[MOTOR_PORTS];
+	private final double[] writtenPositions = new double[SERVO_PORTS];
+	private final double[] pendingPositions = new double[SERVO_PORTS];
+	private final DcMotor.RunMode[] modes = new DcMotor.RunMode[MOTOR_PORTS];
+	private final PIDFCoefficients[][] pidfCoefficients = new PIDFCoefficients[MOTOR_PORTS][DcMotor.RunMode.values().length];
+	private final boolean[] prioritised = new boolean[MOTOR_PORTS];
+
+	private final Counter requested = new Counter();
+	private final Counter performed = new Counter();
+
+	ActuatorCache(DcMotorControllerEx motors, ServoControllerEx servos, double tolerance) {
+		this.motors = motors;
+		this.servos = servos;
+		this.tolerance = tolerance;
+
+		Arrays.fill(writtenPowers, Double.NaN);
+		Arrays.fill(pendingPowers, Double.NaN);
+		Arrays.fill(writtenPositions, Double.NaN);
+		Arrays.fill(pendingPositions, Double.NaN);
+	}
+
+	/**
+	 * Flushes the power of <code>motorPort</code> before any other motor's.
+	 */
+	synchronized void prioritise(int motorPort) {
+		prioritised[motorPort] = true;
+	}
+
+	void setMotorPower(int port, double power) {
+		requested.increment();
+		synchronized (this) {
+			pendingPowers[port] = redundant(writtenPowers[port], power) ? Double.NaN : power;
+		}
+	}
+
+	synchronized double getMotorPower(int port) {
+		if (!Double.isNaN(pendingPowers[port]))
+			return pendingPowers[port];
+		if (Double.isNaN(writtenPowers[port]))
+			writtenPowers[port] = motors.getMotorPower(port);
+
+		return writtenPowers[port];
+	}
+
+	void setServoPosition(int port, double position) {
+		requested.increment();
+		synchronized (this) {
+			pendingPositions[port] = redundant(writtenPositions[port], position) ? Double.NaN : position;
+		}
+	}
+
+	synchronized double getServoPosition(int port) {
+		if (!Double.isNaN(pendingPositions[port]))
+			return pendingPositions[port];
+		if (Double.isNaN(writtenPositions[port]))
+			writtenPositions[port] = servos.getServoPosition(port);
+
+		return writtenPositions[port];
+	}
+
+	private boolean redundant(double written, double value) {
+		if (Double.isNaN(written))
+			return false;
+		if (value == 0)
+			return written == 0;
+
+		return Math.abs(value - written) <= tolerance;
+	}
+
+	void setMotorMode(int port, DcMotor.RunMode mode) {
+		requested.increment();
+		bus.lock();
+		try {
+			synchronized (this) {
+				// resetting the encoder is an action, not a state
+				if (modes[port] == mode && mode != DcMotor.RunMode.STOP_AND_RESET_ENCODER)
+					return;
+			}
+
+			flushMotor(port);
+			performed.increment();
+			motors.setMotorMode(port, mode);
+
+			synchronized (this) {
+				modes[port] = mode;
+				// power is kept across other mode changes
+				if (mode == DcMotor.RunMode.STOP_AND_RESET_ENCODER)
+					writtenPowers[port] = Double.NaN;
+			}
+		} finally {
+			bus.unlock();
+		}
+	}
+
+	synchronized DcMotor.RunMode getMotorMode(int port) {
+		if (modes[port] == null)
+			modes[port] = motors.getMotorMode(port);
+
+		return modes[port];
+	}
+
+	void setPIDFCoefficients(int port, DcMotor.RunMode mode, PIDFCoefficients coefficients) {
+		requested.increment();
+		bus.lock();
+		try {
+			synchronized (this) {
+				if (equal(pidfCoefficients[port][mode.ordinal()], coefficients))
+					return;
+			}
+
+			flushMotor(port);
+			performed.increment();
+			motors.setPIDFCoefficients(port, mode, coefficients);
+
+			synchronized (this) {
+				pidfCoefficients[port][mode.ordinal()] = new PIDFCoefficients(coefficients);
+			}
+		} finally {
+			bus.unlock();
+		}
+	}
+
+	/**
+	 * @return a copy of the coefficients, which the caller may modify
+	 */
+	synchronized PIDFCoefficients getPIDFCoefficients(int port, DcMotor.RunMode mode) {
+		var coefficients = pidfCoefficients[port][mode.ordinal()];
+		if (coefficients == null) {
+			coefficients = motors.getPIDFCoefficients(port, mode);
+			if (coefficients == null)
+				return null;
+
+			pidfCoefficients[port][mode.ordinal()] = coefficients = new PIDFCoefficients(coefficients);
+		}
+
+		return new PIDFCoefficients(coefficients);
+	}
+
+	private static boolean equal(PIDFCoefficients a, PIDFCoefficients b) {
+		return a != null && b != null
+			&& a.p == b.p && a.i == b.i && a.d == b.d && a.f == b.f
+			&& a.algorithm == b.algorithm;
+	}
+
+	/**
+	 * Performs a write to <code>motorPort</code> immediately, after any pending write to it.
+	 *
+	 * @param invalidate whether the write may change the state this shadows, which must then be read back
+	 */
+	<T> T writeThroughMotor(int motorPort, boolean invalidate, BusWrite<T> write) throws Throwable {
+		requested.increment();
+		bus.lock();
+		try {
+			flushMotor(motorPort);
+			performed.increment();
+			return write.perform();
+		} finally {
+			if (invalidate)
+				invalidateMotor(motorPort);
+			bus.unlock();
+		}
+	}
+
+	/**
+	 * Performs a write to <code>servoPort</code> immediately, after any pending write to it.
+	 *
+	 * @param invalidate whether the write may change the state this shadows, which must then be read back
+	 */
+	<T> T writeThroughServo(int servoPort, boolean invalidate, BusWrite<T> write) throws Throwable {
+		requested.increment();
+		bus.lock();
+		try {
+			flushServo(servoPort);
+			performed.increment();
+			return write.perform();
+		} finally {
+			if (invalidate)
+				invalidateServo(servoPort);
+			bus.unlock();
+		}
+	}
+
+	/**
+	 * Checks whether the hub has been reset since the cache last wrote to it, and if so, writes every mode,
+	 * coefficient, power and position the cache knows to it again.
+	 * <p>
+	 * When the hub is reset, the SDK forgets what it last wrote to it, just as this cache must.  So each motor's mode is
+	 * asked of the controller, which costs nothing while the SDK remembers it, and reads it from the hub once the SDK
+	 * has forgotten.  A mode other than the one the cache wrote means the hub was reset.
+	 *
+	 * @return whether the hub had been reset
+	 */
+	boolean checkForReset() {
+		bus.lock();
+		try {
+			if (!modesChanged())
+				return false;
+
+			restore();
+			return true;
+		} finally {
+			bus.unlock();
+		}
+	}
+
+	// must hold the bus lock
+	private boolean modesChanged() {
+		for (int port = 0; port < MOTOR_PORTS; port++) {
+			DcMotor.RunMode mode;
+			synchronized (this) {
+				mode = modes[port];
+			}
+
+			// the hub stays in STOP_AND_RESET_ENCODER, but it's an action, so it may not be what the SDK reports
+			if (mode != null && mode != DcMotor.RunMode.STOP_AND_RESET_ENCODER && motors.getMotorMode(port) != mode)
+				return true;
+		}
+		return false;
+	}
+
+	// must hold the bus lock
+	private void restore() {
+		DcMotor.RunMode[] modes;
+		PIDFCoefficients[][] pidfCoefficients = new PIDFCoefficients[MOTOR_PORTS][];
+		double[] powers, positions;
+		synchronized (this) {
+			modes = this.modes.clone();
+			for (int port = 0; port < MOTOR_PORTS; port++)
+				pidfCoefficients[port] = this.pidfCoefficients[port].clone();
+			powers = writtenPowers.clone();
+			positions = writtenPositions.clone();
+		}
+
+		for (int port = 0; port < MOTOR_PORTS; port++) {
+			for (var mode : DcMotor.RunMode.values()) {
+				var coefficients = pidfCoefficients[port][mode.ordinal()];
+				if (coefficients != null) {
+					performed.increment();
+					motors.setPIDFCoefficients(port, mode, coefficients);
+				}
+			}
+			if (modes[port] != null && modes[port] != DcMotor.RunMode.STOP_AND_RESET_ENCODER) {
+				performed.increment();
+				motors.setMotorMode(port, modes[port]);
+			}
+			if (!Double.isNaN(powers[port]))
+				writePower(port, powers[port]);
+		}
+		for (int port = 0; port < SERVO_PORTS; port++) {
+			if (!Double.isNaN(positions[port]))
+				writePosition(port, positions[port]);
+		}
+	}
+
+	/**
+	 * Forgets everything written, after a write which may have changed every port.
+	 */
+	synchronized void invalidate() {
+		Arrays.fill(writtenPowers, Double.NaN);
+		Arrays.fill(writtenPositions, Double.NaN);
+		Arrays.fill(modes, null);
+		for (var coefficients : pidfCoefficients)
+			Arrays.fill(coefficients, null);
+	}
+
+	private synchronized void invalidateMotor(int port) {
+		writtenPowers[port] = Double.NaN;
+		modes[port] = null;
+		Arrays.fill(pidfCoefficients[port], null); // changing the motor type, for one, resets them
+	}
+
+	private synchronized void invalidateServo(int port) {
+		writtenPositions[port] = Double.NaN;
+	}
+
+	// must hold the bus lock
+	private void flushMotor(int port) {
+		double power;
+		synchronized (this) {
+			power = pendingPowers[port];
+			pendingPowers[port] = Double.NaN;
+		}
+
+		if (!Double.isNaN(power))
+			writePower(port, power);
+	}
+
+	// must hold the bus lock
+	private void flushServo(int port) {
+		double position;
+		synchronized (this) {
+			position = pendingPositions[port];
+			pendingPositions[port] = Double.NaN;
+		}
+
+		if (!Double.isNaN(position))
+			writePosition(port, position);
+	}
+
+	/**
+	 * Writes every pending motor power and servo position: prioritised motors first, then the other motors, then the
+	 * servos.
+	 */
+	void flush() {
+		var powers = new double[MOTOR_PORTS];
+		var positions = new double[SERVO_PORTS];
+		boolean[] prioritised;
+
+		bus.lock();
+		try {
+			synchronized (this) {
+				System.arraycopy(pendingPowers, 0, powers, 0, MOTOR_PORTS);
+				System.arraycopy(pendingPositions, 0, positions, 0, SERVO_PORTS);
+				Arrays.fill(pendingPowers, Double.NaN);
+				Arrays.fill(pendingPositions, Double.NaN);
+				prioritised = this.prioritised.clone();
+			}
+
+			for (int port = 0; port < MOTOR_PORTS; port++) {
+				if (prioritised[port] && !Double.isNaN(powers[port]))
+					writePower(port, powers[port]);
+			}
+			for (int port = 0; port < MOTOR_PORTS; port++) {
+				if (!prioritised[port] && !Double.isNaN(powers[port]))
+					writePower(port, powers[port]);
+			}
+			for (int port = 0; port < SERVO_PORTS; port++) {
+				if (!Double.isNaN(positions[port]))
+					writePosition(port, positions[port]);
+			}
+		} finally {
+			bus.unlock();
+		}
+	}
+
+	private void writePower(int port, double power) {
+		performed.increment();
+		motors.setMotorPower(port, power);
+		synchronized (this) {
+			writtenPowers[port] = power;
+		}
+	}
+
+	private void writePosition(int port, double position) {
+		performed.increment();
+		servos.setServoPosition(port, position);
+		synchronized (this) {
+			writtenPositions[port] = position;
+		}
+	}
+
+	/**
+	 * @return the number of writes which were requested
+	 */
+	long requested() {
+		return requested.sum();
+	}
+
+	/**
+	 * @return the number of writes which reached the bus
+	 */
+	long performed() {
+		return performed.sum();
+	}
+
+	@FunctionalInterface
+	interface BusWrite<T> {
+		T perform() throws Throwable;
+	}
+}
@@ -0,0 +1,202 @@
+package com.kuriosityrobotics.centerstage.hardware;
+
+import com.kuriosityrobotics.centerstage.test.Tester;
+import com.kuriosityrobotics.centerstage.util.Duration;
+import com.kuriosityrobotics.centerstage.util.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts and times hardware transactions by device, operation and call site, and summarises them every period.
+ * <p>
+ * Transactions are recorded by a {@link ProfilingHardwareProvider}.  Finding the call site walks the stack, which is
+ * far cheaper than a Lynx transaction but not free, so only profile when looking for bus hogs.
+ */
+public class BusProfiler {
+	private static final Logger logger = LoggerFactory.getLogger(BusProfiler.class);
+
+	public static final String DEFAULT_PATH = "/sdcard/FIRST/bus_profile.csv";
+	private static final int TELEMETRY_LINES = 8;
+
+	private final Map<Key, Stats> stats = new ConcurrentHashMap<>();
+	private final Instant start = Instant.now();
+
+	// only touched by the reporting thread, or under this
+	private final Map<Key, long[]> previousTotals = new HashMap<>();
+	private volatile List<Summary> lastSummary = List.of();
+	private volatile double lastPeriodSeconds = 1;
+
+	/**
+	 * Records a transaction made by the caller of the profiled device.
+	 *
+	 * @param device    the device the transaction was made on
+	 * @param operation the method called
+	 * @param nanos     how long the transaction took
+	 */
+	void record(String device, String operation, long nanos) {
+		var key = new Key(device, operation, callSite());
+		stats.computeIfAbsent(key, k -> new Stats()).record(nanos);
+	}
+
+	private static String callSite() {
+		for (var frame : Thread.currentThread().getStackTrace()) {
+			var className = frame.getClassName();
+			if (className.startsWith("com.kuriosityrobotics.")
+				&& !isProfiler(className, BusProfiler.class)
+				&& !isProfiler(className, ProfilingHardwareProvider.class))
+				return className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName() + ":" + frame.getLineNumber();
+		}
+
+		return "unknown";
+	}
+
+	private static boolean isProfiler(String className, Class<?> profilerClass) {
+		return className.equals(profilerClass.getName()) || className.startsWith(profilerClass.getName() + "$");
+	}
+
+	/**
+	 * Summarises the transactions since the last call.
+	 *
+	 * @param periodSeconds the time since the last call
+	 * @return a summary per device, operation and call site, busiest first
+	 */
+	synchronized List<Summary> summarise(double periodSeconds) {
+		var summaries = new ArrayList<Summary>();
+		stats.forEach((key, stat) -> {
+			long count = stat.count.sum();
+			long nanos = stat.nanos.sum();
+			long maxNanos = stat.maxNanos.getThenReset();
+
+			var previous = previousTotals.computeIfAbsent(key, k -> new long[2]);
+			long countDelta = count - previous[0];
+			long nanosDelta = nanos - previous[1];
+			previous[0] = count;
+			previous[1] = nanos;
+
+			if (countDelta > 0)
+				summaries.add(new Summary(key, countDelta, nanosDelta, maxNanos));
+		});
+
+		summaries.sort(Comparator.comparingLong((Summary summary) -> summary.nanos).reversed());
+		lastSummary = summaries;
+		lastPeriodSeconds = periodSeconds;
+		return summaries;
+	}
+
+	/**
+	 * Summarises the transactions every <code>period</code>, appending each summary to a CSV file.
+	 *
+	 * @param ses    the executor to summarise on
+	 * @param period the time between summaries
+	 * @param path   the file to append summaries to
+	 */
+	public void startReporting(ScheduledExecutorService ses, Duration period, String path) throws FileNotFoundException {
+		var out = new PrintWriter(path);
+		out.println("time,device,operation,call_site,count,total_us,max_us");
+
+		ses.scheduleAtFixedRate(() -> {
+			double time = Instant.now().since(start).toSeconds();
+			for (var summary : summarise(period.toSeconds())) {
+				out.printf("%f,%s,%s,%s,%d,%d,%d%n", time, summary.key.device, summary.key.operation, summary.key.callSite,
+					summary.count, summary.nanos / 1000, summary.maxNanos / 1000);
+			}
+			out.flush();
+			if (out.checkError())
+				logger.warn("Could not write bus profile to " + path);
+		}, period.toNanos(), period.toNanos(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Shows the total bus load and the busiest call sites from the latest summary as live telemetry.
+	 */
+	public void addTo(Tester tester) {
+		tester.header("[Bus Profile]");
+		tester.info("Total", () -> {
+			long count = 0, nanos = 0;
+			for (var summary : lastSummary) {
+				count += summary.count;
+				nanos += summary.nanos;
+			}
+			return String.format("%.0f transactions/s, %.0f ms/s", count / lastPeriodSeconds, nanos / 1e6 / lastPeriodSeconds);
+		});
+
+		for (int i = 0; i < TELEMETRY_LINES; i++) {
+			int rank = i;
+			tester.info("#" + (rank + 1), () -> {
+				var summaries = lastSummary;
+				if (rank >= summaries.size())
+					return "";
+
+				var summary = summaries.get(rank);
+				return String.format("%s.%s @ %s: %.0f/s, %.1f ms/s", summary.key.device, summary.key.operation,
+					summary.key.callSite, summary.count / lastPeriodSeconds, summary.nanos / 1e6 / lastPeriodSeconds);
+			});
+		}
+	}
+
+	private static final class Stats {
+		final LongAdder count = new LongAdder();
+		final LongAdder nanos = new LongAdder();
+		final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+		void record(long nanos) {
+			count.increment();
+			this.nanos.add(nanos);
+			maxNanos.accumulate(nanos);
+		}
+	}
+
+	static final class Key {
+		final String device;
+		final String operation;
+		final String callSite;
+
+		Key(String device, String operation, String callSite) {
+			this.device = device;
+			this.operation = operation;
+			this.callSite = callSite;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Key)) return false;
+			var key = (Key) o;
+			return device.equals(key.device) && operation.equals(key.operation) && callSite.equals(key.callSite);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(device, operation, callSite);
+		}
+	}
+
+	static final class Summary {
+		final Key key;
+		final long count;
+		final long nanos;
+		final long maxNanos;
+
+		Summary(Key key, long count, long nanos, long maxNanos) {
+			this.key = key;
+			this.count = count;
+			this.nanos = nanos;
+			this.maxNanos = maxNanos;
+		}
+	}
+}
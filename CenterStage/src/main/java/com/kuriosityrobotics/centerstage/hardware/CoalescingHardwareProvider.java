@@ -0,0 +1,285 @@
+package com.kuriosityrobotics.centerstage.hardware;
+
+import com.kuriosityrobotics.centerstage.bulkdata.BulkDataSource;
+import com.kuriosityrobotics.centerstage.concurrent.ControlLoopScheduler;
+import com.kuriosityrobotics.centerstage.test.Tester;
+import com.kuriosityrobotics.centerstage.util.Duration;
+import com.qualcomm.hardware.lynx.LynxModule;
+import com.qualcomm.robotcore.hardware.*;
+import com.qualcomm.robotcore.hardware.configuration.typecontainers.ServoConfigurationType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.kuriosityrobotics.centerstage.concurrent.ControlLoopScheduler.Phase.ACTUATE;
+import static com.kuriosityrobotics.centerstage.concurrent.ControlLoopScheduler.Priority.CRITICAL;
+import static com.kuriosityrobotics.centerstage.concurrent.ControlLoopScheduler.Priority.LOW;
+
+/**
+ * A {@link HardwareProvider} whose motors and servos skip redundant writes, and batch the rest into one flush per hub
+ * per period.  See {@link ActuatorCache} for exactly which writes are deferred.
+ * <p>
+ * Motors and servos are built on wrapped controllers, so every motor and servo this provides goes through the cache.
+ * A motor's power or a servo's position may reach the hub up to one flush period after it is set.
+ */
+public class CoalescingHardwareProvider implements HardwareProvider {
+	private static final Logger logger = LoggerFactory.getLogger(CoalescingHardwareProvider.class);
+
+	public static final double DEFAULT_TOLERANCE = 1e-3;
+	/**
+	 * How often each hub is checked for having been reset, after which everything the cache knows is written again.
+	 */
+	private static final Duration RESET_CHECK_PERIOD = Duration.ofMillis(500);
+
+	// writes which can't change the power, mode, coefficients or position the cache shadows
+	private static final Set<String> NON_INVALIDATING_WRITES = Set.of(
+		"setMotorZeroPowerBehavior",
+		"setMotorTargetPosition",
+		"setMotorTargetPositionTolerance",
+		"setMotorCurrentAlert"
+	);
+
+	private final ScheduledExecutorService ses;
+	private final HardwareProvider delegate;
+	private final Duration flushPeriod;
+	private final double tolerance;
+
+	private final Map<LynxHub, ActuatorCache> caches = new ConcurrentHashMap<>();
+	private final Map<LynxHub, DcMotorControllerEx> motorControllers = new ConcurrentHashMap<>();
+	private final Map<LynxHub, ServoControllerEx> servoControllers = new ConcurrentHashMap<>();
+
+	public CoalescingHardwareProvider(ScheduledExecutorService ses, HardwareProvider delegate, Duration flushPeriod, double tolerance) {
+		this.ses = ses;
+		this.delegate = delegate;
+		this.flushPeriod = flushPeriod;
+		this.tolerance = tolerance;
+	}
+
+	public CoalescingHardwareProvider(ScheduledExecutorService ses, HardwareProvider delegate, Duration flushPeriod) {
+		this(ses, delegate, flushPeriod, DEFAULT_TOLERANCE);
+	}
+
+	private ActuatorCache cacheFor(LynxHub hub) {
+		return caches.computeIfAbsent(hub, h -> {
+			var cache = new ActuatorCache(delegate.motorControllerFor(h), delegate.servoControllerFor(h), tolerance);
+			ControlLoopScheduler.schedule(ses, "actuator flush " + h.hardwareName(), flushPeriod, ACTUATE, CRITICAL, () -> {
+				try {
+					cache.flush();
+				} catch (RuntimeException e) {
+					logger.error("Could not flush actuator writes to " + h.hardwareName(), e);
+				}
+			});
+			ControlLoopScheduler.schedule(ses, "actuator reset check " + h.hardwareName(), RESET_CHECK_PERIOD, ACTUATE, LOW, () -> {
+				try {
+					if (cache.checkForReset())
+						logger.warn(h.hardwareName() + " was reset; wrote its motor and servo state again");
+				} catch (RuntimeException e) {
+					logger.error("Could not check " + h.hardwareName() + " for a reset", e);
+				}
+			});
+			return cache;
+		});
+	}
+
+	/**
+	 * Flushes the powers of the given motors on <code>hub</code> before those of its other motors and its servos.
+	 */
+	public void prioritise(LynxHub hub, int... motorPorts) {
+		var cache = cacheFor(hub);
+		for (int port : motorPorts)
+			cache.prioritise(port);
+	}
+
+	/**
+	 * Writes every pending power and position to every hub now.
+	 */
+	public void flush() {
+		caches.values().forEach(ActuatorCache::flush);
+	}
+
+	@Override
+	public LynxModule moduleFor(LynxHub hub) {
+		return delegate.moduleFor(hub);
+	}
+
+	@Override
+	public BulkDataSource bulkDataSourceFor(LynxHub hub) {
+		return delegate.bulkDataSourceFor(hub);
+	}
+
+	@Override
+	public DcMotorControllerEx motorControllerFor(LynxHub hub) {
+		return motorControllers.computeIfAbsent(hub, h -> {
+			var controller = delegate.motorControllerFor(h);
+			var cache = cacheFor(h);
+			return (DcMotorControllerEx) Proxy.newProxyInstance(
+				DcMotorControllerEx.class.getClassLoader(),
+				new Class<?>[]{DcMotorControllerEx.class},
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+						case "setMotorPower":
+							cache.setMotorPower((int) args[0], (double) args[1]);
+							return null;
+						case "getMotorPower":
+							return cache.getMotorPower((int) args[0]);
+						case "setMotorMode":
+							cache.setMotorMode((int) args[0], (DcMotor.RunMode) args[1]);
+							return null;
+						case "getMotorMode":
+							return cache.getMotorMode((int) args[0]);
+						case "setPIDFCoefficients":
+							cache.setPIDFCoefficients((int) args[0], (DcMotor.RunMode) args[1], (PIDFCoefficients) args[2]);
+							return null;
+						case "getPIDFCoefficients":
+							return cache.getPIDFCoefficients((int) args[0], (DcMotor.RunMode) args[1]);
+					}
+
+					if (isWrite(method) && args[0] instanceof Integer) {
+						return cache.writeThroughMotor((int) args[0], !NON_INVALIDATING_WRITES.contains(method.getName()),
+							() -> invoke(method, controller, args));
+					}
+
+					var result = invoke(method, controller, args);
+					if (isWrite(method))
+						cache.invalidate(); // a write to the whole controller
+					return result;
+				}
+			);
+		});
+	}
+
+	@Override
+	public ServoControllerEx servoControllerFor(LynxHub hub) {
+		return servoControllers.computeIfAbsent(hub, h -> {
+			var controller = delegate.servoControllerFor(h);
+			var cache = cacheFor(h);
+			return (ServoControllerEx) Proxy.newProxyInstance(
+				ServoControllerEx.class.getClassLoader(),
+				new Class<?>[]{ServoControllerEx.class},
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+						case "setServoPosition":
+							cache.setServoPosition((int) args[0], (double) args[1]);
+							return null;
+						case "getServoPosition":
+							return cache.getServoPosition((int) args[0]);
+					}
+
+					// enabling, disabling or rescaling a servo's PWM all affect its position
+					if (isWrite(method) && args[0] instanceof Integer)
+						return cache.writeThroughServo((int) args[0], true, () -> invoke(method, controller, args));
+
+					var result = invoke(method, controller, args);
+					if (isWrite(method) || method.getName().startsWith("pwm"))
+						cache.invalidate();
+					return result;
+				}
+			);
+		});
+	}
+
+	private static boolean isWrite(Method method) {
+		var name = method.getName();
+		return (name.startsWith("set") || name.startsWith("reset")) && method.getDeclaringClass() != Object.class;
+	}
+
+	private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	@Override
+	public AnalogInputController analogInputControllerFor(LynxHub hub) {
+		return delegate.analogInputControllerFor(hub);
+	}
+
+	@Override
+	public DcMotorEx motor(LynxHub hub, int portNumber, DcMotorSimple.Direction direction) {
+		return new DcMotorImplEx(motorControllerFor(hub), portNumber, direction);
+	}
+
+	@Override
+	public ServoImplEx servo(LynxHub hub, int portNumber) {
+		return new ServoImplEx(servoControllerFor(hub), portNumber, ServoConfigurationType.getStandardServoType());
+	}
+
+	@Override
+	public CRServoImplEx crServo(LynxHub hub, int portNumber) {
+		return new CRServoImplEx(servoControllerFor(hub), portNumber, ServoConfigurationType.getStandardServoType());
+	}
+
+	@Override
+	public AnalogInput analogInput(LynxHub hub, int channel) {
+		return delegate.analogInput(hub, channel);
+	}
+
+	@Override
+	public I2cDeviceSynchSimple i2cDevice(LynxHub hub, int port) {
+		return delegate.i2cDevice(hub, port);
+	}
+
+	@Override
+	public <T extends HardwareDevice> T byName(Class<? extends T> classOrInterface, String deviceName) {
+		return delegate.byName(classOrInterface, deviceName);
+	}
+
+	@Override
+	public <T extends HardwareDevice> T byName(String deviceName) {
+		return delegate.byName(deviceName);
+	}
+
+	@Override
+	public VoltageSensor voltageSensorFor(String deviceName) {
+		return delegate.voltageSensorFor(deviceName);
+	}
+
+	@Override
+	public VoltageSensor voltageSensorFor(LynxHub hub) {
+		return delegate.voltageSensorFor(hub);
+	}
+
+	/**
+	 * @return the number of motor and servo writes which were requested
+	 */
+	public long requested() {
+		return caches.values().stream().mapToLong(ActuatorCache::requested).sum();
+	}
+
+	/**
+	 * @return the number of requested writes which never reached the bus
+	 */
+	public long saved() {
+		return caches.values().stream().mapToLong(cache -> cache.requested() - cache.performed()).sum();
+	}
+
+	public void addTo(Tester tester) {
+		tester.header("[Actuator Cache]");
+		for (var hub : LynxHub.values()) {
+			tester.info(hub.hardwareName(), () -> {
+				var cache = caches.get(hub);
+				return cache == null ? "unused" : summary(cache.requested(), cache.requested() - cache.performed());
+			});
+		}
+		tester.info("Total", () -> summary(requested(), saved()));
+	}
+
+	private static String summary(long requested, long saved) {
+		return String.format("%d of %d writes saved (%.0f%%)", saved, requested, requested == 0 ? 0. : 100. * saved / requested);
+	}
+
+	@Override
+	public String toString() {
+		return "CoalescingHardwareProvider{" + summary(requested(), saved()) + "}";
+	}
+}
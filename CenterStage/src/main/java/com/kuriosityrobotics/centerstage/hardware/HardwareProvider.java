@@ -1,5 +1,6 @@
 package com.kuriosityrobotics.centerstage.hardware;
 
+import com.kuriosityrobotics.centerstage.bulkdata.BulkDataSource;
 import com.qualcomm.hardware.lynx.LynxModule;
 import com.qualcomm.robotcore.hardware.*;
 
@@ -16,6 +17,16 @@ public interface HardwareProvider {
 	 */
 	LynxModule moduleFor(LynxHub hub);
 
+	/**
+	 * Returns the source of bulk data for the given LynxHub.  By default, this bulk reads its LynxModule.
+	 *
+	 * @param hub The LynxHub to read.
+	 * @return The source of bulk data for the given LynxHub.
+	 */
+	default BulkDataSource bulkDataSourceFor(LynxHub hub) {
+		return BulkDataSource.of(moduleFor(hub));
+	}
+
 	/**
 	 * Retrieves the DcMotorControllerEx for the given LynxHub.
 	 *
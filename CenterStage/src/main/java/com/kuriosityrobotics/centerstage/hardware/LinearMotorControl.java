@@ -1,7 +1,9 @@
 package com.kuriosityrobotics.centerstage.hardware;
 
+import com.kuriosityrobotics.centerstage.bulkdata.CurrentMonitor;
 import com.kuriosityrobotics.centerstage.util.Duration;
 import com.kuriosityrobotics.centerstage.util.Instant;
+import com.kuriosityrobotics.centerstage.concurrent.Deadline;
 import com.kuriosityrobotics.centerstage.concurrent.PreemptibleLock;
 
 import java.util.concurrent.TimeoutException;
@@ -9,6 +11,7 @@ import java.util.concurrent.TimeoutException;
 public abstract class LinearMotorControl implements MetricPositionSensor, MetricVelocitySensor {
 	protected final PreemptibleLock lock = new PreemptibleLock();
 	private final Duration timeout;
+	private volatile CurrentMonitor.Watch stallWatch;
 
 	protected LinearMotorControl() {
 		this.timeout = Duration.ofSeconds(5);
@@ -23,26 +26,54 @@ public abstract class LinearMotorControl implements MetricPositionSensor, Metric
 		this.timeout = timeout;
 	}
 
+	/**
+	 * Aborts moves early when <code>watch</code> trips, rather than waiting out the timeout.  The watch is only active
+	 * while a move is in progress.
+	 */
+	protected void setStallWatch(CurrentMonitor.Watch watch) {
+		watch.setActive(false);
+		this.stallWatch = watch;
+	}
+
 	/**
 	 * Moves (in a blocking way, with timeout handling) motor to the `position` (in meters)
+	 * <p>
+	 * If the current thread has a {@link Deadline}, this returns false when it passes, leaving the motor heading for the
+	 * position.
 	 *
 	 * @param position the position, in meters, that the motor should try to go to.
+	 * @return true if the motor reached the position, or false if the current thread's deadline passed first
 	 * @throws InterruptedException
+	 * @throws StalledException     if the motor stalled before reaching the position
+	 * @throws TimeoutException     if the motor did not reach the position within the timeout
 	 */
-	public void goToPosition(double position) throws InterruptedException, TimeoutException {
+	public boolean goToPosition(double position) throws InterruptedException, TimeoutException {
 		lock.lockInterruptibly();
+		var watch = stallWatch;
 		try {
+			long trips = 0;
+			if (watch != null) {
+				trips = watch.trips();
+				watch.setActive(true);
+			}
+
 			setTargetPositionMetres0(position);
 
 			Instant startTime = Instant.now();
 			while (isBusy()) {
+				if (Deadline.hasExpired())
+					return false;
+				if (watch != null && watch.trips() != trips)
+					throw new StalledException(watch);
 				if (Instant.now().since(startTime).isGreaterThan(timeout))
 					throw new TimeoutException("Timed out: did not finish within " + timeout.toSeconds() + " seconds.");
 
 				idle();
 			}
-
+			return true;
 		} finally {
+			if (watch != null)
+				watch.setActive(false);
 			lock.unlock();
 		}
 	}
@@ -69,4 +100,16 @@ public abstract class LinearMotorControl implements MetricPositionSensor, Metric
 	 * @param position the position, in metres, that the motor should try to go to.
 	 */
 	protected abstract void setTargetPositionMetres0(double position);
-}
\ No newline at end of file
+
+	/**
+	 * Thrown when a move is aborted because the motor stalled.  It is a {@link TimeoutException}, since the motor did
+	 * not reach its target either way, so recovery written for timeouts handles stalls too, only sooner.
+	 */
+	public static final class StalledException extends TimeoutException {
+		private static final long serialVersionUID = 4170516963290214826L;
+
+		public StalledException(CurrentMonitor.Watch watch) {
+			super("Stalled: " + watch.name() + " drew " + String.format("%.1f", watch.lastCurrent()) + "A without moving");
+		}
+	}
+}
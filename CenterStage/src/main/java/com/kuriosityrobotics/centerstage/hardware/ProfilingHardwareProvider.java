@@ -0,0 +1,137 @@
+package com.kuriosityrobotics.centerstage.hardware;
+
+import com.kuriosityrobotics.centerstage.bulkdata.BulkDataSource;
+import com.qualcomm.hardware.lynx.LynxModule;
+import com.qualcomm.robotcore.hardware.*;
+import com.qualcomm.robotcore.hardware.configuration.typecontainers.ServoConfigurationType;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link HardwareProvider} which records every transaction made through the devices it provides in a
+ * {@link BusProfiler}.
+ * <p>
+ * Motors, servos and analogue inputs make their transactions through their hub's controller, so those controllers are
+ * wrapped, and the devices are built on the wrapped controllers; each transaction is attributed to the port it
+ * addresses.  Devices retrieved by name as an interface (such as the IMU), and voltage sensors, are wrapped directly.
+ * Calls which never touch the bus are recorded too, with negligible times.
+ */
+public class ProfilingHardwareProvider implements HardwareProvider {
+	private final HardwareProvider delegate;
+	private final BusProfiler profiler;
+
+	private final Map<LynxHub, DcMotorControllerEx> motorControllers = new ConcurrentHashMap<>();
+	private final Map<LynxHub, AnalogInputController> analogInputControllers = new ConcurrentHashMap<>();
+	private final Map<LynxHub, ServoControllerEx> servoControllers = new ConcurrentHashMap<>();
+
+	public ProfilingHardwareProvider(HardwareProvider delegate, BusProfiler profiler) {
+		this.delegate = delegate;
+		this.profiler = profiler;
+	}
+
+	@Override
+	public LynxModule moduleFor(LynxHub hub) {
+		return delegate.moduleFor(hub); // bulk reads are measured by the BulkDataFetcher
+	}
+
+	@Override
+	public BulkDataSource bulkDataSourceFor(LynxHub hub) {
+		return delegate.bulkDataSourceFor(hub);
+	}
+
+	@Override
+	public DcMotorControllerEx motorControllerFor(LynxHub hub) {
+		return motorControllers.computeIfAbsent(hub, h ->
+			profiled(DcMotorControllerEx.class, delegate.motorControllerFor(h), h.hardwareName() + " motor", true));
+	}
+
+	@Override
+	public AnalogInputController analogInputControllerFor(LynxHub hub) {
+		return analogInputControllers.computeIfAbsent(hub, h ->
+			profiled(AnalogInputController.class, delegate.analogInputControllerFor(h), h.hardwareName() + " analog", true));
+	}
+
+	@Override
+	public ServoControllerEx servoControllerFor(LynxHub hub) {
+		return servoControllers.computeIfAbsent(hub, h ->
+			profiled(ServoControllerEx.class, delegate.servoControllerFor(h), h.hardwareName() + " servo", true));
+	}
+
+	@Override
+	public DcMotorEx motor(LynxHub hub, int portNumber, DcMotorSimple.Direction direction) {
+		return new DcMotorImplEx(motorControllerFor(hub), portNumber, direction);
+	}
+
+	@Override
+	public ServoImplEx servo(LynxHub hub, int portNumber) {
+		return new ServoImplEx(servoControllerFor(hub), portNumber, ServoConfigurationType.getStandardServoType());
+	}
+
+	@Override
+	public CRServoImplEx crServo(LynxHub hub, int portNumber) {
+		return new CRServoImplEx(servoControllerFor(hub), portNumber, ServoConfigurationType.getStandardServoType());
+	}
+
+	@Override
+	public AnalogInput analogInput(LynxHub hub, int channel) {
+		return new AnalogInput(analogInputControllerFor(hub), channel);
+	}
+
+	@Override
+	public I2cDeviceSynchSimple i2cDevice(LynxHub hub, int port) {
+		return profiled(I2cDeviceSynchSimple.class, delegate.i2cDevice(hub, port), hub.hardwareName() + " i2c " + port, false);
+	}
+
+	@Override
+	public <T extends HardwareDevice> T byName(Class<? extends T> classOrInterface, String deviceName) {
+		T device = delegate.byName(classOrInterface, deviceName);
+		if (device == null || !classOrInterface.isInterface())
+			return device; // can't wrap a concrete class
+
+		return profiled(classOrInterface, device, deviceName, false);
+	}
+
+	@Override
+	public <T extends HardwareDevice> T byName(String deviceName) {
+		return delegate.byName(deviceName);
+	}
+
+	@Override
+	public VoltageSensor voltageSensorFor(String deviceName) {
+		return profiled(VoltageSensor.class, delegate.voltageSensorFor(deviceName), deviceName, false);
+	}
+
+	@Override
+	public VoltageSensor voltageSensorFor(LynxHub hub) {
+		return profiled(VoltageSensor.class, delegate.voltageSensorFor(hub), hub.hardwareName() + " voltage", false);
+	}
+
+	/**
+	 * Wraps <code>delegate</code> in a proxy which records every call.
+	 *
+	 * @param type   the interface the proxy implements, which <code>delegate</code> must implement too
+	 * @param byPort whether the first argument of each call is a port number, which identifies the device
+	 */
+	private <T> T profiled(Class<? extends T> type, T delegate, String device, boolean byPort) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+			if (method.getDeclaringClass() == Object.class)
+				return method.invoke(delegate, args);
+
+			long start = System.nanoTime();
+			try {
+				return method.invoke(delegate, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			} finally {
+				long nanos = System.nanoTime() - start;
+				var name = byPort && args != null && args.length > 0 && args[0] instanceof Integer
+					? device + " " + args[0]
+					: device;
+				profiler.record(name, method.getName(), nanos);
+			}
+		}));
+	}
+}
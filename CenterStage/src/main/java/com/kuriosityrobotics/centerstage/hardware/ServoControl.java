@@ -5,6 +5,7 @@ package com.kuriosityrobotics.centerstage.hardware;
 
 import com.kuriosityrobotics.centerstage.util.Duration;
 import com.kuriosityrobotics.centerstage.util.Instant;
+import com.kuriosityrobotics.centerstage.concurrent.Deadline;
 import com.kuriosityrobotics.centerstage.concurrent.PreemptibleLock;
 import com.qualcomm.robotcore.hardware.Servo;
 import org.checkerframework.checker.nullness.qual.NonNull;
@@ -43,15 +44,18 @@ public abstract class ServoControl {
 
 	/**
 	 * This Java function sets the target servo position and sleeps for an estimated time to reach that
-	 * position while holding a lock.
+	 * position while holding a lock.  If the current thread has a {@link Deadline}, it stops sleeping when the deadline
+	 * passes, leaving the servo heading for the position.
 	 *
 	 * @param position The desired angle position that the servo motor should move to.
+	 * @return true if the servo is estimated to have reached the position, or false if the current thread's deadline
+	 * passed first
 	 */
-	public void goToAngle(double position) throws InterruptedException {
+	public boolean goToAngle(double position) throws InterruptedException {
 		lock.lockInterruptibly();
 		try {
 			setTargetServoPosition0(position);
-			Thread.sleep(estimateTimeToPosition(position).toMillis());
+			return Deadline.sleep(estimateTimeToPosition(position));
 		} finally {
 			lock.unlock();
 		}
@@ -0,0 +1,138 @@
+package com.kuriosityrobotics.centerstage.hardware.simulation;
+
+import com.kuriosityrobotics.centerstage.localisation.Odometry;
+import com.kuriosityrobotics.centerstage.math.Pose;
+import com.qualcomm.robotcore.hardware.DcMotorSimple;
+
+import static com.kuriosityrobotics.centerstage.localisation.Odometry.DISTANCE_TO_FORWARDS_ENCODER;
+import static com.kuriosityrobotics.centerstage.localisation.Odometry.DISTANCE_TO_SIDEWAYS_ENCODER;
+import static com.kuriosityrobotics.centerstage.localisation.Odometry.WHEEL_RADIUS;
+
+/**
+ * An ideal mecanum drivetrain: the wheels never slip, so the robot moves exactly as the inverse of the kinematics in
+ * {@link com.kuriosityrobotics.centerstage.teleop.TeleopController} says it should.  The motors' own dynamics limit its
+ * acceleration.
+ * <p>
+ * The robot carries the forwards and sideways odometry pods described by {@link Odometry}, which can be connected to
+ * a simulated hub's encoder ports.
+ */
+public class MecanumDriveModel {
+	private static final double ODOMETRY_TICKS_PER_REVOLUTION = 8192;
+
+	public enum Wheel {
+		FRONT_LEFT, FRONT_RIGHT, BACK_LEFT, BACK_RIGHT
+	}
+
+	private final double ticksPerMetre;
+	private final double turningRadius;
+	private final MotorModel[] motors = new MotorModel[Wheel.values().length];
+	private final int[] signs = new int[Wheel.values().length];
+
+	private double x, y, heading;
+	private double forwardsVelocity, sidewaysVelocity, angularVelocity; // robot frame, leftwards and anticlockwise positive
+
+	private final Pod forwardsPod = new Pod();
+	private final Pod sidewaysPod = new Pod();
+
+	/**
+	 * @param ticksPerMetre motor encoder ticks per metre travelled by a wheel's rim
+	 * @param turningRadius half the track width plus half the wheelbase, in metres
+	 */
+	public MecanumDriveModel(double ticksPerMetre, double turningRadius) {
+		this.ticksPerMetre = ticksPerMetre;
+		this.turningRadius = turningRadius;
+	}
+
+	/**
+	 * Attaches a wheel's motor.
+	 *
+	 * @param direction the direction the motor is configured with, so that driving forwards at positive power moves
+	 *                  the robot forwards
+	 * @return this
+	 */
+	public MecanumDriveModel withWheel(Wheel wheel, MotorModel motor, DcMotorSimple.Direction direction) {
+		motors[wheel.ordinal()] = motor;
+		signs[wheel.ordinal()] = direction == DcMotorSimple.Direction.REVERSE ? -1 : 1;
+		return this;
+	}
+
+	private double wheelSpeed(Wheel wheel) {
+		var motor = motors[wheel.ordinal()];
+		return motor == null ? 0 : signs[wheel.ordinal()] * motor.velocity() / ticksPerMetre;
+	}
+
+	/**
+	 * Advances the robot, after its motors have been advanced.
+	 */
+	void step(double dt) {
+		double frontLeft = wheelSpeed(Wheel.FRONT_LEFT);
+		double frontRight = wheelSpeed(Wheel.FRONT_RIGHT);
+		double backLeft = wheelSpeed(Wheel.BACK_LEFT);
+		double backRight = wheelSpeed(Wheel.BACK_RIGHT);
+
+		forwardsVelocity = (frontLeft + frontRight + backLeft + backRight) / 4;
+		sidewaysVelocity = (-frontLeft + frontRight + backLeft - backRight) / 4;
+		angularVelocity = (-frontLeft + frontRight - backLeft + backRight) / 4 / turningRadius;
+
+		double midpointHeading = heading + angularVelocity * dt / 2;
+		x += (forwardsVelocity * Math.cos(midpointHeading) - sidewaysVelocity * Math.sin(midpointHeading)) * dt;
+		y += (forwardsVelocity * Math.sin(midpointHeading) + sidewaysVelocity * Math.cos(midpointHeading)) * dt;
+		heading += angularVelocity * dt;
+
+		// the inverse of Odometry.calculateOdometryRel
+		double forwardsRolling = (forwardsVelocity - DISTANCE_TO_FORWARDS_ENCODER * angularVelocity) / WHEEL_RADIUS;
+		double sidewaysRolling = (sidewaysVelocity + DISTANCE_TO_SIDEWAYS_ENCODER * angularVelocity) / WHEEL_RADIUS;
+		forwardsPod.step(dt, forwardsRolling / (2 * Math.PI) * ODOMETRY_TICKS_PER_REVOLUTION);
+		sidewaysPod.step(dt, -sidewaysRolling / (2 * Math.PI) * ODOMETRY_TICKS_PER_REVOLUTION);
+	}
+
+	/**
+	 * @return the robot's pose on the field, in metres and radians, with the heading unwrapped
+	 */
+	public Pose pose() {
+		return new Pose(x, y, heading);
+	}
+
+	/**
+	 * Moves the robot, as if it were placed there.
+	 */
+	public void setPose(Pose pose) {
+		x = pose.x();
+		y = pose.y();
+		heading = pose.orientation();
+	}
+
+	/**
+	 * @return the robot's anticlockwise angular velocity, in radians per second
+	 */
+	public double angularVelocity() {
+		return angularVelocity;
+	}
+
+	public SimulatedEncoder forwardsPod() {
+		return forwardsPod;
+	}
+
+	public SimulatedEncoder sidewaysPod() {
+		return sidewaysPod;
+	}
+
+	private static final class Pod implements SimulatedEncoder {
+		double position, velocity;
+
+		void step(double dt, double velocity) {
+			this.velocity = velocity;
+			this.position += velocity * dt;
+		}
+
+		@Override
+		public double position() {
+			return position;
+		}
+
+		@Override
+		public double velocity() {
+			return velocity;
+		}
+	}
+}
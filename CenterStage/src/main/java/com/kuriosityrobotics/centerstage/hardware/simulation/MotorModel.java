@@ -0,0 +1,173 @@
+package com.kuriosityrobotics.centerstage.hardware.simulation;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+/**
+ * A DC motor with a first-order velocity response, driven the way a Lynx hub drives it in each run mode.
+ * <p>
+ * Positions and velocities are in raw encoder ticks, as the hub sees them; motor directions are applied by the
+ * <code>DcMotor</code> on top.  An optional pair of hard stops models a slide: the motor stalls against them.  The hard
+ * stops are fixed relative to where the encoder read zero at power-on, so resetting the encoder moves them.
+ */
+public class MotorModel implements SimulatedEncoder {
+	/**
+	 * The free speed of a 1150 RPM, 145.1 ticks per revolution motor, as used on the slides.
+	 */
+	public static final double DEFAULT_FREE_SPEED = 1150 * 145.1 / 60;
+	public static final double DEFAULT_TIME_CONSTANT = 0.05;
+	public static final double DEFAULT_STALL_CURRENT = 9.2;
+
+	private static final double DEFAULT_POSITION_P = 10;
+	private static final int TARGET_POSITION_TOLERANCE = 10;
+
+	private final double freeSpeed;
+	private final double timeConstant;
+	private final double stallCurrent;
+	private double minimumPosition = Double.NEGATIVE_INFINITY;
+	private double maximumPosition = Double.POSITIVE_INFINITY;
+
+	private double position; // ticks from where the encoder read zero at power-on
+	private double encoderZero;
+	private double velocity;
+	private double current;
+
+	private double power;
+	private DcMotor.RunMode mode = DcMotor.RunMode.RUN_WITHOUT_ENCODER;
+	private int targetPosition;
+	private double positionP = DEFAULT_POSITION_P;
+	private boolean enabled = true;
+
+	/**
+	 * @param freeSpeed    the speed at full power and nominal voltage, in ticks per second
+	 * @param timeConstant the time taken to reach 63% of a new speed, in seconds
+	 * @param stallCurrent the current drawn at full power when stalled, in amps
+	 */
+	public MotorModel(double freeSpeed, double timeConstant, double stallCurrent) {
+		this.freeSpeed = freeSpeed;
+		this.timeConstant = timeConstant;
+		this.stallCurrent = stallCurrent;
+	}
+
+	public MotorModel() {
+		this(DEFAULT_FREE_SPEED, DEFAULT_TIME_CONSTANT, DEFAULT_STALL_CURRENT);
+	}
+
+	/**
+	 * Adds hard stops, which the motor can't be driven past.
+	 *
+	 * @param minimumPosition the lower hard stop, in ticks
+	 * @param maximumPosition the upper hard stop, in ticks
+	 * @return this
+	 */
+	public MotorModel withLimits(double minimumPosition, double maximumPosition) {
+		this.minimumPosition = minimumPosition;
+		this.maximumPosition = maximumPosition;
+		this.position = Math.max(minimumPosition, Math.min(maximumPosition, position));
+		return this;
+	}
+
+	/**
+	 * Advances the motor.
+	 *
+	 * @param dt           the time to advance by, in seconds
+	 * @param voltageScale the battery voltage as a fraction of nominal
+	 */
+	void step(double dt, double voltageScale) {
+		double maximumSpeed = freeSpeed * voltageScale;
+		double targetVelocity;
+		if (!enabled)
+			targetVelocity = 0;
+		else switch (mode) {
+			case RUN_USING_ENCODER:
+				targetVelocity = clamp(power * freeSpeed, maximumSpeed);
+				break;
+			case RUN_TO_POSITION:
+				targetVelocity = clamp(positionP * (targetPosition - position()), Math.abs(power) * freeSpeed);
+				targetVelocity = clamp(targetVelocity, maximumSpeed);
+				break;
+			case STOP_AND_RESET_ENCODER:
+				targetVelocity = 0;
+				break;
+			default:
+				targetVelocity = clamp(power, 1) * maximumSpeed;
+		}
+
+		velocity += (targetVelocity - velocity) * (1 - Math.exp(-dt / timeConstant));
+		position += velocity * dt;
+		if (position <= minimumPosition) {
+			position = minimumPosition;
+			velocity = Math.max(velocity, 0);
+		} else if (position >= maximumPosition) {
+			position = maximumPosition;
+			velocity = Math.min(velocity, 0);
+		}
+
+		// the windings see the difference between the drive voltage and the back-EMF
+		current = stallCurrent * Math.min(1, Math.abs(targetVelocity - velocity) / freeSpeed);
+	}
+
+	private static double clamp(double value, double magnitude) {
+		return Math.max(-magnitude, Math.min(magnitude, value));
+	}
+
+	void setPower(double power) {
+		this.power = power;
+	}
+
+	double power() {
+		return power;
+	}
+
+	void setMode(DcMotor.RunMode mode) {
+		this.mode = mode;
+		if (mode == DcMotor.RunMode.STOP_AND_RESET_ENCODER) {
+			encoderZero = position;
+			power = 0;
+		}
+	}
+
+	DcMotor.RunMode mode() {
+		return mode;
+	}
+
+	void setTargetPosition(int targetPosition) {
+		this.targetPosition = targetPosition;
+	}
+
+	int targetPosition() {
+		return targetPosition;
+	}
+
+	void setPositionP(double positionP) {
+		this.positionP = positionP;
+	}
+
+	void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	boolean isEnabled() {
+		return enabled;
+	}
+
+	boolean isBusy() {
+		return mode == DcMotor.RunMode.RUN_TO_POSITION && Math.abs(targetPosition - position()) > TARGET_POSITION_TOLERANCE;
+	}
+
+	@Override
+	public double position() {
+		return position - encoderZero;
+	}
+
+	@Override
+	public double velocity() {
+		return velocity;
+	}
+
+	/**
+	 * @return the current drawn, in amps
+	 */
+	public double current() {
+		return current;
+	}
+}
@@ -0,0 +1,65 @@
+package com.kuriosityrobotics.centerstage.hardware.simulation;
+
+/**
+ * A servo which moves towards its commanded position at a limited speed, like those {@link
+ * com.kuriosityrobotics.centerstage.hardware.ServoControl} is tuned for.
+ */
+public class ServoModel {
+	/**
+	 * The speed of a servo covering its full range in a second.
+	 */
+	public static final double DEFAULT_SPEED = 1;
+
+	private final double speed;
+
+	private double commandedPosition = Double.NaN;
+	private double position = 0.5;
+	private boolean pwmEnabled = true;
+
+	/**
+	 * @param speed the speed, in servo position units (i.e. fractions of the full range) per second
+	 */
+	public ServoModel(double speed) {
+		this.speed = speed;
+	}
+
+	public ServoModel() {
+		this(DEFAULT_SPEED);
+	}
+
+	void step(double dt) {
+		if (!pwmEnabled || Double.isNaN(commandedPosition))
+			return;
+
+		double error = commandedPosition - position;
+		double maximumMove = speed * dt;
+		position += Math.max(-maximumMove, Math.min(maximumMove, error));
+	}
+
+	void setCommandedPosition(double commandedPosition) {
+		this.commandedPosition = commandedPosition;
+		this.pwmEnabled = true; // like a Lynx hub, commanding a position enables the PWM
+	}
+
+	/**
+	 * @return the position last commanded, or NaN if none has been
+	 */
+	public double commandedPosition() {
+		return commandedPosition;
+	}
+
+	void setPwmEnabled(boolean pwmEnabled) {
+		this.pwmEnabled = pwmEnabled;
+	}
+
+	boolean isPwmEnabled() {
+		return pwmEnabled;
+	}
+
+	/**
+	 * @return the position the servo has actually reached
+	 */
+	public double position() {
+		return position;
+	}
+}
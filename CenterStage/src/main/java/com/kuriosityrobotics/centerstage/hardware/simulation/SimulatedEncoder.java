@@ -0,0 +1,16 @@
+package com.kuriosityrobotics.centerstage.hardware.simulation;
+
+/**
+ * Something a simulated hub's encoder port can be connected to.
+ */
+public interface SimulatedEncoder {
+	/**
+	 * @return the position, in ticks
+	 */
+	double position();
+
+	/**
+	 * @return the velocity, in ticks per second
+	 */
+	double velocity();
+}
@@ -0,0 +1,286 @@
+package com.kuriosityrobotics.centerstage.hardware.simulation;
+
+import com.kuriosityrobotics.centerstage.bulkdata.BulkDataSource;
+import com.kuriosityrobotics.centerstage.hardware.HardwareProvider;
+import com.kuriosityrobotics.centerstage.hardware.LynxHub;
+import com.kuriosityrobotics.centerstage.math.MathUtil;
+import com.kuriosityrobotics.centerstage.util.Clock;
+import com.kuriosityrobotics.centerstage.util.Duration;
+import com.qualcomm.hardware.lynx.LynxModule;
+import com.qualcomm.robotcore.hardware.*;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.AngularVelocity;
+import org.firstinspires.ftc.robotcore.external.navigation.YawPitchRollAngles;
+
+import java.lang.reflect.Proxy;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * A {@link HardwareProvider} backed by physical models instead of hubs, so that the robot's code can run off the robot.
+ * <p>
+ * Each hub has a {@link MotorModel} on every motor port and a {@link ServoModel} on every servo port, which can be
+ * replaced to match what is plugged in.  A {@link MecanumDriveModel} moves the robot, and drives the IMU and any
+ * odometry pods connected to the hubs' encoder ports.  The battery sags with the current drawn by the motors.
+ * <p>
+ * The models are advanced lazily to the time on the simulation's {@link Clock}, in steps of at most a millisecond,
+ * whenever a device is used.  On {@link Clock#system()} the simulation runs in real time alongside the robot's
+ * threads; on a {@link com.kuriosityrobotics.centerstage.util.ManualClock} it only moves when the clock is advanced,
+ * as fast as the host can step it.
+ * <p>
+ * There are no Lynx modules or I2C devices in simulation; bulk data comes from {@link #bulkDataSourceFor(LynxHub)}.
+ * This class is thread-safe.
+ */
+public class SimulatedHardwareProvider implements HardwareProvider {
+	public static final double NOMINAL_VOLTAGE = 12;
+	public static final double DEFAULT_BATTERY_VOLTAGE = 13;
+	private static final double BATTERY_RESISTANCE = 0.03; // ohms, including wiring
+	private static final long MAXIMUM_STEP_NANOS = Duration.ofMillis(1).toNanos();
+
+	private final Clock clock;
+	private final Map<LynxHub, SimulatedHub> hubs = new EnumMap<>(LynxHub.class);
+	private final IMU imu;
+	private final VoltageSensor voltageSensor;
+
+	// guarded by this
+	private long lastStepNanos;
+	private MecanumDriveModel drive;
+	private double batteryVoltage = DEFAULT_BATTERY_VOLTAGE;
+	private double voltage = DEFAULT_BATTERY_VOLTAGE;
+	private double yawOffset;
+
+	public SimulatedHardwareProvider(Clock clock) {
+		this.clock = clock;
+		this.lastStepNanos = clock.now().nanos();
+
+		for (var hub : LynxHub.values())
+			hubs.put(hub, new SimulatedHub(hub, this));
+
+		this.imu = device(IMU.class, "imu", (method, args) -> {
+			switch (method.getName()) {
+				case "initialize":
+					return true;
+				case "resetYaw":
+					yawOffset = heading();
+					return null;
+				case "getRobotYawPitchRollAngles":
+					return new YawPitchRollAngles(AngleUnit.RADIANS, MathUtil.angleWrap(heading() - yawOffset), 0, 0, clock.now().nanos());
+				case "getRobotAngularVelocity":
+					var unit = (AngleUnit) args[0];
+					double angularVelocity = drive == null ? 0 : drive.angularVelocity();
+					return new AngularVelocity(unit, 0, 0, (float) unit.fromRadians(angularVelocity), clock.now().nanos());
+			}
+			return SimulatedHub.deviceDefault(method, "imu");
+		});
+
+		this.voltageSensor = device(VoltageSensor.class, "voltage sensor", (method, args) ->
+			method.getName().equals("getVoltage") ? voltage : SimulatedHub.deviceDefault(method, "voltage sensor"));
+	}
+
+	@FunctionalInterface
+	private interface Call {
+		Object handle(java.lang.reflect.Method method, Object[] args);
+	}
+
+	private <T> T device(Class<T> type, String name, Call call) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+			if (method.getDeclaringClass() == Object.class) {
+				if (method.getName().equals("equals"))
+					return proxy == args[0];
+				if (method.getName().equals("hashCode"))
+					return System.identityHashCode(proxy);
+				return "Simulated " + name;
+			}
+
+			synchronized (this) {
+				advance();
+				return call.handle(method, args);
+			}
+		}));
+	}
+
+	private double heading() {
+		return drive == null ? 0 : drive.pose().orientation();
+	}
+
+	/**
+	 * Advances every model to the time on the clock.
+	 */
+	synchronized void advance() {
+		long now = clock.now().nanos();
+		while (now - lastStepNanos > 0) {
+			long step = Math.min(now - lastStepNanos, MAXIMUM_STEP_NANOS);
+			step(step / 1e9);
+			lastStepNanos += step;
+		}
+	}
+
+	private void step(double dt) {
+		double voltageScale = voltage / NOMINAL_VOLTAGE;
+		double current = 0;
+		for (var hub : hubs.values()) {
+			for (var motor : hub.motors) {
+				motor.step(dt, voltageScale);
+				current += motor.current();
+			}
+			for (var servo : hub.servos)
+				servo.step(dt);
+		}
+
+		if (drive != null)
+			drive.step(dt);
+
+		voltage = batteryVoltage - BATTERY_RESISTANCE * current;
+	}
+
+	public Clock clock() {
+		return clock;
+	}
+
+	public synchronized MotorModel motorModel(LynxHub hub, int port) {
+		return hubs.get(hub).motors[port];
+	}
+
+	/**
+	 * Replaces the motor on a port.  Its encoder port reads the new motor, unless something else is connected to it.
+	 */
+	public synchronized void setMotorModel(LynxHub hub, int port, MotorModel motor) {
+		var simulatedHub = hubs.get(hub);
+		if (simulatedHub.encoders[port] == simulatedHub.motors[port])
+			simulatedHub.encoders[port] = motor;
+		simulatedHub.motors[port] = motor;
+	}
+
+	/**
+	 * Connects an encoder port to something other than its motor, such as an odometry pod.
+	 */
+	public synchronized void connectEncoder(LynxHub hub, int port, SimulatedEncoder encoder) {
+		hubs.get(hub).encoders[port] = encoder;
+	}
+
+	public synchronized ServoModel servoModel(LynxHub hub, int port) {
+		return hubs.get(hub).servos[port];
+	}
+
+	public synchronized void setServoModel(LynxHub hub, int port, ServoModel servo) {
+		hubs.get(hub).servos[port] = servo;
+	}
+
+	public synchronized void setAnalogInput(LynxHub hub, int channel, double voltage) {
+		hubs.get(hub).analogInputs[channel] = voltage;
+	}
+
+	public synchronized void setDigitalInput(LynxHub hub, int channel, boolean state) {
+		hubs.get(hub).digitalInputs[channel] = state;
+	}
+
+	/**
+	 * @return the drivetrain, or null if there is none
+	 */
+	public synchronized MecanumDriveModel drive() {
+		advance();
+		return drive;
+	}
+
+	public synchronized void setDrive(MecanumDriveModel drive) {
+		this.drive = drive;
+	}
+
+	/**
+	 * Sets the open-circuit voltage of the battery.
+	 */
+	public synchronized void setBatteryVoltage(double batteryVoltage) {
+		this.batteryVoltage = batteryVoltage;
+	}
+
+	/**
+	 * @return the voltage at the hubs, after the sag caused by the motors
+	 */
+	public synchronized double voltage() {
+		advance();
+		return voltage;
+	}
+
+	@Override
+	public LynxModule moduleFor(LynxHub hub) {
+		throw new UnsupportedOperationException("There are no Lynx modules in simulation");
+	}
+
+	@Override
+	public BulkDataSource bulkDataSourceFor(LynxHub hub) {
+		return hubs.get(hub);
+	}
+
+	@Override
+	public DcMotorControllerEx motorControllerFor(LynxHub hub) {
+		return hubs.get(hub).motorController;
+	}
+
+	@Override
+	public AnalogInputController analogInputControllerFor(LynxHub hub) {
+		return hubs.get(hub).analogInputController;
+	}
+
+	@Override
+	public ServoControllerEx servoControllerFor(LynxHub hub) {
+		return hubs.get(hub).servoController;
+	}
+
+	@Override
+	public DcMotorEx motor(LynxHub hub, int portNumber, DcMotorSimple.Direction direction) {
+		return hubs.get(hub).motor(portNumber, direction);
+	}
+
+	/**
+	 * Creates a servo without a configuration type: the SDK's configuration types can't be loaded off the robot, and
+	 * the simulated controller has no use for one.
+	 */
+	@Override
+	public ServoImplEx servo(LynxHub hub, int portNumber) {
+		return new ServoImplEx(servoControllerFor(hub), portNumber, null);
+	}
+
+	/**
+	 * Creates a continuous rotation servo without a configuration type, as {@link #servo} does.
+	 */
+	@Override
+	public CRServoImplEx crServo(LynxHub hub, int portNumber) {
+		return new CRServoImplEx(servoControllerFor(hub), portNumber, null);
+	}
+
+	@Override
+	public AnalogInput analogInput(LynxHub hub, int channel) {
+		return new AnalogInput(analogInputControllerFor(hub), channel);
+	}
+
+	@Override
+	public I2cDeviceSynchSimple i2cDevice(LynxHub hub, int port) {
+		throw new UnsupportedOperationException("There are no I2C devices in simulation");
+	}
+
+	@Override
+	public <T extends HardwareDevice> T byName(Class<? extends T> classOrInterface, String deviceName) {
+		if (classOrInterface.isInstance(imu))
+			return classOrInterface.cast(imu);
+		if (classOrInterface.isInstance(voltageSensor))
+			return classOrInterface.cast(voltageSensor);
+
+		throw new IllegalArgumentException(String.format("No simulated %s named \"%s\"", classOrInterface.getSimpleName(), deviceName));
+	}
+
+	@Override
+	public <T extends HardwareDevice> T byName(String deviceName) {
+		throw new IllegalArgumentException(String.format("No simulated device named \"%s\"", deviceName));
+	}
+
+	@Override
+	public VoltageSensor voltageSensorFor(String deviceName) {
+		return voltageSensor;
+	}
+
+	@Override
+	public VoltageSensor voltageSensorFor(LynxHub hub) {
+		return voltageSensor;
+	}
+}
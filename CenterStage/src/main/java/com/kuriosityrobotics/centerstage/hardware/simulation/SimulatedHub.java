@@ -0,0 +1,325 @@
+package com.kuriosityrobotics.centerstage.hardware.simulation;
+
+import com.kuriosityrobotics.centerstage.bulkdata.BulkDataSource;
+import com.kuriosityrobotics.centerstage.bulkdata.RevHubBulkData;
+import com.kuriosityrobotics.centerstage.hardware.LynxHub;
+import com.qualcomm.robotcore.hardware.AnalogInputController;
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorControllerEx;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.DcMotorSimple;
+import com.qualcomm.robotcore.hardware.HardwareDevice;
+import com.qualcomm.robotcore.hardware.PIDFCoefficients;
+import com.qualcomm.robotcore.hardware.ServoControllerEx;
+import com.qualcomm.robotcore.hardware.configuration.typecontainers.MotorConfigurationType;
+
+import org.firstinspires.ftc.robotcore.external.navigation.CurrentUnit;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One simulated hub: its motors, servos and inputs, the controllers the SDK's device classes drive them through, and
+ * its bulk data.  Its motors are driven through stand-ins for the SDK's, which can't be loaded off the robot.
+ * <p>
+ * Controller calls which the models don't care about (zero power behaviour, say) are remembered, so that reading them
+ * back returns what was written.  Every call advances the simulation first.
+ */
+class SimulatedHub implements BulkDataSource {
+	static final int SERVO_PORTS = 6;
+	private static final double MAXIMUM_ANALOG_INPUT_VOLTAGE = 3.3;
+
+	private final LynxHub hub;
+	private final SimulatedHardwareProvider simulation;
+
+	final MotorModel[] motors = new MotorModel[RevHubBulkData.MOTOR_PORTS];
+	final SimulatedEncoder[] encoders = new SimulatedEncoder[RevHubBulkData.MOTOR_PORTS];
+	final ServoModel[] servos = new ServoModel[SERVO_PORTS];
+	final double[] analogInputs = new double[RevHubBulkData.ANALOG_INPUTS];
+	final boolean[] digitalInputs = new boolean[RevHubBulkData.DIGITAL_CHANNELS];
+
+	private final Map<String, Object> configuration = new HashMap<>();
+
+	final DcMotorControllerEx motorController;
+	final ServoControllerEx servoController;
+	final AnalogInputController analogInputController;
+
+	SimulatedHub(LynxHub hub, SimulatedHardwareProvider simulation) {
+		this.hub = hub;
+		this.simulation = simulation;
+
+		for (int i = 0; i < motors.length; i++)
+			encoders[i] = motors[i] = new MotorModel();
+		for (int i = 0; i < servos.length; i++)
+			servos[i] = new ServoModel();
+
+		motorController = proxy(DcMotorControllerEx.class, this::motorCall);
+		servoController = proxy(ServoControllerEx.class, this::servoCall);
+		analogInputController = proxy(AnalogInputController.class, this::analogInputCall);
+	}
+
+	@FunctionalInterface
+	private interface Call {
+		Object handle(Method method, Object[] args);
+	}
+
+	private <T> T proxy(Class<T> type, Call call) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+			if (method.getDeclaringClass() == Object.class)
+				return objectCall(proxy, method, args);
+
+			synchronized (simulation) {
+				simulation.advance();
+				return call.handle(method, args == null ? new Object[0] : args);
+			}
+		}));
+	}
+
+	private Object objectCall(Object proxy, Method method, Object[] args) {
+		switch (method.getName()) {
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			default:
+				return "Simulated " + hub.hardwareName();
+		}
+	}
+
+	private Object motorCall(Method method, Object[] args) {
+		switch (method.getName()) {
+			case "setMotorPower":
+				motors[(int) args[0]].setPower((double) args[1]);
+				return null;
+			case "getMotorPower":
+				return motors[(int) args[0]].power();
+			case "setMotorMode":
+				motors[(int) args[0]].setMode((DcMotor.RunMode) args[1]);
+				return null;
+			case "getMotorMode":
+				return motors[(int) args[0]].mode();
+			case "setMotorTargetPosition":
+				motors[(int) args[0]].setTargetPosition((int) args[1]);
+				return null;
+			case "getMotorTargetPosition":
+				return motors[(int) args[0]].targetPosition();
+			case "isBusy":
+				return motors[(int) args[0]].isBusy();
+			case "setMotorEnable":
+				motors[(int) args[0]].setEnabled(true);
+				return null;
+			case "setMotorDisable":
+				motors[(int) args[0]].setEnabled(false);
+				return null;
+			case "isMotorEnabled":
+				return motors[(int) args[0]].isEnabled();
+			case "getMotorCurrentPosition":
+				return (int) Math.round(encoders[(int) args[0]].position());
+			case "getMotorVelocity":
+				if (args.length == 1)
+					return encoders[(int) args[0]].velocity();
+				break;
+			case "getMotorCurrent":
+				return ((CurrentUnit) args[1]).convert(motors[(int) args[0]].current(), CurrentUnit.AMPS);
+			case "getMotorType":
+				return configuration.getOrDefault("MotorType" + args[0], MotorConfigurationType.getUnspecifiedMotorType());
+			case "setPIDFCoefficients":
+				if (args[1] == DcMotor.RunMode.RUN_TO_POSITION)
+					motors[(int) args[0]].setPositionP(((PIDFCoefficients) args[2]).p);
+				break;
+			case "getPIDFCoefficients":
+				var coefficients = (PIDFCoefficients) configuration.get("PIDFCoefficients" + args[0] + args[1]);
+				if (coefficients != null)
+					return new PIDFCoefficients(coefficients);
+				return args[1] == DcMotor.RunMode.RUN_TO_POSITION
+					? new PIDFCoefficients(10, 0, 0, 0)
+					: new PIDFCoefficients(10, 3, 0, 0);
+		}
+
+		return configured(method, args);
+	}
+
+	/**
+	 * @return a motor on <code>port</code>, which drives this hub's motor controller as the SDK's DcMotorImplEx does,
+	 * but which can be created off the robot
+	 */
+	DcMotorEx motor(int port, DcMotorSimple.Direction direction) {
+		var directions = new DcMotorSimple.Direction[]{direction};
+		return proxy(DcMotorEx.class, (method, args) -> motorDeviceCall(port, directions, method, args));
+	}
+
+	private Object motorDeviceCall(int port, DcMotorSimple.Direction[] direction, Method method, Object[] args) {
+		int sign = direction[0] == DcMotorSimple.Direction.REVERSE ? -1 : 1;
+		switch (method.getName()) {
+			case "setDirection":
+				direction[0] = (DcMotorSimple.Direction) args[0];
+				return null;
+			case "getDirection":
+				return direction[0];
+			case "getController":
+				return motorController;
+			case "getPortNumber":
+				return port;
+			case "setPower":
+				motorController.setMotorPower(port, sign * (double) args[0]);
+				return null;
+			case "getPower":
+				return sign * motorController.getMotorPower(port);
+			case "setTargetPosition":
+				motorController.setMotorTargetPosition(port, sign * (int) args[0]);
+				return null;
+			case "getTargetPosition":
+				return sign * motorController.getMotorTargetPosition(port);
+			case "getCurrentPosition":
+				return sign * motorController.getMotorCurrentPosition(port);
+			case "getVelocity":
+				if (args.length == 0)
+					return sign * motorController.getMotorVelocity(port);
+				break;
+			case "setMode":
+				motorController.setMotorMode(port, (DcMotor.RunMode) args[0]);
+				return null;
+			case "getMode":
+				return motorController.getMotorMode(port);
+			case "isBusy":
+				return motorController.isBusy(port);
+			case "setMotorEnable":
+				motorController.setMotorEnable(port);
+				return null;
+			case "setMotorDisable":
+				motorController.setMotorDisable(port);
+				return null;
+			case "isMotorEnabled":
+				return motorController.isMotorEnabled(port);
+			case "setZeroPowerBehavior":
+				motorController.setMotorZeroPowerBehavior(port, (DcMotor.ZeroPowerBehavior) args[0]);
+				return null;
+			case "getZeroPowerBehavior":
+				return motorController.getMotorZeroPowerBehavior(port);
+			case "getMotorType":
+				return motorController.getMotorType(port);
+			case "setPIDFCoefficients":
+				motorController.setPIDFCoefficients(port, (DcMotor.RunMode) args[0], (PIDFCoefficients) args[1]);
+				return null;
+			case "getPIDFCoefficients":
+				return motorController.getPIDFCoefficients(port, (DcMotor.RunMode) args[0]);
+			case "setPositionPIDFCoefficients":
+				motorController.setPIDFCoefficients(port, DcMotor.RunMode.RUN_TO_POSITION, new PIDFCoefficients((double) args[0], 0, 0, 0));
+				return null;
+			case "setVelocityPIDFCoefficients":
+				motorController.setPIDFCoefficients(port, DcMotor.RunMode.RUN_USING_ENCODER,
+					new PIDFCoefficients((double) args[0], (double) args[1], (double) args[2], (double) args[3]));
+				return null;
+			case "setCurrentAlert":
+				motorController.setMotorCurrentAlert(port, (double) args[0], (CurrentUnit) args[1]);
+				return null;
+			case "getCurrentAlert":
+				return motorController.getMotorCurrentAlert(port, (CurrentUnit) args[0]);
+			case "isOverCurrent":
+				return motorController.isMotorOverCurrent(port);
+			case "getCurrent":
+				return motorController.getMotorCurrent(port, (CurrentUnit) args[0]);
+		}
+
+		return deviceDefault(method, hub.hardwareName() + " motor " + port);
+	}
+
+	private Object servoCall(Method method, Object[] args) {
+		switch (method.getName()) {
+			case "setServoPosition":
+				servos[(int) args[0]].setCommandedPosition((double) args[1]);
+				return null;
+			case "getServoPosition":
+				double position = servos[(int) args[0]].commandedPosition();
+				return Double.isNaN(position) ? 0. : position;
+			case "setServoPwmEnable":
+				servos[(int) args[0]].setPwmEnabled(true);
+				return null;
+			case "setServoPwmDisable":
+				servos[(int) args[0]].setPwmEnabled(false);
+				return null;
+			case "isServoPwmEnabled":
+				return servos[(int) args[0]].isPwmEnabled();
+			case "pwmEnable":
+			case "pwmDisable":
+				for (var servo : servos)
+					servo.setPwmEnabled(method.getName().equals("pwmEnable"));
+				return null;
+		}
+
+		return configured(method, args);
+	}
+
+	private Object analogInputCall(Method method, Object[] args) {
+		switch (method.getName()) {
+			case "getAnalogInputVoltage":
+				return analogInputs[(int) args[0]];
+			case "getMaxAnalogInputVoltage":
+				return MAXIMUM_ANALOG_INPUT_VOLTAGE;
+		}
+
+		return configured(method, args);
+	}
+
+	/**
+	 * Remembers a write, or returns what was written for a read, or a default if nothing was.
+	 */
+	private Object configured(Method method, Object[] args) {
+		var name = method.getName();
+		if (name.startsWith("set") && args.length > 0) {
+			var key = name.substring(3) + Arrays.toString(Arrays.copyOf(args, args.length - 1));
+			configuration.put(key, args[args.length - 1]);
+			return null;
+		}
+
+		if (name.startsWith("get")) {
+			var key = name.substring(3) + Arrays.toString(args);
+			if (configuration.containsKey(key))
+				return configuration.get(key);
+		}
+
+		return deviceDefault(method, hub.hardwareName());
+	}
+
+	/**
+	 * @return a harmless result for a call to a simulated device which isn't simulated
+	 */
+	static Object deviceDefault(Method method, String deviceName) {
+		var type = method.getReturnType();
+		if (type == boolean.class)
+			return false;
+		if (type == int.class)
+			return 0;
+		if (type == long.class)
+			return 0L;
+		if (type == double.class)
+			return 0.;
+		if (type == float.class)
+			return 0f;
+		if (type == String.class)
+			return "Simulated " + deviceName;
+		if (type == HardwareDevice.Manufacturer.class)
+			return HardwareDevice.Manufacturer.Other;
+		if (type.isEnum())
+			return type.getEnumConstants()[0];
+
+		return null;
+	}
+
+	@Override
+	public void read(RevHubBulkData data) {
+		synchronized (simulation) {
+			simulation.advance();
+
+			for (int i = 0; i < RevHubBulkData.MOTOR_PORTS; i++)
+				data.set(i, (int) Math.round(encoders[i].position()), (int) Math.round(encoders[i].velocity()));
+			for (int i = 0; i < RevHubBulkData.ANALOG_INPUTS; i++)
+				data.setAnalogInput(i, analogInputs[i]);
+			for (int i = 0; i < RevHubBulkData.DIGITAL_CHANNELS; i++)
+				data.setDigitalInput(i, digitalInputs[i]);
+		}
+	}
+}
@@ -0,0 +1,316 @@
+package com.kuriosityrobotics.centerstage.localisation;
+
+import static java.lang.Math.sqrt;
+
+import com.kuriosityrobotics.centerstage.util.Clock;
+import com.kuriosityrobotics.centerstage.util.Duration;
+import com.kuriosityrobotics.centerstage.util.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The <code>HeadingEstimator</code> class estimates the robot's heading between (decimated) IMU samples.
+ * <p>
+ * Reading the IMU is a blocking I2C transaction which competes with bulk reads and motor writes on the Lynx bus,
+ * so the IMU is read on its own low-priority thread, at a lower rate than the bulk data.  Each sample reads both the
+ * heading and the gyro's yaw rate.  Between samples, the heading is propagated at the bulk-data rate using the last
+ * measured yaw rate, which is also the angular velocity odometry compensates its pods' offsets with; it is at most one
+ * sample period old.  Each sample then corrects the heading by a fraction of the error accumulated since the last one.
+ * <p>
+ * Samples without a yaw rate, such as those in old logs, fall back to an alpha-beta filter: the angular velocity is
+ * estimated from the heading errors, which lags behind the robot whenever it starts or stops turning.
+ * <p>
+ * This class is thread-safe.
+ */
+public class HeadingEstimator {
+	private static final Logger logger = LoggerFactory.getLogger(HeadingEstimator.class);
+
+	/**
+	 * The fraction of a heading innovation that is applied to the heading.  The IMU is far more accurate than the
+	 * propagated heading, so this is close to 1.
+	 */
+	private static final double HEADING_GAIN = 0.85;
+	/**
+	 * The fraction of a heading innovation (per second since the last sample) that is applied to the angular velocity,
+	 * for samples without a yaw rate.
+	 */
+	private static final double ANGULAR_VELOCITY_GAIN = 0.3;
+
+	/**
+	 * Before decimation, the yaw and the yaw velocity were each read at 50Hz.
+	 */
+	private static final double UNDECIMATED_TRANSACTIONS_PER_SECOND = 2 * 50;
+	/**
+	 * Each sample reads the yaw, then the yaw velocity.
+	 */
+	private static final int TRANSACTIONS_PER_SAMPLE = 2;
+
+	/**
+	 * {@link CorrectedIMU#getYaw()} counts full revolutions by comparing consecutive readings, which only works if
+	 * they are less than half a second apart.
+	 */
+	public static final Duration MAXIMUM_SAMPLE_PERIOD = Duration.ofMillis(400);
+
+	private final Clock clock;
+	private final LocalisationMetrics metrics;
+	private final Collection<Listener> listeners = new CopyOnWriteArrayList<>();
+
+	// all guarded by this
+	private double heading;
+	private double angularVelocity;
+	private Instant lastPropagation;
+	private Instant lastSample = null;
+
+	private Instant firstSample;
+	private long innovationCount;
+	private double sumSquaredInnovation;
+	private double maxInnovation;
+
+	public HeadingEstimator() {
+		this(Clock.system());
+	}
+
+	public HeadingEstimator(Clock clock) {
+		this(clock, new LocalisationMetrics(clock));
+	}
+
+	HeadingEstimator(Clock clock, LocalisationMetrics metrics) {
+		this.clock = clock;
+		this.metrics = metrics;
+		this.lastPropagation = clock.now();
+	}
+
+	/**
+	 * Adds a listener which is told about every IMU sample and reset, for example to record them for replay.
+	 *
+	 * @param listener the listener to add
+	 */
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Propagates the heading estimate forwards to <code>now</code> using the current angular velocity estimate.
+	 *
+	 * @param now the time to propagate the heading to
+	 * @return the propagated heading, in radians
+	 */
+	public synchronized double propagate(Instant now) {
+		double dt = now.since(lastPropagation).toSeconds();
+		if (dt > 0) {
+			heading += angularVelocity * dt;
+			lastPropagation = now;
+		}
+
+		return heading;
+	}
+
+	/**
+	 * Corrects the heading estimate with an IMU sample.
+	 *
+	 * @param measuredHeading the heading measured by the IMU, in radians
+	 * @param measuredRate    the yaw rate measured by the IMU, in radians per second, or NaN if it wasn't measured
+	 * @param sampleTime      the time at which the IMU was sampled
+	 */
+	public void correct(double measuredHeading, double measuredRate, Instant sampleTime) {
+		correctAndNotify(measuredHeading, measuredRate, sampleTime);
+	}
+
+	/**
+	 * Corrects the heading estimate with an IMU sample without a yaw rate, estimating the angular velocity from the
+	 * heading instead.
+	 *
+	 * @param measuredHeading the heading measured by the IMU, in radians
+	 * @param sampleTime      the time at which the IMU was sampled
+	 */
+	public void correct(double measuredHeading, Instant sampleTime) {
+		correct(measuredHeading, Double.NaN, sampleTime);
+	}
+
+	private double correctAndNotify(double measuredHeading, double measuredRate, Instant sampleTime) {
+		double innovation;
+		synchronized (this) {
+			innovation = correct0(measuredHeading, measuredRate, sampleTime);
+		}
+
+		listeners.forEach(listener -> listener.onImuSample(measuredHeading, measuredRate, sampleTime));
+		return innovation;
+	}
+
+	private double correct0(double measuredHeading, double measuredRate, Instant sampleTime) {
+		double innovation = measuredHeading - propagate(sampleTime);
+
+		heading += HEADING_GAIN * innovation;
+		if (!Double.isNaN(measuredRate)) {
+			angularVelocity = measuredRate;
+		} else if (lastSample != null) {
+			double dt = sampleTime.since(lastSample).toSeconds();
+			if (dt > 0)
+				angularVelocity += ANGULAR_VELOCITY_GAIN * innovation / dt;
+		}
+		lastSample = sampleTime;
+
+		innovationCount++;
+		sumSquaredInnovation += innovation * innovation;
+		maxInnovation = Math.max(maxInnovation, Math.abs(innovation));
+		return innovation;
+	}
+
+	/**
+	 * Resets the heading estimate, and assumes that the robot is not rotating.
+	 *
+	 * @param newHeading the new heading, in radians
+	 * @param now        the time at which the reset takes effect
+	 */
+	public void reset(double newHeading, Instant now) {
+		synchronized (this) {
+			heading = newHeading;
+			angularVelocity = 0;
+			lastPropagation = now;
+			lastSample = null;
+		}
+
+		listeners.forEach(listener -> listener.onReset(newHeading, now));
+	}
+
+	/**
+	 * @return the heading as of the last propagation, in radians
+	 */
+	public synchronized double heading() {
+		return heading;
+	}
+
+	/**
+	 * @return the angular velocity estimate, in radians per second: the last measured yaw rate, if samples have one
+	 */
+	public synchronized double angularVelocity() {
+		return angularVelocity;
+	}
+
+	/**
+	 * Starts reading the IMU on a dedicated, low-priority thread of <code>ses</code>.
+	 * The thread is held until <code>ses</code> is shut down.
+	 *
+	 * @param ses          the executor to run the sampling loop on
+	 * @param imu          the IMU to sample
+	 * @param samplePeriod the time between IMU samples.  Must not exceed {@link #MAXIMUM_SAMPLE_PERIOD}.
+	 */
+	public void startSampling(ScheduledExecutorService ses, CorrectedIMU imu, Duration samplePeriod) {
+		if (samplePeriod.isGreaterThan(MAXIMUM_SAMPLE_PERIOD))
+			throw new IllegalArgumentException("IMU sample period must not exceed " + MAXIMUM_SAMPLE_PERIOD.toMillis() + "ms");
+
+		ses.execute(() -> sampleLoop(imu, samplePeriod));
+	}
+
+	private void sampleLoop(CorrectedIMU imu, Duration samplePeriod) {
+		var thread = Thread.currentThread();
+		int oldPriority = thread.getPriority();
+		thread.setPriority(Thread.MIN_PRIORITY);
+
+		try {
+			var nextSample = clock.now();
+			while (!Thread.interrupted()) {
+				sample(imu);
+
+				nextSample = nextSample.add(samplePeriod);
+				var now = clock.now();
+				if (nextSample.isAfter(now))
+					TimeUnit.NANOSECONDS.sleep(nextSample.since(now).toNanos());
+				else
+					nextSample = now; // fell behind; don't try to catch up
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (RuntimeException e) {
+			logger.error("IMU sampling stopped", e);
+			throw e;
+		} finally {
+			thread.setPriority(oldPriority);
+		}
+	}
+
+	private void sample(CorrectedIMU imu) {
+		var start = clock.now();
+		double yaw = imu.getYaw();
+		var yawRead = clock.now();
+		double rate = imu.getYawVelocity();
+		var end = clock.now();
+
+		// the yaw was taken somewhere during its transaction; assume the middle
+		var yawTime = start.add(Duration.ofNanos(yawRead.since(start).toNanos() / 2));
+		double innovation = correctAndNotify(yaw, rate, yawTime);
+		metrics.recordImuSample(end.since(start), innovation);
+
+		synchronized (this) {
+			if (firstSample == null)
+				firstSample = start;
+		}
+	}
+
+	/**
+	 * @return the mean time taken by a single IMU sample, which reads both the yaw and the yaw rate
+	 */
+	public Duration meanReadDuration() {
+		return Duration.ofNanos((long) (metrics.imuReadMicros.mean() * 1000));
+	}
+
+	/**
+	 * @return the achieved IMU sample rate, in Hz
+	 */
+	public synchronized double sampleRate() {
+		if (firstSample == null)
+			return 0;
+
+		double elapsed = clock.now().since(firstSample).toSeconds();
+		return elapsed > 0 ? metrics.imuSamples.sum() / elapsed : 0;
+	}
+
+	/**
+	 * Estimates the Lynx bus time saved every second, compared to reading the yaw and yaw velocity at 50Hz.
+	 *
+	 * @return the bus time saved per second
+	 */
+	public synchronized Duration busTimeSavedPerSecond() {
+		double savedTransactions = UNDECIMATED_TRANSACTIONS_PER_SECOND - TRANSACTIONS_PER_SAMPLE * sampleRate();
+		return Duration.ofNanos((long) (savedTransactions * meanReadDuration().toNanos() / TRANSACTIONS_PER_SAMPLE));
+	}
+
+	/**
+	 * The innovation is the difference between the propagated heading and the IMU heading at each sample, which is
+	 * the heading error accumulated between samples.  This is the accuracy cost of reading the IMU less often.
+	 *
+	 * @return the root-mean-square innovation, in radians
+	 */
+	public synchronized double innovationRms() {
+		if (innovationCount == 0)
+			return 0;
+
+		return sqrt(sumSquaredInnovation / innovationCount);
+	}
+
+	/**
+	 * @return the largest innovation seen so far, in radians
+	 * @see #innovationRms()
+	 */
+	public synchronized double maxInnovation() {
+		return maxInnovation;
+	}
+
+	/**
+	 * Receives the inputs of a {@link HeadingEstimator}.
+	 */
+	public interface Listener {
+		/**
+		 * @param measuredRate the measured yaw rate, or NaN if the sample doesn't have one
+		 */
+		void onImuSample(double measuredHeading, double measuredRate, Instant sampleTime);
+
+		void onReset(double newHeading, Instant time);
+	}
+}
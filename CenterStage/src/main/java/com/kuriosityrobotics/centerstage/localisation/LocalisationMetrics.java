@@ -0,0 +1,156 @@
+package com.kuriosityrobotics.centerstage.localisation;
+
+import com.kuriosityrobotics.centerstage.metrics.Counter;
+import com.kuriosityrobotics.centerstage.metrics.Histogram;
+import com.kuriosityrobotics.centerstage.metrics.RateMeter;
+import com.kuriosityrobotics.centerstage.test.Tester;
+import com.kuriosityrobotics.centerstage.util.Clock;
+import com.kuriosityrobotics.centerstage.util.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timing and quality metrics for the localisation subsystem.
+ * <p>
+ * Everything is recorded into lock-free {@link Counter}s and {@link Histogram}s, so recording from the integration
+ * and IMU threads costs a few atomic adds.  Distances are recorded in millimetres, angles in millidegrees and times in
+ * microseconds, to keep the histograms' integer buckets meaningful.
+ */
+public class LocalisationMetrics {
+	private static final Logger logger = LoggerFactory.getLogger(LocalisationMetrics.class);
+
+	private static final Duration RATE_WINDOW = Duration.ofSeconds(1);
+
+	final Counter bulkUpdates = new Counter();
+	final Counter imuSamples = new Counter();
+	final Counter visionEstimates = new Counter();
+	final Counter visionCorrections = new Counter();
+
+	/**
+	 * The time between consecutive odometry integration steps.
+	 */
+	final Histogram integrationDtMicros = new Histogram();
+	/**
+	 * The time taken by each IMU sample, which is two blocking reads: the yaw, then the yaw rate.
+	 */
+	final Histogram imuReadMicros = new Histogram();
+	/**
+	 * The heading error accumulated between IMU samples.
+	 */
+	final Histogram headingInnovationMillidegrees = new Histogram();
+	/**
+	 * The distance between each latency-compensated vision estimate and the odometry position, whether or not the
+	 * estimate was applied.
+	 */
+	final Histogram visionInnovationMillimetres = new Histogram();
+	/**
+	 * The distance the position jumped by at each applied vision correction.
+	 */
+	final Histogram softResetJumpMillimetres = new Histogram();
+
+	private final RateMeter bulkRate;
+	private final RateMeter imuRate;
+	private final RateMeter visionRate;
+	private final RateMeter correctionRate;
+
+	public LocalisationMetrics(Clock clock) {
+		bulkRate = new RateMeter(bulkUpdates, clock, RATE_WINDOW);
+		imuRate = new RateMeter(imuSamples, clock, RATE_WINDOW);
+		visionRate = new RateMeter(visionEstimates, clock, RATE_WINDOW);
+		correctionRate = new RateMeter(visionCorrections, clock, RATE_WINDOW);
+	}
+
+	void recordIntegration(Duration dt) {
+		bulkUpdates.increment();
+		integrationDtMicros.record(TimeUnit.NANOSECONDS.toMicros(dt.toNanos()));
+	}
+
+	void recordImuSample(Duration readDuration, double innovation) {
+		imuSamples.increment();
+		imuReadMicros.record(TimeUnit.NANOSECONDS.toMicros(readDuration.toNanos()));
+		headingInnovationMillidegrees.record(Math.round(Math.toDegrees(Math.abs(innovation)) * 1000));
+	}
+
+	void recordVisionEstimate(double innovation) {
+		visionEstimates.increment();
+		visionInnovationMillimetres.record(Math.round(innovation * 1000));
+	}
+
+	void recordSoftReset(double jump) {
+		visionCorrections.increment();
+		softResetJumpMillimetres.record(Math.round(jump * 1000));
+	}
+
+	/**
+	 * @return the rate of odometry integration steps (i.e. Expansion Hub bulk reads), in Hz
+	 */
+	public double bulkUpdateRate() {
+		return bulkRate.perSecond();
+	}
+
+	/**
+	 * @return the rate of IMU samples, in Hz
+	 */
+	public double imuSampleRate() {
+		return imuRate.perSecond();
+	}
+
+	/**
+	 * @return the rate of vision pose estimates, in Hz
+	 */
+	public double visionEstimateRate() {
+		return visionRate.perSecond();
+	}
+
+	/**
+	 * @return the rate of applied vision corrections, in Hz
+	 */
+	public double visionCorrectionRate() {
+		return correctionRate.perSecond();
+	}
+
+	/**
+	 * Shows the metrics as live telemetry.
+	 *
+	 * @param tester the tester to show the metrics on
+	 */
+	public void addTo(Tester tester) {
+		tester.info("Update rates (bulk/IMU/vision/corrections)", () -> String.format("%.1f/%.1f/%.1f/%.1f Hz",
+			bulkUpdateRate(), imuSampleRate(), visionEstimateRate(), visionCorrectionRate()));
+		tester.info("Integration dt (p50/p95/max)", () -> percentiles(integrationDtMicros, 1e-3, "ms"));
+		tester.info("IMU read time (p50/p95/max)", () -> percentiles(imuReadMicros, 1e-3, "ms"));
+		tester.info("Heading innovation (p50/p95/max)", () -> percentiles(headingInnovationMillidegrees, 1e-3, "deg"));
+		tester.info("Vision innovation (p50/p95/max)", () -> percentiles(visionInnovationMillimetres, 1, "mm"));
+		tester.info("Soft reset jump (p50/p95/max)", () -> percentiles(softResetJumpMillimetres, 1, "mm"));
+	}
+
+	/**
+	 * Logs a summary of the metrics every <code>period</code>, on <code>ses</code>.
+	 *
+	 * @param ses    the executor to log on
+	 * @param period the time between summaries
+	 */
+	public void startLogging(ScheduledExecutorService ses, Duration period) {
+		ses.scheduleAtFixedRate(() -> logger.info(toString()), period.toNanos(), period.toNanos(), TimeUnit.NANOSECONDS);
+	}
+
+	private static String percentiles(Histogram histogram, double scale, String unit) {
+		return String.format("%.1f/%.1f/%.1f %s",
+			histogram.percentile(50) * scale, histogram.percentile(95) * scale, histogram.max() * scale, unit);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("rates (Hz): bulk=%.1f imu=%.1f vision=%.1f corrections=%.1f; ",
+			bulkUpdateRate(), imuSampleRate(), visionEstimateRate(), visionCorrectionRate())
+			+ "dt (us): " + integrationDtMicros + "; "
+			+ "imu read (us): " + imuReadMicros + "; "
+			+ "heading innovation (mdeg): " + headingInnovationMillidegrees + "; "
+			+ "vision innovation (mm): " + visionInnovationMillimetres + "; "
+			+ "soft reset jump (mm): " + softResetJumpMillimetres;
+	}
+}
@@ -35,8 +35,8 @@ Odometry {
 	public static final double DISTANCE_TO_SIDEWAYS_ENCODER = 4.7254 * CM;
 
 	public Twist calculateOdometryRel(RevHubBulkData bulkData, double angularVel) {
-		var forwardsRollingVel = 2 * PI * bulkData.velocities[FORWARDS_ODO_PORT] / 8192.;
-		var sidewaysRollingVel = -2 * PI * bulkData.velocities[SIDEWAYS_ODO_PORT] / 8192.;
+		var forwardsRollingVel = 2 * PI * bulkData.velocity(FORWARDS_ODO_PORT) / 8192.;
+		var sidewaysRollingVel = -2 * PI * bulkData.velocity(SIDEWAYS_ODO_PORT) / 8192.;
 
 		// learn geometry
 		double relativeVelForwards = WHEEL_RADIUS * forwardsRollingVel + DISTANCE_TO_FORWARDS_ENCODER * angularVel;
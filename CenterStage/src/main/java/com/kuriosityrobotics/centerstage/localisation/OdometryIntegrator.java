@@ -5,20 +5,28 @@ import static com.kuriosityrobotics.centerstage.util.Units.IN;
 import static java.lang.Math.toRadians;
 
 import com.kuriosityrobotics.centerstage.bulkdata.BulkDataFetcher;
+import com.kuriosityrobotics.centerstage.bus.Topic;
 import com.kuriosityrobotics.centerstage.bulkdata.RevHubBulkData;
 import com.kuriosityrobotics.centerstage.cameras.AprilTagOdometryProcessor;
+import com.kuriosityrobotics.centerstage.cameras.VisionPoseEstimate;
+import com.kuriosityrobotics.centerstage.concurrent.RateLimiter;
 import com.kuriosityrobotics.centerstage.localisation.messages.LocalisationDatum;
 import com.kuriosityrobotics.centerstage.math.Point;
 import com.kuriosityrobotics.centerstage.math.Pose;
 import com.kuriosityrobotics.centerstage.math.Twist;
 import com.kuriosityrobotics.centerstage.mechanisms.DrivetrainNode;
+import com.kuriosityrobotics.centerstage.metrics.NodeTimers;
 import com.kuriosityrobotics.centerstage.test.Tester;
+import com.kuriosityrobotics.centerstage.util.Clock;
+import com.kuriosityrobotics.centerstage.util.Duration;
 import com.kuriosityrobotics.centerstage.util.Instant;
 import com.qualcomm.robotcore.hardware.DcMotor;
 
+import java.util.Collection;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * The <code>OdometryIntegrator</code> class is a node that takes in a stream of {@link Twist} and Angle messages and
@@ -26,65 +34,111 @@ import java.util.concurrent.atomic.AtomicReference;
  */
 public class OdometryIntegrator {
 
+	/**
+	 * The default time between IMU samples.  The heading is propagated from odometry in between.
+	 */
+	public static final Duration DEFAULT_IMU_SAMPLE_PERIOD = Duration.ofMillis(100);
+
+	/**
+	 * The shortest time between two vision corrections from the same camera.  Each accepted correction resets the IMU,
+	 * so cameras must not correct at their frame rate.
+	 */
+	private static final Duration VISION_CORRECTION_PERIOD = Duration.ofMillis(100);
+
+	/**
+	 * How many poses to keep for latency compensation; a little over a second of bulk reads.
+	 */
+	private static final int POSE_HISTORY_SIZE = 64;
+
 	private final Odometry odometry = new Odometry();
-	private final CorrectedIMU imu;
+	private final CorrectedIMU imu; // null when not connected to hardware
+	private final Clock clock;
+	private final HeadingEstimator headingEstimator;
+	private final LocalisationMetrics metrics;
 	private final AtomicReference<LocalisationDatum> state;
+	private final Topic<LocalisationDatum> localisationTopic = new Topic<>("localisation");
+	/**
+	 * Dead-reckoned poses which are never reset, so that the motion between two times can be found even if the
+	 * position was reset in between.
+	 */
+	private final PoseHistory poseHistory = new PoseHistory(POSE_HISTORY_SIZE);
+	private volatile Pose unresetPose = Pose.zero(); // only written by updateOdometry
+	private final Collection<Consumer<Pose>> resetListeners = new CopyOnWriteArrayList<>();
 
 	private volatile Instant lastPositionIntegration;
 
 	public OdometryIntegrator(ScheduledExecutorService ses, CorrectedIMU imu, BulkDataFetcher bulkDataFetcher, AprilTagOdometryProcessor... processors) {
-		this.imu = imu;
-		state = new AtomicReference<>(LocalisationDatum.of(Pose.zero(), Twist.zero()));
-		lastPositionIntegration = Instant.now();
+		this(ses, imu, bulkDataFetcher, DEFAULT_IMU_SAMPLE_PERIOD, processors);
+	}
 
-		ses.scheduleAtFixedRate(() -> {
-			var imuAngle = imu.getYaw();
-			var imuAngularVelocity = imu.getYawVelocity();
+	public OdometryIntegrator(ScheduledExecutorService ses, CorrectedIMU imu, BulkDataFetcher bulkDataFetcher, Duration imuSamplePeriod, AprilTagOdometryProcessor... processors) {
+		this(imu, Clock.system());
 
-			state.getAndUpdate(state -> {
-				state = new LocalisationDatum(new Pose(state.pose().x(), state.pose().y(), imuAngle), new Twist(state.twist().x(), state.twist().y(), imuAngularVelocity));
-				return state;
-			});
-		}, 0, 1000 / 50, TimeUnit.MILLISECONDS);
+		headingEstimator.startSampling(ses, imu, imuSamplePeriod);
 
 		for (var processor : processors) {
-			ses.scheduleAtFixedRate(
-				() -> processor.getPoseEstimate().ifPresent(this::softResetPosition),
-				0, 1000 / 10, TimeUnit.MILLISECONDS);
+			// resetting touches the IMU, so don't block the vision thread
+			var limiter = new RateLimiter(VISION_CORRECTION_PERIOD);
+			processor.addListener(estimate -> {
+				if (limiter.tryUse())
+					ses.execute(() -> onVisionEstimate(estimate));
+			});
+			processor.setPosePredictor(() -> getLocalisation().pose());
 		}
 
-		bulkDataFetcher.addExpansionHubListener(this::updateOdometry);
+		var timer = NodeTimers.forNode("odometry", BulkDataFetcher.DEFAULT_READ_PERIOD);
+		bulkDataFetcher.addExpansionHubListener(data -> {
+			long start = timer.start();
+			try {
+				updateOdometry(data);
+			} finally {
+				timer.stop(start);
+			}
+		});
+	}
+
+	/**
+	 * Creates an integrator which is not connected to any hardware, for replaying recorded data.
+	 * Feed it with {@link #updateOdometry(RevHubBulkData)} and the {@link #getHeadingEstimator() heading estimator}.
+	 *
+	 * @param clock the clock to timestamp integration steps with
+	 */
+	public OdometryIntegrator(Clock clock) {
+		this(null, clock);
 	}
 
-	public OdometryIntegrator(ScheduledExecutorService ses, CorrectedIMU imu, BulkDataFetcher bulkDataFetcher) {
+	private OdometryIntegrator(CorrectedIMU imu, Clock clock) {
 		this.imu = imu;
+		this.clock = clock;
+		this.metrics = new LocalisationMetrics(clock);
+		this.headingEstimator = new HeadingEstimator(clock, metrics);
 		state = new AtomicReference<>(LocalisationDatum.of(Pose.zero(), Twist.zero()));
-		lastPositionIntegration = Instant.now();
-
-		ses.scheduleAtFixedRate(() -> {
-			var imuAngle = imu.getYaw();
-			var imuAngularVelocity = imu.getYawVelocity();
-
-			state.getAndUpdate(state -> {
-				state = new LocalisationDatum(new Pose(state.pose().x(), state.pose().y(), imuAngle), new Twist(state.twist().x(), state.twist().y(), imuAngularVelocity));
-				return state;
-			});
-		}, 0, 1000 / 50, TimeUnit.MILLISECONDS);
-
-		bulkDataFetcher.addExpansionHubListener(this::updateOdometry);
+		lastPositionIntegration = clock.now();
 	}
 
-	private void updateOdometry(RevHubBulkData data) {
-		state.getAndUpdate(state -> {
-			var now = Instant.now();
+	/**
+	 * Integrates the odometry velocities in a bulk read from the Expansion Hub.
+	 *
+	 * @param data the bulk data
+	 */
+	public void updateOdometry(RevHubBulkData data) {
+		var unresetBefore = unresetPose;
+		var unresetAfter = new Pose[1];
+		var integrationTime = new Instant[1];
+		var integrationDt = new Duration[1];
 
-			var relVel = odometry.calculateOdometryRel(data, state.twist().angular());
+		var updated = state.updateAndGet(state -> {
+			var now = clock.now();
 
-			double dt = now.since(lastPositionIntegration).toSeconds();
+			double heading = headingEstimator.propagate(now);
+			var relVel = odometry.calculateOdometryRel(data, headingEstimator.angularVelocity());
+
+			integrationDt[0] = now.since(lastPositionIntegration);
+			double dt = integrationDt[0].toSeconds();
 
 			double xChange = relVel.x() * dt;
 			double yChange = relVel.y() * dt;
-			double angleChange = relVel.angular() * dt;
+			double angleChange = heading - state.pose().orientation();
 
 			// learn calculus
 			// integral of rotation matrix
@@ -98,34 +152,114 @@ public class OdometryIntegrator {
 			var velocity = relVel; // explicitly make it clear: this is the relative velocity
 
 			lastPositionIntegration = now;
+			unresetAfter[0] = unresetBefore.add(step.rotate(unresetBefore.orientation()));
+			integrationTime[0] = now;
 
 			return LocalisationDatum.of(pose, velocity);
 		});
+
+		unresetPose = unresetAfter[0];
+		poseHistory.record(integrationTime[0], unresetPose);
+		metrics.recordIntegration(integrationDt[0]);
+		localisationTopic.publish(updated);
+	}
+
+	/**
+	 * Corrects the position with a vision estimate.  The estimate describes where the robot was when the frame was
+	 * captured, so the motion measured by odometry since then is added to it.
+	 */
+	private void onVisionEstimate(VisionPoseEstimate estimate) {
+		var then = poseHistory.poseAt(estimate.captureTime);
+		if (then.isEmpty())
+			return; // too old to compensate for
+
+		var now = unresetPose;
+
+		// the motion since the frame, in the robot's frame at the time
+		var motion = Twist.of(now.x() - then.get().x(), now.y() - then.get().y(), now.orientation() - then.get().orientation())
+			.rotate(-then.get().orientation());
+
+		var compensated = estimate.pose.add(motion.rotate(estimate.pose.orientation()));
+		metrics.recordVisionEstimate(compensated.distance(getLocalisation().pose()));
+		softResetPosition(compensated);
 	}
 
 	public void resetPosition(Pose resetPose) {
-		imu.resetAngle(resetPose.orientation());
+		if (imu != null)
+			imu.resetAngle(resetPose.orientation());
+
+		var now = clock.now();
+		headingEstimator.reset(resetPose.orientation(), now);
 		state.getAndUpdate(state -> {
-			lastPositionIntegration = Instant.now();
+			lastPositionIntegration = now;
 			return LocalisationDatum.of(resetPose, Twist.zero());
 		});
+
+		resetListeners.forEach(listener -> listener.accept(resetPose));
 	}
 
+	/**
+	 * Resets the position to <code>resetPose</code>, but only if the robot is nearly stationary.  The IMU is only
+	 * touched if so.
+	 */
 	private void softResetPosition(Pose resetPose) {
+		if (!isNearlyStationary(state.get()))
+			return;
+
 		imu.resetWrappedAngle(resetPose.orientation());
-		state.getAndUpdate(state -> {
-			if (state.twist().velocity() > 0.2
-				|| Math.abs(state.twist().angular()) > 0.2) return state; // do nothing
+		// the IMU keeps its revolution count, so ask it which heading it now reports
+		var heading = imu.getYaw();
+		var now = clock.now();
+
+		var newPose = resetPose.withAngle(heading);
+		var oldState = state.getAndUpdate(state -> {
+			if (!isNearlyStationary(state)) return state; // started moving while the IMU was reset
 
-			lastPositionIntegration = Instant.now();
-			return LocalisationDatum.of(resetPose, state.twist());
+			lastPositionIntegration = now;
+			return LocalisationDatum.of(newPose, state.twist());
 		});
+
+		// if it started moving, the heading estimator catches up with the IMU at its next sample instead
+		if (isNearlyStationary(oldState)) {
+			headingEstimator.reset(heading, now);
+			metrics.recordSoftReset(newPose.distance(oldState.pose()));
+			resetListeners.forEach(listener -> listener.accept(newPose));
+		}
+	}
+
+	private static boolean isNearlyStationary(LocalisationDatum state) {
+		return state.twist().velocity() <= 0.2 && Math.abs(state.twist().angular()) <= 0.2;
+	}
+
+	/**
+	 * Adds a listener which is told about every pose the integrator is reset to, for example to record them for replay.
+	 *
+	 * @param listener the listener to add
+	 */
+	public void addResetListener(Consumer<Pose> listener) {
+		resetListeners.add(listener);
 	}
 
 	public LocalisationDatum getLocalisation() {
 		return state.get();
 	}
 
+	/**
+	 * @return the topic which the localisation is published to after every integration step.  Resets are not
+	 * published, but are reflected in the next step.
+	 */
+	public Topic<LocalisationDatum> getLocalisationTopic() {
+		return localisationTopic;
+	}
+
+	public HeadingEstimator getHeadingEstimator() {
+		return headingEstimator;
+	}
+
+	public LocalisationMetrics getMetrics() {
+		return metrics;
+	}
+
 	public LocalisationDatum getGlobalLocalisation() {
 		var relativeLocalisation = getLocalisation();
 		return LocalisationDatum.of(relativeLocalisation.pose(), relativeLocalisation.twist().rotate(relativeLocalisation.pose().orientation()));
@@ -157,6 +291,10 @@ public class OdometryIntegrator {
 		tester.header("[Odometry Integrator]");
 		tester.info("Position", () -> getLocalisation().pose().toString());
 		tester.info("Velocity", () -> getLocalisation().twist().toString());
+		metrics.addTo(tester);
+		tester.info("IMU bus time saved", () -> headingEstimator.busTimeSavedPerSecond().toMillis() + " ms/s");
+		tester.info("Heading innovation (RMS/max)", () -> String.format("%.2f/%.2f deg",
+			Math.toDegrees(headingEstimator.innovationRms()), Math.toDegrees(headingEstimator.maxInnovation())));
 
 		tester.instruct("Place robot on its side");
 
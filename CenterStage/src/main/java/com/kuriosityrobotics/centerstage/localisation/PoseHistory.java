@@ -0,0 +1,73 @@
+package com.kuriosityrobotics.centerstage.localisation;
+
+import com.kuriosityrobotics.centerstage.math.Pose;
+import com.kuriosityrobotics.centerstage.util.Instant;
+
+import java.util.Optional;
+
+/**
+ * A fixed-size history of timestamped poses, used to find where the robot was when a delayed measurement
+ * (such as a camera frame) was taken.
+ * <p>
+ * This class is thread-safe.
+ */
+class PoseHistory {
+	// ring buffers, all guarded by this
+	private final long[] times;
+	private final double[] xs, ys, orientations;
+	private int next;
+	private int size;
+
+	PoseHistory(int capacity) {
+		times = new long[capacity];
+		xs = new double[capacity];
+		ys = new double[capacity];
+		orientations = new double[capacity];
+	}
+
+	/**
+	 * Records a pose.  Poses must be recorded in time order.
+	 */
+	synchronized void record(Instant time, Pose pose) {
+		times[next] = time.nanos();
+		xs[next] = pose.x();
+		ys[next] = pose.y();
+		orientations[next] = pose.orientation();
+
+		next = (next + 1) % times.length;
+		size = Math.min(size + 1, times.length);
+	}
+
+	/**
+	 * @return the pose at <code>time</code>, linearly interpolated between the recorded poses either side of it; the
+	 * newest pose if <code>time</code> is after it, as a camera can report a frame before odometry catches up with it;
+	 * or empty if <code>time</code> is before the history, or nothing has been recorded
+	 */
+	synchronized Optional<Pose> poseAt(Instant time) {
+		long t = time.nanos();
+
+		// walk backwards from the newest pose
+		int newer = -1;
+		for (int i = 0; i < size; i++) {
+			int index = Math.floorMod(next - 1 - i, times.length);
+			if (times[index] == t)
+				return Optional.of(new Pose(xs[index], ys[index], orientations[index]));
+
+			if (times[index] < t) {
+				if (newer == -1)
+					return Optional.of(new Pose(xs[index], ys[index], orientations[index])); // newer than the newest pose
+
+				double fraction = (double) (t - times[index]) / (times[newer] - times[index]);
+				return Optional.of(new Pose(
+					xs[index] + fraction * (xs[newer] - xs[index]),
+					ys[index] + fraction * (ys[newer] - ys[index]),
+					orientations[index] + fraction * (orientations[newer] - orientations[index])
+				));
+			}
+
+			newer = index;
+		}
+
+		return Optional.empty(); // older than the oldest pose
+	}
+}
@@ -0,0 +1,119 @@
+package com.kuriosityrobotics.centerstage.localisation.replay;
+
+import static com.kuriosityrobotics.centerstage.localisation.replay.LocalisationLogWriter.BULK_DATA;
+import static com.kuriosityrobotics.centerstage.localisation.replay.LocalisationLogWriter.HEADING_RESET;
+import static com.kuriosityrobotics.centerstage.localisation.replay.LocalisationLogWriter.IMU_SAMPLE;
+import static com.kuriosityrobotics.centerstage.localisation.replay.LocalisationLogWriter.MAGIC;
+import static com.kuriosityrobotics.centerstage.localisation.replay.LocalisationLogWriter.POSITION_RESET;
+import static com.kuriosityrobotics.centerstage.localisation.replay.LocalisationLogWriter.VERSION;
+
+import com.kuriosityrobotics.centerstage.bulkdata.RevHubBulkData;
+import com.kuriosityrobotics.centerstage.hardware.LynxHub;
+import com.kuriosityrobotics.centerstage.math.Pose;
+import com.kuriosityrobotics.centerstage.util.Instant;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a log written by {@link LocalisationLogWriter}.  Logs from before IMU samples had a yaw rate can still be read;
+ * their samples' rates are NaN.
+ */
+public class LocalisationLogReader implements Closeable {
+	private final DataInputStream in;
+	private final int version;
+
+	public LocalisationLogReader(InputStream in) throws IOException {
+		this.in = new DataInputStream(new BufferedInputStream(in));
+
+		if (this.in.readInt() != MAGIC)
+			throw new IOException("Not a localisation log");
+
+		version = this.in.readInt();
+		if (version < 1 || version > VERSION)
+			throw new IOException("Unsupported localisation log version " + version);
+	}
+
+	/**
+	 * Reads the next record and passes it to <code>handler</code>.
+	 *
+	 * @param handler the handler for the record
+	 * @return false if the end of the log was reached
+	 * @throws IOException if the log could not be read, or is corrupt
+	 */
+	public boolean readNext(Handler handler) throws IOException {
+		int type = in.read();
+		if (type == -1)
+			return false;
+
+		try {
+			var time = Instant.createInstant(in.readLong());
+			switch (type) {
+				case BULK_DATA:
+					handler.onBulkData(time, readBulkData());
+					break;
+				case IMU_SAMPLE:
+					handler.onImuSample(time, in.readDouble(), version >= 2 ? in.readDouble() : Double.NaN);
+					break;
+				case HEADING_RESET:
+					handler.onHeadingReset(time, in.readDouble());
+					break;
+				case POSITION_RESET:
+					handler.onPositionReset(time, new Pose(in.readDouble(), in.readDouble(), in.readDouble()));
+					break;
+				default:
+					throw new IOException("Unknown record type " + type);
+			}
+		} catch (EOFException e) {
+			throw new IOException("Log ends part-way through a record", e);
+		}
+
+		return true;
+	}
+
+	private RevHubBulkData readBulkData() throws IOException {
+		var origin = LynxHub.values()[in.readUnsignedByte()];
+
+		var encoders = new int[RevHubBulkData.MOTOR_PORTS];
+		for (int i = 0; i < encoders.length; i++)
+			encoders[i] = in.readInt();
+		var velocities = new int[RevHubBulkData.MOTOR_PORTS];
+		for (int i = 0; i < velocities.length; i++)
+			velocities[i] = in.readInt();
+		var analogInputs = new double[RevHubBulkData.ANALOG_INPUTS];
+		for (int i = 0; i < analogInputs.length; i++)
+			analogInputs[i] = in.readDouble();
+
+		int digitalBits = in.readUnsignedByte();
+		var digitalInputs = new boolean[RevHubBulkData.DIGITAL_CHANNELS];
+		for (int i = 0; i < digitalInputs.length; i++)
+			digitalInputs[i] = (digitalBits & (1 << i)) != 0;
+
+		return RevHubBulkData.of(origin, encoders, velocities, analogInputs, digitalInputs);
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Receives the records of a localisation log.
+	 */
+	public interface Handler {
+		void onBulkData(Instant time, RevHubBulkData data);
+
+		/**
+		 * @param rate the measured yaw rate, or NaN if the sample doesn't have one
+		 */
+		void onImuSample(Instant time, double heading, double rate);
+
+		void onHeadingReset(Instant time, double heading);
+
+		void onPositionReset(Instant time, Pose pose);
+	}
+}
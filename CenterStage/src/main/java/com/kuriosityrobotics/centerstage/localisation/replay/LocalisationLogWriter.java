@@ -0,0 +1,92 @@
+package com.kuriosityrobotics.centerstage.localisation.replay;
+
+import com.kuriosityrobotics.centerstage.bulkdata.RevHubBulkData;
+import com.kuriosityrobotics.centerstage.math.Pose;
+import com.kuriosityrobotics.centerstage.util.Instant;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the inputs of the localisation stack to a compact binary log, which can be read back with
+ * {@link LocalisationLogReader}.
+ * <p>
+ * The log starts with {@link #MAGIC} and {@link #VERSION}, followed by records which each consist of a type byte,
+ * the record's timestamp in nanoseconds, and a type-specific payload.
+ * <p>
+ * This class is thread-safe.
+ */
+public class LocalisationLogWriter implements Closeable {
+	static final int MAGIC = 0x4b524c47; // "KRLG"
+	static final int VERSION = 2; // 2 added the yaw rate to IMU samples
+
+	static final byte BULK_DATA = 1;
+	static final byte IMU_SAMPLE = 2;
+	static final byte HEADING_RESET = 3;
+	static final byte POSITION_RESET = 4;
+
+	private final DataOutputStream out;
+
+	public LocalisationLogWriter(OutputStream out) throws IOException {
+		this.out = new DataOutputStream(new BufferedOutputStream(out));
+		this.out.writeInt(MAGIC);
+		this.out.writeInt(VERSION);
+	}
+
+	public synchronized void writeBulkData(Instant time, RevHubBulkData data) throws IOException {
+		writeHeader(BULK_DATA, time);
+		out.writeByte(data.origin().ordinal());
+
+		for (int i = 0; i < RevHubBulkData.MOTOR_PORTS; i++)
+			out.writeInt(data.encoder(i));
+		for (int i = 0; i < RevHubBulkData.MOTOR_PORTS; i++)
+			out.writeInt(data.velocity(i));
+		for (int i = 0; i < RevHubBulkData.ANALOG_INPUTS; i++)
+			out.writeDouble(data.analogInput(i));
+
+		int digitalInputs = 0;
+		for (int i = 0; i < RevHubBulkData.DIGITAL_CHANNELS; i++) {
+			if (data.digitalInput(i))
+				digitalInputs |= 1 << i;
+		}
+		out.writeByte(digitalInputs);
+	}
+
+	/**
+	 * @param rate the measured yaw rate, or NaN if it wasn't measured
+	 */
+	public synchronized void writeImuSample(Instant time, double heading, double rate) throws IOException {
+		writeHeader(IMU_SAMPLE, time);
+		out.writeDouble(heading);
+		out.writeDouble(rate);
+	}
+
+	public synchronized void writeHeadingReset(Instant time, double heading) throws IOException {
+		writeHeader(HEADING_RESET, time);
+		out.writeDouble(heading);
+	}
+
+	public synchronized void writePositionReset(Instant time, Pose pose) throws IOException {
+		writeHeader(POSITION_RESET, time);
+		out.writeDouble(pose.x());
+		out.writeDouble(pose.y());
+		out.writeDouble(pose.orientation());
+	}
+
+	private void writeHeader(byte type, Instant time) throws IOException {
+		out.writeByte(type);
+		out.writeLong(time.nanos());
+	}
+
+	public synchronized void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		out.close();
+	}
+}
@@ -0,0 +1,88 @@
+package com.kuriosityrobotics.centerstage.localisation.replay;
+
+import com.kuriosityrobotics.centerstage.bulkdata.BulkDataFetcher;
+import com.kuriosityrobotics.centerstage.bulkdata.RevHubBulkData;
+import com.kuriosityrobotics.centerstage.localisation.HeadingEstimator;
+import com.kuriosityrobotics.centerstage.localisation.OdometryIntegrator;
+import com.kuriosityrobotics.centerstage.math.Pose;
+import com.kuriosityrobotics.centerstage.util.ExceptionRunnable;
+import com.kuriosityrobotics.centerstage.util.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Records the inputs of an {@link OdometryIntegrator} on the robot, so that they can be replayed offline with
+ * {@link LocalisationReplay}.
+ * <p>
+ * Create the recorder before the first position reset of the opmode, and close it when the opmode ends; the teleop and
+ * autonomous opmodes do so when {@link com.kuriosityrobotics.centerstage.teleop.Robot#RECORD_LOCALISATION} is set.
+ * <code>adb pull /sdcard/FIRST/localisation.log</code> to retrieve the log.
+ */
+public class LocalisationRecorder implements AutoCloseable {
+	private static final Logger logger = LoggerFactory.getLogger(LocalisationRecorder.class);
+
+	public static final String DEFAULT_PATH = "/sdcard/FIRST/localisation.log";
+
+	private final LocalisationLogWriter writer;
+	private volatile boolean failed;
+
+	public LocalisationRecorder(BulkDataFetcher bulkDataFetcher, OdometryIntegrator localisation) throws IOException {
+		this(bulkDataFetcher, localisation, DEFAULT_PATH);
+	}
+
+	public LocalisationRecorder(BulkDataFetcher bulkDataFetcher, OdometryIntegrator localisation, String path) throws IOException {
+		this.writer = new LocalisationLogWriter(new FileOutputStream(path));
+
+		// the integrator may already have been reset, so start from its current state
+		var now = Instant.now();
+		var heading = localisation.getHeadingEstimator();
+		writer.writeHeadingReset(now, heading.heading());
+		writer.writePositionReset(now, localisation.getLocalisation().pose().withAngle(heading.heading()));
+
+		heading.addListener(new HeadingEstimator.Listener() {
+			@Override
+			public void onImuSample(double measuredHeading, double measuredRate, Instant sampleTime) {
+				record(() -> writer.writeImuSample(sampleTime, measuredHeading, measuredRate));
+			}
+
+			@Override
+			public void onReset(double newHeading, Instant time) {
+				record(() -> writer.writeHeadingReset(time, newHeading));
+			}
+		});
+		localisation.addResetListener(this::recordPositionReset);
+		bulkDataFetcher.addExpansionHubListener(this::recordBulkData);
+	}
+
+	private void recordBulkData(RevHubBulkData data) {
+		var now = Instant.now();
+		record(() -> writer.writeBulkData(now, data));
+	}
+
+	private void recordPositionReset(Pose pose) {
+		var now = Instant.now();
+		record(() -> writer.writePositionReset(now, pose));
+	}
+
+	private void record(ExceptionRunnable<IOException> write) {
+		if (failed)
+			return;
+
+		try {
+			write.run();
+		} catch (IOException e) {
+			failed = true;
+			logger.error("Stopped recording localisation log", e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		failed = true; // stop accepting records
+		writer.close();
+	}
+}
@@ -0,0 +1,218 @@
+package com.kuriosityrobotics.centerstage.localisation.replay;
+
+import com.kuriosityrobotics.centerstage.bulkdata.RevHubBulkData;
+import com.kuriosityrobotics.centerstage.hardware.LynxHub;
+import com.kuriosityrobotics.centerstage.localisation.OdometryIntegrator;
+import com.kuriosityrobotics.centerstage.localisation.messages.LocalisationDatum;
+import com.kuriosityrobotics.centerstage.math.Pose;
+import com.kuriosityrobotics.centerstage.util.Duration;
+import com.kuriosityrobotics.centerstage.util.Instant;
+import com.kuriosityrobotics.centerstage.util.ManualClock;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Replays a log recorded by {@link LocalisationRecorder} through the localisation stack, as fast as possible.
+ * <p>
+ * Time is driven by a {@link ManualClock} which is set to each record's timestamp, so the replayed trajectory
+ * does not depend on how fast the replay runs.  The trajectory is the integrator's output after every
+ * Expansion Hub bulk read.
+ */
+public class LocalisationReplay implements LocalisationLogReader.Handler {
+	private ManualClock clock;
+	private OdometryIntegrator integrator;
+	private Instant startTime;
+
+	private final List<TrajectoryPoint> trajectory = new ArrayList<>();
+	private long records;
+	private long updateNanos;
+
+	private LocalisationReplay() {
+	}
+
+	/**
+	 * Replays a localisation log.
+	 *
+	 * @param reader the log to replay
+	 * @return the replayed trajectory, and how long the replay took
+	 * @throws IOException if the log could not be read
+	 */
+	public static Result replay(LocalisationLogReader reader) throws IOException {
+		var replay = new LocalisationReplay();
+
+		var start = Instant.now();
+		while (reader.readNext(replay))
+			replay.records++;
+		var wallTime = Instant.now().since(start);
+
+		return replay.new Result(wallTime);
+	}
+
+	private void advanceTo(Instant time) {
+		if (clock == null) {
+			clock = new ManualClock(time);
+			integrator = new OdometryIntegrator(clock);
+			startTime = time;
+		}
+
+		// records from different threads can be very slightly out of order
+		if (time.isAfter(clock.now()))
+			clock.set(time);
+	}
+
+	@Override
+	public void onBulkData(Instant time, RevHubBulkData data) {
+		if (data.origin() != LynxHub.EXPANSION_HUB)
+			return;
+
+		advanceTo(time);
+
+		var start = System.nanoTime();
+		integrator.updateOdometry(data);
+		updateNanos += System.nanoTime() - start;
+
+		trajectory.add(new TrajectoryPoint(clock.now().since(startTime), integrator.getLocalisation()));
+	}
+
+	@Override
+	public void onImuSample(Instant time, double heading, double rate) {
+		advanceTo(time);
+		integrator.getHeadingEstimator().correct(heading, rate, time);
+	}
+
+	@Override
+	public void onHeadingReset(Instant time, double heading) {
+		advanceTo(time);
+		integrator.getHeadingEstimator().reset(heading, time);
+	}
+
+	@Override
+	public void onPositionReset(Instant time, Pose pose) {
+		advanceTo(time);
+		integrator.resetPosition(pose);
+	}
+
+	/**
+	 * The localisation at one point in a replayed trajectory.
+	 */
+	public static class TrajectoryPoint {
+		public final Duration time;
+		public final LocalisationDatum localisation;
+
+		TrajectoryPoint(Duration time, LocalisationDatum localisation) {
+			this.time = time;
+			this.localisation = localisation;
+		}
+	}
+
+	/**
+	 * The result of a replay.
+	 */
+	public class Result {
+		private final Duration wallTime;
+
+		private Result(Duration wallTime) {
+			this.wallTime = wallTime;
+		}
+
+		/**
+		 * @return the localisation after every Expansion Hub bulk read, in order
+		 */
+		public List<TrajectoryPoint> trajectory() {
+			return Collections.unmodifiableList(trajectory);
+		}
+
+		/**
+		 * @return the number of records in the log
+		 */
+		public long records() {
+			return records;
+		}
+
+		/**
+		 * @return the time between the first and the last record of the log
+		 */
+		public Duration recordedTime() {
+			return startTime == null ? Duration.ofNanos(0) : clock.now().since(startTime);
+		}
+
+		/**
+		 * @return how long the replay took
+		 */
+		public Duration wallTime() {
+			return wallTime;
+		}
+
+		/**
+		 * @return the mean time taken to integrate one bulk read
+		 */
+		public Duration meanUpdateTime() {
+			return trajectory.isEmpty() ? Duration.ofNanos(0) : Duration.ofNanos(updateNanos / trajectory.size());
+		}
+
+		/**
+		 * @return how many times faster than real time the replay ran
+		 */
+		public double speedup() {
+			return wallTime.toSeconds() > 0 ? recordedTime().toSeconds() / wallTime.toSeconds() : Double.POSITIVE_INFINITY;
+		}
+
+		/**
+		 * Writes the trajectory as a CSV, in the same columns as the drive log.
+		 */
+		public void writeTrajectory(PrintWriter out) {
+			out.println("time,x_position,y_position,angle,x_velocity,y_velocity,angular_velocity");
+			for (var point : trajectory) {
+				var d = point.localisation;
+				out.printf(
+					"%f,%f,%f,%f,%f,%f,%f%n",
+					point.time.toSeconds(),
+					d.pose().x(),
+					d.pose().y(),
+					d.pose().orientation(),
+					d.twist().x(),
+					d.twist().y(),
+					d.twist().angular()
+				);
+			}
+			out.flush();
+		}
+
+		@Override
+		public String toString() {
+			return String.format(
+				"%d records, %.3fs recorded, replayed in %.3fs (%.0fx real time), %d bulk reads, %dns per bulk read",
+				records, recordedTime().toSeconds(), wallTime.toSeconds(), speedup(), trajectory.size(),
+				meanUpdateTime().toNanos());
+		}
+	}
+
+	/**
+	 * Replays a localisation log from the command line, for example in CI.
+	 * <p>
+	 * Usage: <code>LocalisationReplay &lt;log&gt; [trajectory.csv]</code>
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1 || args.length > 2) {
+			System.err.println("Usage: LocalisationReplay <log> [trajectory.csv]");
+			System.exit(2);
+		}
+
+		Result result;
+		try (var reader = new LocalisationLogReader(new FileInputStream(args[0]))) {
+			result = replay(reader);
+		}
+
+		System.out.println(result);
+		if (args.length == 2) {
+			try (var out = new PrintWriter(args[1])) {
+				result.writeTrajectory(out);
+			}
+		}
+	}
+}
@@ -1,12 +1,17 @@
 package com.kuriosityrobotics.centerstage.mechanisms;
 
+import com.kuriosityrobotics.centerstage.bulkdata.CurrentMonitor;
 import com.kuriosityrobotics.centerstage.drive.MotorPowers;
+import com.kuriosityrobotics.centerstage.hardware.LynxHub;
 import com.kuriosityrobotics.centerstage.test.Tester;
+import com.kuriosityrobotics.centerstage.util.Duration;
 import com.qualcomm.robotcore.hardware.DcMotor;
 import com.qualcomm.robotcore.hardware.DcMotorEx;
-import org.firstinspires.ftc.robotcore.external.navigation.CurrentUnit;
 
 public class DrivetrainNode {
+	private static final double OVER_CURRENT = 8; // amps; a drive motor stalls at about 9.2A
+	private static final Duration OVER_CURRENT_TIME = Duration.ofMillis(500);
+
 	private final DcMotorEx frontLeft;
 	private final DcMotorEx frontRight;
 	private final DcMotorEx backLeft;
@@ -18,11 +23,6 @@ public class DrivetrainNode {
 		DcMotorEx backLeft,
 		DcMotorEx backRight
 	) {
-		frontLeft.setCurrentAlert(50, CurrentUnit.AMPS);
-		frontRight.setCurrentAlert(50, CurrentUnit.AMPS);
-		backLeft.setCurrentAlert(50, CurrentUnit.AMPS);
-		backRight.setCurrentAlert(50, CurrentUnit.AMPS);
-
 		this.frontLeft = frontLeft;
 		this.frontRight = frontRight;
 		this.backLeft = backLeft;
@@ -34,12 +34,19 @@ public class DrivetrainNode {
 		backRight.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
 	}
 
-	public void setMotorVoltages(MotorPowers powers) {
-		if (frontLeft.isOverCurrent() || frontRight.isOverCurrent() || backLeft.isOverCurrent() || backRight.isOverCurrent()) {
-//			powers = MotorPowers.ofPowers(0, 0, 0, 0);
-			System.out.println("Over current: " + powers);
-		}
+	/**
+	 * Watches the drive motors for over-currents, such as pushing against a wall, in the background; trips are logged
+	 * by the monitor.  This replaces polling each motor's over-current flag on every update, which cost four
+	 * transactions each time.
+	 */
+	public void monitorCurrent(CurrentMonitor monitor, LynxHub hub) {
+		monitor.watch(hub, "Front left drive motor", frontLeft, OVER_CURRENT, OVER_CURRENT_TIME);
+		monitor.watch(hub, "Front right drive motor", frontRight, OVER_CURRENT, OVER_CURRENT_TIME);
+		monitor.watch(hub, "Back left drive motor", backLeft, OVER_CURRENT, OVER_CURRENT_TIME);
+		monitor.watch(hub, "Back right drive motor", backRight, OVER_CURRENT, OVER_CURRENT_TIME);
+	}
 
+	public void setMotorVoltages(MotorPowers powers) {
 		frontLeft.setPower(powers.powerFrontLeft());
 		backLeft.setPower(powers.powerBackLeft());
 		frontRight.setPower(powers.powerFrontRight());
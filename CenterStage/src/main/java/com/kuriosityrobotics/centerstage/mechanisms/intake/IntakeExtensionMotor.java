@@ -1,7 +1,9 @@
 package com.kuriosityrobotics.centerstage.mechanisms.intake;
 
 import com.kuriosityrobotics.centerstage.bulkdata.BulkDataFetcher;
+import com.kuriosityrobotics.centerstage.bulkdata.BulkEncoder;
 import com.kuriosityrobotics.centerstage.hardware.LinearMotorControl;
+import com.kuriosityrobotics.centerstage.hardware.LynxHub;
 import com.kuriosityrobotics.centerstage.mechanisms.HardwareUtils;
 import com.kuriosityrobotics.centerstage.util.Duration;
 import com.kuriosityrobotics.centerstage.util.Instant;
@@ -16,17 +18,25 @@ import static java.lang.Math.min;
 
 public class IntakeExtensionMotor extends LinearMotorControl {
 	public static final double TICKS_PER_METER = 1320.39; // 145.11 ticks / spool circumference, 1320.39
+
+	// a stall is a high current at a crawl, for longer than it takes to accelerate from rest
+	private static final double STALL_CURRENT = 6; // amps
+	private static final double STALL_SPEED = 0.01; // m/s
+	private static final Duration STALL_TIME = Duration.ofMillis(80);
+
 	private final BulkDataFetcher.BulkDataNotifier notifier;
+	private final BulkEncoder encoder;
 	private final DcMotorEx delegate;
-	private double offset;
+	private volatile int targetPosition; // ticks; saves reading it back from the hub
 	private boolean isTemporarilyDisengaged;
 	private HardwareUtils.MotorState prevState;
 
-	public IntakeExtensionMotor(BulkDataFetcher.BulkDataNotifier notifier, DcMotorEx delegate) throws InterruptedException {
-		this.notifier = notifier;
+	public IntakeExtensionMotor(BulkDataFetcher fetcher, LynxHub hub, DcMotorEx delegate) throws InterruptedException {
+		this.notifier = fetcher.notifier(hub);
+		this.encoder = new BulkEncoder(fetcher, hub, delegate, TICKS_PER_METER);
 		this.delegate = delegate;
 
-		delegate.setTargetPosition(delegate.getCurrentPosition());
+		setTargetPosition(encoder.getPositionTicks());
 		delegate.setMode(DcMotor.RunMode.RUN_TO_POSITION);
 		delegate.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
 		delegate.setPositionPIDFCoefficients(20);
@@ -36,6 +46,9 @@ public class IntakeExtensionMotor extends LinearMotorControl {
 
 		delegate.setMotorEnable();
 
+		setStallWatch(fetcher.currentMonitor().watch(hub, "Intake extension motor", delegate,
+			STALL_CURRENT, STALL_SPEED * TICKS_PER_METER, STALL_TIME));
+
 		calibrate();
 	}
 
@@ -62,6 +75,7 @@ public class IntakeExtensionMotor extends LinearMotorControl {
 				delegate.setPower(0);
 				Thread.sleep(200); // wait for mechanism to relax
 				delegate.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+				encoder.invalidate();
 				updateOffsetToMatch(0);
 				setTargetPositionMetres0(0);
 			} finally {
@@ -107,26 +121,31 @@ public class IntakeExtensionMotor extends LinearMotorControl {
 
 	@Override
 	protected void setTargetPositionMetres0(double position) {
-		delegate.setTargetPosition((int) (position * TICKS_PER_METER - offset));
+		setTargetPosition(encoder.toTicks(position));
+	}
+
+	private void setTargetPosition(int ticks) {
+		targetPosition = ticks;
+		delegate.setTargetPosition(ticks);
 	}
 
 	@Override
 	public double getPositionMeters() {
-		return (delegate.getCurrentPosition() + offset) / TICKS_PER_METER;
+		return encoder.getPositionMeters();
 	}
 
 	private double getTargetPositionMeters() {
-		return (delegate.getTargetPosition() + offset) / TICKS_PER_METER;
+		return encoder.toMetres(targetPosition);
 	}
 
 	@Override
-	public void updateOffsetToMatch(double currentPosition) throws InterruptedException {
-		offset = currentPosition * TICKS_PER_METER - delegate.getCurrentPosition();
+	public void updateOffsetToMatch(double currentPosition) {
+		encoder.updateOffsetToMatch(currentPosition);
 	}
 
 	@Override
 	public double getVelocityMeters() {
-		return delegate.getVelocity() / TICKS_PER_METER;
+		return encoder.getVelocityMeters();
 	}
 
 	// by the time this method returns, it should either (a) be in the correct position, or (b) throw an exception
@@ -4,11 +4,13 @@ import com.kuriosityrobotics.centerstage.concurrent.HardwareTaskScope;
 import com.kuriosityrobotics.centerstage.mechanisms.HardwareUtils;
 import com.kuriosityrobotics.centerstage.test.Tester;
 import com.kuriosityrobotics.centerstage.concurrent.PreemptibleLock;
+import com.kuriosityrobotics.centerstage.util.Duration;
 import com.qualcomm.robotcore.hardware.DcMotor;
 import org.firstinspires.ftc.robotcore.external.navigation.CurrentUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Optional;
 import java.util.concurrent.TimeoutException;
 
 import static com.kuriosityrobotics.centerstage.util.Units.CM;
@@ -26,6 +28,7 @@ public class OuttakeExtensionSlides {
 
 	private final OuttakeMotor upperMotor;
 	private final OuttakeMotor lowerMotor;
+	private final SlideController controller;
 
 	private boolean isTemporarilyDisengaged;
 	private HardwareUtils.MotorState prevLowerState, prevUpperState;
@@ -33,23 +36,48 @@ public class OuttakeExtensionSlides {
 	public OuttakeExtensionSlides(OuttakeMotor upperMotor, OuttakeMotor lowerMotor) throws InterruptedException {
 		this.upperMotor = upperMotor;
 		this.lowerMotor = lowerMotor;
+		this.controller = new SlideController(upperMotor, lowerMotor);
 
 		calibrate();
 	}
 
-	public void goToPositions(OuttakeSlidePosition position) throws InterruptedException, SlidesJammed {
+	/**
+	 * Moves the slides to <code>position</code>, recovering from a jam if they can.
+	 * <p>
+	 * If the current thread has a {@link com.kuriosityrobotics.centerstage.concurrent.Deadline}, this returns false
+	 * when it passes, leaving the slides heading for the position.
+	 *
+	 * @return true if the slides reached the position, or false if the current thread's deadline passed first
+	 * @throws SlidesJammed if the slides jammed, whether or not they got back to where they were
+	 */
+	public boolean goToPositions(OuttakeSlidePosition position) throws InterruptedException, SlidesJammed {
 		var oldPosition = lowerMotor.getPositionMeters();
 		slidesLock.lock();
 		try {
 			ensureMotorsEngaged();
-			goToPositions0(position.position);
+			return goToPositions0(position.position);
 		} catch (TimeoutException e) {
-			handleJam(position, oldPosition);
+			return handleJam(position, oldPosition);
 		} finally {
 			slidesLock.unlock();
 		}
 	}
 
+	/**
+	 * @return how long the slides take to move from <code>from</code> to <code>to</code>, once they start, not counting
+	 * settling at the end
+	 */
+	public static Duration travelTime(OuttakeSlidePosition from, OuttakeSlidePosition to) {
+		return SlideController.travelTime(from.position, to.position);
+	}
+
+	/**
+	 * @return how long the move in progress has left, or empty if the slides aren't moving
+	 */
+	public Optional<Duration> timeRemaining() {
+		return controller.timeRemaining();
+	}
+
 	public void calibrate() throws InterruptedException {
 		var oldRight = HardwareUtils.saveMotorState(lowerMotor.delegate);
 		var oldLeft = HardwareUtils.saveMotorState(upperMotor.delegate);
@@ -69,20 +97,24 @@ public class OuttakeExtensionSlides {
 		}
 	}
 
-	private void handleJam(OuttakeSlidePosition position, double oldPosition) throws InterruptedException, SlidesJammed {
-		if (lowerMotor.getPositionMeters() < lowerMotor.getTargetPositionMeters()) {
-			handleExtensionJam(oldPosition);
-		} else {
-			handleRetractionJam(position, oldPosition);
-		}
+	/**
+	 * @return whether the slides recovered before the current thread's deadline passed
+	 */
+	private boolean handleJam(OuttakeSlidePosition position, double oldPosition) throws InterruptedException, SlidesJammed {
+		if (lowerMotor.getPositionMeters() < lowerMotor.getTargetPositionMeters())
+			throw handleExtensionJam(oldPosition);
+
+		return handleRetractionJam(position, oldPosition);
 	}
 
-	private void handleRetractionJam(OuttakeSlidePosition position, double oldPosition) throws InterruptedException, SlidesJammed {
+	private boolean handleRetractionJam(OuttakeSlidePosition position, double oldPosition) throws InterruptedException, SlidesJammed {
 		logger.error("Can't retract outtake slides;  trying to move it out then in again to dislodge obstruction");
 		try {
-			goToPositions0(min(lowerMotor.getPositionMeters() + 5 * CM, 80)); // maybe something got stuck in the mechanism??
-			goToPositions0(position.position); // try again, otherwise don't bother handling
+			// maybe something got stuck in the mechanism??  try again, otherwise don't bother handling
+			if (!goToPositions0(min(lowerMotor.getPositionMeters() + 5 * CM, 80)) || !goToPositions0(position.position))
+				return false;
 			logger.warn("Recovered from jammed slides during retraction");
+			return true;
 		} catch (InterruptedException | TimeoutException e2) {
 			logger.error("gave up recovering;  going to previous position " + oldPosition);
 
@@ -97,7 +129,12 @@ public class OuttakeExtensionSlides {
 		}
 	}
 
-	private void handleExtensionJam(double oldPosition) throws InterruptedException, SlidesJammed {
+	/**
+	 * Goes back to <code>oldPosition</code>, as the slides can't extend any further.
+	 *
+	 * @return the jam, for the caller to throw
+	 */
+	private SlidesJammed handleExtensionJam(double oldPosition) throws InterruptedException {
 		// bad, very bad!  this means that we've hit a ceiling or something
 		logger.error("Outtake slides hit ceiling;  trying to go to previous position " + oldPosition);
 
@@ -105,18 +142,13 @@ public class OuttakeExtensionSlides {
 			goToPositions0(oldPosition);
 		} catch (TimeoutException e) {
 			temporarilyDisengage();
-			throw new SlidesJammed("Slides completely stuck. Temporarily disengaged motors till further command received", true);
+			return new SlidesJammed("Slides completely stuck. Temporarily disengaged motors till further command received", true);
 		}
-		throw new SlidesJammed("extension failed: returned to previous position", true);
+		return new SlidesJammed("extension failed: returned to previous position", true);
 	}
 
-	private void goToPositions0(double position) throws InterruptedException, TimeoutException {
-		try (var scope = HardwareTaskScope.open(TimeoutException.class)) {
-			scope.fork(() -> upperMotor.goToPosition(position));
-			scope.fork(() -> lowerMotor.goToPosition(position));
-
-			scope.join();
-		}
+	private boolean goToPositions0(double position) throws InterruptedException, TimeoutException {
+		return controller.moveTo(position);
 	}
 
 	private void ensureMotorsEngaged() {
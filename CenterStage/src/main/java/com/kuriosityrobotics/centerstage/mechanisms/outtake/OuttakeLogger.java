@@ -2,17 +2,19 @@ package com.kuriosityrobotics.centerstage.mechanisms.outtake;
 
 import com.kuriosityrobotics.centerstage.bulkdata.BulkDataFetcher;
 import com.kuriosityrobotics.centerstage.bulkdata.RevHubBulkData;
+import com.kuriosityrobotics.centerstage.hardware.LynxHub;
 import com.kuriosityrobotics.centerstage.util.Instant;
 
 import java.io.FileNotFoundException;
 import java.io.PrintWriter;
+import java.util.concurrent.Executor;
 
 public class OuttakeLogger {
 	private PrintWriter out;
 
 	private final Instant startTime = Instant.now();
 
-	public OuttakeLogger(BulkDataFetcher bulkDataFetcher) {
+	public OuttakeLogger(Executor executor, BulkDataFetcher bulkDataFetcher) {
 		try {
 			out = new PrintWriter("/sdcard/FIRST/outtake.csv");
 		} catch (FileNotFoundException e) {
@@ -20,17 +22,19 @@ public class OuttakeLogger {
 		}
 		out.println("time,left_pos,right_pos,left_velocity,right_velocity");
 
-		bulkDataFetcher.addExpansionHubListener(this::updateCSV);
+		// writing the file is slow, so don't do it on the bulk read thread
+		bulkDataFetcher.topic(LynxHub.EXPANSION_HUB).subscribe(executor, this::updateCSV);
+		bulkDataFetcher.demand(LynxHub.EXPANSION_HUB, Double.POSITIVE_INFINITY);
 	}
 
 	public synchronized void updateCSV(RevHubBulkData data) {
 		out.printf(
 			"%f,%d,%d,%d,%d%n",
 			Instant.now().since(startTime).toSeconds(),
-			-data.encoders[0],
-			data.encoders[1],
-			-data.velocities[0],
-			data.velocities[1]
+			-data.encoder(0),
+			data.encoder(1),
+			-data.velocity(0),
+			data.velocity(1)
 		);
 		out.flush();
 	}
@@ -2,7 +2,10 @@ package com.kuriosityrobotics.centerstage.mechanisms.outtake;
 
 
 import com.kuriosityrobotics.centerstage.bulkdata.BulkDataFetcher;
+import com.kuriosityrobotics.centerstage.bulkdata.BulkEncoder;
+import com.kuriosityrobotics.centerstage.bulkdata.CurrentMonitor;
 import com.kuriosityrobotics.centerstage.hardware.LinearMotorControl;
+import com.kuriosityrobotics.centerstage.hardware.LynxHub;
 import com.kuriosityrobotics.centerstage.mechanisms.HardwareUtils;
 import com.kuriosityrobotics.centerstage.util.Duration;
 import com.kuriosityrobotics.centerstage.util.Instant;
@@ -13,22 +16,30 @@ import org.firstinspires.ftc.robotcore.external.navigation.CurrentUnit;
 import static com.qualcomm.robotcore.hardware.DcMotor.RunMode.STOP_AND_RESET_ENCODER;
 
 /**
- * A motor that controls the outtake.
+ * A motor that controls the outtake.  Its position and velocity are read from bulk data.
  */
 public class OuttakeMotor extends LinearMotorControl {
-	private static final double TICKS_PER_METRE = 2064.04; // calculation: (145.1 / circumference) * (25 / 16)
+	public static final double TICKS_PER_METRE = 2064.04; // calculation: (145.1 / circumference) * (25 / 16)
+
+	// a stall is a high current at a crawl, for longer than it takes to accelerate from rest
+	private static final double STALL_CURRENT = 6; // amps
+	private static final double STALL_SPEED = 0.01; // m/s
+	private static final Duration STALL_TIME = Duration.ofMillis(80);
 
 	private final BulkDataFetcher.BulkDataNotifier notifier;
+	private final BulkEncoder encoder;
 	final DcMotorEx delegate;
+	final CurrentMonitor.Watch stallWatch;
 
-	private double offset;
+	private volatile int targetPosition; // ticks; saves reading it back from the hub
 
-	public OuttakeMotor(BulkDataFetcher.BulkDataNotifier notifier, DcMotorEx delegate) {
+	public OuttakeMotor(BulkDataFetcher fetcher, LynxHub hub, DcMotorEx delegate) {
 		super(Duration.ofSeconds(5));
-		this.notifier = notifier;
+		this.notifier = fetcher.notifier(hub);
+		this.encoder = new BulkEncoder(fetcher, hub, delegate, TICKS_PER_METRE);
 		this.delegate = delegate;
 
-		delegate.setTargetPosition(delegate.getCurrentPosition());
+		setTargetPosition(encoder.getPositionTicks());
 		delegate.setMode(DcMotor.RunMode.RUN_TO_POSITION);
 		delegate.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
 		delegate.setPositionPIDFCoefficients(20);
@@ -38,31 +49,61 @@ public class OuttakeMotor extends LinearMotorControl {
 		delegate.setCurrentAlert(25, CurrentUnit.AMPS);
 
 		delegate.setMotorEnable();
+
+		stallWatch = fetcher.currentMonitor().watch(hub, "Outtake motor " + delegate.getPortNumber(), delegate,
+			STALL_CURRENT, STALL_SPEED * TICKS_PER_METRE, STALL_TIME);
+		setStallWatch(stallWatch);
 	}
 
 	@Override
 	public void updateOffsetToMatch(double currentPosition) {
-		offset = currentPosition * TICKS_PER_METRE - delegate.getCurrentPosition();
+		encoder.updateOffsetToMatch(currentPosition);
 	}
 
 
 	@Override
 	public double getPositionMeters() {
-		return (delegate.getCurrentPosition() + offset) / TICKS_PER_METRE;
+		return encoder.getPositionMeters();
 	}
 
 	public double getTargetPositionMeters() {
-		return (delegate.getTargetPosition() + offset) / TICKS_PER_METRE;
+		return encoder.toMetres(targetPosition);
 	}
 
 	@Override
 	public double getVelocityMeters() {
-		return delegate.getVelocity() / TICKS_PER_METRE;
+		return encoder.getVelocityMeters();
 	}
 
 	@Override
 	protected void setTargetPositionMetres0(double position) {
-		delegate.setTargetPosition((int) (position * TICKS_PER_METRE - offset));
+		setTargetPosition(encoder.toTicks(position));
+	}
+
+	private void setTargetPosition(int ticks) {
+		targetPosition = ticks;
+		delegate.setTargetPosition(ticks);
+	}
+
+	/**
+	 * Hands the motor over to a controller of its own, which sets its power directly, rather than the hub's position
+	 * control.
+	 */
+	void driveDirectly() {
+		delegate.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
+	}
+
+	void setPower(double power) {
+		delegate.setPower(power);
+	}
+
+	/**
+	 * Hands the motor back to the hub's position control, holding <code>position</code>.
+	 */
+	void hold(double position) {
+		setTargetPositionMetres0(position);
+		delegate.setMode(DcMotor.RunMode.RUN_TO_POSITION);
+		delegate.setPower(1);
 	}
 
 	@Override
@@ -101,6 +142,7 @@ public class OuttakeMotor extends LinearMotorControl {
 				delegate.setPower(0);
 				Thread.sleep(500); // wait for mechanism to relax
 				delegate.setMode(STOP_AND_RESET_ENCODER);
+				encoder.invalidate();
 				updateOffsetToMatch(0);
 				setTargetPositionMetres0(0);
 			} finally {
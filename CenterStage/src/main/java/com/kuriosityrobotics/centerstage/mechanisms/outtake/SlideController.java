@@ -0,0 +1,192 @@
+package com.kuriosityrobotics.centerstage.mechanisms.outtake;
+
+import com.kuriosityrobotics.centerstage.concurrent.Deadline;
+import com.kuriosityrobotics.centerstage.hardware.LinearMotorControl.StalledException;
+import com.kuriosityrobotics.centerstage.math.TrapezoidalProfile;
+import com.kuriosityrobotics.centerstage.util.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Moves the outtake slides' two motors together, along a {@link TrapezoidalProfile}.
+ * <p>
+ * At every bulk read of their hub, each motor's power is worked out from where the profile says the slides should be:
+ * feedforward for the profile's velocity and acceleration and against gravity, plus PID on the motor's own position
+ * error.  A sync term pushes each motor towards the other, so that they don't fight over the slides.  Once the profile
+ * has finished and both motors have settled on the target, the motors are handed back to the hub's position control to
+ * hold it.  If the move fails instead, the motors stop pushing and brake where they are, rather than driving on into
+ * whatever stopped them.
+ * <p>
+ * As the profile is known before the move starts, so is the time the move takes; see {@link #travelTime}.  The gains
+ * are in motor power, at nominal voltage.
+ */
+class SlideController {
+	static final double MAXIMUM_VELOCITY = 1.0; // m/s; the motors' free speed is about 1.35
+	static final double MAXIMUM_ACCELERATION = 6; // m/s^2
+
+	private static final double K_V = 0.74; // per m/s
+	private static final double K_A = 0.037; // per m/s^2
+	private static final double K_G = 0.05;
+	private static final double K_P = 8; // per m
+	private static final double K_I = 2; // per m s
+	private static final double K_D = 0.05; // per m/s of velocity error
+	private static final double K_SYNC = 4; // per m the motors are apart
+	private static final double MAXIMUM_INTEGRAL = 0.05; // m s
+
+	private static final double POSITION_TOLERANCE = 0.01; // m
+	private static final double VELOCITY_TOLERANCE = 0.02; // m/s
+	/**
+	 * How long after the profile ends the motors have to settle.
+	 */
+	private static final Duration SETTLE_TIMEOUT = Duration.ofMillis(750);
+
+	private final Logger logger = LoggerFactory.getLogger(SlideController.class);
+
+	private final OuttakeMotor upperMotor;
+	private final OuttakeMotor lowerMotor;
+
+	private volatile TrapezoidalProfile profile; // of the move in progress, or null
+	private volatile long startNanos;
+
+	SlideController(OuttakeMotor upperMotor, OuttakeMotor lowerMotor) {
+		this.upperMotor = upperMotor;
+		this.lowerMotor = lowerMotor;
+	}
+
+	/**
+	 * @return how long a move from <code>from</code> to <code>to</code> takes, in metres of extension, not counting
+	 * settling
+	 */
+	static Duration travelTime(double from, double to) {
+		return Duration.ofSeconds(new TrapezoidalProfile(from, to, MAXIMUM_VELOCITY, MAXIMUM_ACCELERATION).duration());
+	}
+
+	/**
+	 * @return how long the move in progress has left, going by its profile, or empty if the slides aren't moving
+	 */
+	Optional<Duration> timeRemaining() {
+		var profile = this.profile;
+		if (profile == null)
+			return Optional.empty();
+
+		double elapsed = (System.nanoTime() - startNanos) / 1e9;
+		return Optional.of(Duration.ofSeconds(Math.max(0, profile.duration() - elapsed)));
+	}
+
+	/**
+	 * Moves the slides to <code>position</code>, and holds them there.
+	 * <p>
+	 * If the current thread has a {@link Deadline}, this returns false when it passes, leaving the hub's position
+	 * control heading for the position.  If the move throws, the motors are left braking where they are.
+	 *
+	 * @param position the extension, in metres
+	 * @return true if the slides settled on the position, or false if the current thread's deadline passed first
+	 * @throws StalledException if either motor stalled before reaching the position
+	 * @throws TimeoutException if the slides didn't settle on the position in time
+	 */
+	boolean moveTo(double position) throws InterruptedException, TimeoutException {
+		double upperStart = upperMotor.getPositionMeters();
+		double lowerStart = lowerMotor.getPositionMeters();
+		var profile = new TrapezoidalProfile((upperStart + lowerStart) / 2, position, MAXIMUM_VELOCITY, MAXIMUM_ACCELERATION);
+
+		var upper = new MotorState(upperMotor);
+		var lower = new MotorState(lowerMotor);
+		boolean failed = true;
+		try {
+			upper.start(position);
+			lower.start(position);
+
+			startNanos = System.nanoTime();
+			this.profile = profile;
+			long lastNanos = startNanos;
+			while (!Deadline.hasExpired()) {
+				upperMotor.idle(); // for the next bulk read
+
+				long now = System.nanoTime();
+				double time = (now - startNanos) / 1e9;
+				double dt = (now - lastNanos) / 1e9;
+				lastNanos = now;
+
+				upper.checkStall();
+				lower.checkStall();
+
+				double upperPosition = upperMotor.getPositionMeters();
+				double lowerPosition = lowerMotor.getPositionMeters();
+				if (time >= profile.duration() && upper.isSettled(position) && lower.isSettled(position)) {
+					logger.info(String.format("Slides moved to %.3f m in %.3f s (profile %.3f s)", position, time, profile.duration()));
+					failed = false;
+					return true;
+				}
+				if (time > profile.duration() + SETTLE_TIMEOUT.toSeconds())
+					throw new TimeoutException(String.format("Slides did not settle at %.3f m: upper at %.3f m, lower at %.3f m",
+						position, upperPosition, lowerPosition));
+
+				double sync = K_SYNC * (lowerPosition - upperPosition) / 2;
+				upperMotor.setPower(upper.power(profile, time, dt) + sync);
+				lowerMotor.setPower(lower.power(profile, time, dt) - sync);
+			}
+
+			failed = false;
+			return false;
+		} finally {
+			this.profile = null;
+			upper.finish(position, failed);
+			lower.finish(position, failed);
+		}
+	}
+
+	/**
+	 * One motor's part in a move.
+	 */
+	private static final class MotorState {
+		private final OuttakeMotor motor;
+		private long trips;
+		private double integral;
+
+		MotorState(OuttakeMotor motor) {
+			this.motor = motor;
+		}
+
+		void start(double position) {
+			trips = motor.stallWatch.trips();
+			motor.stallWatch.setActive(true);
+			motor.setTargetPositionMetres0(position); // so that a jam can be told apart from where it was going
+			motor.driveDirectly();
+		}
+
+		void checkStall() throws StalledException {
+			if (motor.stallWatch.trips() != trips)
+				throw new StalledException(motor.stallWatch);
+		}
+
+		boolean isSettled(double position) {
+			return Math.abs(position - motor.getPositionMeters()) < POSITION_TOLERANCE
+				&& Math.abs(motor.getVelocityMeters()) < VELOCITY_TOLERANCE;
+		}
+
+		double power(TrapezoidalProfile profile, double time, double dt) {
+			double velocity = profile.velocity(time);
+			double error = profile.position(time) - motor.getPositionMeters();
+			integral = Math.max(-MAXIMUM_INTEGRAL, Math.min(MAXIMUM_INTEGRAL, integral + error * dt));
+
+			return K_V * velocity + K_A * profile.acceleration(time) + K_G
+				+ K_P * error + K_I * integral + K_D * (velocity - motor.getVelocityMeters());
+		}
+
+		/**
+		 * Holds <code>position</code>, or if the move failed, stops pushing; a stalled motor held on its target would be
+		 * driven at full power into the jam.  The target is left as it was, so that the jam's direction can be told.
+		 */
+		void finish(double position, boolean failed) {
+			motor.stallWatch.setActive(false);
+			if (failed)
+				motor.setPower(0); // the motors brake
+			else
+				motor.hold(position);
+		}
+	}
+}
@@ -1,18 +1,24 @@
 package com.kuriosityrobotics.centerstage.mpc;
 
+import com.kuriosityrobotics.centerstage.bus.Topic;
 import com.kuriosityrobotics.centerstage.drive.MotorPowers;
 import com.kuriosityrobotics.centerstage.localisation.OdometryIntegrator;
 import com.kuriosityrobotics.centerstage.localisation.messages.LocalisationDatum;
 import com.kuriosityrobotics.centerstage.math.Pose;
 import com.kuriosityrobotics.centerstage.math.Twist;
 import com.kuriosityrobotics.centerstage.mechanisms.DrivetrainNode;
+import com.kuriosityrobotics.centerstage.metrics.NodeTimer;
+import com.kuriosityrobotics.centerstage.metrics.NodeTimers;
 import com.kuriosityrobotics.centerstage.util.Duration;
 import com.kuriosityrobotics.centerstage.util.Instant;
+import com.kuriosityrobotics.centerstage.concurrent.ControlLoopScheduler;
+import com.kuriosityrobotics.centerstage.concurrent.Deadline;
 import com.kuriosityrobotics.centerstage.concurrent.PreemptibleLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Optional;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
@@ -24,8 +30,15 @@ import static java.lang.Math.toRadians;
 
 import androidx.annotation.GuardedBy;
 
+import static com.kuriosityrobotics.centerstage.concurrent.ControlLoopScheduler.Phase.PLAN;
+import static com.kuriosityrobotics.centerstage.concurrent.ControlLoopScheduler.Priority.CRITICAL;
+
 public class MPCNode {
+	private static final Duration SOLVE_PERIOD = Duration.ofMillis(1000 / 20);
+
 	private final Logger logger = LoggerFactory.getLogger(MPCNode.class);
+	private final NodeTimer timer = NodeTimers.forNode("mpc", SOLVE_PERIOD);
+	private final NodeTimer solveTimer = NodeTimers.forNode("mpc solve", SOLVE_PERIOD);
 	private final DrivetrainNode drivetrainNode;
 	private final OdometryIntegrator localisation;
 	private final StableVoltageSensor batteryVoltageSensor;
@@ -41,6 +54,7 @@ public class MPCNode {
 	private Instant timeStable = null;
 
 	private final ScheduledExecutorService ses;
+	private final Topic<SystemState> outputTopic = new Topic<>("mpc output");
 
 	public MPCNode(ScheduledExecutorService ses, DrivetrainNode drivetrainNode, OdometryIntegrator localisation, StableVoltageSensor batteryVoltageSensor) throws InterruptedException {
 		this.ses = ses;
@@ -60,7 +74,7 @@ public class MPCNode {
 
 		logger.info("Constructing MPCNode " + hashCode());
 
-		ses.scheduleAtFixedRate(this::runSolver, 0, 1000 / 20, java.util.concurrent.TimeUnit.MILLISECONDS);
+		ControlLoopScheduler.schedule(ses, "mpc", SOLVE_PERIOD, PLAN, CRITICAL, timer.wrap(this::runSolver));
 	}
 
 	private void runSolver() {
@@ -89,11 +103,9 @@ public class MPCNode {
 				.startingAt(l)
 				.build(batteryVoltageSensor.getVoltage());
 
-			var start = Instant.now();
+			long solveStart = solveTimer.start();
 			var result = solver.solve();
-			var end = Instant.now();
-
-			logger.info("Solved in " + (end.since(start).toMillis()) + "ms");
+			solveTimer.stop(solveStart);
 
 //			logger.info(result);
 
@@ -140,6 +152,14 @@ public class MPCNode {
 		var motorPowers = nextState.getMotorPowers();
 
 		drivetrainNode.setMotorVoltages(motorPowers);
+		outputTopic.publish(nextState);
+	}
+
+	/**
+	 * @return the topic which the first stage of every solution is published to, after its powers are applied
+	 */
+	public Topic<SystemState> getOutputTopic() {
+		return outputTopic;
 	}
 
 	@GuardedBy("lock")
@@ -150,26 +170,56 @@ public class MPCNode {
 
 	private final PreemptibleLock followerLock = new PreemptibleLock();
 
+	/**
+	 * Follows <code>driveRecord</code>, then holds its end point until the robot settles there.
+	 * <p>
+	 * If the current thread has a {@link Deadline}, this returns when it passes, and the robot holds wherever it is.
+	 */
 	public void followPath(DriveRecord driveRecord) throws InterruptedException {
 		followerLock.lock();
 		try {
-			followPath0(driveRecord);
-			followPath0(DriveRecord.ofStationary(driveRecord.endPoint())); // position lock
+			if (followPath0(driveRecord, driveRecord))
+				followPath0(DriveRecord.ofStationary(driveRecord.endPoint()), driveRecord); // position lock
 		} finally {
 			followerLock.unlock();
 		}
 	}
 
+	/**
+	 * @param path the path passed to {@link #followPath}, which <code>driveRecord</code> is part of
+	 * @return false if the deadline passed before the path was finished
+	 */
 	@GuardedBy("followerLock")
-	private void followPath0(DriveRecord driveRecord) throws InterruptedException {
+	private boolean followPath0(DriveRecord driveRecord, DriveRecord path) throws InterruptedException {
 		lock.lock();
 		try {
 			timeStable = null;
-			follower = new Follower(driveRecord);
+			follower = new Follower(driveRecord, path);
 			setFollowState(FollowState.EN_ROUTE);
 
-			while (followState != FollowState.FINISHED)
-				stateUpdateCondition.await();
+			while (followState != FollowState.FINISHED) {
+				if (!Deadline.await(stateUpdateCondition) && followState != FollowState.FINISHED) {
+					logger.warn("Deadline passed while following a path; holding position");
+					follower = new Follower(DriveRecord.ofStationary(localisation.getGlobalLocalisation().pose()), null);
+					return false;
+				}
+			}
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return how much longer the robot is expected to take to reach the end of <code>path</code>, or empty if it isn't
+	 * following it.  While the robot settles at the end, this is zero.
+	 */
+	public Optional<Duration> timeRemaining(DriveRecord path) {
+		lock.lock();
+		try {
+			if (follower == null || follower.path != path)
+				return Optional.empty();
+			return Optional.of(Duration.ofSeconds(Math.max(0, follower.driveRecord.maxTime() - follower.timeAlongPath)));
 		} finally {
 			lock.unlock();
 		}
@@ -215,12 +265,14 @@ public class MPCNode {
 
 	private class Follower {
 		private final DriveRecord driveRecord;
+		private final DriveRecord path; // what followPath was called with, or null once it has been given up on
 		@GuardedBy("lock")
 		private double timeAlongPath;
 		private SystemState[] guesses = new SystemState[NUM_STAGES];
 
-		Follower(DriveRecord driveRecord) {
+		Follower(DriveRecord driveRecord, DriveRecord path) {
 			this.driveRecord = driveRecord;
+			this.path = path;
 			this.timeAlongPath = driveRecord.minTime();
 			for (int i = 0; i < NUM_STAGES; i++)
 				guesses[i] = driveRecord.get(i * 0.05);
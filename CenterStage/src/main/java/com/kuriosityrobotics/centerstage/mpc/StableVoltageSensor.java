@@ -1,10 +1,14 @@
 package com.kuriosityrobotics.centerstage.mpc;
 
+import com.kuriosityrobotics.centerstage.concurrent.ControlLoopScheduler;
+import com.kuriosityrobotics.centerstage.util.Duration;
 import com.qualcomm.robotcore.hardware.VoltageSensor;
 
 import java.util.Arrays;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+
+import static com.kuriosityrobotics.centerstage.concurrent.ControlLoopScheduler.Phase.SENSE;
+import static com.kuriosityrobotics.centerstage.concurrent.ControlLoopScheduler.Priority.HIGH;
 
 public class StableVoltageSensor {
 
@@ -22,7 +26,7 @@ public class StableVoltageSensor {
 		Arrays.fill(measurements, voltage);
 		total = voltage * NUM_MEASUREMENTS;
 
-		ses.scheduleAtFixedRate(this::update, 0, 1000/50, TimeUnit.MILLISECONDS);
+		ControlLoopScheduler.schedule(ses, "voltage sensor", Duration.ofMillis(1000 / 50), SENSE, HIGH, this::update);
 	}
 
 	private void update() {
@@ -0,0 +1,61 @@
+package com.kuriosityrobotics.centerstage.opmodes;
+
+import com.kuriosityrobotics.centerstage.hardware.BusProfiler;
+import com.kuriosityrobotics.centerstage.hardware.HardwareProviderImpl;
+import com.kuriosityrobotics.centerstage.hardware.ProfilingHardwareProvider;
+import com.kuriosityrobotics.centerstage.localisation.OdometryIntegrator;
+import com.kuriosityrobotics.centerstage.teleop.Robot;
+import com.kuriosityrobotics.centerstage.teleop.TeleopController;
+import com.kuriosityrobotics.centerstage.test.Tester;
+import com.kuriosityrobotics.centerstage.util.Duration;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
+
+import java.io.FileNotFoundException;
+
+/**
+ * The teleop, with every hardware transaction which reaches the bus profiled.  The busiest call sites are shown on telemetry, and every
+ * summary is written to {@link BusProfiler#DEFAULT_PATH}.
+ */
+@TeleOp(name="Bus Profile TeleOp", group="Test")
+public class BusProfileTeleOp extends LinearOpMode {
+	@Override
+	public void runOpMode() throws InterruptedException {
+		var ses = Robot.createScheduledExecutor();
+		try {
+			var tester = new Tester(ses, telemetry, gamepad1);
+
+			var profiler = new BusProfiler();
+			var hardwareProvider = Robot.createCoalescingHardwareProvider(ses,
+				new ProfilingHardwareProvider(new HardwareProviderImpl(hardwareMap), profiler)
+			);
+			var bulkDataFetcher = Robot.createBulkDataFetcher(ses, hardwareProvider);
+
+			var dt = Robot.createDrivetrainNode(hardwareProvider, bulkDataFetcher);
+			var mechanisms = Robot.createMechanismManager(hardwareProvider, bulkDataFetcher);
+			var aeroplane = Robot.createAirplaneNode(hardwareProvider);
+			var rigging = Robot.createRiggingNode(hardwareProvider);
+
+			var controller = new TeleopController(ses, gamepad1, gamepad2, dt, mechanisms, aeroplane, rigging);
+
+			var imu = Robot.createIMUNode(hardwareProvider);
+			var odometryIntegrator = new OdometryIntegrator(ses, imu, bulkDataFetcher);
+
+			profiler.startReporting(ses, Duration.ofSeconds(1), BusProfiler.DEFAULT_PATH);
+			profiler.addTo(tester);
+			hardwareProvider.addTo(tester);
+			tester.nodeTimings();
+
+			waitForStart();
+
+			while (opModeIsActive()) {
+				idle();
+			}
+		} catch (FileNotFoundException e) {
+			throw new RuntimeException(e);
+		} finally {
+			ses.shutdownNow();
+			Robot.dumpNodeTimings();
+		}
+	}
+}
@@ -47,6 +47,7 @@ public class CameraTest extends LinearOpMode {
 //			tester.instruct("Face the robot's intake towards the board (angle = 0)"); // ports don't work
 			odometry.resetPosition(Pose.zero());
 			tester.info("Odometry", () -> Objects.toString(odometry.getLocalisation().pose()));
+			tester.info("Vision", () -> tagProcessor.getStatistics().toString());
 			tester.info("Now point the camera at the tags; see if measurement works");
 
 			while (opModeIsActive()){
@@ -54,6 +55,7 @@ public class CameraTest extends LinearOpMode {
 			}
 		} finally {
 			ses.shutdownNow();
+			Robot.dumpNodeTimings();
 		}
 	}
 }
@@ -18,7 +18,7 @@ public class DrivetrainTests extends LinearOpMode {
 			var hardwareProvider = new HardwareProviderImpl(hardwareMap);
 			var bulkDataFetcher = Robot.createBulkDataFetcher(ses, hardwareProvider);
 
-			var dt = Robot.createDrivetrainNode(hardwareProvider);
+			var dt = Robot.createDrivetrainNode(hardwareProvider, bulkDataFetcher);
 
 			var imu = Robot.createIMUNode(hardwareProvider);
 			var odometryIntegrator = new OdometryIntegrator(ses, imu, bulkDataFetcher);
@@ -27,6 +27,7 @@ public class DrivetrainTests extends LinearOpMode {
 
 			waitForStart();
 
+			bulkDataFetcher.testRoutine(tester);
 			dt.testRoutine(tester);
 			imu.testRoutine(tester, dt);
 			odometryIntegrator.testRoutine(tester, dt);
@@ -36,6 +37,7 @@ public class DrivetrainTests extends LinearOpMode {
 			}
 		} finally {
 			ses.shutdownNow();
+			Robot.dumpNodeTimings();
 		}
 	}
 }
\ No newline at end of file
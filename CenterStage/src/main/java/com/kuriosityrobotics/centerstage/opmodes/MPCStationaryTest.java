@@ -20,9 +20,9 @@ public class MPCStationaryTest extends LinearOpMode {
 		try {
 			HardwareProvider hardwareProvider = new HardwareProviderImpl(hardwareMap);
 
-			var dt = Robot.createDrivetrainNode(hardwareProvider);
-
 			var bulkDataFetcher = Robot.createBulkDataFetcher(ses, hardwareProvider);
+			var dt = Robot.createDrivetrainNode(hardwareProvider, bulkDataFetcher);
+
 			var imu = Robot.createIMUNode(hardwareProvider);
 			var odometryIntegrator = new OdometryIntegrator(ses, imu, bulkDataFetcher);
 
@@ -38,6 +38,7 @@ public class MPCStationaryTest extends LinearOpMode {
 
 		} finally {
 			ses.shutdownNow();
+			Robot.dumpNodeTimings();
 		}
 	}
 }
\ No newline at end of file
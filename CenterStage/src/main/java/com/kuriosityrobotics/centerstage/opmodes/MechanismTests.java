@@ -35,6 +35,7 @@ public class MechanismTests extends LinearOpMode {
 			}
 		} finally {
 			ses.shutdownNow();
+			Robot.dumpNodeTimings();
 		}
 	}
 }
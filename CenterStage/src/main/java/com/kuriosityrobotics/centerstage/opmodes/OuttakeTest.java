@@ -24,7 +24,7 @@ public class OuttakeTest extends LinearOpMode {
 
 			waitForStart();
 
-			OuttakeLogger logger = new OuttakeLogger(bulkDataFetcher);
+			OuttakeLogger logger = new OuttakeLogger(ses, bulkDataFetcher);
 
 //			outtake.releaseAndCollapse();
 //			outtake.toDeposit();
@@ -32,6 +32,7 @@ public class OuttakeTest extends LinearOpMode {
 
 		} finally {
 			ses.shutdownNow();
+			Robot.dumpNodeTimings();
 		}
 	}
 }
\ No newline at end of file
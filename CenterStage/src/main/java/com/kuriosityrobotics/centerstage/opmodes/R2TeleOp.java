@@ -2,8 +2,10 @@ package com.kuriosityrobotics.centerstage.opmodes;
 
 import com.kuriosityrobotics.centerstage.hardware.HardwareProviderImpl;
 import com.kuriosityrobotics.centerstage.localisation.OdometryIntegrator;
+import com.kuriosityrobotics.centerstage.localisation.replay.LocalisationRecorder;
 import com.kuriosityrobotics.centerstage.teleop.Robot;
 import com.kuriosityrobotics.centerstage.teleop.TeleopController;
+import com.kuriosityrobotics.centerstage.test.Tester;
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
 
@@ -12,11 +14,12 @@ public class R2TeleOp extends LinearOpMode {
 	@Override
 	public void runOpMode() throws InterruptedException {
 		var ses = Robot.createScheduledExecutor();
+		LocalisationRecorder recorder = null;
 		try {
-			var hardwareProvider = new HardwareProviderImpl(hardwareMap);
+			var hardwareProvider = Robot.createCoalescingHardwareProvider(ses, new HardwareProviderImpl(hardwareMap));
 			var bulkDataFetcher = Robot.createBulkDataFetcher(ses, hardwareProvider);
 
-			var dt = Robot.createDrivetrainNode(hardwareProvider);
+			var dt = Robot.createDrivetrainNode(hardwareProvider, bulkDataFetcher);
 
 			var mechanisms = Robot.createMechanismManager(hardwareProvider, bulkDataFetcher);
 
@@ -28,6 +31,11 @@ public class R2TeleOp extends LinearOpMode {
 
 			var imu = Robot.createIMUNode(hardwareProvider);
 			var odometryIntegrator = new OdometryIntegrator(ses, imu, bulkDataFetcher);
+			recorder = Robot.startLocalisationRecording(bulkDataFetcher, odometryIntegrator);
+
+			var tester = new Tester(ses, telemetry, gamepad1);
+			tester.nodeTimings();
+			Robot.reportLocalisationMetrics(ses, tester, odometryIntegrator);
 
 			waitForStart();
 
@@ -37,6 +45,8 @@ public class R2TeleOp extends LinearOpMode {
 			}
 		} finally {
 			ses.shutdownNow();
+			Robot.dumpNodeTimings();
+			Robot.stopLocalisationRecording(recorder);
 		}
 	}
 }
\ No newline at end of file
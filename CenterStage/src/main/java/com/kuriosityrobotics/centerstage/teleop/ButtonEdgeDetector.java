@@ -1,5 +1,8 @@
 package com.kuriosityrobotics.centerstage.teleop;
 
+import com.kuriosityrobotics.centerstage.concurrent.ControlLoopScheduler;
+import com.kuriosityrobotics.centerstage.metrics.NodeTimers;
+import com.kuriosityrobotics.centerstage.util.Duration;
 import com.kuriosityrobotics.centerstage.util.ExceptionRunnable;
 import com.qualcomm.robotcore.hardware.Gamepad;
 
@@ -11,9 +14,11 @@ import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 
+import static com.kuriosityrobotics.centerstage.concurrent.ControlLoopScheduler.Phase.SENSE;
+import static com.kuriosityrobotics.centerstage.concurrent.ControlLoopScheduler.Priority.NORMAL;
+
 public class ButtonEdgeDetector {
 	private final Logger logger = LoggerFactory.getLogger(ButtonEdgeDetector.class);
 	private final Gamepad gp;
@@ -24,11 +29,16 @@ public class ButtonEdgeDetector {
 
 	private final ScheduledExecutorService ses;
 
-	public ButtonEdgeDetector(ScheduledExecutorService ses, Gamepad gp) {
+	/**
+	 * @param name the gamepad's name, such as <code>gamepad1</code>, which names its loop
+	 */
+	public ButtonEdgeDetector(ScheduledExecutorService ses, Gamepad gp, String name) {
 		this.ses = ses;
 		this.gp = gp;
 
-		ses.scheduleWithFixedDelay(this::publish, 0, 1000 / 50, TimeUnit.MILLISECONDS);
+		var period = Duration.ofMillis(1000 / 50);
+		ControlLoopScheduler.schedule(ses, name + " buttons", period, SENSE, NORMAL,
+			NodeTimers.forNode(name + " buttons", period).wrap(this::publish));
 	}
 
 	public void onRising(Button button, ExceptionRunnable<InterruptedException> callback) {
@@ -2,23 +2,39 @@ package com.kuriosityrobotics.centerstage.teleop;
 
 import com.kuriosityrobotics.centerstage.bulkdata.BulkDataFetcher;
 import com.kuriosityrobotics.centerstage.cameras.CameraNode;
+import com.kuriosityrobotics.centerstage.hardware.CoalescingHardwareProvider;
 import com.kuriosityrobotics.centerstage.hardware.HardwareProvider;
+import com.kuriosityrobotics.centerstage.hardware.simulation.MecanumDriveModel;
+import com.kuriosityrobotics.centerstage.hardware.simulation.MotorModel;
+import com.kuriosityrobotics.centerstage.hardware.simulation.SimulatedHardwareProvider;
+import com.kuriosityrobotics.centerstage.localisation.Odometry;
 import com.kuriosityrobotics.centerstage.localisation.CorrectedIMU;
+import com.kuriosityrobotics.centerstage.localisation.OdometryIntegrator;
+import com.kuriosityrobotics.centerstage.localisation.replay.LocalisationRecorder;
 import com.kuriosityrobotics.centerstage.mechanisms.DrivetrainNode;
 import com.kuriosityrobotics.centerstage.mechanisms.MechanismManager;
+import com.kuriosityrobotics.centerstage.concurrent.ControlLoopScheduler;
 import com.kuriosityrobotics.centerstage.concurrent.HardwareTaskScope;
+import com.kuriosityrobotics.centerstage.concurrent.TaskTrace;
 import com.kuriosityrobotics.centerstage.mechanisms.airplane.AirplaneNode;
 import com.kuriosityrobotics.centerstage.mechanisms.airplane.AirplaneServo;
 import com.kuriosityrobotics.centerstage.mechanisms.intake.*;
 import com.kuriosityrobotics.centerstage.mechanisms.outtake.*;
 import com.kuriosityrobotics.centerstage.mechanisms.rigging.RiggingMotor;
 import com.kuriosityrobotics.centerstage.mechanisms.rigging.RiggingNode;
+import com.kuriosityrobotics.centerstage.metrics.NodeTimers;
 import com.kuriosityrobotics.centerstage.mpc.StableVoltageSensor;
+import com.kuriosityrobotics.centerstage.test.Tester;
+import com.kuriosityrobotics.centerstage.util.Clock;
+import com.kuriosityrobotics.centerstage.util.Duration;
 import com.qualcomm.robotcore.hardware.IMU;
 import org.firstinspires.ftc.robotcore.external.hardware.camera.WebcamName;
 import org.firstinspires.ftc.vision.VisionProcessor;
 
-import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
 import java.util.concurrent.ScheduledExecutorService;
 
 import static com.kuriosityrobotics.centerstage.hardware.LynxHub.CONTROL_HUB;
@@ -27,15 +43,123 @@ import static com.qualcomm.robotcore.hardware.DcMotorSimple.Direction.FORWARD;
 import static com.qualcomm.robotcore.hardware.DcMotorSimple.Direction.REVERSE;
 
 public class Robot {
-	public static ScheduledExecutorService createScheduledExecutor() {
-		return Executors.newScheduledThreadPool(32, Executors.defaultThreadFactory());
+	private static final Logger logger = LoggerFactory.getLogger(Robot.class);
+	/**
+	 * Whether autonomous opmodes record a {@link TaskTrace}.  Tracing names every scope and subtask by walking the
+	 * stack, so it is only turned on while looking into timing.
+	 */
+	public static final boolean TRACE_TASKS = false;
+	/**
+	 * Whether match opmodes record their localisation inputs with a {@link LocalisationRecorder}, to be replayed
+	 * offline.  The log is written on the bulk read thread, so it is only turned on while looking into localisation.
+	 */
+	public static final boolean RECORD_LOCALISATION = false;
+	/**
+	 * How often match opmodes log a summary of their localisation metrics.
+	 */
+	public static final Duration LOCALISATION_METRICS_PERIOD = Duration.ofSeconds(5);
+
+	/**
+	 * Creates the executor every node runs on: two control threads for the control loops, and a general pool for
+	 * everything else, including the bulk read and IMU loops, which pace themselves.
+	 */
+	public static ControlLoopScheduler createScheduledExecutor() {
+		return new ControlLoopScheduler(2, 32);
+	}
+
+	/**
+	 * Writes the timing of every node to {@link NodeTimers#DEFAULT_PATH} and logs it, then forgets it so that the next
+	 * opmode starts afresh.  Call it at the end of an opmode.
+	 */
+	public static void dumpNodeTimings() {
+		for (var timer : NodeTimers.all())
+			logger.info(timer.toString());
+
+		try {
+			NodeTimers.dump(NodeTimers.DEFAULT_PATH);
+		} catch (IOException e) {
+			logger.warn("Could not write node timings to " + NodeTimers.DEFAULT_PATH, e);
+		}
+		NodeTimers.clear();
+	}
+
+	/**
+	 * Starts a {@link TaskTrace} if {@link #TRACE_TASKS} is set.
+	 *
+	 * @return the trace, or null if tracing is off
+	 */
+	public static TaskTrace startTaskTrace() {
+		return TRACE_TASKS ? TaskTrace.start() : null;
+	}
+
+	/**
+	 * Stops recording <code>trace</code> and writes it to {@link TaskTrace#DEFAULT_PATH}, to be opened in a trace
+	 * viewer.  Call it at the end of an opmode which {@linkplain #startTaskTrace() started} it; it does nothing if
+	 * <code>trace</code> is null.
+	 */
+	public static void dumpTaskTrace(TaskTrace trace) {
+		if (trace == null)
+			return;
+
+		trace.stop();
+		if (trace.dropped() > 0)
+			logger.warn("Task trace was full; dropped " + trace.dropped() + " events");
+
+		try {
+			trace.dump(TaskTrace.DEFAULT_PATH);
+		} catch (IOException e) {
+			logger.warn("Could not write task trace to " + TaskTrace.DEFAULT_PATH, e);
+		}
+	}
+
+	/**
+	 * Starts recording <code>odometry</code>'s inputs to {@link LocalisationRecorder#DEFAULT_PATH} if
+	 * {@link #RECORD_LOCALISATION} is set.  Call it once the odometry is constructed, and before it is reset.
+	 *
+	 * @return the recorder, or null if recording is off or the log could not be opened
+	 */
+	public static LocalisationRecorder startLocalisationRecording(BulkDataFetcher bdf, OdometryIntegrator odometry) {
+		if (!RECORD_LOCALISATION)
+			return null;
+
+		try {
+			return new LocalisationRecorder(bdf, odometry);
+		} catch (IOException e) {
+			logger.warn("Could not record localisation to " + LocalisationRecorder.DEFAULT_PATH, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Stops <code>recorder</code>, flushing its log.  Call it at the end of an opmode which
+	 * {@linkplain #startLocalisationRecording started} it; it does nothing if <code>recorder</code> is null.
+	 */
+	public static void stopLocalisationRecording(LocalisationRecorder recorder) {
+		if (recorder == null)
+			return;
+
+		try {
+			recorder.close();
+		} catch (IOException e) {
+			logger.warn("Could not finish localisation log " + LocalisationRecorder.DEFAULT_PATH, e);
+		}
+	}
+
+	/**
+	 * Shows <code>odometry</code>'s metrics on <code>tester</code>'s telemetry, and logs a summary of them every
+	 * {@link #LOCALISATION_METRICS_PERIOD} on <code>ses</code>.
+	 */
+	public static void reportLocalisationMetrics(ScheduledExecutorService ses, Tester tester, OdometryIntegrator odometry) {
+		tester.header("[Localisation]");
+		odometry.getMetrics().addTo(tester);
+		odometry.getMetrics().startLogging(ses, LOCALISATION_METRICS_PERIOD);
 	}
 
 	private static Outtake createOuttake(HardwareProvider hp, BulkDataFetcher bdf) throws InterruptedException {
 		try (var scope = HardwareTaskScope.open()) {
 			var slides = scope.fork(() -> new OuttakeExtensionSlides(
-				new OuttakeMotor(bdf.notifier(CONTROL_HUB), hp.motor(CONTROL_HUB, 1, REVERSE)),
-				new OuttakeMotor(bdf.notifier(CONTROL_HUB), hp.motor(CONTROL_HUB, 0, FORWARD))
+				new OuttakeMotor(bdf, CONTROL_HUB, hp.motor(CONTROL_HUB, 1, REVERSE)),
+				new OuttakeMotor(bdf, CONTROL_HUB, hp.motor(CONTROL_HUB, 0, FORWARD))
 			));
 
 			var arm = scope.fork(() -> new OuttakeArm(
@@ -64,7 +188,7 @@ public class Robot {
 	private static Intake createIntake(HardwareProvider hp, BulkDataFetcher bdf) throws InterruptedException {
 		try (var scope = HardwareTaskScope.open()) {
 			var intakeMotor = scope.fork(() -> new IntakeMotor(hp.motor(CONTROL_HUB, 3, FORWARD)));
-			var intakeExtensionMotor = scope.fork(() -> new IntakeExtensionMotor(bdf.notifier(CONTROL_HUB), hp.motor(CONTROL_HUB, 2, REVERSE)));
+			var intakeExtensionMotor = scope.fork(() -> new IntakeExtensionMotor(bdf, CONTROL_HUB, hp.motor(CONTROL_HUB, 2, REVERSE)));
 			var intakeContainer = scope.fork(() -> new IntakeContainer(
 				new IntakeContainerServo.Left(hp.servo(EXPANSION_HUB, 4)),
 				new IntakeContainerServo.Right(hp.servo(EXPANSION_HUB, 3)),
@@ -105,13 +229,60 @@ public class Robot {
 		);
 	}
 
-	public static DrivetrainNode createDrivetrainNode(HardwareProvider hp){
-		return new DrivetrainNode(
+	/**
+	 * Wraps <code>hp</code> so that redundant motor and servo writes are skipped, and the rest are flushed once per
+	 * drivetrain update, drivetrain first.
+	 */
+	public static CoalescingHardwareProvider createCoalescingHardwareProvider(ScheduledExecutorService ses, HardwareProvider hp) {
+		var coalescing = new CoalescingHardwareProvider(ses, hp, Duration.ofMillis(1000 / 50));
+		coalescing.prioritise(EXPANSION_HUB, 0, 1, 2, 3); // drivetrain
+		return coalescing;
+	}
+
+	/**
+	 * Creates a simulation of this robot: its drivetrain and odometry, plugged in as {@link #createDrivetrainNode} and
+	 * {@link Odometry} expect, and its slides, which stall against their ends.
+	 */
+	public static SimulatedHardwareProvider createSimulatedHardwareProvider(Clock clock) {
+		var hp = new SimulatedHardwareProvider(clock);
+
+		// 312 RPM, 537.7 ticks per revolution motors on 96mm mecanum wheels
+		var driveTicksPerMetre = 537.7 / (2 * Math.PI * 0.048);
+		var frontLeft = new MotorModel(312 * 537.7 / 60, 0.08, 9.2);
+		var frontRight = new MotorModel(312 * 537.7 / 60, 0.08, 9.2);
+		var backLeft = new MotorModel(312 * 537.7 / 60, 0.08, 9.2);
+		var backRight = new MotorModel(312 * 537.7 / 60, 0.08, 9.2);
+		hp.setMotorModel(EXPANSION_HUB, 1, frontLeft);
+		hp.setMotorModel(EXPANSION_HUB, 2, frontRight);
+		hp.setMotorModel(EXPANSION_HUB, 0, backLeft);
+		hp.setMotorModel(EXPANSION_HUB, 3, backRight);
+
+		var drive = new MecanumDriveModel(driveTicksPerMetre, 0.315)
+			.withWheel(MecanumDriveModel.Wheel.FRONT_LEFT, frontLeft, FORWARD)
+			.withWheel(MecanumDriveModel.Wheel.FRONT_RIGHT, frontRight, REVERSE)
+			.withWheel(MecanumDriveModel.Wheel.BACK_LEFT, backLeft, FORWARD)
+			.withWheel(MecanumDriveModel.Wheel.BACK_RIGHT, backRight, REVERSE);
+		hp.setDrive(drive);
+		hp.connectEncoder(EXPANSION_HUB, Odometry.FORWARDS_ODO_PORT, drive.forwardsPod());
+		hp.connectEncoder(EXPANSION_HUB, Odometry.SIDEWAYS_ODO_PORT, drive.sidewaysPod());
+
+		// slides, in raw ticks; the reversed motors extend towards negative ticks
+		hp.setMotorModel(CONTROL_HUB, 0, new MotorModel().withLimits(0, 0.65 * OuttakeMotor.TICKS_PER_METRE));
+		hp.setMotorModel(CONTROL_HUB, 1, new MotorModel().withLimits(-0.65 * OuttakeMotor.TICKS_PER_METRE, 0));
+		hp.setMotorModel(CONTROL_HUB, 2, new MotorModel().withLimits(-0.7 * IntakeExtensionMotor.TICKS_PER_METER, 0));
+
+		return hp;
+	}
+
+	public static DrivetrainNode createDrivetrainNode(HardwareProvider hp, BulkDataFetcher bdf) {
+		var drivetrain = new DrivetrainNode(
 			hp.motor(EXPANSION_HUB, 1, FORWARD),
 			hp.motor(EXPANSION_HUB, 2, REVERSE),
 			hp.motor(EXPANSION_HUB, 0, FORWARD),
 			hp.motor(EXPANSION_HUB, 3, REVERSE)
 		);
+		drivetrain.monitorCurrent(bdf.currentMonitor(), EXPANSION_HUB);
+		return drivetrain;
 	}
 
 	public static CorrectedIMU createIMUNode(HardwareProvider hp) {
@@ -120,12 +291,19 @@ public class Robot {
 		);
 	}
 
+	/**
+	 * Creates a fetcher whose current monitor samples the slides often, to catch jams quickly, and the drivetrain
+	 * rarely, since it only looks for sustained over-currents.
+	 */
 	public static BulkDataFetcher createBulkDataFetcher(ScheduledExecutorService ses, HardwareProvider hp) {
-		return new BulkDataFetcher(
+		var fetcher = new BulkDataFetcher(
 			ses,
-			hp.moduleFor(CONTROL_HUB),
-			hp.moduleFor(EXPANSION_HUB)
+			hp.bulkDataSourceFor(CONTROL_HUB),
+			hp.bulkDataSourceFor(EXPANSION_HUB)
 		);
+		fetcher.currentMonitor().setSamplePeriod(CONTROL_HUB, Duration.ofMillis(20));
+		fetcher.currentMonitor().setSamplePeriod(EXPANSION_HUB, Duration.ofMillis(100));
+		return fetcher;
 	}
 
 	public static CameraNode createCameraNode(ScheduledExecutorService ses, HardwareProvider hp, VisionProcessor... vp) {
@@ -1,13 +1,16 @@
 package com.kuriosityrobotics.centerstage.teleop;
 
+import static com.kuriosityrobotics.centerstage.concurrent.ControlLoopScheduler.Phase.ACTUATE;
+import static com.kuriosityrobotics.centerstage.concurrent.ControlLoopScheduler.Priority.CRITICAL;
 import static java.lang.Math.abs;
 
+import com.kuriosityrobotics.centerstage.concurrent.ControlLoopScheduler;
 import com.kuriosityrobotics.centerstage.drive.MotorPowers;
 import com.kuriosityrobotics.centerstage.mechanisms.DrivetrainNode;
+import com.kuriosityrobotics.centerstage.util.Duration;
 import com.qualcomm.robotcore.hardware.Gamepad;
 
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 public class SimpleDrivetrainController {
 	private final Gamepad gamepad;
@@ -16,7 +19,7 @@ public class SimpleDrivetrainController {
 	public SimpleDrivetrainController(ScheduledExecutorService ses, DrivetrainNode drivetrainNode, Gamepad gamepad) {
 		this.gamepad = gamepad;
 		this.drivetrainNode = drivetrainNode;
-		ses.scheduleWithFixedDelay(this::controllerPeriodic, 0, 1000 / 20, TimeUnit.MILLISECONDS);
+		ControlLoopScheduler.schedule(ses, "simple drive", Duration.ofMillis(1000 / 20), ACTUATE, CRITICAL, this::controllerPeriodic);
 	}
 
 	public void controllerPeriodic() {
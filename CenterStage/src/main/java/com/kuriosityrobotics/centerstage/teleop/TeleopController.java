@@ -1,5 +1,6 @@
 package com.kuriosityrobotics.centerstage.teleop;
 
+import com.kuriosityrobotics.centerstage.concurrent.ControlLoopScheduler;
 import com.kuriosityrobotics.centerstage.drive.MotorPowers;
 import com.kuriosityrobotics.centerstage.mechanisms.DrivetrainNode;
 import com.kuriosityrobotics.centerstage.mechanisms.MechanismManager;
@@ -8,15 +9,19 @@ import com.kuriosityrobotics.centerstage.mechanisms.intake.IntakeExtensionMotor;
 import com.kuriosityrobotics.centerstage.mechanisms.intake.IntakeLiftServo;
 import com.kuriosityrobotics.centerstage.mechanisms.intake.IntakeSpeed;
 import com.kuriosityrobotics.centerstage.mechanisms.rigging.RiggingNode;
+import com.kuriosityrobotics.centerstage.metrics.NodeTimers;
+import com.kuriosityrobotics.centerstage.util.Duration;
 import com.qualcomm.robotcore.hardware.Gamepad;
 
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.kuriosityrobotics.centerstage.teleop.ButtonEdgeDetector.Button.*;
 import static java.lang.Math.abs;
 
+import static com.kuriosityrobotics.centerstage.concurrent.ControlLoopScheduler.Phase.ACTUATE;
+import static com.kuriosityrobotics.centerstage.concurrent.ControlLoopScheduler.Priority.CRITICAL;
+
 public class TeleopController {
 	private final Gamepad gamepad1, gamepad2;
 	private final DrivetrainNode drivetrainNode;
@@ -39,10 +44,12 @@ public class TeleopController {
 		this.drivetrainNode = drivetrainNode;
 		this.mechanisms = mechanisms;
 
-		ses.scheduleWithFixedDelay(this::updateDrivetrain, 0, 1000 / 50, TimeUnit.MILLISECONDS);
+		var period = Duration.ofMillis(1000 / 50);
+		ControlLoopScheduler.schedule(ses, "teleop drive", period, ACTUATE, CRITICAL,
+			NodeTimers.forNode("teleop drive", period).wrap(this::updateDrivetrain));
 
-		var gp1EdgeDetector = new ButtonEdgeDetector(ses, gamepad1);
-		var gp2EdgeDetector = new ButtonEdgeDetector(ses, gamepad2);
+		var gp1EdgeDetector = new ButtonEdgeDetector(ses, gamepad1, "gamepad1");
+		var gp2EdgeDetector = new ButtonEdgeDetector(ses, gamepad2, "gamepad2");
 
 		// aeroplane
 		gp1EdgeDetector.onRising(Y, aeroplaneNode::launchAirplane);
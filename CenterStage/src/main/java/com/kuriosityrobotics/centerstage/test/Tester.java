@@ -1,12 +1,17 @@
 package com.kuriosityrobotics.centerstage.test;
 
+import com.kuriosityrobotics.centerstage.concurrent.ControlLoopScheduler;
+import com.kuriosityrobotics.centerstage.metrics.NodeTimers;
+import com.kuriosityrobotics.centerstage.util.Duration;
 import com.qualcomm.robotcore.hardware.Gamepad;
 import org.firstinspires.ftc.robotcore.external.Telemetry;
 
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
+import static com.kuriosityrobotics.centerstage.concurrent.ControlLoopScheduler.Phase.REPORT;
+import static com.kuriosityrobotics.centerstage.concurrent.ControlLoopScheduler.Priority.LOW;
+
 /**
  * The Tester class is responsible for assisting in testing and debugging code.
  * It provides methods for performing assertions and confirming conditions,
@@ -32,7 +37,7 @@ public class Tester {
 		telemetry.setDisplayFormat(Telemetry.DisplayFormat.HTML);
 		telemetry.setAutoClear(false);
 
-		ses.scheduleWithFixedDelay(telemetry::update, 0, 100, TimeUnit.MILLISECONDS);
+		ControlLoopScheduler.schedule(ses, "telemetry", Duration.ofMillis(100), REPORT, LOW, telemetry::update);
 	}
 
 	private boolean userInput() throws InterruptedException {
@@ -111,6 +116,19 @@ public class Tester {
 	}
 
 
+	/**
+	 * Shows the run time, overruns and late starts of every node timed so far, one line per node.  Call it once the
+	 * nodes are constructed.
+	 */
+	public void nodeTimings() {
+		header("[Node Timing]");
+		for (var timer : NodeTimers.all()) {
+			info(timer.name() + " (p50/p99/max)", () -> String.format("%.1f/%.1f/%.1f ms, %d overruns, %d late",
+				timer.runTimeMicros().percentile(50) / 1e3, timer.runTimeMicros().percentile(99) / 1e3,
+				timer.runTimeMicros().max() / 1e3, timer.overruns(), timer.lateStarts()));
+		}
+	}
+
 	/**
 	 * Tells the user to perform an action, and waits for them to do so.
 	 * @param instruction the instruction to be displayed
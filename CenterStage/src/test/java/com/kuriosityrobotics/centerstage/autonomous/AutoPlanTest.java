@@ -0,0 +1,134 @@
+package com.kuriosityrobotics.centerstage.autonomous;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.kuriosityrobotics.centerstage.util.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+class AutoPlanTest {
+	private final AutoPlan plan = new AutoPlan();
+	private final ConcurrentMap<String, Long> starts = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Long> finishes = new ConcurrentHashMap<>();
+
+	/**
+	 * @return a step which sleeps for <code>millis</code>, and is expected to
+	 */
+	private AutoPlan.Step sleep(String name, long millis) {
+		return plan.step(name, Duration.ofMillis(millis), () -> {
+			starts.put(name, System.nanoTime());
+			Thread.sleep(millis);
+			finishes.put(name, System.nanoTime());
+		});
+	}
+
+	private double millisBetween(long from, long to) {
+		return (to - from) / 1e6;
+	}
+
+	@Test
+	void testOverlapsIndependentSteps() throws InterruptedException {
+		sleep("a", 200);
+		sleep("b", 200);
+		var report = plan.run();
+
+		assertTrue(report.actualDuration().orElseThrow().toMillis() < 350, report::toString);
+	}
+
+	@Test
+	void testWaitsForDependencies() throws InterruptedException {
+		var a = sleep("a", 50);
+		var b = sleep("b", 100);
+		sleep("c", 10).after(a, b);
+		var report = plan.run();
+
+		assertTrue(starts.get("c") >= finishes.get("a"));
+		assertTrue(starts.get("c") >= finishes.get("b"));
+		assertEquals(List.of("b", "c"), report.actualCriticalPath());
+	}
+
+	@Test
+	void testStartsWhenNearlyFinished() throws InterruptedException {
+		var drive = sleep("drive", 400);
+		sleep("slides", 100).whenRemaining(drive, Duration.ofMillis(150));
+		var report = plan.run();
+
+		double started = millisBetween(starts.get("drive"), starts.get("slides"));
+		assertTrue(started >= 240 && started < 400, "slides started " + started + " ms into the drive");
+		assertEquals(List.of("drive"), report.actualCriticalPath());
+	}
+
+	@Test
+	void testPlansCriticalPath() {
+		var a = sleep("a", 100);
+		var b = sleep("b", 300);
+		var c = sleep("c", 100).after(a, b);
+		sleep("d", 250).whenRemaining(c, Duration.ofMillis(50));
+		var report = plan.report();
+
+		assertEquals(List.of("b", "c", "d"), report.plannedCriticalPath());
+		assertEquals(600, report.plannedDuration().toMillis());
+		assertTrue(report.actualDuration().isEmpty());
+	}
+
+	@Test
+	void testPlansSlack() {
+		var a = sleep("a", 100);
+		var b = sleep("b", 300);
+		sleep("c", 100).after(a, b);
+		sleep("d", 50).after(a);
+		var slack = plan.report().plannedSlack();
+
+		assertEquals(200, slack.get("a").toMillis());
+		assertEquals(0, slack.get("b").toMillis());
+		assertEquals(0, slack.get("c").toMillis());
+		assertEquals(250, slack.get("d").toMillis());
+	}
+
+	@Test
+	void testRethrowsFailures() {
+		var a = plan.step("a", Duration.ofMillis(10), () -> {
+			throw new IllegalStateException("jammed");
+		});
+		sleep("b", 10).after(a);
+
+		var e = assertThrows(IllegalStateException.class, plan::run);
+		assertEquals("jammed", e.getMessage());
+		assertTrue(starts.isEmpty());
+	}
+
+	@Test
+	void testSkipsStepsAfterFailure() {
+		for (int i = 0; i < 20; i++) {
+			var plan = new AutoPlan();
+			var a = plan.step("a", Duration.ofMillis(20), () -> {
+				Thread.sleep(20);
+				throw new IllegalStateException("jammed");
+			});
+			var b = plan.step("b", Duration.ofMillis(10), () -> starts.put("b", System.nanoTime()))
+				.after(a);
+			plan.step("c", Duration.ofMillis(10), () -> starts.put("c", System.nanoTime()))
+				.whenRemaining(a, Duration.ofMillis(1));
+			plan.step("d", Duration.ofMillis(10), () -> starts.put("d", System.nanoTime()))
+				.after(b);
+
+			assertThrows(IllegalStateException.class, plan::run);
+		}
+		assertTrue(starts.isEmpty(), starts.toString());
+	}
+
+	@Test
+	void testOnlyWaitsForEarlierSteps() {
+		var a = sleep("a", 10);
+		var b = sleep("b", 10);
+		assertThrows(IllegalArgumentException.class, () -> a.after(b));
+		assertThrows(IllegalArgumentException.class, () -> a.after(a));
+		assertThrows(IllegalArgumentException.class, () -> b.after(new AutoPlan().step("c", Duration.ofMillis(10), () -> {})));
+	}
+}
@@ -0,0 +1,68 @@
+package com.kuriosityrobotics.centerstage.autonomous.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.kuriosityrobotics.centerstage.autonomous.Alliance;
+import com.kuriosityrobotics.centerstage.cameras.SpikeLocation;
+import com.kuriosityrobotics.centerstage.math.Pose;
+import com.kuriosityrobotics.centerstage.mpc.DriveRecord;
+import com.kuriosityrobotics.centerstage.util.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+
+class AutoSimulatorTest {
+	private static final DriveRecord ONE_METRE = new DriveRecord.Builder(new Pose(0, 0, 0))
+		.goTo(new Pose(1, 0, 0))
+		.build();
+
+	@Test
+	void testFollowsPathInAboutItsTime() {
+		double time = new DriveModel().timeToFollow(ONE_METRE).toSeconds();
+		assertTrue(time >= ONE_METRE.maxTime() - 0.5 && time < ONE_METRE.maxTime() + 1.5, "took " + time + " s");
+	}
+
+	@Test
+	void testSlowerRobotTakesLonger() {
+		var slow = new DriveModel(0.5, 1, 2, 5).timeToFollow(ONE_METRE);
+		assertTrue(slow.isGreaterThan(new DriveModel().timeToFollow(ONE_METRE)));
+		assertTrue(slow.toSeconds() >= 2, "took " + slow.toSeconds() + " s");
+	}
+
+	@Test
+	void testSimulatesEveryAllianceAndSpike() throws InterruptedException {
+		var routes = new LinkedHashMap<String, AutoSimulator.Route>();
+		routes.put("drive", (plan, alliance, spike) -> plan.drive("drive", ONE_METRE));
+		routes.put("drive and move", (plan, alliance, spike) -> {
+			var drive = plan.drive("drive", ONE_METRE);
+			plan.move("move", Duration.ofMillis(spike.ordinal() * 100L)).after(drive);
+		});
+
+		var results = new AutoSimulator().simulate(routes);
+		assertEquals(2 * Alliance.values().length * SpikeLocation.values().length, results.size());
+		assertEquals("drive", results.get(0).route());
+		assertEquals(Alliance.RED, results.get(0).alliance());
+		assertEquals(SpikeLocation.values()[0], results.get(0).spike());
+
+		var drive = results.get(0).duration();
+		var last = results.get(results.size() - 1);
+		assertEquals(List.of("drive", "move"), last.report().plannedCriticalPath());
+		assertEquals(drive.toMillis() + (SpikeLocation.values().length - 1) * 100L, last.duration().toMillis());
+		assertTrue(results.stream().allMatch(AutoSimulator.Result::fits));
+	}
+
+	@Test
+	void testCyclesTakeLonger() {
+		var simulator = new AutoSimulator();
+		var routes = AutoSimulator.boardRoutes();
+		for (var spike : SpikeLocation.values()) {
+			var park = simulator.simulate("park", routes.get("board, park backstage"), Alliance.BLUE, spike);
+			var cycle = simulator.simulate("cycle", routes.get("board, 1 cycle"), Alliance.BLUE, spike);
+			assertTrue(cycle.duration().isGreaterThan(park.duration()));
+			assertEquals("purple preload", cycle.report().plannedCriticalPath().get(0));
+		}
+	}
+}
@@ -0,0 +1,196 @@
+package com.kuriosityrobotics.centerstage.bulkdata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.kuriosityrobotics.centerstage.hardware.LynxHub;
+import com.kuriosityrobotics.centerstage.metrics.NodeTimers;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.kuriosityrobotics.centerstage.util.Duration;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class BulkDataFetcherTest {
+	/**
+	 * Pretends to be a hub whose encoders count up by one at every read.
+	 */
+	private static class CountingSource implements BulkDataSource {
+		int reads;
+
+		@Override
+		public void read(RevHubBulkData data) {
+			reads++;
+			for (int i = 0; i < RevHubBulkData.MOTOR_PORTS; i++)
+				data.set(i, reads + i, 20 * reads);
+			for (int i = 0; i < RevHubBulkData.ANALOG_INPUTS; i++)
+				data.setAnalogInput(i, 0);
+			for (int i = 0; i < RevHubBulkData.DIGITAL_CHANNELS; i++)
+				data.setDigitalInput(i, (reads & 1) == 0);
+		}
+	}
+
+	private static class Sum {
+		long value;
+	}
+
+	@AfterEach
+	void clearNodeTimers() {
+		NodeTimers.clear();
+	}
+
+	@Test
+	void testDispatch() {
+		var fetcher = new BulkDataFetcher(new CountingSource(), new CountingSource());
+		var positions = new int[1];
+		var velocities = new int[1];
+		var origins = new LynxHub[1];
+
+		fetcher.addExpansionHubListener(data -> origins[0] = data.origin());
+		fetcher.addEncoderListener(LynxHub.EXPANSION_HUB, 2, (position, velocity) -> {
+			positions[0] = position;
+			velocities[0] = velocity;
+		});
+
+		fetcher.read(LynxHub.EXPANSION_HUB);
+		fetcher.read(LynxHub.EXPANSION_HUB);
+
+		assertEquals(LynxHub.EXPANSION_HUB, origins[0]);
+		assertEquals(4, positions[0]);
+		assertEquals(40, velocities[0]);
+		assertThrows(IllegalArgumentException.class, () -> fetcher.addEncoderListener(LynxHub.CONTROL_HUB, 4, (position, velocity) -> {}));
+	}
+
+	@Test
+	void testRecyclesUnlessRetained() {
+		var fetcher = new BulkDataFetcher(new CountingSource(), new CountingSource());
+		var last = new RevHubBulkData[1];
+		var retain = new boolean[1];
+		fetcher.addControlHubListener(data -> last[0] = retain[0] ? data.retain() : data);
+
+		fetcher.read(LynxHub.CONTROL_HUB);
+		var first = last[0];
+		fetcher.read(LynxHub.CONTROL_HUB);
+		assertSame(first, last[0]);
+		assertThrows(IllegalStateException.class, first::retain); // already recycled
+
+		retain[0] = true;
+		fetcher.read(LynxHub.CONTROL_HUB);
+		var retained = last[0];
+		retain[0] = false;
+		fetcher.read(LynxHub.CONTROL_HUB);
+		assertNotSame(retained, last[0]);
+		assertEquals(3, retained.encoder(0)); // retained data is not overwritten
+
+		retained.release();
+		assertThrows(IllegalStateException.class, retained::release);
+		assertEquals(2, fetcher.allocated(LynxHub.CONTROL_HUB));
+	}
+
+	@Test
+	void testSnapshotsPairLatestReads() {
+		var fetcher = new BulkDataFetcher(new CountingSource(), new CountingSource());
+		var snapshots = new int[1];
+		var controlHubEncoder = new int[1];
+		fetcher.addSnapshotListener(snapshot -> {
+			snapshots[0]++;
+			controlHubEncoder[0] = snapshot.controlHub.encoder(0);
+			assertTrue(snapshot.skew.toNanos() >= 0);
+		});
+
+		fetcher.read(LynxHub.CONTROL_HUB);
+		fetcher.read(LynxHub.CONTROL_HUB);
+		assertEquals(0, snapshots[0]);
+
+		fetcher.read(LynxHub.EXPANSION_HUB);
+		assertEquals(1, snapshots[0]);
+		assertEquals(2, controlHubEncoder[0]);
+		assertEquals(1, fetcher.snapshotSkew().count());
+	}
+
+	@Test
+	void testSteadyStateDoesNotAllocate() {
+		var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+
+		var fetcher = new BulkDataFetcher(new CountingSource(), new CountingSource());
+		var sum = new Sum();
+		fetcher.addExpansionHubListener(data -> sum.value += data.velocity(0));
+		fetcher.addEncoderListener(LynxHub.EXPANSION_HUB, 1, (position, velocity) -> sum.value += position);
+		fetcher.notifier(LynxHub.EXPANSION_HUB);
+
+		for (int i = 0; i < 100_000; i++) // warm up, and let the JIT compile the path
+			fetcher.read(LynxHub.EXPANSION_HUB);
+
+		long overhead = -threads.getThreadAllocatedBytes(thread) + threads.getThreadAllocatedBytes(thread);
+		long before = threads.getThreadAllocatedBytes(thread);
+		for (int i = 0; i < 10_000; i++)
+			fetcher.read(LynxHub.EXPANSION_HUB);
+		long allocated = threads.getThreadAllocatedBytes(thread) - before - overhead;
+
+		assertEquals(0, allocated, "bytes allocated by 10000 reads");
+		assertEquals(1, fetcher.allocated(LynxHub.EXPANSION_HUB));
+		assertTrue(sum.value > 0);
+	}
+
+	@Test
+	void testDemandedRate() throws InterruptedException {
+		var fetcher = new BulkDataFetcher(new CountingSource(), Duration.ofMillis(10), new CountingSource(), Duration.ofMillis(20));
+		assertEquals(0, fetcher.demandedRate(LynxHub.CONTROL_HUB));
+
+		var slow = fetcher.demand(LynxHub.CONTROL_HUB, 10);
+		assertEquals(10, fetcher.demandedRate(LynxHub.CONTROL_HUB), 1e-6);
+
+		var fast = fetcher.demand(LynxHub.CONTROL_HUB, 1000);
+		assertEquals(100, fetcher.demandedRate(LynxHub.CONTROL_HUB), 1e-6); // capped at the hub's maximum
+		assertEquals(0, fetcher.demandedRate(LynxHub.EXPANSION_HUB));
+
+		fast.close();
+		assertEquals(10, fetcher.demandedRate(LynxHub.CONTROL_HUB), 1e-6);
+		assertThrows(IllegalStateException.class, fast::renew);
+
+		slow.close();
+		var brief = fetcher.demand(LynxHub.CONTROL_HUB, 50, Duration.ofMillis(20));
+		assertEquals(50, fetcher.demandedRate(LynxHub.CONTROL_HUB), 1e-6);
+		Thread.sleep(40);
+		assertEquals(0, fetcher.demandedRate(LynxHub.CONTROL_HUB));
+
+		brief.renew(Duration.ofSeconds(1));
+		assertEquals(50, fetcher.demandedRate(LynxHub.CONTROL_HUB), 1e-6);
+		assertThrows(IllegalArgumentException.class, () -> fetcher.demand(LynxHub.CONTROL_HUB, 0));
+	}
+
+	@Test
+	void testIdlesWithoutDemand() throws InterruptedException {
+		var reads = new AtomicInteger();
+		BulkDataSource source = data -> reads.incrementAndGet();
+		var fetcher = new BulkDataFetcher(source, Duration.ofMillis(5), source, Duration.ofMillis(5));
+
+		var ses = Executors.newScheduledThreadPool(2);
+		try {
+			fetcher.start(ses);
+			Thread.sleep(100);
+			assertEquals(0, reads.get());
+
+			var demand = fetcher.demand(LynxHub.EXPANSION_HUB, 100);
+			Thread.sleep(200);
+			demand.close();
+			int demandedReads = reads.get();
+			assertTrue(demandedReads >= 5, "only " + demandedReads + " reads while demanded");
+
+			Thread.sleep(50); // let a read in progress finish
+			int settled = reads.get();
+			Thread.sleep(100);
+			assertEquals(settled, reads.get());
+		} finally {
+			ses.shutdownNow();
+		}
+	}
+}
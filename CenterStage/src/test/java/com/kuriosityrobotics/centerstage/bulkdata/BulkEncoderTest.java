@@ -0,0 +1,91 @@
+package com.kuriosityrobotics.centerstage.bulkdata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.kuriosityrobotics.centerstage.hardware.LynxHub;
+import com.kuriosityrobotics.centerstage.metrics.NodeTimers;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.DcMotorSimple;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+
+class BulkEncoderTest {
+	private static final int DIRECT_POSITION = 1000;
+
+	private int bulkPosition = 50;
+	private int directReads;
+
+	private final BulkDataFetcher fetcher = new BulkDataFetcher(data -> {
+		for (int i = 0; i < RevHubBulkData.MOTOR_PORTS; i++)
+			data.set(i, bulkPosition, 10);
+	}, data -> {});
+
+	/**
+	 * @return a motor on port 1 which counts how often it is read directly
+	 */
+	private DcMotorEx motor(DcMotorSimple.Direction direction) {
+		return (DcMotorEx) Proxy.newProxyInstance(DcMotorEx.class.getClassLoader(), new Class<?>[]{DcMotorEx.class}, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "getDirection":
+					return direction;
+				case "getPortNumber":
+					return 1;
+				case "getCurrentPosition":
+					directReads++;
+					return DIRECT_POSITION;
+				case "getVelocity":
+					directReads++;
+					return 0.;
+			}
+			throw new UnsupportedOperationException(method.getName());
+		});
+	}
+
+	@AfterEach
+	void clearNodeTimers() {
+		NodeTimers.clear();
+	}
+
+	@Test
+	void testReadsFromBulkData() {
+		var encoder = new BulkEncoder(fetcher, LynxHub.CONTROL_HUB, motor(DcMotorSimple.Direction.REVERSE), 100);
+		assertEquals(DIRECT_POSITION, encoder.getPositionTicks()); // nothing read yet
+		assertEquals(1, directReads);
+
+		fetcher.read(LynxHub.CONTROL_HUB);
+		fetcher.read(LynxHub.CONTROL_HUB);
+		assertEquals(-50, encoder.getPositionTicks());
+		assertEquals(-0.1, encoder.getVelocityMeters(), 1e-9);
+		assertEquals(1, directReads);
+
+		encoder.updateOffsetToMatch(2);
+		assertEquals(2, encoder.getPositionMeters(), 1e-9);
+		assertEquals(-50, encoder.toTicks(2));
+		assertEquals(1, encoder.toMetres(-150), 1e-9);
+	}
+
+	@Test
+	void testInvalidate() {
+		var encoder = new BulkEncoder(fetcher, LynxHub.CONTROL_HUB, motor(DcMotorSimple.Direction.FORWARD), 100);
+		fetcher.read(LynxHub.CONTROL_HUB);
+		fetcher.read(LynxHub.CONTROL_HUB);
+		assertEquals(50, encoder.getPositionTicks());
+
+		encoder.invalidate();
+		bulkPosition = 0;
+		fetcher.read(LynxHub.CONTROL_HUB); // may have started before the invalidation
+		assertEquals(DIRECT_POSITION, encoder.getPositionTicks());
+		fetcher.read(LynxHub.CONTROL_HUB);
+		assertEquals(0, encoder.getPositionTicks());
+	}
+
+	@Test
+	void testDemandsReads() {
+		new BulkEncoder(fetcher, LynxHub.CONTROL_HUB, motor(DcMotorSimple.Direction.FORWARD), 100);
+		assertEquals(1e9 / BulkDataFetcher.DEFAULT_READ_PERIOD.toNanos(), fetcher.demandedRate(LynxHub.CONTROL_HUB), 1e-6);
+		assertEquals(0, fetcher.demandedRate(LynxHub.EXPANSION_HUB));
+	}
+}
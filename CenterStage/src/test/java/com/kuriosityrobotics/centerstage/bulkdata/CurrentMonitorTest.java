@@ -0,0 +1,181 @@
+package com.kuriosityrobotics.centerstage.bulkdata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.kuriosityrobotics.centerstage.hardware.LynxHub;
+import com.kuriosityrobotics.centerstage.metrics.NodeTimers;
+import com.kuriosityrobotics.centerstage.util.Duration;
+import com.kuriosityrobotics.centerstage.util.Instant;
+import com.kuriosityrobotics.centerstage.util.ManualClock;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class CurrentMonitorTest {
+	private final ManualClock clock = new ManualClock(Instant.createInstant(0));
+
+	private double current;
+	private int velocity;
+	private int currentReads;
+
+	private final BulkDataFetcher fetcher = new BulkDataFetcher(data -> {
+		for (int i = 0; i < RevHubBulkData.MOTOR_PORTS; i++)
+			data.set(i, 0, velocity);
+	}, data -> {});
+	private final CurrentMonitor monitor = new CurrentMonitor(fetcher, Runnable::run, clock); // samples before read returns
+
+	/**
+	 * A motor on port 2 whose current is {@link #current}, counting how often it is read.
+	 */
+	private final DcMotorEx motor = (DcMotorEx) Proxy.newProxyInstance(DcMotorEx.class.getClassLoader(), new Class<?>[]{DcMotorEx.class}, (proxy, method, args) -> {
+		switch (method.getName()) {
+			case "getPortNumber":
+				return 2;
+			case "getCurrent":
+				currentReads++;
+				return current;
+		}
+		throw new UnsupportedOperationException(method.getName());
+	});
+
+	private void readAfter(long millis) {
+		clock.advance(Duration.ofMillis(millis));
+		fetcher.read(LynxHub.CONTROL_HUB);
+	}
+
+	@AfterEach
+	void clearNodeTimers() {
+		NodeTimers.clear();
+	}
+
+	@Test
+	void testTripsOnceAfterTripTime() {
+		var events = new ArrayList<CurrentMonitor.Event>();
+		monitor.events().subscribe(events::add);
+		var watch = monitor.watch(LynxHub.CONTROL_HUB, "slide", motor, 5, 20, Duration.ofMillis(60));
+
+		current = 8;
+		readAfter(20); // stalled from here
+		readAfter(20);
+		readAfter(20);
+		assertEquals(0, watch.trips());
+
+		readAfter(20);
+		assertEquals(1, watch.trips());
+		assertSame(watch, events.get(0).watch);
+		assertEquals(8, events.get(0).current);
+
+		readAfter(20);
+		readAfter(20);
+		assertEquals(1, watch.trips(), "one stall should trip once");
+
+		current = 1;
+		readAfter(20);
+		current = 8;
+		for (int i = 0; i < 4; i++)
+			readAfter(20);
+		assertEquals(2, watch.trips());
+	}
+
+	@Test
+	void testMovingMotorDoesNotTrip() {
+		var watch = monitor.watch(LynxHub.CONTROL_HUB, "slide", motor, 5, 20, Duration.ofMillis(60));
+
+		current = 8;
+		velocity = -500; // accelerating hard, in reverse
+		for (int i = 0; i < 10; i++)
+			readAfter(20);
+		assertEquals(0, watch.trips());
+		assertEquals(8, watch.peakCurrent());
+	}
+
+	@Test
+	void testSamplesAtMostOncePerPeriod() {
+		monitor.setSamplePeriod(LynxHub.CONTROL_HUB, Duration.ofMillis(50));
+		monitor.watch(LynxHub.CONTROL_HUB, "slide", motor, 5, Duration.ofMillis(60));
+
+		for (int i = 0; i < 10; i++)
+			readAfter(10);
+		assertEquals(2, currentReads);
+	}
+
+	@Test
+	void testInactiveWatchIsNotSampled() {
+		var watch = monitor.watch(LynxHub.CONTROL_HUB, "slide", motor, 5, Duration.ofMillis(60));
+		assertTrue(fetcher.demandedRate(LynxHub.CONTROL_HUB) > 0);
+
+		watch.setActive(false);
+		assertEquals(0, fetcher.demandedRate(LynxHub.CONTROL_HUB));
+		current = 8;
+		for (int i = 0; i < 10; i++)
+			readAfter(20);
+		assertEquals(0, currentReads);
+		assertEquals(0, watch.trips());
+	}
+
+	@Test
+	void testSmoothsCurrent() {
+		var watch = monitor.watch(LynxHub.CONTROL_HUB, "slide", motor, 100, Duration.ofMillis(60));
+
+		current = 4;
+		readAfter(20);
+		assertEquals(4, watch.meanCurrent(), 1e-9);
+
+		current = 0;
+		readAfter(20);
+		assertEquals(3, watch.meanCurrent(), 1e-9);
+		assertEquals(0, watch.lastCurrent());
+		assertEquals(4, watch.peakCurrent());
+	}
+
+	@Test
+	void testSlowCurrentReadDoesNotDelayInlineListeners() throws InterruptedException {
+		var executor = Executors.newSingleThreadExecutor();
+		var reading = new CountDownLatch(1);
+		var release = new CountDownLatch(1);
+		var slowMotor = (DcMotorEx) Proxy.newProxyInstance(DcMotorEx.class.getClassLoader(), new Class<?>[]{DcMotorEx.class}, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "getPortNumber":
+					return 2;
+				case "getCurrent":
+					reading.countDown();
+					release.await(); // a transaction stuck on the bus
+					return 8.0;
+			}
+			throw new UnsupportedOperationException(method.getName());
+		});
+
+		try {
+			var slowMonitor = new CurrentMonitor(fetcher, executor, clock);
+			var watch = slowMonitor.watch(LynxHub.CONTROL_HUB, "slide", slowMotor, 5, Duration.ofMillis(60));
+			var inline = new AtomicInteger();
+			fetcher.topic(LynxHub.CONTROL_HUB).subscribe(data -> inline.incrementAndGet());
+
+			readAfter(20);
+			assertTrue(reading.await(1, TimeUnit.SECONDS));
+			for (int i = 0; i < 5; i++)
+				readAfter(20); // would block behind the stuck read if it were inline
+			assertEquals(6, inline.get());
+			assertFalse(watch.lastCurrent() > 0);
+
+			release.countDown();
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+			assertEquals(8, watch.lastCurrent());
+		} finally {
+			release.countDown();
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package com.kuriosityrobotics.centerstage.cameras;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.kuriosityrobotics.centerstage.math.Pose;
+
+import org.junit.jupiter.api.Test;
+
+class TagRegionPredictorTest {
+	private final TagRegionPredictor predictor = new TagRegionPredictor(AprilTagOdometryAnalyzer.RED_TEAM, 622.001, 622.001, 319.803, 241.251);
+
+	@Test
+	void testFacingBackdrop() {
+		// camera (at the back of the robot) 1m from the centre tag, facing it
+		var region = predictor.predict(new Pose(3.42 - 1.2, 0.89, Math.PI), 640, 480).orElseThrow();
+
+		assertTrue(region.x > 0 && region.x + region.width < 640, "tags should be near the middle");
+		assertTrue(region.width * region.height < 640 * 480 / 2, "region should be much smaller than the frame");
+		assertEquals(320, region.x + region.width / 2., 10);
+		assertEquals(622.001 * TagRegionPredictor.TAG_SIZE / 1.0, region.smallestTagPixels, 1e-6);
+	}
+
+	@Test
+	void testFacingAway() {
+		assertTrue(predictor.predict(new Pose(2.2, 0.89, 0), 640, 480).isEmpty());
+	}
+
+	@Test
+	void testTagsOffToTheSide() {
+		// backdrop is to the robot's left; the camera faces the right-hand wall
+		assertTrue(predictor.predict(new Pose(3.0, 0.89, Math.PI / 2), 640, 480).isEmpty());
+	}
+}
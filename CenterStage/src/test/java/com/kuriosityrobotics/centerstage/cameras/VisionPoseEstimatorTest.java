@@ -0,0 +1,208 @@
+package com.kuriosityrobotics.centerstage.cameras;
+
+import static com.kuriosityrobotics.centerstage.math.MathUtil.angleWrap;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.kuriosityrobotics.centerstage.math.Pose;
+import com.kuriosityrobotics.centerstage.util.Instant;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Compares the weighted multi-tag estimator against averaging the single-tag estimates.
+ * <p>
+ * Uses the detection set in <code>detections.csv</code> on the test classpath if there is one, with columns
+ * <code>frame,id,x,y,yaw,range,bearing,decision_margin,true_x,true_y,true_heading</code>.  Otherwise, detections
+ * are synthesised in front of the red backdrop, with noise that grows with range and occasional marginal decodes.
+ */
+class VisionPoseEstimatorTest {
+	private static final AprilTagOdometryAnalyzer ANALYZER = AprilTagOdometryAnalyzer.RED_TEAM;
+
+	@Test
+	void testSingleTagMatchesAnalyzer() {
+		var truth = new Pose(2.5, 0.9, Math.PI + 0.1);
+		var observation = observe(truth, 5, new Random(0), 0, 60);
+
+		var expected = ANALYZER.poseFor(observation).orElseThrow();
+		var estimate = new VisionPoseEstimator(ANALYZER).estimate(List.of(observation), Instant.now()).orElseThrow();
+
+		assertEquals(expected.x(), estimate.pose.x(), 1e-9);
+		assertEquals(expected.y(), estimate.pose.y(), 1e-9);
+		assertEquals(0, angleWrap(expected.orientation() - estimate.pose.orientation()), 1e-9);
+		assertEquals(truth.x(), estimate.pose.x(), 1e-9);
+		assertEquals(truth.y(), estimate.pose.y(), 1e-9);
+	}
+
+	@Test
+	void testIgnoresMarginalDecodes() {
+		var truth = new Pose(2.5, 0.9, Math.PI);
+		var good = observe(truth, 5, new Random(0), 0, 60);
+		var marginal = new TagObservation(4, good.x + 0.5, good.y, good.yaw, good.range, good.bearing, 5);
+
+		var estimate = new VisionPoseEstimator(ANALYZER).estimate(List.of(good, marginal), Instant.now()).orElseThrow();
+		assertEquals(1, estimate.tagCount);
+	}
+
+	@Test
+	void testWeightingBeatsAveraging() throws IOException {
+		var comparison = compare();
+		assertTrue(comparison.count > 0);
+		assertTrue(comparison.weightedError <= comparison.averagedError);
+	}
+
+	@Test
+	@Tag("benchmark")
+	void benchmark() throws IOException {
+		var comparison = compare();
+		System.out.printf(
+			"%d frames: mean position error %.1fmm averaged, %.1fmm weighted; mean heading error %.2fdeg averaged, %.2fdeg weighted; %.1fus per frame%n",
+			comparison.count, 1000 * comparison.averagedError / comparison.count, 1000 * comparison.weightedError / comparison.count,
+			Math.toDegrees(comparison.averagedHeadingError / comparison.count), Math.toDegrees(comparison.weightedHeadingError / comparison.count),
+			comparison.weightedNanos / 1000. / comparison.frames);
+	}
+
+	/**
+	 * The summed errors of both estimators over every frame, and the time the weighted one took.
+	 */
+	private static class Comparison {
+		int frames, count;
+		double averagedError, weightedError;
+		double averagedHeadingError, weightedHeadingError;
+		long weightedNanos;
+	}
+
+	private static Comparison compare() throws IOException {
+		var frames = loadRecordedFrames().orElseGet(VisionPoseEstimatorTest::synthesiseFrames);
+		var estimator = new VisionPoseEstimator(ANALYZER);
+		var comparison = new Comparison();
+		comparison.frames = frames.size();
+
+		for (var frame : frames) {
+			var averaged = averagePose(frame.observations);
+
+			long start = System.nanoTime();
+			var weighted = estimator.estimate(frame.observations, Instant.now());
+			comparison.weightedNanos += System.nanoTime() - start;
+
+			if (averaged.isEmpty() || weighted.isEmpty())
+				continue;
+
+			comparison.count++;
+			comparison.averagedError += averaged.get().distance(frame.truth);
+			comparison.weightedError += weighted.get().pose.distance(frame.truth);
+			comparison.averagedHeadingError += Math.abs(angleWrap(averaged.get().orientation() - frame.truth.orientation()));
+			comparison.weightedHeadingError += Math.abs(angleWrap(weighted.get().pose.orientation() - frame.truth.orientation()));
+		}
+
+		return comparison;
+	}
+
+	/**
+	 * The previous estimator: a plain average of the single-tag estimates.
+	 */
+	private static Optional<Pose> averagePose(List<TagObservation> observations) {
+		int count = 0;
+		double x = 0, y = 0, theta = 0;
+		for (var observation : observations) {
+			var estimate = ANALYZER.poseFor(observation);
+			if (estimate.isPresent()) {
+				count++;
+				x += estimate.get().x();
+				y += estimate.get().y();
+				theta += estimate.get().orientation();
+			}
+		}
+
+		return count == 0 ? Optional.empty() : Optional.of(new Pose(x / count, y / count, theta / count));
+	}
+
+	private static class Frame {
+		final Pose truth;
+		final List<TagObservation> observations = new ArrayList<>();
+
+		Frame(Pose truth) {
+			this.truth = truth;
+		}
+	}
+
+	private static Optional<List<Frame>> loadRecordedFrames() throws IOException {
+		var stream = VisionPoseEstimatorTest.class.getClassLoader().getResourceAsStream("detections.csv");
+		if (stream == null)
+			return Optional.empty();
+
+		var frames = new LinkedHashMap<Integer, Frame>();
+		try (var reader = new BufferedReader(new InputStreamReader(stream))) {
+			reader.readLine(); // header
+			String line;
+			while ((line = reader.readLine()) != null) {
+				var f = line.split(",");
+				var frame = frames.computeIfAbsent(Integer.parseInt(f[0]),
+					k -> new Frame(new Pose(Double.parseDouble(f[8]), Double.parseDouble(f[9]), Double.parseDouble(f[10]))));
+				frame.observations.add(new TagObservation(Integer.parseInt(f[1]),
+					Double.parseDouble(f[2]), Double.parseDouble(f[3]), Double.parseDouble(f[4]),
+					Double.parseDouble(f[5]), Double.parseDouble(f[6]), Double.parseDouble(f[7])));
+			}
+		}
+
+		return Optional.of(new ArrayList<>(frames.values()));
+	}
+
+	private static List<Frame> synthesiseFrames() {
+		var random = new Random(2024);
+		var frames = new ArrayList<Frame>();
+
+		for (int i = 0; i < 2000; i++) {
+			// somewhere in front of the red backdrop, camera roughly facing it
+			var truth = new Pose(
+				2.2 + random.nextDouble() * 0.9,
+				0.5 + random.nextDouble() * 0.8,
+				Math.PI + (random.nextDouble() - 0.5) * Math.toRadians(30));
+			var frame = new Frame(truth);
+
+			for (int id : ANALYZER.tagIds()) {
+				boolean marginal = random.nextDouble() < 0.1;
+				frame.observations.add(observe(truth, id, random, marginal ? 5 : 1, marginal ? 12 + random.nextDouble() * 8 : 30 + random.nextDouble() * 70));
+			}
+			frames.add(frame);
+		}
+
+		return frames;
+	}
+
+	/**
+	 * Inverts {@link AprilTagOdometryAnalyzer#poseFor(TagObservation)} to find what the camera would see, then adds
+	 * noise which grows with range.
+	 */
+	private static TagObservation observe(Pose truth, int id, Random random, double noiseScale, double decisionMargin) {
+		var tag = ANALYZER.tagPose(id).orElseThrow();
+
+		double yaw = 2 * tag.orientation() - truth.orientation() - Math.PI;
+		double offsetAngle = truth.orientation() - tag.orientation() + Math.PI;
+
+		double dx = truth.x() - tag.x(), dy = truth.y() - tag.y();
+		double v0 = dx * Math.cos(-offsetAngle) - dy * Math.sin(-offsetAngle);
+		double v1 = dx * Math.sin(-offsetAngle) + dy * Math.cos(-offsetAngle);
+		double y = v0 - 0.2, x = -v1;
+		double range = Math.hypot(x, y);
+
+		double positionNoise = noiseScale * 0.01 * (1 + range * range);
+		double yawNoise = noiseScale * Math.toRadians(1) * (1 + range);
+		x += random.nextGaussian() * positionNoise;
+		y += random.nextGaussian() * positionNoise;
+		yaw += random.nextGaussian() * yawNoise;
+
+		return new TagObservation(id, x, y, angleWrap(yaw), Math.hypot(x, y), Math.atan2(-x, y), decisionMargin);
+	}
+}
@@ -0,0 +1,128 @@
+package com.kuriosityrobotics.centerstage.hardware;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorControllerEx;
+import com.qualcomm.robotcore.hardware.ServoControllerEx;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class ActuatorCacheTest {
+	private final List<String> writes = new ArrayList<>();
+
+	/**
+	 * @return a stub of <code>type</code> which records every call as a write
+	 */
+	private <T> T recording(Class<T> type) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+			writes.add(method.getName() + Arrays.toString(args));
+			return method.getReturnType() == double.class ? 0. : null;
+		}));
+	}
+
+	private final ActuatorCache cache = new ActuatorCache(recording(DcMotorControllerEx.class), recording(ServoControllerEx.class), 1e-3);
+
+	@Test
+	void testCoalescesUntilFlush() {
+		cache.setMotorPower(0, 0.2);
+		cache.setMotorPower(0, 0.3);
+		cache.setServoPosition(1, 0.5);
+		assertEquals(List.of(), writes);
+		assertEquals(0.3, cache.getMotorPower(0));
+
+		cache.flush();
+		assertEquals(List.of("setMotorPower[0, 0.3]", "setServoPosition[1, 0.5]"), writes);
+		assertEquals(3, cache.requested());
+		assertEquals(2, cache.performed());
+	}
+
+	@Test
+	void testSkipsRedundantWrites() {
+		cache.setMotorPower(0, 0.3);
+		cache.flush();
+		cache.setMotorPower(0, 0.3005);
+		cache.flush();
+		assertEquals(List.of("setMotorPower[0, 0.3]"), writes);
+
+		// cancelled by returning to the written value
+		cache.setMotorPower(0, 0.5);
+		cache.setMotorPower(0, 0.3);
+		cache.flush();
+		assertEquals(1, writes.size());
+	}
+
+	@Test
+	void testAlwaysWritesZero() {
+		cache.setMotorPower(0, 0.0005);
+		cache.flush();
+		cache.setMotorPower(0, 0);
+		cache.flush();
+		assertEquals(List.of("setMotorPower[0, 5.0E-4]", "setMotorPower[0, 0.0]"), writes);
+	}
+
+	@Test
+	void testPrioritisedFirst() {
+		cache.prioritise(3);
+		cache.setServoPosition(0, 1);
+		cache.setMotorPower(0, 1);
+		cache.setMotorPower(3, 1);
+		cache.flush();
+		assertEquals(List.of("setMotorPower[3, 1.0]", "setMotorPower[0, 1.0]", "setServoPosition[0, 1.0]"), writes);
+	}
+
+	@Test
+	void testModeWrittenInOrder() {
+		cache.setMotorPower(0, -0.2);
+		cache.setMotorMode(0, DcMotor.RunMode.RUN_WITHOUT_ENCODER);
+		cache.setMotorMode(0, DcMotor.RunMode.RUN_WITHOUT_ENCODER);
+		assertEquals(List.of("setMotorPower[0, -0.2]", "setMotorMode[0, RUN_WITHOUT_ENCODER]"), writes);
+
+		cache.setMotorPower(0, -0.2);
+		cache.flush();
+		assertEquals(2, writes.size());
+
+		cache.setMotorMode(0, DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+		cache.setMotorMode(0, DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+		assertEquals(4, writes.size());
+
+		// resetting the encoder stops the motor, so the power must be written again
+		cache.setMotorPower(0, -0.2);
+		cache.flush();
+		assertEquals("setMotorPower[0, -0.2]", writes.get(4));
+	}
+
+	@Test
+	void testRestoresAfterHubReset() {
+		var hubMode = new DcMotor.RunMode[]{DcMotor.RunMode.RUN_WITHOUT_ENCODER};
+		var motors = (DcMotorControllerEx) Proxy.newProxyInstance(DcMotorControllerEx.class.getClassLoader(), new Class<?>[]{DcMotorControllerEx.class}, (proxy, method, args) -> {
+			if (method.getName().equals("getMotorMode"))
+				return hubMode[0];
+
+			writes.add(method.getName() + Arrays.toString(args));
+			return null;
+		});
+		var cache = new ActuatorCache(motors, recording(ServoControllerEx.class), 1e-3);
+
+		cache.setMotorMode(0, DcMotor.RunMode.RUN_WITHOUT_ENCODER);
+		cache.setMotorPower(0, 0.4);
+		cache.setServoPosition(2, 0.7);
+		cache.flush();
+		writes.clear();
+
+		assertFalse(cache.checkForReset());
+		assertEquals(List.of(), writes);
+
+		// the hub comes back in its default mode, unpowered
+		hubMode[0] = DcMotor.RunMode.RUN_USING_ENCODER;
+		assertTrue(cache.checkForReset());
+		assertEquals(List.of("setMotorMode[0, RUN_WITHOUT_ENCODER]", "setMotorPower[0, 0.4]", "setServoPosition[2, 0.7]"), writes);
+	}
+}
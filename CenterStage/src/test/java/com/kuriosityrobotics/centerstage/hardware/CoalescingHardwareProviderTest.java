@@ -0,0 +1,131 @@
+package com.kuriosityrobotics.centerstage.hardware;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.kuriosityrobotics.centerstage.mechanisms.HardwareUtils;
+import com.kuriosityrobotics.centerstage.util.Duration;
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorControllerEx;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.PIDFCoefficients;
+import com.qualcomm.robotcore.hardware.ServoControllerEx;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+class CoalescingHardwareProviderTest {
+	private final Map<String, Object> hubState = new HashMap<>();
+	private int transactions;
+
+	/**
+	 * A motor controller which remembers what it was sent, and counts every call as a transaction.
+	 */
+	private final DcMotorControllerEx controller = (DcMotorControllerEx) Proxy.newProxyInstance(
+		DcMotorControllerEx.class.getClassLoader(),
+		new Class<?>[]{DcMotorControllerEx.class},
+		(proxy, method, args) -> {
+			transactions++;
+			var name = method.getName();
+			var key = name.substring(3) + args[0] + (args.length > 2 ? args[1] : "");
+			if (name.startsWith("set")) {
+				hubState.put(key, args[args.length - 1]);
+				return null;
+			}
+			return hubState.get(key);
+		}
+	);
+
+	private final HardwareProvider delegate = (HardwareProvider) Proxy.newProxyInstance(
+		HardwareProvider.class.getClassLoader(),
+		new Class<?>[]{HardwareProvider.class},
+		(proxy, method, args) -> method.getName().equals("motorControllerFor")
+			? controller
+			: Proxy.newProxyInstance(ServoControllerEx.class.getClassLoader(), new Class<?>[]{ServoControllerEx.class}, (p, m, a) -> null)
+	);
+
+	private final ScheduledExecutorService ses = Executors.newSingleThreadScheduledExecutor();
+	private final CoalescingHardwareProvider provider = new CoalescingHardwareProvider(ses, delegate, Duration.ofSeconds(3600));
+
+	/**
+	 * @return a motor which makes its transactions through <code>controller</code>, like DcMotorImplEx does
+	 */
+	private static DcMotorEx motor(DcMotorControllerEx controller, int port) {
+		return (DcMotorEx) Proxy.newProxyInstance(DcMotorEx.class.getClassLoader(), new Class<?>[]{DcMotorEx.class}, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "setPower":
+					controller.setMotorPower(port, (double) args[0]);
+					return null;
+				case "getPower":
+					return controller.getMotorPower(port);
+				case "setMode":
+					controller.setMotorMode(port, (DcMotor.RunMode) args[0]);
+					return null;
+				case "getMode":
+					return controller.getMotorMode(port);
+				case "setPIDFCoefficients":
+					controller.setPIDFCoefficients(port, (DcMotor.RunMode) args[0], (PIDFCoefficients) args[1]);
+					return null;
+				case "getPIDFCoefficients":
+					return controller.getPIDFCoefficients(port, (DcMotor.RunMode) args[0]);
+			}
+			throw new UnsupportedOperationException(method.getName());
+		});
+	}
+
+	@AfterEach
+	void shutdown() {
+		ses.shutdownNow();
+	}
+
+	@Test
+	void testSaveAndRestoreMotorState() {
+		var motor = motor(provider.motorControllerFor(LynxHub.CONTROL_HUB), 2);
+		motor.setMode(DcMotor.RunMode.RUN_TO_POSITION);
+		motor.setPIDFCoefficients(DcMotor.RunMode.RUN_TO_POSITION, new PIDFCoefficients(20, 0, 0, 0));
+		motor.setPIDFCoefficients(DcMotor.RunMode.RUN_USING_ENCODER, new PIDFCoefficients(5, 0, 0, 12));
+		motor.setPower(1);
+		provider.flush();
+		assertEquals(4, transactions);
+
+		var saved = HardwareUtils.saveMotorState(motor);
+		assertEquals(4, transactions); // everything saved was shadowed
+		assertEquals(20, saved.runToPositionPIDF.p);
+		assertEquals(1, saved.power);
+		assertEquals(DcMotor.RunMode.RUN_TO_POSITION, saved.runMode);
+
+		// like calibrating
+		motor.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
+		motor.setPower(-0.2);
+		provider.flush();
+		assertEquals(6, transactions);
+
+		HardwareUtils.restoreMotorState(motor, saved);
+		provider.flush();
+		assertEquals(8, transactions); // only the power and mode changed
+		assertEquals(DcMotor.RunMode.RUN_TO_POSITION, hubState.get("MotorMode2"));
+		assertEquals(1., hubState.get("MotorPower2"));
+
+		HardwareUtils.restoreMotorState(motor, saved);
+		provider.flush();
+		assertEquals(8, transactions);
+	}
+
+	@Test
+	void testCoefficientsAreCopied() {
+		var motor = motor(provider.motorControllerFor(LynxHub.CONTROL_HUB), 0);
+		var coefficients = new PIDFCoefficients(1, 2, 3, 4);
+		motor.setPIDFCoefficients(DcMotor.RunMode.RUN_USING_ENCODER, coefficients);
+		coefficients.p = 10;
+		motor.getPIDFCoefficients(DcMotor.RunMode.RUN_USING_ENCODER).p = 100;
+
+		assertEquals(1, motor.getPIDFCoefficients(DcMotor.RunMode.RUN_USING_ENCODER).p);
+		motor.setPIDFCoefficients(DcMotor.RunMode.RUN_USING_ENCODER, coefficients);
+		assertEquals(2, transactions); // changed since it was set
+	}
+}
@@ -0,0 +1,66 @@
+package com.kuriosityrobotics.centerstage.hardware;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.qualcomm.robotcore.hardware.DcMotorControllerEx;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+
+class ProfilingHardwareProviderTest {
+	/**
+	 * @return a stub of <code>type</code> whose methods do nothing and return zero
+	 */
+	private static <T> T stub(Class<T> type) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+			if (method.getName().endsWith("ControllerFor"))
+				return stub(method.getReturnType());
+
+			var returnType = method.getReturnType();
+			if (returnType == int.class)
+				return 0;
+			if (returnType == double.class)
+				return 0.;
+			if (returnType == boolean.class)
+				return false;
+			return null;
+		}));
+	}
+
+	@Test
+	void testRecordsByDeviceAndCallSite() {
+		var profiler = new BusProfiler();
+		var provider = new ProfilingHardwareProvider(stub(HardwareProvider.class), profiler);
+
+		DcMotorControllerEx controller = provider.motorControllerFor(LynxHub.CONTROL_HUB);
+		for (int i = 0; i < 3; i++)
+			controller.setMotorPower(2, 0.5);
+		controller.getMotorCurrentPosition(1);
+
+		var summaries = profiler.summarise(1);
+		assertEquals(2, summaries.size());
+
+		var power = summaries.stream().filter(s -> s.key.operation.equals("setMotorPower")).findFirst().orElseThrow();
+		assertEquals("Control Hub motor 2", power.key.device);
+		assertTrue(power.key.callSite.startsWith("ProfilingHardwareProviderTest.testRecordsByDeviceAndCallSite"), power.key.callSite);
+		assertEquals(3, power.count);
+
+		var position = summaries.stream().filter(s -> s.key.operation.equals("getMotorCurrentPosition")).findFirst().orElseThrow();
+		assertEquals("Control Hub motor 1", position.key.device);
+		assertEquals(1, position.count);
+
+		// summaries only cover the transactions since the last one
+		controller.setMotorPower(2, 0);
+		summaries = profiler.summarise(1);
+		assertEquals(1, summaries.size());
+		assertEquals(1, summaries.get(0).count);
+	}
+
+	@Test
+	void testSameControllerForHub() {
+		var provider = new ProfilingHardwareProvider(stub(HardwareProvider.class), new BusProfiler());
+		assertTrue(provider.motorControllerFor(LynxHub.CONTROL_HUB) == provider.motorControllerFor(LynxHub.CONTROL_HUB));
+	}
+}
@@ -0,0 +1,141 @@
+package com.kuriosityrobotics.centerstage.hardware.simulation;
+
+import static com.kuriosityrobotics.centerstage.hardware.LynxHub.CONTROL_HUB;
+import static com.kuriosityrobotics.centerstage.hardware.LynxHub.EXPANSION_HUB;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.kuriosityrobotics.centerstage.bulkdata.RevHubBulkData;
+import com.kuriosityrobotics.centerstage.localisation.Odometry;
+import com.kuriosityrobotics.centerstage.teleop.Robot;
+import com.kuriosityrobotics.centerstage.util.Duration;
+import com.kuriosityrobotics.centerstage.util.Instant;
+import com.kuriosityrobotics.centerstage.util.ManualClock;
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorSimple;
+import com.qualcomm.robotcore.hardware.IMU;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.CurrentUnit;
+import org.junit.jupiter.api.Test;
+
+class SimulatedHardwareProviderTest {
+	private final ManualClock clock = new ManualClock(Instant.createInstant(0));
+	private final SimulatedHardwareProvider hp = Robot.createSimulatedHardwareProvider(clock);
+
+	private void setDrivePowers(double frontLeft, double frontRight, double backLeft, double backRight) {
+		// the right side is reversed
+		var controller = hp.motorControllerFor(EXPANSION_HUB);
+		controller.setMotorPower(1, frontLeft);
+		controller.setMotorPower(2, -frontRight);
+		controller.setMotorPower(0, backLeft);
+		controller.setMotorPower(3, -backRight);
+	}
+
+	private RevHubBulkData bulkRead() {
+		var data = RevHubBulkData.of(EXPANSION_HUB, new int[4], new int[4], new double[4], new boolean[8]);
+		hp.bulkDataSourceFor(EXPANSION_HUB).read(data);
+		return data;
+	}
+
+	@Test
+	void drivingForwardsMovesTheRobotAndItsOdometry() {
+		setDrivePowers(0.5, 0.5, 0.5, 0.5);
+		clock.advance(Duration.ofSeconds(1));
+
+		var pose = hp.drive().pose();
+		assertTrue(pose.x() > 0.3, "robot should have driven forwards, but is at " + pose);
+		assertEquals(0, pose.y(), 1e-9);
+		assertEquals(0, pose.orientation(), 1e-9);
+
+		var twist = new Odometry().calculateOdometryRel(bulkRead(), 0);
+		assertTrue(twist.x() > 0.5, "odometry should read forwards, but reads " + twist);
+		assertEquals(0, twist.y(), 1e-3);
+	}
+
+	@Test
+	void odometryMatchesTheDriveWhileTurning() {
+		setDrivePowers(-0.5, 0.5, -0.5, 0.5);
+		clock.advance(Duration.ofSeconds(1));
+
+		var angularVelocity = hp.drive().angularVelocity();
+		assertTrue(angularVelocity > 0, "robot should turn anticlockwise");
+
+		var twist = new Odometry().calculateOdometryRel(bulkRead(), angularVelocity);
+		assertEquals(0, twist.x(), 1e-3);
+		assertEquals(0, twist.y(), 1e-3);
+	}
+
+	@Test
+	void imuFollowsTheHeadingUntilReset() {
+		var imu = hp.byName(IMU.class, "imu");
+		assertTrue(imu.initialize(null));
+
+		setDrivePowers(-0.5, 0.5, -0.5, 0.5);
+		clock.advance(Duration.ofMillis(500));
+
+		var heading = hp.drive().pose().orientation();
+		assertTrue(heading > 0);
+		assertEquals(heading, imu.getRobotYawPitchRollAngles().getYaw(AngleUnit.RADIANS), 1e-6);
+		assertEquals(hp.drive().angularVelocity(), imu.getRobotAngularVelocity(AngleUnit.RADIANS).zRotationRate, 1e-4);
+
+		imu.resetYaw();
+		assertEquals(0, imu.getRobotYawPitchRollAngles().getYaw(AngleUnit.RADIANS), 1e-6);
+	}
+
+	@Test
+	void slidesStallAgainstTheirEnds() {
+		var controller = hp.motorControllerFor(CONTROL_HUB);
+		controller.setMotorPower(2, -1); // reversed, so extending
+		clock.advance(Duration.ofSeconds(2));
+
+		var motor = hp.motorModel(CONTROL_HUB, 2);
+		assertEquals(-0.7 * 1320.39, controller.getMotorCurrentPosition(2), 1);
+		assertEquals(0, controller.getMotorVelocity(2), 1e-6);
+		assertEquals(MotorModel.DEFAULT_STALL_CURRENT, controller.getMotorCurrent(2, CurrentUnit.AMPS), 1e-6);
+		assertEquals(motor.current(), controller.getMotorCurrent(2, CurrentUnit.AMPS), 1e-9);
+		assertTrue(hp.voltage() < SimulatedHardwareProvider.DEFAULT_BATTERY_VOLTAGE, "battery should sag under load");
+	}
+
+	@Test
+	void runToPositionReachesItsTarget() {
+		var controller = hp.motorControllerFor(CONTROL_HUB);
+		controller.setMotorTargetPosition(0, 500);
+		controller.setMotorMode(0, DcMotor.RunMode.RUN_TO_POSITION);
+		controller.setMotorPower(0, 1);
+		assertTrue(controller.isBusy(0));
+
+		clock.advance(Duration.ofSeconds(2));
+		assertFalse(controller.isBusy(0));
+		assertEquals(500, controller.getMotorCurrentPosition(0), 10);
+
+		controller.setMotorMode(0, DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+		assertEquals(0, controller.getMotorCurrentPosition(0));
+		assertEquals(0, controller.getMotorPower(0));
+	}
+
+	@Test
+	void devicesDriveTheirHubs() {
+		var motor = hp.motor(CONTROL_HUB, 1, DcMotorSimple.Direction.REVERSE);
+		motor.setPower(0.5);
+		assertEquals(-0.5, hp.motorControllerFor(CONTROL_HUB).getMotorPower(1));
+		assertEquals(0.5, motor.getPower());
+
+		motor.setDirection(DcMotorSimple.Direction.FORWARD);
+		assertEquals(-0.5, motor.getPower());
+		assertEquals(1, motor.getPortNumber());
+
+		var servo = hp.servo(EXPANSION_HUB, 2);
+		servo.setPosition(0.25);
+		assertEquals(0.25, hp.servoModel(EXPANSION_HUB, 2).commandedPosition(), 1e-9);
+		hp.crServo(CONTROL_HUB, 1).setPower(0);
+	}
+
+	@Test
+	void nothingMovesUntilTheClockDoes() {
+		setDrivePowers(1, 1, 1, 1);
+		assertEquals(0, hp.drive().pose().x());
+		assertEquals(0, bulkRead().velocity(Odometry.FORWARDS_ODO_PORT));
+	}
+}
@@ -0,0 +1,107 @@
+package com.kuriosityrobotics.centerstage.localisation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.kuriosityrobotics.centerstage.util.Duration;
+import com.kuriosityrobotics.centerstage.util.Instant;
+import com.kuriosityrobotics.centerstage.util.ManualClock;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+class HeadingEstimatorTest {
+	private static final Instant START = Instant.createInstant(0);
+	private static final double EPSILON = 1e-9;
+
+	private final HeadingEstimator estimator = new HeadingEstimator(new ManualClock(START));
+
+	private static Instant at(long millis) {
+		return START.add(Duration.ofMillis(millis));
+	}
+
+	@Test
+	void testExtrapolatesAtMeasuredRate() {
+		estimator.reset(0, START);
+		estimator.correct(0, 1, at(100));
+		assertEquals(1, estimator.angularVelocity(), EPSILON);
+
+		assertEquals(0.05, estimator.propagate(at(150)), EPSILON);
+		assertEquals(0.1, estimator.propagate(at(200)), EPSILON);
+
+		// the rate changes as soon as it is measured, not as the heading error builds up
+		estimator.correct(0.1, -2, at(200));
+		assertEquals(-2, estimator.angularVelocity(), EPSILON);
+		assertEquals(0, estimator.propagate(at(250)), EPSILON);
+	}
+
+	@Test
+	void testCorrectsByFractionOfInnovation() {
+		estimator.reset(0, START);
+		estimator.correct(0.1, 0, at(100));
+		assertEquals(0.085, estimator.heading(), EPSILON); // 85% of the innovation
+
+		estimator.correct(0.085, 0, at(200));
+		assertEquals(0.085, estimator.heading(), EPSILON);
+
+		assertEquals(0.1, estimator.maxInnovation(), EPSILON);
+		assertEquals(Math.sqrt(0.1 * 0.1 / 2), estimator.innovationRms(), EPSILON);
+	}
+
+	@Test
+	void testResetStopsRotation() {
+		var resets = new ArrayList<Double>();
+		estimator.addListener(new HeadingEstimator.Listener() {
+			@Override
+			public void onImuSample(double measuredHeading, double measuredRate, Instant sampleTime) {
+			}
+
+			@Override
+			public void onReset(double newHeading, Instant time) {
+				resets.add(newHeading);
+			}
+		});
+
+		estimator.correct(0, 2, at(100));
+		estimator.reset(1, at(200));
+
+		assertEquals(0, estimator.angularVelocity(), EPSILON);
+		assertEquals(1, estimator.propagate(at(500)), EPSILON);
+		assertEquals(1, resets.size());
+		assertEquals(1, resets.get(0), EPSILON);
+	}
+
+	@Test
+	void testEstimatesRateWithoutMeasurement() {
+		estimator.reset(0, START);
+
+		// turning at 1 rad/s, sampled at 10Hz without a rate
+		for (int i = 1; i <= 50; i++)
+			estimator.correct(i / 10., at(100L * i));
+
+		assertEquals(1, estimator.angularVelocity(), 0.05);
+		assertEquals(5, estimator.heading(), 0.01);
+	}
+
+	@Test
+	void testTellsListenersRate() {
+		var rates = new ArrayList<Double>();
+		estimator.addListener(new HeadingEstimator.Listener() {
+			@Override
+			public void onImuSample(double measuredHeading, double measuredRate, Instant sampleTime) {
+				rates.add(measuredRate);
+			}
+
+			@Override
+			public void onReset(double newHeading, Instant time) {
+			}
+		});
+
+		estimator.correct(0, 0.5, at(100));
+		estimator.correct(0, at(200));
+
+		assertEquals(0.5, rates.get(0), EPSILON);
+		assertTrue(rates.get(1).isNaN());
+	}
+}
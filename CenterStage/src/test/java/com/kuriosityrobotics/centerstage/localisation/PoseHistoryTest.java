@@ -0,0 +1,47 @@
+package com.kuriosityrobotics.centerstage.localisation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.kuriosityrobotics.centerstage.math.Pose;
+import com.kuriosityrobotics.centerstage.util.Instant;
+
+import org.junit.jupiter.api.Test;
+
+class PoseHistoryTest {
+	@Test
+	void testInterpolates() {
+		var history = new PoseHistory(4);
+		history.record(Instant.createInstant(100), new Pose(0, 0, 0));
+		history.record(Instant.createInstant(200), new Pose(1, 2, 1));
+
+		var pose = history.poseAt(Instant.createInstant(150)).orElseThrow();
+		assertEquals(0.5, pose.x(), 1e-9);
+		assertEquals(1, pose.y(), 1e-9);
+		assertEquals(0.5, pose.orientation(), 1e-9);
+
+		assertEquals(new Pose(1, 2, 1), history.poseAt(Instant.createInstant(200)).orElseThrow());
+	}
+
+	@Test
+	void testOutsideHistory() {
+		var history = new PoseHistory(2);
+		history.record(Instant.createInstant(100), new Pose(0, 0, 0));
+		history.record(Instant.createInstant(200), new Pose(1, 0, 0));
+		history.record(Instant.createInstant(300), new Pose(2, 0, 0)); // overwrites the first pose
+
+		assertTrue(history.poseAt(Instant.createInstant(150)).isEmpty());
+		assertEquals(1.5, history.poseAt(Instant.createInstant(250)).orElseThrow().x(), 1e-9);
+		assertTrue(new PoseHistory(2).poseAt(Instant.createInstant(100)).isEmpty());
+	}
+
+	@Test
+	void testClampsToNewestPose() {
+		var history = new PoseHistory(4);
+		history.record(Instant.createInstant(100), new Pose(0, 0, 0));
+		history.record(Instant.createInstant(200), new Pose(1, 2, 1));
+
+		// a frame captured after the latest odometry update
+		assertEquals(new Pose(1, 2, 1), history.poseAt(Instant.createInstant(250)).orElseThrow());
+	}
+}
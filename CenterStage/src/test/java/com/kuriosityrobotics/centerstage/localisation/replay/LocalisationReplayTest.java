@@ -0,0 +1,125 @@
+package com.kuriosityrobotics.centerstage.localisation.replay;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.kuriosityrobotics.centerstage.bulkdata.RevHubBulkData;
+import com.kuriosityrobotics.centerstage.hardware.LynxHub;
+import com.kuriosityrobotics.centerstage.localisation.Odometry;
+import com.kuriosityrobotics.centerstage.math.Pose;
+import com.kuriosityrobotics.centerstage.util.Duration;
+import com.kuriosityrobotics.centerstage.util.Instant;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+class LocalisationReplayTest {
+	private static final Instant START = Instant.createInstant(1_000_000_000L);
+
+	@Test
+	void testLogRoundTrip() throws IOException {
+		var data = RevHubBulkData.of(LynxHub.EXPANSION_HUB,
+			new int[]{1, -2, 3, Integer.MAX_VALUE},
+			new int[]{0, 0, 0, -40},
+			new double[]{0, 0, 3.3, 0},
+			new boolean[]{false, false, false, false, false, false, false, true}
+		);
+
+		var bytes = new ByteArrayOutputStream();
+		try (var writer = new LocalisationLogWriter(bytes)) {
+			writer.writeBulkData(START, data);
+			writer.writePositionReset(START, new Pose(1, 2, 3));
+			writer.writeImuSample(START, 0.5, -1.5);
+		}
+
+		var reader = new LocalisationLogReader(new ByteArrayInputStream(bytes.toByteArray()));
+		assertTrue(reader.readNext(new FailingHandler() {
+			@Override
+			public void onBulkData(Instant time, RevHubBulkData read) {
+				assertEquals(START.nanos(), time.nanos());
+				assertEquals(LynxHub.EXPANSION_HUB, read.origin());
+				for (int i = 0; i < RevHubBulkData.MOTOR_PORTS; i++) {
+					assertEquals(data.encoder(i), read.encoder(i));
+					assertEquals(data.velocity(i), read.velocity(i));
+				}
+				for (int i = 0; i < RevHubBulkData.ANALOG_INPUTS; i++)
+					assertEquals(data.analogInput(i), read.analogInput(i));
+				for (int i = 0; i < RevHubBulkData.DIGITAL_CHANNELS; i++)
+					assertEquals(data.digitalInput(i), read.digitalInput(i));
+			}
+		}));
+		assertTrue(reader.readNext(new FailingHandler() {
+			@Override
+			public void onPositionReset(Instant time, Pose pose) {
+				assertEquals(new Pose(1, 2, 3), pose);
+			}
+		}));
+		assertTrue(reader.readNext(new FailingHandler() {
+			@Override
+			public void onImuSample(Instant time, double heading, double rate) {
+				assertEquals(0.5, heading);
+				assertEquals(-1.5, rate);
+			}
+		}));
+		assertFalse(reader.readNext(new FailingHandler()));
+	}
+
+	@Test
+	void testReplayStraightLine() throws IOException {
+		int ticksPerSecond = 8192 * 10;
+		double metresPerSecond = 2 * Math.PI * 10 * Odometry.WHEEL_RADIUS;
+
+		var bytes = new ByteArrayOutputStream();
+		try (var writer = new LocalisationLogWriter(bytes)) {
+			writer.writeHeadingReset(START, 0);
+			writer.writePositionReset(START, Pose.zero());
+
+			var velocities = new int[RevHubBulkData.MOTOR_PORTS];
+			velocities[Odometry.FORWARDS_ODO_PORT] = ticksPerSecond;
+			var data = RevHubBulkData.of(LynxHub.EXPANSION_HUB, new int[4], velocities, new double[4], new boolean[8]);
+			for (int i = 1; i <= 100; i++) {
+				var time = START.add(Duration.ofMillis(20L * i));
+				writer.writeBulkData(time, data);
+				if (i % 5 == 0)
+					writer.writeImuSample(time, 0, 0);
+			}
+		}
+
+		var result = LocalisationReplay.replay(new LocalisationLogReader(new ByteArrayInputStream(bytes.toByteArray())));
+
+		assertEquals(122, result.records());
+		assertEquals(100, result.trajectory().size());
+		assertEquals(2, result.recordedTime().toSeconds(), 1e-9);
+
+		var end = result.trajectory().get(99).localisation.pose();
+		assertEquals(2 * metresPerSecond, end.x(), 1e-6);
+		assertEquals(0, end.y(), 1e-6);
+		assertEquals(0, end.orientation(), 1e-6);
+	}
+
+	private static class FailingHandler implements LocalisationLogReader.Handler {
+		@Override
+		public void onBulkData(Instant time, RevHubBulkData data) {
+			throw new AssertionError("Unexpected bulk data");
+		}
+
+		@Override
+		public void onImuSample(Instant time, double heading, double rate) {
+			throw new AssertionError("Unexpected IMU sample");
+		}
+
+		@Override
+		public void onHeadingReset(Instant time, double heading) {
+			throw new AssertionError("Unexpected heading reset");
+		}
+
+		@Override
+		public void onPositionReset(Instant time, Pose pose) {
+			throw new AssertionError("Unexpected position reset");
+		}
+	}
+}
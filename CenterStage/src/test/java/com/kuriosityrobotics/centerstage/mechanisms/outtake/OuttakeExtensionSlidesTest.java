@@ -0,0 +1,158 @@
+package com.kuriosityrobotics.centerstage.mechanisms.outtake;
+
+import static com.kuriosityrobotics.centerstage.hardware.LynxHub.CONTROL_HUB;
+import static com.kuriosityrobotics.centerstage.mechanisms.outtake.OuttakeExtensionSlides.OuttakeSlidePosition.MAX_HEIGHT;
+import static com.kuriosityrobotics.centerstage.mechanisms.outtake.OuttakeExtensionSlides.OuttakeSlidePosition.RETRACTED;
+import static com.qualcomm.robotcore.hardware.DcMotorSimple.Direction.FORWARD;
+import static com.qualcomm.robotcore.hardware.DcMotorSimple.Direction.REVERSE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.kuriosityrobotics.centerstage.concurrent.HardwareTaskScope;
+import com.kuriosityrobotics.centerstage.hardware.LinearMotorControl.StalledException;
+import com.kuriosityrobotics.centerstage.hardware.simulation.MotorModel;
+import com.kuriosityrobotics.centerstage.hardware.simulation.SimulatedHardwareProvider;
+import com.kuriosityrobotics.centerstage.mechanisms.outtake.OuttakeExtensionSlides.OuttakeSlidePosition;
+import com.kuriosityrobotics.centerstage.mechanisms.outtake.OuttakeExtensionSlides.SlidesJammed;
+import com.kuriosityrobotics.centerstage.metrics.NodeTimers;
+import com.kuriosityrobotics.centerstage.teleop.Robot;
+import com.kuriosityrobotics.centerstage.util.Clock;
+import com.kuriosityrobotics.centerstage.util.Duration;
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Moves simulated slides in real time, wired up as {@link Robot} wires up the real ones.
+ */
+class OuttakeExtensionSlidesTest {
+	private static final double TOLERANCE = 0.015; // m
+	/**
+	 * How much longer than its profile a move may take to settle; the controller allows 750 ms.
+	 */
+	private static final long SETTLING_MILLIS = 400;
+
+	private final ScheduledExecutorService ses = Executors.newScheduledThreadPool(3); // a read loop per hub, and the current monitor
+
+	private OuttakeMotor upper;
+	private OuttakeMotor lower;
+
+	@AfterEach
+	void shutdown() {
+		ses.shutdownNow();
+		NodeTimers.clear();
+	}
+
+	private OuttakeExtensionSlides createSlides() throws InterruptedException {
+		return createSlides(Robot.createSimulatedHardwareProvider(Clock.system()));
+	}
+
+	private OuttakeExtensionSlides createSlides(SimulatedHardwareProvider hp) throws InterruptedException {
+		var bdf = Robot.createBulkDataFetcher(ses, hp);
+		upper = new OuttakeMotor(bdf, CONTROL_HUB, hp.motor(CONTROL_HUB, 1, REVERSE));
+		lower = new OuttakeMotor(bdf, CONTROL_HUB, hp.motor(CONTROL_HUB, 0, FORWARD));
+		return new OuttakeExtensionSlides(upper, lower);
+	}
+
+	private void assertMovesWithinProfile(OuttakeExtensionSlides slides, OuttakeSlidePosition from, OuttakeSlidePosition to) throws Exception {
+		long start = System.nanoTime();
+		assertTrue(slides.goToPositions(to));
+		double millis = (System.nanoTime() - start) / 1e6;
+
+		double profileMillis = OuttakeExtensionSlides.travelTime(from, to).toMillis();
+		assertTrue(millis < profileMillis + SETTLING_MILLIS, "took " + millis + " ms, profile " + profileMillis + " ms");
+		assertEquals(to.position, upper.getPositionMeters(), TOLERANCE);
+		assertEquals(to.position, lower.getPositionMeters(), TOLERANCE);
+	}
+
+	@Test
+	void testMovesBothMotorsAlongProfile() throws Exception {
+		var slides = createSlides();
+		assertMovesWithinProfile(slides, RETRACTED, MAX_HEIGHT);
+		assertMovesWithinProfile(slides, MAX_HEIGHT, RETRACTED);
+	}
+
+	@Test
+	void testHoldsPositionAfterMove() throws Exception {
+		var slides = createSlides();
+		slides.goToPositions(MAX_HEIGHT);
+		Thread.sleep(300);
+
+		assertEquals(MAX_HEIGHT.position, upper.getPositionMeters(), TOLERANCE);
+		assertEquals(MAX_HEIGHT.position, lower.getPositionMeters(), TOLERANCE);
+		assertEquals(upper.getPositionMeters(), lower.getPositionMeters(), 0.005);
+	}
+
+	@Test
+	void testReportsTimeRemaining() throws Exception {
+		var slides = createSlides();
+		assertTrue(slides.timeRemaining().isEmpty());
+
+		var travelTime = OuttakeExtensionSlides.travelTime(RETRACTED, MAX_HEIGHT);
+		var mover = new Thread(() -> {
+			try {
+				slides.goToPositions(MAX_HEIGHT);
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		});
+		mover.start();
+		Thread.sleep(200);
+
+		var remaining = slides.timeRemaining().orElseThrow();
+		assertTrue(remaining.isGreaterThan(Duration.ofMillis(0)) && travelTime.isGreaterThan(remaining), "remaining " + remaining);
+
+		mover.join();
+		assertTrue(slides.timeRemaining().isEmpty());
+	}
+
+	@Test
+	void testReportsDeadlineCuttingMoveShort() throws Exception {
+		var slides = createSlides();
+		try (var scope = HardwareTaskScope.openWithin(SlidesJammed.class, Duration.ofMillis(100))) {
+			var moved = scope.fork(() -> slides.goToPositions(MAX_HEIGHT));
+			scope.join();
+
+			assertFalse(moved.get());
+			assertTrue(scope.hasExpired());
+		}
+
+		// the hub carries on to the position
+		Thread.sleep(1000);
+		assertEquals(MAX_HEIGHT.position, upper.getPositionMeters(), TOLERANCE);
+		assertEquals(MAX_HEIGHT.position, lower.getPositionMeters(), TOLERANCE);
+	}
+
+	@Test
+	void testStopsPushingWhenStalled() throws Exception {
+		var hp = Robot.createSimulatedHardwareProvider(Clock.system());
+		double ceiling = MAX_HEIGHT.position / 2;
+		hp.setMotorModel(CONTROL_HUB, 0, new MotorModel().withLimits(0, ceiling * OuttakeMotor.TICKS_PER_METRE));
+		hp.setMotorModel(CONTROL_HUB, 1, new MotorModel().withLimits(-ceiling * OuttakeMotor.TICKS_PER_METRE, 0));
+		createSlides(hp);
+
+		var controller = new SlideController(upper, lower);
+		assertThrows(StalledException.class, () -> controller.moveTo(MAX_HEIGHT.position));
+
+		// not held on a target above the ceiling
+		for (var motor : new OuttakeMotor[]{upper, lower}) {
+			assertEquals(0, motor.delegate.getPower());
+			assertEquals(DcMotor.RunMode.RUN_WITHOUT_ENCODER, motor.delegate.getMode());
+		}
+		assertEquals(MAX_HEIGHT.position, lower.getTargetPositionMeters(), TOLERANCE);
+	}
+
+	@Test
+	void testTravelTime() {
+		var up = OuttakeExtensionSlides.travelTime(RETRACTED, MAX_HEIGHT);
+		assertEquals(up.toNanos(), OuttakeExtensionSlides.travelTime(MAX_HEIGHT, RETRACTED).toNanos());
+		assertEquals(0, OuttakeExtensionSlides.travelTime(MAX_HEIGHT, MAX_HEIGHT).toNanos());
+		assertTrue(up.toSeconds() < 1, "profile takes " + up);
+	}
+}
@@ -0,0 +1,21 @@
+package com.kuriosityrobotics.centerstage.bus;
+
+/**
+ * A message which is only valid while it holds a reference, such as a pooled object.
+ * <p>
+ * A {@link Topic} holds a reference to every message in its ring buffer, and takes another while delivering it to
+ * a queued subscriber, so that queued subscribers never see a recycled message.
+ */
+public interface ReferenceCounted {
+	/**
+	 * Takes a reference, unless the last reference has already been released.
+	 *
+	 * @return whether a reference was taken
+	 */
+	boolean tryRetain();
+
+	/**
+	 * Gives up a reference.
+	 */
+	void release();
+}
@@ -0,0 +1,144 @@
+package com.kuriosityrobotics.centerstage.bus;
+
+import com.kuriosityrobotics.centerstage.metrics.Counter;
+import com.kuriosityrobotics.centerstage.metrics.Histogram;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * A subscriber's registration with a {@link Topic}, with its delivery statistics.
+ *
+ * @param <T> the type of message
+ */
+public final class Subscription<T> implements AutoCloseable {
+	private final Topic<T> topic;
+	private final Consumer<? super T> subscriber;
+	private final Executor executor; // null if inline
+
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+	private final Runnable drain = this::drain;
+	/**
+	 * The sequence number of the next message to deliver.  Only written by the (single) draining thread.
+	 */
+	private volatile long cursor;
+	private volatile boolean closed;
+
+	private final Counter delivered = new Counter();
+	private final Counter dropped = new Counter();
+	private final Histogram lag = new Histogram();
+
+	Subscription(Topic<T> topic, Executor executor, Consumer<? super T> subscriber, long cursor) {
+		this.topic = topic;
+		this.subscriber = subscriber;
+		this.executor = executor;
+		this.cursor = cursor;
+	}
+
+	void deliverInline(T message) {
+		if (closed)
+			return; // closed since the producer took its snapshot of the subscriptions
+
+		subscriber.accept(message);
+		delivered.increment();
+	}
+
+	void wake() {
+		if (closed || !scheduled.compareAndSet(false, true))
+			return; // already draining, and will see the new message
+
+		try {
+			executor.execute(drain);
+		} catch (RejectedExecutionException e) {
+			scheduled.set(false); // the executor has shut down
+		}
+	}
+
+	private void drain() {
+		do {
+			long cursor = this.cursor;
+			long head;
+			while (!closed && cursor < (head = topic.head())) {
+				// the message at head - capacity may be being overwritten right now
+				long oldest = head - topic.capacity() + 1;
+				if (cursor < oldest) {
+					dropped.add(oldest - cursor);
+					cursor = oldest;
+				}
+
+				lag.record(head - cursor - 1);
+				var message = topic.messageAt(cursor);
+				boolean counted = message instanceof ReferenceCounted;
+				if (counted && !((ReferenceCounted) message).tryRetain()) {
+					this.cursor = cursor; // released, so overwritten: go round again to drop it
+					continue;
+				}
+
+				try {
+					if (topic.head() - cursor >= topic.capacity())
+						continue; // overwritten while we read it; go round again to drop it
+
+					deliver(message);
+					cursor++;
+				} finally {
+					if (counted)
+						((ReferenceCounted) message).release();
+					this.cursor = cursor;
+				}
+			}
+
+			scheduled.set(false);
+			// a message published after the loop but before the flag was cleared would otherwise be missed
+		} while (!closed && cursor < topic.head() && scheduled.compareAndSet(false, true));
+	}
+
+	private void deliver(T message) {
+		try {
+			subscriber.accept(message);
+		} catch (RuntimeException e) {
+			// report it without stopping delivery
+			var thread = Thread.currentThread();
+			thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+		}
+		delivered.increment();
+	}
+
+	/**
+	 * @return the number of messages delivered to the subscriber
+	 */
+	public long delivered() {
+		return delivered.sum();
+	}
+
+	/**
+	 * @return the number of messages dropped because the subscriber fell too far behind
+	 */
+	public long dropped() {
+		return dropped.sum();
+	}
+
+	/**
+	 * @return the number of messages published but not yet delivered to the subscriber
+	 */
+	public long lag() {
+		return executor == null ? 0 : Math.max(0, topic.head() - cursor);
+	}
+
+	/**
+	 * @return the number of messages still waiting behind each delivered message
+	 */
+	public Histogram lagHistogram() {
+		return lag;
+	}
+
+	/**
+	 * Stops delivering messages to the subscriber.  A message being delivered on another thread may still complete.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		topic.unsubscribe(this);
+	}
+}
@@ -0,0 +1,172 @@
+package com.kuriosityrobotics.centerstage.bus;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A typed stream of messages from a single producer to any number of subscribers.
+ * <p>
+ * Inline subscribers are called on the producer's thread, during {@link #publish(Object)}, so they must be quick.
+ * Queued subscribers are called on their own {@link Executor}; each has its own cursor into a ring buffer of the last
+ * {@link #capacity()} messages, so a slow queued subscriber never holds up the producer or the other subscribers.
+ * If it falls a whole ring behind, the oldest messages are dropped for that subscriber alone.
+ * <p>
+ * Messages must not be modified once published.  Messages which implement {@link ReferenceCounted} stay valid for as
+ * long as they are in the ring buffer or being delivered to a queued subscriber.
+ * <p>
+ * Only one thread may publish to a topic (or publishing must be externally serialised); anyone may subscribe.
+ *
+ * @param <T> the type of message
+ */
+public final class Topic<T> {
+	public static final int DEFAULT_CAPACITY = 16;
+
+	private final String name;
+	private final int mask;
+	private final AtomicReferenceArray<T> ring;
+	/**
+	 * The sequence number of the next message to be written into the ring.  Only written by the producer.
+	 */
+	private final AtomicLong head = new AtomicLong();
+
+	/**
+	 * Replaced, never modified, when subscriptions come and go, so that publishing reads each once and iterates it
+	 * without allocating, however subscriptions change meanwhile.  Written under this.
+	 */
+	private volatile Subscription<T>[] inlineSubscriptions = noSubscriptions();
+	private volatile Subscription<T>[] queuedSubscriptions = noSubscriptions();
+
+	public Topic(String name) {
+		this(name, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param name     the name of the topic, for diagnostics
+	 * @param capacity the number of messages a queued subscriber may fall behind by before messages are dropped;
+	 *                 rounded up to a power of two
+	 */
+	public Topic(String name, int capacity) {
+		if (capacity < 2)
+			throw new IllegalArgumentException("Capacity must be at least 2");
+
+		this.name = name;
+		int size = Integer.highestOneBit(capacity - 1) << 1;
+		this.mask = size - 1;
+		this.ring = new AtomicReferenceArray<>(size);
+	}
+
+	public String name() {
+		return name;
+	}
+
+	/**
+	 * @return the number of messages the ring buffer holds
+	 */
+	public int capacity() {
+		return ring.length();
+	}
+
+	/**
+	 * Subscribes to the topic, being called on the producer's thread.  The message is only valid until the
+	 * subscriber returns.  Exceptions thrown by the subscriber are thrown to the producer.
+	 *
+	 * @param subscriber the subscriber
+	 * @return the subscription
+	 */
+	public Subscription<T> subscribe(Consumer<? super T> subscriber) {
+		var subscription = new Subscription<T>(this, null, subscriber, 0);
+		synchronized (this) {
+			inlineSubscriptions = with(inlineSubscriptions, subscription);
+		}
+		return subscription;
+	}
+
+	/**
+	 * Subscribes to the topic, being called on <code>executor</code> (never concurrently with itself).  The subscriber
+	 * receives messages published after it subscribed.  Exceptions thrown by the subscriber are passed to the
+	 * delivering thread's uncaught exception handler.
+	 *
+	 * @param executor   the executor to deliver messages on
+	 * @param subscriber the subscriber
+	 * @return the subscription
+	 */
+	public Subscription<T> subscribe(Executor executor, Consumer<? super T> subscriber) {
+		var subscription = new Subscription<T>(this, Objects.requireNonNull(executor), subscriber, head.get());
+		synchronized (this) {
+			queuedSubscriptions = with(queuedSubscriptions, subscription);
+		}
+		return subscription;
+	}
+
+	/**
+	 * Publishes a message to every subscriber.
+	 *
+	 * @param message the message
+	 */
+	public void publish(T message) {
+		Objects.requireNonNull(message);
+
+		for (var subscription : inlineSubscriptions)
+			subscription.deliverInline(message);
+
+		var queued = queuedSubscriptions;
+		if (queued.length == 0)
+			return;
+
+		if (message instanceof ReferenceCounted && !((ReferenceCounted) message).tryRetain())
+			throw new IllegalStateException("Published a released message to " + name);
+
+		long sequence = head.get();
+		T replaced = ring.getAndSet((int) (sequence & mask), message);
+		head.set(sequence + 1);
+		if (replaced instanceof ReferenceCounted)
+			((ReferenceCounted) replaced).release();
+
+		for (var subscription : queued)
+			subscription.wake();
+	}
+
+	long head() {
+		return head.get();
+	}
+
+	T messageAt(long sequence) {
+		return ring.get((int) (sequence & mask));
+	}
+
+	synchronized void unsubscribe(Subscription<T> subscription) {
+		inlineSubscriptions = without(inlineSubscriptions, subscription);
+		queuedSubscriptions = without(queuedSubscriptions, subscription);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> Subscription<T>[] noSubscriptions() {
+		return (Subscription<T>[]) new Subscription<?>[0];
+	}
+
+	private static <T> Subscription<T>[] with(Subscription<T>[] subscriptions, Subscription<T> subscription) {
+		var copy = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+		copy[subscriptions.length] = subscription;
+		return copy;
+	}
+
+	private static <T> Subscription<T>[] without(Subscription<T>[] subscriptions, Subscription<T> subscription) {
+		for (int i = 0; i < subscriptions.length; i++) {
+			if (subscriptions[i] == subscription) {
+				var copy = Arrays.copyOf(subscriptions, subscriptions.length - 1);
+				System.arraycopy(subscriptions, i + 1, copy, i, copy.length - i);
+				return copy;
+			}
+		}
+		return subscriptions;
+	}
+
+	@Override
+	public String toString() {
+		return "Topic[" + name + "]";
+	}
+}
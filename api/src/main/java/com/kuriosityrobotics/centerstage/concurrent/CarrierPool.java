@@ -0,0 +1,180 @@
+package com.kuriosityrobotics.centerstage.concurrent;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A pool of reusable threads to run the subtasks of {@link StructuredTaskScope}s on, so that forking a subtask
+ * doesn't cost creating and starting a thread.
+ * <p>
+ * A subtask is handed to an idle worker if there is one, and otherwise to a new worker, so forking never waits for a
+ * worker and nested scopes can't deadlock.  When a worker finishes a subtask, it waits for another if fewer than
+ * <code>maximumIdle</code> workers are idle, and exits otherwise.  Idle workers also exit after
+ * <code>keepAliveMillis</code>.  A pool with no idle workers behaves exactly like starting a thread per subtask.
+ * <p>
+ * While a worker runs a subtask, it belongs to the subtask's scope as a thread started in it would: the scope can
+ * interrupt it, and scopes it opens are nested in it.  Interrupts from the scope only reach the worker while it runs
+ * that scope's subtask, and the worker's interrupt status is cleared between subtasks.
+ */
+public final class CarrierPool {
+	private static final JavaLangAccess JLA = SharedSecrets.getJavaLangAccess();
+
+	public static final int DEFAULT_MAXIMUM_IDLE = 16;
+	public static final long DEFAULT_KEEP_ALIVE_MILLIS = 60_000;
+
+	private static final CarrierPool SHARED = new CarrierPool("carrier", DEFAULT_MAXIMUM_IDLE, DEFAULT_KEEP_ALIVE_MILLIS);
+
+	private final String name;
+	private final int maximumIdle;
+	private final long keepAliveNanos;
+
+	private final ConcurrentLinkedDeque<Worker> idle = new ConcurrentLinkedDeque<>();
+	private final AtomicInteger idleCount = new AtomicInteger();
+	private final AtomicInteger created = new AtomicInteger();
+
+	/**
+	 * @param name            the prefix of the workers' names
+	 * @param maximumIdle     the most workers to keep waiting for subtasks
+	 * @param keepAliveMillis how long an idle worker waits for a subtask before exiting
+	 */
+	public CarrierPool(String name, int maximumIdle, long keepAliveMillis) {
+		if (maximumIdle < 0)
+			throw new IllegalArgumentException("maximumIdle must not be negative");
+
+		this.name = name;
+		this.maximumIdle = maximumIdle;
+		this.keepAliveNanos = TimeUnit.MILLISECONDS.toNanos(keepAliveMillis);
+	}
+
+	/**
+	 * @return the pool shared by every scope which doesn't ask for another
+	 */
+	public static CarrierPool shared() {
+		return SHARED;
+	}
+
+	/**
+	 * @return the number of workers ever created
+	 */
+	public int created() {
+		return created.get();
+	}
+
+	/**
+	 * @return the number of workers waiting for a subtask
+	 */
+	public int idle() {
+		return idleCount.get();
+	}
+
+	/**
+	 * Runs <code>task</code> on a worker, which belongs to <code>container</code> until it finishes.
+	 *
+	 * @return the worker
+	 */
+	Thread execute(ThreadContainer container, Runnable task) {
+		var worker = idle.pollFirst(); // most recently idle, so most likely to still be warm
+		if (worker != null) {
+			idleCount.decrementAndGet();
+			worker.hand(container, task);
+			return worker;
+		}
+
+		worker = new Worker(name + "-" + created.incrementAndGet());
+		worker.hand(container, task);
+		worker.start();
+		return worker;
+	}
+
+	/**
+	 * Interrupts <code>thread</code> on behalf of <code>container</code>: a worker is only interrupted if it is still
+	 * running a subtask of <code>container</code>.
+	 */
+	static void interrupt(Thread thread, ThreadContainer container) {
+		if (thread instanceof Worker)
+			((Worker) thread).interrupt(container);
+		else
+			thread.interrupt();
+	}
+
+	private final class Worker extends Thread {
+		// the next subtask and its container, set by the thread handing it over
+		private volatile Runnable task;
+		private ThreadContainer container; // guarded by this
+
+		Worker(String name) {
+			super(name);
+			setDaemon(true);
+		}
+
+		void hand(ThreadContainer container, Runnable task) {
+			synchronized (this) {
+				this.container = container;
+				JLA.setThreadContainer(this, container);
+			}
+			this.task = task;
+			LockSupport.unpark(this);
+		}
+
+		synchronized void interrupt(ThreadContainer container) {
+			if (this.container == container)
+				interrupt();
+		}
+
+		@Override
+		public void run() {
+			var task = this.task;
+			while (task != null) {
+				this.task = null;
+				try {
+					task.run();
+				} catch (Throwable e) {
+					getUncaughtExceptionHandler().uncaughtException(this, e);
+				} finally {
+					synchronized (this) {
+						container = null;
+						JLA.setThreadContainer(this, null);
+						Thread.interrupted();
+					}
+					JLA.setHeadStackableScope(null); // in case the subtask leaked a scope
+				}
+
+				task = awaitTask();
+			}
+		}
+
+		/**
+		 * @return the next subtask, or null if this worker should exit
+		 */
+		private Runnable awaitTask() {
+			if (idleCount.incrementAndGet() > maximumIdle) {
+				idleCount.decrementAndGet();
+				return null;
+			}
+			idle.addFirst(this);
+
+			long deadline = System.nanoTime() + keepAliveNanos;
+			while (true) {
+				var task = this.task;
+				if (task != null)
+					return task;
+
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0 && idle.removeFirstOccurrence(this)) {
+					// nobody took this worker, so nobody will hand it a subtask
+					idleCount.decrementAndGet();
+					return null;
+				}
+
+				// if this worker has been taken, its subtask is on its way
+				if (remaining > 0)
+					LockSupport.parkNanos(this, remaining);
+				else
+					LockSupport.park(this);
+				Thread.interrupted(); // only a subtask's scope may interrupt a worker
+			}
+		}
+	}
+}
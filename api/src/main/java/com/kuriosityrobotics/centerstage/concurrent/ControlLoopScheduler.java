@@ -0,0 +1,590 @@
+package com.kuriosityrobotics.centerstage.concurrent;
+
+import com.kuriosityrobotics.centerstage.metrics.Histogram;
+import com.kuriosityrobotics.centerstage.util.Duration;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link ScheduledExecutorService} for the robot's control loops.
+ * <p>
+ * Control loops are scheduled by name with {@link #schedule(String, Duration, Phase, Priority, Runnable)}, declaring
+ * their period, the {@link Phase} of the loop they belong to, and their {@link Priority}.  {@link Priority#CRITICAL}
+ * and {@link Priority#HIGH} tasks run on a few dedicated control threads at the highest thread priority; the rest run
+ * on a background thread at normal priority.  Releases are aligned to multiples of each task's period since the
+ * scheduler started, so tasks with harmonic periods are released together.  Ready tasks start in order of release,
+ * phase and priority, but a task only waits for another if they are in the same loop.
+ * <p>
+ * Tasks with the same period are one loop, whichever threads they run on: each release runs through the loop in phase
+ * order, so a task doesn't start while a task of an earlier phase hasn't run the same release, or while any task of the
+ * loop hasn't finished an earlier one.  Tasks with different periods never wait for each other, so a fast loop isn't
+ * held up by a slow one which happens to be released at the same time.
+ * <p>
+ * Each task's deadline is its next release.  A run which finishes after it counts as a deadline miss, and the releases
+ * it overran are skipped rather than run back to back.  A release skipped by one task of a loop is skipped by the
+ * whole loop, so a later phase never runs on a release an earlier one didn't.  The lateness of every start is recorded
+ * as jitter, and {@link #report()} summarises both for every task.  A task which throws is logged, and not run again.
+ * <p>
+ * Everything submitted through the {@link ScheduledExecutorService} methods, including long-running loops, runs on a
+ * general pool of threads exactly as it would on a {@link ScheduledThreadPoolExecutor}.
+ * <p>
+ * This class is thread-safe.
+ */
+public class ControlLoopScheduler extends AbstractExecutorService implements ScheduledExecutorService {
+	/**
+	 * The stages of a control loop, in the order tasks released together run.
+	 */
+	public enum Phase {
+		/**
+		 * Reading sensors and inputs.
+		 */
+		SENSE,
+		/**
+		 * Turning readings into state, such as localisation.
+		 */
+		ESTIMATE,
+		/**
+		 * Deciding what to do, such as solving for the next drive powers.
+		 */
+		PLAN,
+		/**
+		 * Writing to motors and servos.
+		 */
+		ACTUATE,
+		/**
+		 * Telemetry and logging.
+		 */
+		REPORT
+	}
+
+	public enum Priority {
+		CRITICAL,
+		HIGH,
+		NORMAL,
+		LOW;
+
+		boolean isControl() {
+			return this == CRITICAL || this == HIGH;
+		}
+	}
+
+	private final long epochNanos = System.nanoTime();
+	private final ScheduledThreadPoolExecutor general;
+	// shared by the lanes, since a loop can span both
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition changed = lock.newCondition();
+	private final Lane control;
+	private final Lane background;
+	private final List<PeriodicTask> tasks = new CopyOnWriteArrayList<>();
+
+	/**
+	 * @param controlThreads the number of dedicated threads for critical and high priority tasks
+	 * @param generalThreads the number of threads for everything else submitted
+	 */
+	public ControlLoopScheduler(int controlThreads, int generalThreads) {
+		if (controlThreads < 1)
+			throw new IllegalArgumentException("There must be at least one control thread");
+
+		this.general = new ScheduledThreadPoolExecutor(generalThreads, Executors.defaultThreadFactory());
+		this.control = new Lane("control", controlThreads, Thread.MAX_PRIORITY);
+		this.background = new Lane("background", 1, Thread.NORM_PRIORITY);
+	}
+
+	/**
+	 * Schedules a control loop on <code>executor</code>: with its declared phase and priority if it is a
+	 * <code>ControlLoopScheduler</code>, and otherwise at a fixed rate.
+	 */
+	public static ScheduledFuture<?> schedule(ScheduledExecutorService executor, String name, Duration period, Phase phase, Priority priority, Runnable task) {
+		if (executor instanceof ControlLoopScheduler)
+			return ((ControlLoopScheduler) executor).schedule(name, period, phase, priority, task);
+
+		return executor.scheduleAtFixedRate(task, 0, period.toNanos(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Schedules a control loop, first released at the next multiple of its period.  Like a task scheduled at a fixed
+	 * rate, it runs until it is cancelled, the scheduler is shut down, or it throws.
+	 *
+	 * @param name     the task's name, for the report
+	 * @param period   the time between releases
+	 * @param phase    the phase of the loop the task belongs to
+	 * @param priority the task's priority
+	 * @param task     the task
+	 * @return the task, which can be cancelled and which keeps the task's statistics
+	 */
+	public PeriodicTask schedule(String name, Duration period, Phase phase, Priority priority, Runnable task) {
+		if (period.toNanos() <= 0)
+			throw new IllegalArgumentException("The period must be positive");
+		if (isShutdown())
+			throw new RejectedExecutionException("Scheduler is shut down");
+
+		var lane = priority.isControl() ? control : background;
+		var periodicTask = new PeriodicTask(lane, name, period.toNanos(), phase, priority, task);
+		periodicTask.release = periodicTask.nextReleaseAfter(System.nanoTime() - 1);
+		periodicTask.lastRelease = periodicTask.release - periodicTask.periodNanos;
+		tasks.add(periodicTask);
+		lane.add(periodicTask);
+		return periodicTask;
+	}
+
+	/**
+	 * @return every control loop which has been scheduled, in the order they were
+	 */
+	public List<PeriodicTask> tasks() {
+		return List.copyOf(tasks);
+	}
+
+	/**
+	 * @return a line per control loop, with its rate, runs, deadline misses, and the jitter and duration of its runs
+	 */
+	public String report() {
+		var report = new StringBuilder();
+		for (var task : tasks)
+			report.append(task).append('\n');
+		return report.toString();
+	}
+
+	private static final Comparator<PeriodicTask> ORDER = ((Comparator<PeriodicTask>) (a, b) -> Long.signum(a.release - b.release)) // nanoTimes
+		.thenComparing(task -> task.phase)
+		.thenComparing(task -> task.priority);
+
+	/**
+	 * A group of threads running periodic tasks from one queue, in order of release, phase and priority.
+	 */
+	private final class Lane {
+		private final PriorityQueue<PeriodicTask> queue = new PriorityQueue<>(ORDER); // guarded by lock
+		private final List<Thread> threads = new ArrayList<>();
+		private final CountDownLatch terminated;
+		private volatile boolean shutdown;
+
+		Lane(String name, int threadCount, int priority) {
+			this.terminated = new CountDownLatch(threadCount);
+			for (int i = 0; i < threadCount; i++) {
+				var thread = new Thread(this::work, name + "-" + i);
+				thread.setPriority(priority);
+				thread.setDaemon(true);
+				threads.add(thread);
+			}
+			threads.forEach(Thread::start);
+		}
+
+		void add(PeriodicTask task) {
+			lock.lock();
+			try {
+				if (!shutdown && !task.isCancelled())
+					queue.add(task);
+				changed.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		void remove(PeriodicTask task) {
+			lock.lock();
+			try {
+				queue.remove(task);
+				changed.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * @return the first task in order which is due and has nothing to wait for, or null if there is none
+		 */
+		// guarded by lock
+		private PeriodicTask nextReady(long now) {
+			PeriodicTask next = null;
+			for (var task : queue) {
+				if (task.release - now <= 0 && (next == null || ORDER.compare(task, next) < 0) && !waitsForLoop(task))
+					next = task;
+			}
+			return next;
+		}
+
+		/**
+		 * @return the time until the next task which isn't due yet is, or {@link Long#MAX_VALUE} if every task is
+		 */
+		// guarded by lock
+		private long untilNextRelease(long now) {
+			long next = Long.MAX_VALUE;
+			for (var task : queue) {
+				long delay = task.release - now;
+				if (delay > 0)
+					next = Math.min(next, delay);
+			}
+			return next;
+		}
+
+		private PeriodicTask take() throws InterruptedException {
+			lock.lock();
+			try {
+				while (!shutdown) {
+					long now = System.nanoTime();
+					var task = nextReady(now);
+					if (task == null) {
+						// whatever is due is waiting for its loop, which signals when it moves on
+						long delay = untilNextRelease(now);
+						if (delay == Long.MAX_VALUE)
+							changed.await();
+						else
+							changed.awaitNanos(delay);
+						continue;
+					}
+
+					queue.remove(task);
+					var skippedTo = skippedByLoop(task);
+					if (skippedTo != null) {
+						task.release = skippedTo;
+						queue.add(task);
+						changed.signalAll();
+						continue;
+					}
+
+					task.runningRelease = task.lastRelease = task.release;
+					task.running = true;
+					return task;
+				}
+				return null;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private void work() {
+			try {
+				PeriodicTask task;
+				while ((task = take()) != null) {
+					boolean again = task.runOnce();
+
+					lock.lock();
+					try {
+						task.running = false;
+						if (again && !shutdown && !task.isCancelled())
+							queue.add(task);
+						else
+							task.finish();
+						changed.signalAll();
+					} finally {
+						lock.unlock();
+					}
+				}
+			} catch (InterruptedException ignored) {
+				// shutdownNow
+			} finally {
+				terminated.countDown();
+			}
+		}
+
+		void shutdown(boolean interrupt) {
+			lock.lock();
+			try {
+				shutdown = true;
+				queue.forEach(PeriodicTask::finish);
+				queue.clear();
+				changed.signalAll();
+			} finally {
+				lock.unlock();
+			}
+
+			if (interrupt)
+				threads.forEach(Thread::interrupt);
+		}
+	}
+
+	/**
+	 * @return whether another task in <code>task</code>'s loop, on either lane, has to run before it: one which hasn't
+	 * run an earlier release, or an earlier phase of the same one
+	 */
+	// guarded by lock
+	private boolean waitsForLoop(PeriodicTask task) {
+		for (var other : tasks) {
+			if (!task.isInLoopWith(other))
+				continue;
+
+			long pending = other.running ? other.runningRelease : other.release;
+			long difference = pending - task.release;
+			if (difference < 0 || difference == 0 && other.phase.compareTo(task.phase) < 0)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the release another task in <code>task</code>'s loop skipped to, if it skipped <code>task</code>'s
+	 * release, or null if none did
+	 */
+	// guarded by lock
+	private Long skippedByLoop(PeriodicTask task) {
+		for (var other : tasks) {
+			if (task.isInLoopWith(other) && !other.running && other.lastRelease - task.release < 0 && other.release - task.release > 0)
+				return other.release;
+		}
+		return null;
+	}
+
+	/**
+	 * A control loop, and its statistics.
+	 */
+	public final class PeriodicTask implements ScheduledFuture<Void> {
+		private final Lane lane;
+		private final String name;
+		private final long periodNanos;
+		private final Phase phase;
+		private final Priority priority;
+		private final Runnable task;
+
+		// only changed while the task is neither queued nor running
+		private long release;
+		// guarded by lock
+		private long runningRelease;
+		private long lastRelease; // the release it last started
+		private boolean running;
+
+		private final AtomicLong runs = new AtomicLong();
+		private final AtomicLong deadlineMisses = new AtomicLong();
+		private final Histogram jitterMicros = new Histogram();
+		private final Histogram runTimeMicros = new Histogram();
+
+		private final CountDownLatch done = new CountDownLatch(1);
+		private volatile boolean cancelled;
+		private volatile Throwable failure;
+
+		private PeriodicTask(Lane lane, String name, long periodNanos, Phase phase, Priority priority, Runnable task) {
+			this.lane = lane;
+			this.name = name;
+			this.periodNanos = periodNanos;
+			this.phase = phase;
+			this.priority = priority;
+			this.task = task;
+		}
+
+		private boolean isInLoopWith(PeriodicTask other) {
+			return other != this && other.periodNanos == periodNanos && other.phase != phase && !other.isDone();
+		}
+
+		private long nextReleaseAfter(long time) {
+			long periods = Math.floorDiv(time - epochNanos, periodNanos) + 1;
+			return epochNanos + periods * periodNanos;
+		}
+
+		/**
+		 * @return whether the task should run again
+		 */
+		private boolean runOnce() {
+			long start = System.nanoTime();
+			jitterMicros.record((start - release) / 1000);
+
+			try {
+				task.run();
+			} catch (Throwable e) {
+				failure = e;
+				System.err.println("Control loop " + name + " failed, and won't run again:");
+				e.printStackTrace();
+				return false;
+			}
+
+			long end = System.nanoTime();
+			runs.incrementAndGet();
+			runTimeMicros.record((end - start) / 1000);
+
+			long deadline = release + periodNanos;
+			if (end - deadline > 0)
+				deadlineMisses.incrementAndGet();
+
+			release = nextReleaseAfter(Math.max(end, deadline) - 1);
+			return !cancelled;
+		}
+
+		/**
+		 * Marks the task done, as cancelled unless it failed.
+		 */
+		private void finish() {
+			if (failure == null)
+				cancelled = true;
+			done.countDown();
+		}
+
+		public String name() {
+			return name;
+		}
+
+		public Duration period() {
+			return Duration.ofNanos(periodNanos);
+		}
+
+		public Phase phase() {
+			return phase;
+		}
+
+		public Priority priority() {
+			return priority;
+		}
+
+		/**
+		 * @return the number of runs which finished
+		 */
+		public long runs() {
+			return runs.get();
+		}
+
+		/**
+		 * @return the number of runs which finished after the next release
+		 */
+		public long deadlineMisses() {
+			return deadlineMisses.get();
+		}
+
+		/**
+		 * @return how late each run started after its release, in microseconds
+		 */
+		public Histogram jitterMicros() {
+			return jitterMicros;
+		}
+
+		/**
+		 * @return how long each run took, in microseconds
+		 */
+		public Histogram runTimeMicros() {
+			return runTimeMicros;
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(release - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed other) {
+			return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			if (isDone())
+				return false;
+
+			cancelled = true;
+			done.countDown();
+			lane.remove(this);
+			return true;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+		@Override
+		public boolean isDone() {
+			return done.getCount() == 0;
+		}
+
+		@Override
+		public Void get() throws InterruptedException, ExecutionException {
+			done.await();
+			return result();
+		}
+
+		@Override
+		public Void get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+			if (!done.await(timeout, unit))
+				throw new TimeoutException();
+			return result();
+		}
+
+		private Void result() throws ExecutionException {
+			if (failure != null)
+				throw new ExecutionException(failure);
+			throw new CancellationException();
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s (%s, %s, %.0fHz): %d runs, %d missed, jitter p50=%dus p99=%dus max=%dus, run p99=%dus%s",
+				name, phase, priority, 1e9 / periodNanos, runs(), deadlineMisses(),
+				jitterMicros.percentile(50), jitterMicros.percentile(99), jitterMicros.max(), runTimeMicros.percentile(99),
+				failure != null ? ", failed: " + failure : cancelled ? ", cancelled" : "");
+		}
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		general.execute(command);
+	}
+
+	@Override
+	public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+		return general.schedule(command, delay, unit);
+	}
+
+	@Override
+	public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+		return general.schedule(callable, delay, unit);
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+		return general.scheduleAtFixedRate(command, initialDelay, period, unit);
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+		return general.scheduleWithFixedDelay(command, initialDelay, delay, unit);
+	}
+
+	/**
+	 * Stops every control loop once its current run finishes, and shuts down the general pool.
+	 */
+	@Override
+	public void shutdown() {
+		control.shutdown(false);
+		background.shutdown(false);
+		general.shutdown();
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		control.shutdown(true);
+		background.shutdown(true);
+		return general.shutdownNow();
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return general.isShutdown();
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return general.isTerminated() && control.terminated.getCount() == 0 && background.terminated.getCount() == 0;
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		return control.terminated.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)
+			&& background.terminated.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)
+			&& general.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+	}
+}
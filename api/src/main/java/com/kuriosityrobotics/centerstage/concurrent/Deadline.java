@@ -0,0 +1,115 @@
+package com.kuriosityrobotics.centerstage.concurrent;
+
+import com.kuriosityrobotics.centerstage.util.Duration;
+import com.kuriosityrobotics.centerstage.util.Instant;
+
+import java.util.Optional;
+import java.util.concurrent.locks.Condition;
+
+/**
+ * The deadline the current thread is working to, if it has one.
+ * <p>
+ * A {@link StructuredTaskScope} opened with a deadline sets it for the code in the scope's block and for every subtask
+ * forked in the scope.  Scopes opened inside inherit the deadline, and can only make it earlier.  Blocking operations
+ * which would otherwise wait for a mechanism, such as moving a slide or following a path, check the deadline and return
+ * early once it has passed, so an autonomous phase ends on time even if some part of it doesn't finish.
+ */
+public final class Deadline {
+	private static final ThreadLocal<Instant> CURRENT = new ThreadLocal<>();
+
+	private Deadline() {
+	}
+
+	/**
+	 * @return the current thread's deadline, or empty if it has none
+	 */
+	public static Optional<Instant> current() {
+		return Optional.ofNullable(CURRENT.get());
+	}
+
+	/**
+	 * @return the time left until the current thread's deadline, which is zero once it has passed, or empty if it has
+	 * no deadline
+	 */
+	public static Optional<Duration> remaining() {
+		var deadline = CURRENT.get();
+		if (deadline == null)
+			return Optional.empty();
+
+		var remaining = Instant.now().until(deadline);
+		return Optional.of(remaining.toNanos() > 0 ? remaining : Duration.ofNanos(0));
+	}
+
+	/**
+	 * @return true if the current thread has a deadline, and it has passed
+	 */
+	public static boolean hasExpired() {
+		var deadline = CURRENT.get();
+		return deadline != null && !Instant.now().isBefore(deadline);
+	}
+
+	/**
+	 * @return the earlier of <code>deadline</code> and the current thread's deadline, or null if neither exists
+	 */
+	public static Instant earliest(Instant deadline) {
+		var current = CURRENT.get();
+		if (deadline == null)
+			return current;
+		if (current == null)
+			return deadline;
+		return current.isBefore(deadline) ? current : deadline;
+	}
+
+	/**
+	 * Sleeps for <code>duration</code>, or until the current thread's deadline if that comes first.
+	 *
+	 * @return false if the sleep was cut short by the deadline
+	 */
+	public static boolean sleep(Duration duration) throws InterruptedException {
+		var remaining = remaining();
+		if (remaining.isPresent() && remaining.get().isLessThan(duration)) {
+			sleepNanos(remaining.get().toNanos());
+			return false;
+		}
+
+		sleepNanos(duration.toNanos());
+		return true;
+	}
+
+	private static void sleepNanos(long nanos) throws InterruptedException {
+		if (nanos > 0)
+			Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+	}
+
+	/**
+	 * Waits on <code>condition</code> until it is signalled, or until the current thread's deadline.  The condition's
+	 * lock must be held, as for {@link Condition#await()}.
+	 *
+	 * @return false if the deadline had passed when the wait ended
+	 */
+	public static boolean await(Condition condition) throws InterruptedException {
+		var deadline = CURRENT.get();
+		if (deadline == null) {
+			condition.await();
+			return true;
+		}
+
+		long remaining = Instant.now().until(deadline).toNanos();
+		return remaining > 0 && condition.awaitNanos(remaining) > 0;
+	}
+
+	/**
+	 * Sets the current thread's deadline.
+	 *
+	 * @param deadline the new deadline, or null for none
+	 * @return the deadline it replaces, to be restored afterwards
+	 */
+	static Instant set(Instant deadline) {
+		var previous = CURRENT.get();
+		if (deadline == null)
+			CURRENT.remove();
+		else
+			CURRENT.set(deadline);
+		return previous;
+	}
+}
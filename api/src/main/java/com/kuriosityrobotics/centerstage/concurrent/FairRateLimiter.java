@@ -1,100 +1,83 @@
 package com.kuriosityrobotics.centerstage.concurrent;
 
 import com.kuriosityrobotics.centerstage.util.Duration;
-import com.kuriosityrobotics.centerstage.util.Instant;
-
-import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.ReentrantLock;
 
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fair rate limiter: uses are at least <code>minimumDelay</code> apart, and are granted in the order they were asked
+ * for.
+ * <p>
+ * Each caller reserves the next free time with a compare-and-set, and then parks until it, so waiters are queued by
+ * their reservations rather than by a lock or a queue of nodes, and waiting allocates nothing.  A waiter which is
+ * interrupted gives its time back if nobody has reserved a later one; otherwise its time goes unused.
+ * <p>
+ * This class is thread-safe.
+ */
 public class FairRateLimiter {
-	private final ReentrantLock lock = new ReentrantLock();
-	private final ConcurrentLinkedDeque<Condition> waiters = new ConcurrentLinkedDeque<>();
-	private Instant nextFree;
-	private final Duration minimumDelay;
+	private final long delayNanos;
+	private final AtomicLong nextFree; // the System.nanoTime() from which the next use may be reserved
 
 	public FairRateLimiter(Duration minimumDelay) {
-		this.minimumDelay = minimumDelay;
-		this.nextFree = Instant.now();
+		this.delayNanos = minimumDelay.toNanos();
+		this.nextFree = new AtomicLong(System.nanoTime());
 	}
 
-	// guarded by lock
-	private void pollAndSignalNext() {
-		waiters.pop();
-		Condition next = waiters.peek();
-		if (next != null)
-			next.signal();
+	public void use() throws InterruptedException {
+		long reserved = reserve(Long.MAX_VALUE);
+		await(reserved);
 	}
 
-	// guarded by lock
-	private void scheduleNextTime(Instant now) {
-		this.nextFree = (now.add(minimumDelay));
+	/**
+	 * Takes a use if one is available now, and nobody is waiting for one.
+	 *
+	 * @return whether a use was taken
+	 */
+	public boolean tryUse() {
+		return reserve(0) != NONE;
 	}
 
-	public void use() throws InterruptedException {
-		Condition condition = lock.newCondition();
+	/**
+	 * Waits at most <code>timeout</code> for a use, behind everybody already waiting.
+	 *
+	 * @return whether a use was taken
+	 */
+	public boolean tryUse(Duration timeout) throws InterruptedException {
+		long reserved = reserve(timeout.toNanos());
+		if (reserved == NONE)
+			return false;
 
-		lock.lock();
-		try {
-			waiters.addLast(condition);
+		await(reserved);
+		return true;
+	}
 
-			while (waiters.peekFirst() != condition)
-				condition.await();
+	private static final long NONE = Long.MIN_VALUE;
 
-			Instant now;
-			while ((now = Instant.now()).isBefore(nextFree))
-				condition.await(nextFree.since(now).toMillis(), TimeUnit.MILLISECONDS);
+	/**
+	 * Reserves the next free time, if it is at most <code>maximumWaitNanos</code> away.
+	 *
+	 * @return the time reserved, or {@link #NONE}
+	 */
+	private long reserve(long maximumWaitNanos) {
+		for (; ; ) {
+			long now = System.nanoTime();
+			long free = nextFree.get();
+			long reserved = Math.max(free, now);
 
-			pollAndSignalNext();
-			scheduleNextTime(now);
-		} finally {
-			lock.unlock();
-		}
-	}
+			if (reserved - now > maximumWaitNanos)
+				return NONE;
 
-	public boolean tryUse() {
-		lock.lock();
-		try {
-			Instant now = Instant.now();
-			if (waiters.isEmpty() && now.isAfter(nextFree)) {
-				scheduleNextTime(now);
-				return true;
-			} else {
-				return false;
-			}
-		} finally {
-			lock.unlock();
+			if (nextFree.compareAndSet(free, reserved + delayNanos))
+				return reserved;
 		}
 	}
 
-	public boolean tryUse(Duration timeout) throws InterruptedException {
-		Condition condition = lock.newCondition();
-		Instant end = Instant.now().add(timeout);
-
-		lock.lock();
+	private void await(long reserved) throws InterruptedException {
 		try {
-			waiters.addLast(condition);
-
-			for (; ; ) {
-				Instant now = Instant.now();
-
-				if (waiters.peekFirst() == condition && now.isAfter(nextFree)) {
-					pollAndSignalNext();
-					scheduleNextTime(now);
-					return true;
-				}
-
-				if (now.isAfter(end)) {
-					waiters.remove(condition);
-					return false;
-				}
-
-				Duration timeRemaining = end.since(now);
-				condition.await(timeRemaining.toMillis(), TimeUnit.MILLISECONDS);
-			}
-		} finally {
-			lock.unlock();
+			RateLimiter.parkUntil(reserved);
+		} catch (InterruptedException e) {
+			nextFree.compareAndSet(reserved + delayNanos, reserved); // only if nobody is queued behind
+			throw e;
 		}
 	}
 }
@@ -1,6 +1,10 @@
 package com.kuriosityrobotics.centerstage.concurrent;
 
+import com.kuriosityrobotics.centerstage.util.Duration;
+import com.kuriosityrobotics.centerstage.util.Instant;
+
 import java.util.Objects;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.kuriosityrobotics.centerstage.concurrent.StructuredTaskScope.Subtask.State.FAILED;
@@ -11,13 +15,28 @@ import static com.kuriosityrobotics.centerstage.concurrent.StructuredTaskScope.S
  * in the main thread when {@link #join} is called.
  * <br>
  * This scope allows subtasks to throw {@link InterruptedException} as well as an additional exception {@code <E>}.
+ * <br>
+ * Subtasks run on workers from a {@link CarrierPool}, by default the {@linkplain CarrierPool#shared() shared} one, so
+ * forking doesn't start a new thread.
+ * <br>
+ * A scope may have a {@link Deadline}, which it inherits from the thread opening it and which can be made earlier with
+ * {@link #openUntil} or {@link #openWithin}.  The deadline applies to the scope's block and to its subtasks, so blocking
+ * mechanism operations in them return early once it passes.  {@link #join} stops waiting at the deadline, interrupting
+ * any subtasks which haven't returned by themselves shortly after it.
  * @param <E> the exception thrown by the scope
  */
 public class HardwareTaskScope<E extends Exception> extends StructuredTaskScope<Object> {
 	// either E, InterruptedException, RuntimeException or Error
 	private final AtomicReference<Throwable> firstException = new AtomicReference<>();
 
-	private HardwareTaskScope() {}
+	// how long subtasks have to return by themselves once the scope's deadline passes
+	private static final Duration DEADLINE_GRACE = Duration.ofMillis(50);
+
+	private volatile boolean expired;
+
+	private HardwareTaskScope(CarrierPool pool, Instant deadline) {
+		super(null, pool, deadline);
+	}
 
 	@Override
 	protected void handleComplete(Subtask<?> subtask) {
@@ -40,9 +59,67 @@ public class HardwareTaskScope<E extends Exception> extends StructuredTaskScope<
 		return super.forkInner(task::supply);
 	}
 
+	/**
+	 * Waits for every subtask to finish, or for one to fail.  If the scope has a deadline, this stops waiting when the
+	 * deadline passes, and the subtasks which are still running are interrupted.  Subtasks cut short by the deadline
+	 * return normally, so check {@link #hasExpired()} afterwards to tell whether they finished.
+	 *
+	 * @throws E                    the first exception thrown by a subtask
+	 * @throws InterruptedException if interrupted while waiting, or if a subtask was
+	 */
 	public HardwareTaskScope<E> join() throws InterruptedException, E {
-		super.joinInner();
+		var deadline = deadline();
+		if (deadline.isPresent()) {
+			try {
+				super.joinUntilInner(deadline.get().add(DEADLINE_GRACE));
+			} catch (TimeoutException e) {
+				shutdown();
+			}
+			expired = !Instant.now().isBefore(deadline.get());
+		} else {
+			super.joinInner();
+		}
+
+		return rethrow();
+	}
 
+	/**
+	 * @return whether the scope's deadline had passed when {@link #join()} last returned, so that its subtasks may have
+	 * been cut short rather than finishing
+	 */
+	public boolean hasExpired() {
+		return expired;
+	}
+
+	/**
+	 * Waits for every subtask to finish, or for one to fail, until <code>deadline</code>.  If the deadline passes
+	 * first, the scope is shut down, interrupting the subtasks which are still running.
+	 *
+	 * @throws E                    the first exception thrown by a subtask
+	 * @throws InterruptedException if interrupted while waiting, or if a subtask was
+	 * @throws TimeoutException     if the deadline passed first
+	 */
+	public HardwareTaskScope<E> joinUntil(Instant deadline) throws InterruptedException, TimeoutException, E {
+		try {
+			super.joinUntilInner(deadline);
+		} catch (TimeoutException e) {
+			shutdown();
+			throw e;
+		}
+
+		return rethrow();
+	}
+
+	/**
+	 * Waits for every subtask to finish, or for one to fail, for at most <code>timeout</code>.
+	 *
+	 * @see #joinUntil(Instant)
+	 */
+	public HardwareTaskScope<E> join(Duration timeout) throws InterruptedException, TimeoutException, E {
+		return joinUntil(Instant.now().add(timeout));
+	}
+
+	private HardwareTaskScope<E> rethrow() throws InterruptedException, E {
 		var e = firstException.get();
 		if (e != null) {
 			if (e instanceof InterruptedException) {
@@ -56,12 +133,37 @@ public class HardwareTaskScope<E extends Exception> extends StructuredTaskScope<
 	}
 
 	public static HardwareTaskScope<InterruptedException> open() {
-		return new HardwareTaskScope<>();
+		return new HardwareTaskScope<>(CarrierPool.shared(), null);
 	}
 
 	public static <E extends Exception> HardwareTaskScope<E> open(Class<E> clazz) {
 		Objects.requireNonNull(clazz);
-		return new HardwareTaskScope<>();
+		return new HardwareTaskScope<>(CarrierPool.shared(), null);
+	}
+
+	/**
+	 * Opens a scope which, with its subtasks, must finish by <code>deadline</code>, or by the current thread's
+	 * deadline if that is earlier.
+	 */
+	public static <E extends Exception> HardwareTaskScope<E> openUntil(Class<E> clazz, Instant deadline) {
+		Objects.requireNonNull(clazz);
+		return new HardwareTaskScope<>(CarrierPool.shared(), Objects.requireNonNull(deadline));
+	}
+
+	/**
+	 * Opens a scope which, with its subtasks, must finish within <code>budget</code> of now, or by the current
+	 * thread's deadline if that is earlier.
+	 */
+	public static <E extends Exception> HardwareTaskScope<E> openWithin(Class<E> clazz, Duration budget) {
+		return openUntil(clazz, Instant.now().add(budget));
+	}
+
+	/**
+	 * Opens a scope whose subtasks run on workers from <code>pool</code>.
+	 */
+	public static <E extends Exception> HardwareTaskScope<E> open(Class<E> clazz, CarrierPool pool) {
+		Objects.requireNonNull(clazz);
+		return new HardwareTaskScope<>(pool, null);
 	}
 
 	public interface HardwareTask<E extends Exception> {
@@ -12,6 +12,12 @@ interface JavaLangAccess {
 	 */
 	void start(Thread thread, ThreadContainer container);
 
+	/**
+	 * Sets the ThreadContainer of a started thread, or removes it if null.  Only for pooled threads, which move
+	 * between containers.
+	 */
+	void setThreadContainer(Thread thread, ThreadContainer container);
+
 	/**
 	 * Returns the top of the given thread's stackable scope stack.
 	 */
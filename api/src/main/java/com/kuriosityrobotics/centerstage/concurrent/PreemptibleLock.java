@@ -1,65 +1,280 @@
 package com.kuriosityrobotics.centerstage.concurrent;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
 import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.Lock;
 
 /**
  * A lock that can be preempted by another thread.
  * If a lock is 'preempted', the holder of the lock will be interrupted.
+ * <p>
+ * {@link #lock()}, {@link #lockInterruptibly()} and {@link #tryLock(long, TimeUnit)} preempt the holder before waiting
+ * for it to let go; {@link #tryLock()} never does.  The lock is reentrant, and a thread never preempts itself.  A
+ * holder is only ever interrupted while it holds the lock: a preempting thread pins the hold it interrupts, and
+ * releasing that hold waits for the interrupt to be delivered.
+ * <p>
+ * The lock is a single {@link AbstractQueuedSynchronizer}, so an uncontended acquisition and release are a
+ * compare-and-set each, as for {@link java.util.concurrent.locks.ReentrantLock}.
  */
-public class PreemptibleLock extends ReentrantLock {
+public class PreemptibleLock implements Lock {
+	private final Sync sync;
+
 	public PreemptibleLock() {
-		super();
+		this(false);
 	}
 
+	/**
+	 * @param fair whether waiting threads acquire the lock in the order they asked for it, rather than letting threads
+	 *             which have just arrived take it first
+	 */
 	public PreemptibleLock(boolean fair) {
-		super(fair);
+		this.sync = new Sync(fair);
 	}
 
+	private static final class Sync extends AbstractQueuedSynchronizer {
+		private static final long serialVersionUID = 1L;
 
-	private final ReentrantLock acquisitionLock = new ReentrantLock();
-	private final Condition acquisitionCondition = acquisitionLock.newCondition();
+		// the low bits of the state count the owner's holds; the high bits count threads preempting it
+		private static final int HOLDS_MASK = 0xFFFF;
+		private static final int PIN = HOLDS_MASK + 1;
 
-	@Override
-	public void unlock() {
-		acquisitionLock.lock();
-		try {
-			super.unlock();
-			acquisitionCondition.signalAll();
-		} finally {
-			acquisitionLock.unlock();
+		private final boolean fair;
+
+		Sync(boolean fair) {
+			this.fair = fair;
+		}
+
+		static int holds(int state) {
+			return state & HOLDS_MASK;
+		}
+
+		static int pins(int state) {
+			return state >>> 16;
+		}
+
+		@Override
+		protected boolean tryAcquire(int acquires) {
+			return tryAcquire(acquires, !fair);
+		}
+
+		/**
+		 * @param barge whether to take the lock if it is free, even if other threads are waiting for it
+		 */
+		boolean tryAcquire(int acquires, boolean barge) {
+			acquires &= HOLDS_MASK; // a condition reacquires with the state it saved, which may include pins
+			var current = Thread.currentThread();
+			while (true) {
+				int c = getState();
+				if (holds(c) == 0) {
+					if (!barge && hasQueuedPredecessors())
+						return false;
+					if (compareAndSetState(c, c + acquires)) {
+						setExclusiveOwnerThread(current);
+						return true;
+					}
+				} else if (getExclusiveOwnerThread() == current) {
+					if (holds(c) + acquires > HOLDS_MASK)
+						throw new Error("Maximum lock count exceeded");
+					if (compareAndSetState(c, c + acquires))
+						return true;
+				} else {
+					return false;
+				}
+			}
+		}
+
+		@Override
+		protected boolean tryRelease(int releases) {
+			releases &= HOLDS_MASK;
+			if (getExclusiveOwnerThread() != Thread.currentThread())
+				throw new IllegalMonitorStateException();
+
+			while (true) {
+				int c = getState();
+				if (holds(c) > releases) {
+					if (compareAndSetState(c, c - releases))
+						return false;
+					continue;
+				}
+
+				if (pins(c) != 0) {
+					Thread.onSpinWait(); // a preempting thread is about to interrupt this one
+					continue;
+				}
+
+				setExclusiveOwnerThread(null);
+				if (compareAndSetState(c, 0))
+					return true;
+				setExclusiveOwnerThread(Thread.currentThread()); // pinned in the meantime
+			}
+		}
+
+		/**
+		 * Interrupts the owner, if there is one and it isn't the current thread.
+		 */
+		void preempt() {
+			var current = Thread.currentThread();
+			while (true) {
+				int c = getState();
+				var owner = getExclusiveOwnerThread();
+				if (holds(c) == 0 || owner == current)
+					return;
+				if (!compareAndSetState(c, c + PIN))
+					continue;
+
+				// the hold can't be released while pinned, so the owner can't change either
+				owner = getExclusiveOwnerThread();
+				try {
+					if (owner != null && owner != current)
+						owner.interrupt();
+				} finally {
+					unpin();
+				}
+
+				if (owner != null) // otherwise the owner was between holds; try again
+					return;
+			}
+		}
+
+		private void unpin() {
+			int c;
+			do {
+				c = getState();
+			} while (!compareAndSetState(c, c - PIN));
+		}
+
+		@Override
+		protected boolean isHeldExclusively() {
+			return getExclusiveOwnerThread() == Thread.currentThread();
+		}
+
+		Thread owner() {
+			return holds(getState()) == 0 ? null : getExclusiveOwnerThread();
+		}
+
+		int holdCount() {
+			return isHeldExclusively() ? holds(getState()) : 0;
+		}
+
+		boolean isLocked() {
+			return holds(getState()) != 0;
+		}
+
+		boolean isFair() {
+			return fair;
+		}
+
+		Condition newCondition() {
+			return new ConditionObject();
 		}
 	}
 
+	/**
+	 * Acquires the lock, preempting its holder if it is held by another thread, and waits uninterruptibly until the
+	 * holder lets go.
+	 */
 	@Override
 	public void lock() {
-		acquisitionLock.lock();
-		try {
-			if (!isHeldByCurrentThread() && isLocked()) {
-				getOwner().interrupt();
-			}
-			
-			while (!super.tryLock()) {
-                acquisitionCondition.awaitUninterruptibly();
-            }
-		} finally {
-			acquisitionLock.unlock();
+		if (!sync.tryAcquire(1)) {
+			sync.preempt();
+			sync.acquire(1);
 		}
 	}
 
+	/**
+	 * Acquires the lock, preempting its holder if it is held by another thread, and waits until the holder lets go.
+	 *
+	 * @throws InterruptedException if the current thread is interrupted, including by another thread preempting it
+	 */
 	@Override
 	public void lockInterruptibly() throws InterruptedException {
-		acquisitionLock.lockInterruptibly();
-		try {
-			if (!isHeldByCurrentThread() && isLocked()) {
-				getOwner().interrupt();
-			}
-			
-			while (!super.tryLock()) {
-				acquisitionCondition.await();
-			}
-		} finally {
-			acquisitionLock.unlock();
+		if (Thread.interrupted())
+			throw new InterruptedException();
+
+		if (!sync.tryAcquire(1)) {
+			sync.preempt();
+			sync.acquireInterruptibly(1);
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Acquires the lock if it isn't held by another thread, without preempting anyone.  Like
+	 * {@link java.util.concurrent.locks.ReentrantLock#tryLock()}, this takes the lock when it is free even if the lock
+	 * is fair and other threads are waiting.
+	 */
+	@Override
+	public boolean tryLock() {
+		return sync.tryAcquire(1, true);
+	}
+
+	/**
+	 * Acquires the lock, preempting its holder if it is held by another thread, and waits at most <code>timeout</code>
+	 * for the holder to let go.
+	 *
+	 * @return false if the holder did not let go in time
+	 * @throws InterruptedException if the current thread is interrupted, including by another thread preempting it
+	 */
+	@Override
+	public boolean tryLock(long timeout, TimeUnit unit) throws InterruptedException {
+		if (Thread.interrupted())
+			throw new InterruptedException();
+
+		if (sync.tryAcquire(1))
+			return true;
+
+		sync.preempt();
+		return sync.tryAcquireNanos(1, unit.toNanos(timeout));
+	}
+
+	@Override
+	public void unlock() {
+		sync.release(1);
+	}
+
+	/**
+	 * Returns a condition bound to this lock.  Waiting on it releases the lock entirely, and reacquiring the lock after
+	 * waiting doesn't preempt anyone.
+	 */
+	@Override
+	public Condition newCondition() {
+		return sync.newCondition();
+	}
+
+	public boolean isLocked() {
+		return sync.isLocked();
+	}
+
+	public boolean isHeldByCurrentThread() {
+		return sync.isHeldExclusively();
+	}
+
+	public int getHoldCount() {
+		return sync.holdCount();
+	}
+
+	public final boolean isFair() {
+		return sync.isFair();
+	}
+
+	public final boolean hasQueuedThreads() {
+		return sync.hasQueuedThreads();
+	}
+
+	public final int getQueueLength() {
+		return sync.getQueueLength();
+	}
+
+	/**
+	 * @return the thread holding the lock, or null if it isn't held
+	 */
+	protected Thread getOwner() {
+		return sync.owner();
+	}
+
+	@Override
+	public String toString() {
+		var owner = sync.owner();
+		return super.toString() + (owner == null ? "[Unlocked]" : "[Locked by thread " + owner.getName() + "]");
+	}
+}
@@ -1,9 +1,9 @@
 package com.kuriosityrobotics.centerstage.concurrent;
 
 import com.kuriosityrobotics.centerstage.util.Duration;
-import com.kuriosityrobotics.centerstage.util.Instant;
 
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * An unfair (racing) rate limiter that can be used
@@ -11,57 +11,114 @@ import java.util.concurrent.atomic.AtomicReference;
  * <p>
  * Uses do not need to be freed afterwards.
  * <p>
+ * The limiter is a token bucket: it holds up to <code>burst</code> uses, starts full, and gains one use every
+ * <code>minimumDelay</code>.  With the default burst of one, consecutive uses are at least <code>minimumDelay</code>
+ * apart.  The bucket is kept as the single time at which it will next be full, so using it is a compare-and-set and
+ * allocates nothing, and waiting parks for exactly as long as is needed.
+ * <p>
  * This class is thread-safe.
  */
 public class RateLimiter {
-	private final AtomicReference<Instant> nextFree;
-	private final Duration minimumDelay;
+	private final long delayNanos;
+	private final long toleranceNanos; // how far ahead of now the bucket may be emptied
+	private final AtomicLong fullAt; // the System.nanoTime() at which the bucket will be full
 
 	public RateLimiter(Duration minimumDelay) {
-		this.minimumDelay = minimumDelay;
-		nextFree = new AtomicReference<>(Instant.now());
+		this(minimumDelay, 1);
 	}
 
+	/**
+	 * @param minimumDelay how long the bucket takes to gain a use
+	 * @param burst        how many uses the bucket holds, which can be used at once
+	 */
+	public RateLimiter(Duration minimumDelay, int burst) {
+		if (burst < 1)
+			throw new IllegalArgumentException("burst must be at least 1");
+
+		this.delayNanos = minimumDelay.toNanos();
+		this.toleranceNanos = delayNanos * burst;
+		this.fullAt = new AtomicLong(System.nanoTime());
+	}
+
+	/**
+	 * Waits until a use is available, then takes it.
+	 */
 	public void use() throws InterruptedException {
 		for (; ; ) {
-			Instant now = Instant.now();
-			Instant nextFreeTime = nextFree.get();
+			long now = System.nanoTime();
+			long full = fullAt.get();
+			long next = Math.max(full, now) + delayNanos;
 
-			if (now.isBefore(nextFreeTime))
-				Thread.sleep(nextFreeTime.since(now).toMillis());
+			long availableAt = next - toleranceNanos;
+			if (availableAt - now > 0) {
+				parkUntil(availableAt);
+				continue; // race for it
+			}
 
-			if (nextFree.compareAndSet(nextFreeTime, now.add(minimumDelay)))
+			if (fullAt.compareAndSet(full, next))
 				return;
 		}
 	}
 
+	/**
+	 * Takes a use if one is available now.
+	 *
+	 * @return whether a use was taken
+	 */
 	public boolean tryUse() {
 		for (; ; ) {
-			Instant now = Instant.now();
-			Instant nextFreeTime = nextFree.get();
+			long now = System.nanoTime();
+			long full = fullAt.get();
+			long next = Math.max(full, now) + delayNanos;
 
-			if (now.isBefore(nextFreeTime))
+			if (next - toleranceNanos - now > 0)
 				return false;
 
-			if (nextFree.compareAndSet(nextFreeTime, now.add(minimumDelay)))
+			if (fullAt.compareAndSet(full, next))
 				return true;
 		}
 	}
 
+	/**
+	 * Waits at most <code>timeout</code> for a use to be available, then takes it.
+	 *
+	 * @return whether a use was taken
+	 */
 	public boolean tryUse(Duration timeout) throws InterruptedException {
-		Instant end = Instant.now().add(timeout);
+		long end = System.nanoTime() + timeout.toNanos();
 		for (; ; ) {
-			Instant now = Instant.now();
-			Instant nextFreeTime = nextFree.get();
+			long now = System.nanoTime();
+			long full = fullAt.get();
+			long next = Math.max(full, now) + delayNanos;
 
-			if (nextFreeTime.isAfter(end))
+			long availableAt = next - toleranceNanos;
+			if (availableAt - end > 0)
 				return false;
 
-			if (now.isBefore(nextFreeTime))
-				Thread.sleep(nextFreeTime.since(now).toMillis());
+			if (availableAt - now > 0) {
+				parkUntil(availableAt);
+				continue;
+			}
 
-			if (nextFree.compareAndSet(nextFreeTime, now.add(minimumDelay)))
+			if (fullAt.compareAndSet(full, next))
 				return true;
 		}
 	}
+
+	/**
+	 * Parks the current thread until the given {@link System#nanoTime()}.
+	 *
+	 * @throws InterruptedException if the thread is interrupted while parked
+	 */
+	static void parkUntil(long nanoTime) throws InterruptedException {
+		for (; ; ) {
+			if (Thread.interrupted())
+				throw new InterruptedException();
+
+			long remaining = nanoTime - System.nanoTime();
+			if (remaining <= 0)
+				return;
+			LockSupport.parkNanos(remaining);
+		}
+	}
 }
@@ -19,6 +19,13 @@ class SharedSecrets {
 			thread.start();
 		}
 
+		public void setThreadContainer(Thread thread, ThreadContainer container) {
+			if (container == null)
+				CONTAINERS.remove(thread);
+			else
+				CONTAINERS.put(thread, container);
+		}
+
 		public StackableScope headStackableScope(Thread thread) {
 			return HEAD_STACKABLE_SCOPE.get();
 		}
@@ -30,6 +30,7 @@ import com.kuriosityrobotics.centerstage.util.Duration;
 import com.kuriosityrobotics.centerstage.util.Instant;
 
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.Callable;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
@@ -270,9 +271,15 @@ import java.util.function.Supplier;
  * @since 21
  */
 public abstract class StructuredTaskScope<T> implements AutoCloseable {
-	private final ThreadFactory factory;
+	private final ThreadFactory factory; // null if pooled
+	private final CarrierPool pool; // null if not pooled
 	private final ThreadFlock flock;
+	private final Instant deadline; // null if none
+	private final Instant ownerDeadline; // the owner's deadline before this scope was opened
 	private final ReentrantLock shutdownLock = new ReentrantLock();
+	private final TaskTrace trace; // null if not traced
+	private final long traceId;
+	private final String traceName;
 
 	// states: OPEN -> SHUTDOWN -> CLOSED
 	private static final int OPEN     = 0;   // initial state
@@ -367,9 +374,59 @@ public abstract class StructuredTaskScope<T> implements AutoCloseable {
 	@SuppressWarnings("this-escape")
 	public StructuredTaskScope(String name, ThreadFactory factory) {
 		this.factory = Objects.requireNonNull(factory, "'factory' is null");
+		this.pool = null;
+		this.trace = TaskTrace.active();
+		this.traceId = trace != null ? TaskTrace.nextId() : 0;
+		this.traceName = trace != null && name == null ? TaskTrace.callSite() : name;
 		if (name == null)
 			name = toIdentityString(this);
 		this.flock = ThreadFlock.open(name);
+		this.deadline = Deadline.earliest(null);
+		this.ownerDeadline = Deadline.set(deadline);
+		trace(TaskTrace.Kind.SCOPE_OPEN);
+	}
+
+	/**
+	 * Creates a structured task scope with the given name whose subtasks run on workers from the given pool, rather
+	 * than on threads of their own.  The task scope is owned by the current thread.
+	 *
+	 * @param name the name of the task scope, can be null
+	 * @param pool the pool
+	 */
+	public StructuredTaskScope(String name, CarrierPool pool) {
+		this(name, pool, null);
+	}
+
+	/**
+	 * Creates a structured task scope with the given name and {@linkplain Deadline deadline}, whose subtasks run on
+	 * workers from the given pool.  The scope's deadline is the earlier of the given deadline and the current thread's;
+	 * it applies to the current thread until the scope is closed, and to every subtask forked in the scope.  The task
+	 * scope is owned by the current thread.
+	 *
+	 * @param name the name of the task scope, can be null
+	 * @param pool the pool
+	 * @param deadline the deadline, can be null to only inherit the current thread's
+	 */
+	@SuppressWarnings("this-escape")
+	public StructuredTaskScope(String name, CarrierPool pool, Instant deadline) {
+		this.factory = null;
+		this.pool = Objects.requireNonNull(pool, "'pool' is null");
+		this.trace = TaskTrace.active();
+		this.traceId = trace != null ? TaskTrace.nextId() : 0;
+		this.traceName = trace != null && name == null ? TaskTrace.callSite() : name;
+		if (name == null)
+			name = toIdentityString(this);
+		this.flock = ThreadFlock.open(name);
+		this.deadline = Deadline.earliest(deadline);
+		this.ownerDeadline = Deadline.set(this.deadline);
+		trace(TaskTrace.Kind.SCOPE_OPEN);
+	}
+
+	/**
+	 * {@return the deadline of this task scope and its subtasks, or empty if it has none}
+	 */
+	public final Optional<Instant> deadline() {
+		return Optional.ofNullable(deadline);
 	}
 
 	/**
@@ -383,6 +440,14 @@ public abstract class StructuredTaskScope<T> implements AutoCloseable {
 		this(null, Thread::new); // virtual threads don't exist in java 11
 	}
 
+	/**
+	 * Records an event of this scope, if it is {@linkplain TaskTrace traced}.
+	 */
+	private void trace(TaskTrace.Kind kind) {
+		if (trace != null)
+			trace.record(kind, traceId, traceName);
+	}
+
 	private IllegalStateException newIllegalStateExceptionScopeClosed() {
 		return new IllegalStateException("Task scope is closed");
 	}
@@ -512,10 +577,12 @@ public abstract class StructuredTaskScope<T> implements AutoCloseable {
 		}
 
 		var subtask = new SubtaskImpl<U>(this, task);
+		if (trace != null)
+			trace.record(TaskTrace.Kind.FORK, subtask.traceId, subtask.traceName);
 		if (s < SHUTDOWN) {
 			// attempt to start the thread
 			try {
-				Thread thread = flock.start(factory, subtask);
+				Thread thread = pool != null ? flock.start(pool, subtask) : flock.start(factory, subtask);
 				if (thread == null) {
 					throw new RejectedExecutionException("Rejected by thread factory");
 				}
@@ -545,10 +612,15 @@ public abstract class StructuredTaskScope<T> implements AutoCloseable {
 		int s = ensureOpen();  // throws ISE if closed
 		if (s == OPEN) {
 			// wait for all threads, wakeup, interrupt, or timeout
-			if (timeout != null) {
-				flock.awaitAll(timeout);
-			} else {
-				flock.awaitAll();
+			trace(TaskTrace.Kind.JOIN_BEGIN);
+			try {
+				if (timeout != null) {
+					flock.awaitAll(timeout);
+				} else {
+					flock.awaitAll();
+				}
+			} finally {
+				trace(TaskTrace.Kind.JOIN_END);
 			}
 		}
 		lastJoinCompleted = forkRound;
@@ -620,13 +692,7 @@ public abstract class StructuredTaskScope<T> implements AutoCloseable {
 	 * Interrupt all unfinished threads.
 	 */
 	private void implInterruptAll() {
-		flock.threads()
-			.filter(t -> t != Thread.currentThread())
-			.forEach(t -> {
-				try {
-					t.interrupt();
-				} catch (Throwable ignore) { }
-			});
+		flock.interruptAll();
 	}
 
 	private void interruptAll() {
@@ -704,8 +770,10 @@ public abstract class StructuredTaskScope<T> implements AutoCloseable {
 	public void shutdown() {
 		ensureOwnerOrContainsThread();
 		int s = ensureOpen();  // throws ISE if closed
-		if (s < SHUTDOWN && implShutdown())
+		if (s < SHUTDOWN && implShutdown()) {
+			trace(TaskTrace.Kind.SHUTDOWN); // closing shuts down too, but isn't worth marking
 			flock.wakeup();
+		}
 	}
 
 	/**
@@ -756,6 +824,8 @@ public abstract class StructuredTaskScope<T> implements AutoCloseable {
 			flock.close();
 		} finally {
 			state = CLOSED;
+			Deadline.set(ownerDeadline);
+			trace(TaskTrace.Kind.SCOPE_CLOSE);
 		}
 
 		// throw ISE if the owner didn't attempt to join after forking
@@ -820,20 +890,34 @@ public abstract class StructuredTaskScope<T> implements AutoCloseable {
 		private final StructuredTaskScope<? super T> scope;
 		private final Callable<? extends T> task;
 		private volatile Object result;
+		private final long traceId;
+		private final String traceName; // null unless the scope is traced
 
 		SubtaskImpl(StructuredTaskScope<? super T> scope, Callable<? extends T> task) {
 			this.scope = scope;
 			this.task = task;
+			this.traceId = scope.trace != null ? TaskTrace.nextId() : 0;
+			this.traceName = scope.trace != null ? TaskTrace.callSite() : null;
 		}
 
 		@Override
 		public void run() {
+			var trace = scope.trace;
+			if (trace != null)
+				trace.record(TaskTrace.Kind.START, traceId, traceName);
+
 			T result = null;
 			Throwable ex = null;
+			var previousDeadline = Deadline.set(scope.deadline);
 			try {
 				result = task.call();
 			} catch (Throwable e) {
 				ex = e;
+			} finally {
+				Deadline.set(previousDeadline);
+				if (trace != null)
+					trace.record(TaskTrace.Kind.COMPLETE, traceId, traceName,
+						scope.isShutdown() ? "cancelled" : ex == null ? "success" : "failed");
 			}
 
 			// nothing to do if task scope is shutdown
@@ -0,0 +1,249 @@
+package com.kuriosityrobotics.centerstage.concurrent;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A timeline of what {@link StructuredTaskScope}s did: when each scope was opened, joined, shut down and closed, and
+ * when each subtask was forked, started and completed, on which thread.  The timeline is written as Chrome trace-event
+ * JSON, to be opened in a trace viewer such as <code>chrome://tracing</code> or Perfetto, where each thread is a row,
+ * scopes, joins and subtasks are nested slices, and arrows lead from each fork to the start of its subtask.  Following
+ * the arrows back from the last slice to end shows which branch held an autonomous up.
+ * <p>
+ * Tracing is off unless a trace is {@link #start started}, and then scopes opened anywhere until it is
+ * {@link #stop stopped} record into it, until they are closed.  While it is off, opening a scope reads a volatile
+ * field, and nothing else is done.  While it is on, events go into a fixed-size buffer which threads claim slots in
+ * with an atomic increment, so recording never blocks; events which don't fit are counted and dropped.  Scopes and subtasks are named after the code which opened or forked them, which
+ * walks the stack, so only trace when looking into timing.
+ */
+public final class TaskTrace {
+	public static final String DEFAULT_PATH = "/sdcard/FIRST/task_trace.json";
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+
+	private static final String PACKAGE = "com.kuriosityrobotics.centerstage.concurrent.";
+
+	private static volatile TaskTrace active;
+	private static final AtomicLong ids = new AtomicLong();
+
+	enum Kind {
+		SCOPE_OPEN, SCOPE_CLOSE, JOIN_BEGIN, JOIN_END, SHUTDOWN, FORK, START, COMPLETE
+	}
+
+	private static final class Event {
+		final Kind kind;
+		final long nanoTime;
+		final long threadId;
+		final String threadName;
+		final long id; // of the scope or subtask
+		final String name;
+		final String detail; // the subtask's outcome, for COMPLETE
+
+		Event(Kind kind, long id, String name, String detail) {
+			var thread = Thread.currentThread();
+			this.kind = kind;
+			this.nanoTime = System.nanoTime();
+			this.threadId = thread.getId();
+			this.threadName = thread.getName();
+			this.id = id;
+			this.name = name;
+			this.detail = detail;
+		}
+	}
+
+	private final long startNanos = System.nanoTime();
+	private final AtomicReferenceArray<Event> events;
+	private final AtomicInteger claimed = new AtomicInteger();
+	private final LongAdder dropped = new LongAdder();
+
+	private TaskTrace(int capacity) {
+		this.events = new AtomicReferenceArray<>(capacity);
+	}
+
+	/**
+	 * Starts recording every scope into a new trace, replacing the trace being recorded if there is one.
+	 *
+	 * @param capacity the most events to record
+	 * @return the new trace
+	 */
+	public static synchronized TaskTrace start(int capacity) {
+		var trace = new TaskTrace(capacity);
+		active = trace;
+		return trace;
+	}
+
+	/**
+	 * @see #start(int)
+	 */
+	public static TaskTrace start() {
+		return start(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Stops scopes from being opened into this trace, if it is being recorded.  Scopes which are already open keep
+	 * recording into it until they are closed.
+	 */
+	public void stop() {
+		synchronized (TaskTrace.class) {
+			if (active == this)
+				active = null;
+		}
+	}
+
+	/**
+	 * @return the trace being recorded, or null if tracing is off
+	 */
+	static TaskTrace active() {
+		return active;
+	}
+
+	/**
+	 * @return a new id for a scope or subtask
+	 */
+	static long nextId() {
+		return ids.incrementAndGet();
+	}
+
+	void record(Kind kind, long id, String name) {
+		record(kind, id, name, null);
+	}
+
+	void record(Kind kind, long id, String name, String detail) {
+		// once full, don't allocate events only to drop them, or keep counting towards overflow
+		if (claimed.get() >= events.length()) {
+			dropped.increment();
+			return;
+		}
+
+		int slot = claimed.getAndIncrement();
+		if (slot < events.length())
+			events.set(slot, new Event(kind, id, name, detail));
+		else
+			dropped.increment();
+	}
+
+	/**
+	 * @return the name of the code which called into this package, as <code>Class.method:line</code>
+	 */
+	static String callSite() {
+		for (var frame : Thread.currentThread().getStackTrace()) {
+			var className = frame.getClassName();
+			if (className.startsWith("java.") || className.startsWith("dalvik.") || isInThisPackage(className))
+				continue;
+			return className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName() + ":" + frame.getLineNumber();
+		}
+
+		return "unknown";
+	}
+
+	private static boolean isInThisPackage(String className) {
+		return className.startsWith(PACKAGE) && className.indexOf('.', PACKAGE.length()) < 0;
+	}
+
+	/**
+	 * @return the number of events recorded
+	 */
+	public int size() {
+		return Math.min(claimed.get(), events.length());
+	}
+
+	/**
+	 * @return the number of events which didn't fit
+	 */
+	public long dropped() {
+		return dropped.sum();
+	}
+
+	/**
+	 * Writes the trace as Chrome trace-event JSON.  Events which were being recorded as it was written are left out.
+	 */
+	public void writeTo(Writer out) throws IOException {
+		var threads = new LinkedHashMap<Long, String>();
+
+		out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+		boolean first = true;
+		for (int i = 0; i < size(); i++) {
+			var event = events.get(i);
+			if (event == null)
+				continue;
+
+			threads.putIfAbsent(event.threadId, event.threadName);
+			first = write(out, event, first);
+		}
+
+		for (Map.Entry<Long, String> thread : threads.entrySet()) {
+			if (!first)
+				out.write(",\n");
+			first = false;
+			out.write("{\"ph\":\"M\",\"pid\":1,\"tid\":" + thread.getKey() + ",\"name\":\"thread_name\",\"args\":{\"name\":"
+				+ quote(thread.getValue()) + "}}");
+		}
+
+		out.write("\n]}\n");
+		out.flush();
+	}
+
+	private boolean write(Writer out, Event event, boolean first) throws IOException {
+		var common = ",\"pid\":1,\"tid\":" + event.threadId + ",\"ts\":" + String.format(Locale.ROOT, "%.3f", (event.nanoTime - startNanos) / 1e3);
+		switch (event.kind) {
+			case SCOPE_OPEN:
+				return writeEvent(out, first, "{\"ph\":\"B\",\"cat\":\"scope\",\"name\":" + quote("scope " + event.name) + common + "}");
+			case SCOPE_CLOSE:
+			case JOIN_END:
+				return writeEvent(out, first, "{\"ph\":\"E\"" + common + "}");
+			case JOIN_BEGIN:
+				return writeEvent(out, first, "{\"ph\":\"B\",\"cat\":\"join\",\"name\":" + quote("join " + event.name) + common + "}");
+			case SHUTDOWN:
+				return writeEvent(out, first, "{\"ph\":\"i\",\"s\":\"t\",\"cat\":\"shutdown\",\"name\":" + quote("shutdown " + event.name) + common + "}");
+			case FORK:
+				first = writeEvent(out, first, "{\"ph\":\"i\",\"s\":\"t\",\"cat\":\"fork\",\"name\":" + quote("fork " + event.name) + common + "}");
+				return writeEvent(out, first, "{\"ph\":\"s\",\"cat\":\"fork\",\"name\":\"fork\",\"id\":" + event.id + common + "}");
+			case START:
+				first = writeEvent(out, first, "{\"ph\":\"B\",\"cat\":\"subtask\",\"name\":" + quote(event.name) + common + "}");
+				return writeEvent(out, first, "{\"ph\":\"f\",\"bp\":\"e\",\"cat\":\"fork\",\"name\":\"fork\",\"id\":" + event.id + common + "}");
+			case COMPLETE:
+				return writeEvent(out, first, "{\"ph\":\"E\"" + common + ",\"args\":{\"outcome\":" + quote(event.detail) + "}}");
+			default:
+				throw new InternalError();
+		}
+	}
+
+	private static boolean writeEvent(Writer out, boolean first, String json) throws IOException {
+		if (!first)
+			out.write(",\n");
+		out.write(json);
+		return false;
+	}
+
+	private static String quote(String s) {
+		var quoted = new StringBuilder("\"");
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\')
+				quoted.append('\\').append(c);
+			else if (c < 0x20)
+				quoted.append(String.format("\\u%04x", (int) c));
+			else
+				quoted.append(c);
+		}
+		return quoted.append('"').toString();
+	}
+
+	/**
+	 * Writes the trace to a file, replacing it.
+	 *
+	 * @param path the file to write
+	 */
+	public void dump(String path) throws IOException {
+		try (var writer = new FileWriter(path)) {
+			writeTo(writer);
+		}
+	}
+}
@@ -243,6 +243,32 @@ class ThreadFlock implements AutoCloseable {
 	 *                                     scoped value bindings are not the same as when the flock was created
 	 */
 	public Thread start(ThreadFactory threadFactory, Runnable target) {
+		return launch(wrapped -> {
+			Thread thread = threadFactory.newThread(wrapped);
+			JLA.start(thread, container);
+			return thread;
+		}, target);
+	}
+
+	/**
+	 * Runs the given task on a worker from the given pool, in this flock.  The worker is in this flock until the task
+	 * finishes, as a thread started in it would be.
+	 *
+	 * <p> This method may only be invoked by the flock owner or threads {@linkplain
+	 * #containsThread(Thread) contained} in the flock.
+	 *
+	 * @param pool the pool
+	 * @param target the task to be run on the worker
+	 * @return the worker
+	 * @throws IllegalStateException       if this flock is shutdown or closed
+	 * @throws WrongThreadException        if the current thread is not the owner or a thread
+	 *                                     contained in the flock
+	 */
+	public Thread start(CarrierPool pool, Runnable target) {
+		return launch(wrapped -> pool.execute(container, wrapped), target);
+	}
+
+	private Thread launch(Function<Runnable, Thread> launcher, Runnable target) {
 		ensureOwnerOrContainsThread();
 		// hook thread
 		var startLatch = new CountDownLatch(1);
@@ -270,8 +296,7 @@ class ThreadFlock implements AutoCloseable {
 			}
 		};
 
-		Thread thread = threadFactory.newThread(wrappedTarget);
-		JLA.start(thread, container);
+		Thread thread = launcher.apply(wrappedTarget);
 		try {
 			startLatch.await();
 		} catch (InterruptedException e) {
@@ -283,6 +308,20 @@ class ThreadFlock implements AutoCloseable {
 		return thread;
 	}
 
+	/**
+	 * Interrupts every thread in this flock except the current thread.  Pooled workers are only interrupted while
+	 * they still run a task of this flock.
+	 */
+	public void interruptAll() {
+		threads()
+			.filter(t -> t != Thread.currentThread())
+			.forEach(t -> {
+				try {
+					CarrierPool.interrupt(t, container);
+				} catch (Throwable ignore) { }
+			});
+	}
+
 	/**
 	 * Shutdown this flock so that no new threads can be started, existing threads
 	 * in the flock will continue to run. This method is a no-op if the flock is
@@ -0,0 +1,114 @@
+package com.kuriosityrobotics.centerstage.math;
+
+/**
+ * A move from rest to rest which accelerates as hard as allowed, cruises at the maximum velocity, then decelerates as
+ * hard as allowed, so its velocity over time is a trapezoid.  Moves too short to reach the maximum velocity are a
+ * triangle instead.
+ * <p>
+ * Positions are in any unit, such as metres, with velocities and accelerations per second.  Before the move starts the
+ * profile is at its start, and after it ends, at its end.  This class is immutable.
+ */
+public final class TrapezoidalProfile {
+	private final double start;
+	private final double direction; // 1 or -1
+	private final double maximumAcceleration;
+	private final double cruiseVelocity;
+	private final double accelerationTime;
+	private final double cruiseTime;
+	private final double duration;
+
+	/**
+	 * @param start               the position the move starts at
+	 * @param end                 the position the move ends at
+	 * @param maximumVelocity     the fastest the move can go; positive
+	 * @param maximumAcceleration the hardest the move can accelerate or decelerate; positive
+	 */
+	public TrapezoidalProfile(double start, double end, double maximumVelocity, double maximumAcceleration) {
+		if (!(maximumVelocity > 0) || !(maximumAcceleration > 0))
+			throw new IllegalArgumentException("Maximum velocity and acceleration must be positive");
+
+		double distance = Math.abs(end - start);
+		this.start = start;
+		this.direction = end < start ? -1 : 1;
+		this.maximumAcceleration = maximumAcceleration;
+
+		// a triangle if accelerating to the maximum and back would overshoot
+		this.cruiseVelocity = Math.min(maximumVelocity, Math.sqrt(distance * maximumAcceleration));
+		this.accelerationTime = cruiseVelocity / maximumAcceleration;
+		this.cruiseTime = cruiseVelocity == 0 ? 0 : (distance - cruiseVelocity * accelerationTime) / cruiseVelocity;
+		this.duration = 2 * accelerationTime + cruiseTime;
+	}
+
+	/**
+	 * @return how long the move takes, in seconds
+	 */
+	public double duration() {
+		return duration;
+	}
+
+	public double start() {
+		return start;
+	}
+
+	public double end() {
+		return position(duration);
+	}
+
+	/**
+	 * @param time the time since the move started, in seconds
+	 * @return where the move is at <code>time</code>
+	 */
+	public double position(double time) {
+		return start + direction * distance(clamp(time));
+	}
+
+	/**
+	 * @param time the time since the move started, in seconds
+	 * @return the move's velocity at <code>time</code>
+	 */
+	public double velocity(double time) {
+		time = clamp(time);
+		if (time < accelerationTime)
+			return direction * maximumAcceleration * time;
+		if (time < accelerationTime + cruiseTime)
+			return direction * cruiseVelocity;
+		return direction * maximumAcceleration * (duration - time);
+	}
+
+	/**
+	 * @param time the time since the move started, in seconds
+	 * @return the move's acceleration at <code>time</code>
+	 */
+	public double acceleration(double time) {
+		if (time < 0 || time >= duration)
+			return 0;
+		if (time < accelerationTime)
+			return direction * maximumAcceleration;
+		if (time < accelerationTime + cruiseTime)
+			return 0;
+		return -direction * maximumAcceleration;
+	}
+
+	private double clamp(double time) {
+		return Math.max(0, Math.min(duration, time));
+	}
+
+	/**
+	 * @return the unsigned distance covered by <code>time</code>, which is within the move
+	 */
+	private double distance(double time) {
+		double accelerationDistance = cruiseVelocity * accelerationTime / 2;
+		if (time < accelerationTime)
+			return maximumAcceleration * time * time / 2;
+		if (time < accelerationTime + cruiseTime)
+			return accelerationDistance + cruiseVelocity * (time - accelerationTime);
+
+		double remaining = duration - time;
+		return 2 * accelerationDistance + cruiseVelocity * cruiseTime - maximumAcceleration * remaining * remaining / 2;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%.3f to %.3f in %.3f s (peak %.3f/s)", start, end(), duration, cruiseVelocity);
+	}
+}
@@ -0,0 +1,25 @@
+package com.kuriosityrobotics.centerstage.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free event counter, cheap enough to update from hot paths.
+ */
+public final class Counter {
+	private final LongAdder count = new LongAdder();
+
+	public void increment() {
+		count.increment();
+	}
+
+	public void add(long amount) {
+		count.add(amount);
+	}
+
+	/**
+	 * @return the number of events counted so far
+	 */
+	public long sum() {
+		return count.sum();
+	}
+}
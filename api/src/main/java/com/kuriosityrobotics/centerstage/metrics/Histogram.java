@@ -0,0 +1,98 @@
+package com.kuriosityrobotics.centerstage.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of non-negative <code>long</code> values, cheap enough to update from hot paths.
+ * <p>
+ * Values are counted in log-linear buckets: values below {@link #SUB_BUCKETS} are exact, and every power of two above
+ * that is split into {@link #SUB_BUCKETS} equal buckets, so that percentiles are accurate to within about 3% of the
+ * value, whatever its magnitude.  Negative values are recorded as zero.
+ */
+public final class Histogram {
+	private static final int SUB_BUCKET_BITS = 5;
+	static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+	public void record(long value) {
+		if (value < 0)
+			value = 0;
+
+		counts.incrementAndGet(indexFor(value));
+		count.increment();
+		sum.add(value);
+		max.accumulate(value);
+	}
+
+	/**
+	 * @return the number of values recorded
+	 */
+	public long count() {
+		return count.sum();
+	}
+
+	/**
+	 * @return the mean of the values recorded, or 0 if there are none
+	 */
+	public double mean() {
+		long count = count();
+		return count == 0 ? 0 : (double) sum.sum() / count;
+	}
+
+	/**
+	 * @return the largest value recorded, or 0 if there are none
+	 */
+	public long max() {
+		return max.get();
+	}
+
+	/**
+	 * @param percentile the percentile, from 0 to 100
+	 * @return an upper bound for the given percentile of the values recorded, or 0 if there are none
+	 */
+	public long percentile(double percentile) {
+		long count = count();
+		if (count == 0)
+			return 0;
+
+		long target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= target)
+				return Math.min(highestValueAt(i), max());
+		}
+
+		return max(); // values were recorded concurrently with this call
+	}
+
+	@Override
+	public String toString() {
+		return String.format("n=%d mean=%.1f p50=%d p95=%d max=%d", count(), mean(), percentile(50), percentile(95), max());
+	}
+
+	static int indexFor(long value) {
+		if (value < SUB_BUCKETS)
+			return (int) value;
+
+		int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+		return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+	}
+
+	static long highestValueAt(int index) {
+		if (index < SUB_BUCKETS)
+			return index;
+
+		int shift = index / SUB_BUCKETS - 1;
+		long subBucket = SUB_BUCKETS + index % SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,157 @@
+package com.kuriosityrobotics.centerstage.metrics;
+
+import com.kuriosityrobotics.centerstage.util.Duration;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Times each run of one node's loop: how long it took, and how late it started.
+ * <p>
+ * A run is timed by calling {@link #start()} when it begins and {@link #stop(long)} with the result when it ends.  Both
+ * read {@link System#nanoTime()} and record into lock-free {@link Histogram}s and {@link Counter}s, so timing a run
+ * costs a few atomic adds and allocates nothing.  Times are recorded in microseconds, like the rest of the metrics.
+ * <p>
+ * A node which is expected to run every <code>period</code> is late when a run starts more than a millisecond later
+ * than a period after the previous one did, and overruns when a run takes longer than a period.  Whether the node is scheduled or driven by
+ * events, such as bulk reads, doesn't matter: lateness is measured between consecutive starts.
+ * <p>
+ * Get timers from {@link NodeTimers}.  This class is thread-safe.
+ */
+public final class NodeTimer {
+	private static final long NO_START = Long.MIN_VALUE;
+	/**
+	 * How late a run can start before it counts as a late start, to allow for waking up.
+	 */
+	private static final long LATE_TOLERANCE_NANOS = 1_000_000;
+
+	private final String name;
+	private final long periodNanos; // 0 if the node has no expected period
+
+	private final Histogram runTimeMicros = new Histogram();
+	private final Histogram latenessMicros = new Histogram();
+	private final Counter lateStarts = new Counter();
+	private final Counter overruns = new Counter();
+
+	private final AtomicLong lastStart = new AtomicLong(NO_START);
+
+	NodeTimer(String name, Duration period) {
+		this.name = name;
+		this.periodNanos = period == null ? 0 : period.toNanos();
+	}
+
+	/**
+	 * Marks the start of a run.
+	 *
+	 * @return the start time, to pass to {@link #stop(long)}
+	 */
+	public long start() {
+		long now = System.nanoTime();
+		long previous = lastStart.getAndSet(now);
+		if (periodNanos != 0 && previous != NO_START)
+			recordLateness(now - previous - periodNanos);
+
+		return now;
+	}
+
+	/**
+	 * Marks the start of a run which was due at a known time, such as a read scheduled by its own loop.  Its lateness
+	 * is measured from that time rather than from the previous run.
+	 *
+	 * @param dueNanos the {@link System#nanoTime()} the run was due at
+	 * @return the start time, to pass to {@link #stop(long)}
+	 */
+	public long start(long dueNanos) {
+		long now = System.nanoTime();
+		lastStart.set(now);
+		recordLateness(now - dueNanos);
+		return now;
+	}
+
+	private void recordLateness(long latenessNanos) {
+		latenessMicros.record(TimeUnit.NANOSECONDS.toMicros(latenessNanos));
+		if (latenessNanos > LATE_TOLERANCE_NANOS)
+			lateStarts.increment();
+	}
+
+	/**
+	 * Marks the end of a run.
+	 *
+	 * @param start the start time returned by {@link #start()}
+	 */
+	public void stop(long start) {
+		long runTime = System.nanoTime() - start;
+		runTimeMicros.record(TimeUnit.NANOSECONDS.toMicros(runTime));
+		if (periodNanos != 0 && runTime > periodNanos)
+			overruns.increment();
+	}
+
+	/**
+	 * @return <code>task</code>, timed by this timer each time it runs
+	 */
+	public Runnable wrap(Runnable task) {
+		return () -> {
+			long start = start();
+			try {
+				task.run();
+			} finally {
+				stop(start);
+			}
+		};
+	}
+
+	public String name() {
+		return name;
+	}
+
+	/**
+	 * @return the time the node is expected to run every, or null if it isn't expected to run at any rate
+	 */
+	public Duration period() {
+		return periodNanos == 0 ? null : Duration.ofNanos(periodNanos);
+	}
+
+	/**
+	 * @return the time taken by each run, in microseconds
+	 */
+	public Histogram runTimeMicros() {
+		return runTimeMicros;
+	}
+
+	/**
+	 * @return how much more than a period after the previous run each run started, in microseconds.  Runs which
+	 * started early are recorded as zero, and nothing is recorded if the node has no period.
+	 */
+	public Histogram latenessMicros() {
+		return latenessMicros;
+	}
+
+	/**
+	 * @return the number of runs which started more than a millisecond late
+	 */
+	public long lateStarts() {
+		return lateStarts.sum();
+	}
+
+	/**
+	 * @return the number of runs which took longer than a period
+	 */
+	public long overruns() {
+		return overruns.sum();
+	}
+
+	/**
+	 * @return the number of runs which have finished
+	 */
+	public long runs() {
+		return runTimeMicros.count();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: %d runs, run %.1f/%.1f/%.1f ms (p50/p99/max), %d overruns, %d late (p99 %.1f ms)",
+			name, runs(),
+			runTimeMicros.percentile(50) / 1e3, runTimeMicros.percentile(99) / 1e3, runTimeMicros.max() / 1e3,
+			overruns(), lateStarts(), latenessMicros.percentile(99) / 1e3);
+	}
+}
@@ -0,0 +1,103 @@
+package com.kuriosityrobotics.centerstage.metrics;
+
+import com.kuriosityrobotics.centerstage.util.Duration;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The {@link NodeTimer}s of every node, by name.
+ * <p>
+ * Nodes get their timers when they are constructed, and keep them.  Each node's name must be unique, so that two nodes
+ * are never reported as one.  The registry is shared by the whole process, like a logger factory, so that any node can
+ * be timed without passing a registry to it; {@link #clear()} it at the end of an opmode, after
+ * {@link #dump(String) dumping} it, so the next opmode's nodes start from nothing.
+ */
+public final class NodeTimers {
+	public static final String DEFAULT_PATH = "/sdcard/FIRST/node_timing.csv";
+
+	private static final ConcurrentMap<String, NodeTimer> timers = new ConcurrentHashMap<>();
+
+	private NodeTimers() {
+	}
+
+	/**
+	 * Creates the timer for a node which is expected to run every <code>period</code>.
+	 *
+	 * @param name   the node's name
+	 * @param period the time between runs
+	 * @return the node's timer
+	 * @throws IllegalArgumentException if another node already has a timer by that name
+	 */
+	public static NodeTimer forNode(String name, Duration period) {
+		var timer = new NodeTimer(name, period);
+		if (timers.putIfAbsent(name, timer) != null)
+			throw new IllegalArgumentException("There is already a node named " + name);
+		return timer;
+	}
+
+	/**
+	 * Creates the timer for a node which isn't expected to run at any rate, so is only timed.
+	 *
+	 * @param name the node's name
+	 * @return the node's timer
+	 * @throws IllegalArgumentException if another node already has a timer by that name
+	 */
+	public static NodeTimer forNode(String name) {
+		return forNode(name, null);
+	}
+
+	/**
+	 * @return every timer, by name
+	 */
+	public static List<NodeTimer> all() {
+		var all = new ArrayList<>(timers.values());
+		all.sort(Comparator.comparing(NodeTimer::name));
+		return all;
+	}
+
+	/**
+	 * Forgets every timer.  Nodes which already have a timer keep recording into it, but it is no longer reported.
+	 */
+	public static void clear() {
+		timers.clear();
+	}
+
+	/**
+	 * Writes a summary of every timer as CSV, one line per node.
+	 */
+	public static void writeTo(Writer writer) throws IOException {
+		var out = new PrintWriter(writer);
+		out.println("node,period_us,runs,run_mean_us,run_p50_us,run_p99_us,run_max_us,overruns,late_starts,lateness_p99_us,lateness_max_us");
+		for (var timer : all()) {
+			var period = timer.period();
+			var runTime = timer.runTimeMicros();
+			var lateness = timer.latenessMicros();
+			out.printf("%s,%d,%d,%.1f,%d,%d,%d,%d,%d,%d,%d%n",
+				timer.name(), period == null ? 0 : period.toNanos() / 1000, timer.runs(),
+				runTime.mean(), runTime.percentile(50), runTime.percentile(99), runTime.max(),
+				timer.overruns(), timer.lateStarts(), lateness.percentile(99), lateness.max());
+		}
+		out.flush();
+		if (out.checkError())
+			throw new IOException("Could not write node timings");
+	}
+
+	/**
+	 * Writes a summary of every timer to a CSV file, replacing it.
+	 *
+	 * @param path the file to write
+	 */
+	public static void dump(String path) throws IOException {
+		try (var writer = new FileWriter(path)) {
+			writeTo(writer);
+		}
+	}
+}
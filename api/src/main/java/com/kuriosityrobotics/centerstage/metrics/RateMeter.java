@@ -0,0 +1,50 @@
+package com.kuriosityrobotics.centerstage.metrics;
+
+import com.kuriosityrobotics.centerstage.util.Clock;
+import com.kuriosityrobotics.centerstage.util.Duration;
+import com.kuriosityrobotics.centerstage.util.Instant;
+
+/**
+ * Measures the rate at which a {@link Counter} is incremented, averaged over a window.
+ * <p>
+ * Only reading the rate takes a lock, so the counter can still be incremented from hot paths.
+ */
+public final class RateMeter {
+	private final Counter counter;
+	private final Clock clock;
+	private final Duration window;
+
+	// all guarded by this
+	private Instant windowStart;
+	private long windowStartCount;
+	private double rate;
+
+	/**
+	 * @param counter the counter to measure
+	 * @param clock   the clock to measure time with
+	 * @param window  the shortest time to average the rate over
+	 */
+	public RateMeter(Counter counter, Clock clock, Duration window) {
+		this.counter = counter;
+		this.clock = clock;
+		this.window = window;
+		this.windowStart = clock.now();
+		this.windowStartCount = counter.sum();
+	}
+
+	/**
+	 * @return the rate over the last complete window, in events per second
+	 */
+	public synchronized double perSecond() {
+		var now = clock.now();
+		var elapsed = now.since(windowStart);
+		if (!window.isGreaterThan(elapsed)) {
+			long count = counter.sum();
+			rate = (count - windowStartCount) / elapsed.toSeconds();
+			windowStart = now;
+			windowStartCount = count;
+		}
+
+		return rate;
+	}
+}
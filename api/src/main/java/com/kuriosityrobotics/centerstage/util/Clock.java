@@ -0,0 +1,22 @@
+package com.kuriosityrobotics.centerstage.util;
+
+/**
+ * A source of the current {@link Instant}.
+ * <p>
+ * Code which needs to run against recorded or simulated data should take a <code>Clock</code> instead of
+ * calling {@link Instant#now()} directly.
+ */
+@FunctionalInterface
+public interface Clock {
+	/**
+	 * @return the current instant according to this clock
+	 */
+	Instant now();
+
+	/**
+	 * @return a clock which reads the system's monotonic time, i.e. {@link Instant#now()}
+	 */
+	static Clock system() {
+		return Instant::now;
+	}
+}
@@ -11,6 +11,13 @@ public final class Instant implements Comparable<Instant> {
         return new Instant(System.nanoTime() - nanoTimeEpochOffset);
     }
 
+	/**
+	 * Converts a {@link System#nanoTime()} reading, such as a camera frame's capture time, to an <code>Instant</code>.
+	 */
+	public static Instant ofNanoTime(long nanoTime) {
+		return new Instant(nanoTime - nanoTimeEpochOffset);
+	}
+
 	public static Instant ofEpochMillis(long millis) {
 		return new Instant(millis * 1_000_000);
 	}
@@ -0,0 +1,45 @@
+package com.kuriosityrobotics.centerstage.util;
+
+/**
+ * A {@link Clock} which only moves when it is told to.  Used for replaying recorded data and for simulation.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class ManualClock implements Clock {
+	private volatile long nanos;
+
+	public ManualClock(Instant start) {
+		this.nanos = start.nanos();
+	}
+
+	@Override
+	public Instant now() {
+		return Instant.createInstant(nanos);
+	}
+
+	/**
+	 * Sets the time of this clock.
+	 *
+	 * @param instant the new time
+	 * @throws IllegalArgumentException if <code>instant</code> is before the current time of this clock
+	 */
+	public synchronized void set(Instant instant) {
+		if (instant.nanos() < nanos)
+			throw new IllegalArgumentException("Clock cannot move backwards");
+
+		nanos = instant.nanos();
+	}
+
+	/**
+	 * Moves this clock forwards.
+	 *
+	 * @param duration the amount of time to move forwards by
+	 * @throws IllegalArgumentException if <code>duration</code> is negative
+	 */
+	public synchronized void advance(Duration duration) {
+		if (duration.toNanos() < 0)
+			throw new IllegalArgumentException("Clock cannot move backwards");
+
+		nanos += duration.toNanos();
+	}
+}
@@ -0,0 +1,236 @@
+package com.kuriosityrobotics.centerstage.bus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+class TopicTest {
+	/**
+	 * Runs tasks only when asked to, so that a test can make a subscriber fall behind.
+	 */
+	private static class ManualExecutor implements java.util.concurrent.Executor {
+		final List<Runnable> tasks = new ArrayList<>();
+
+		@Override
+		public void execute(Runnable command) {
+			tasks.add(command);
+		}
+
+		void runAll() {
+			while (!tasks.isEmpty())
+				tasks.remove(0).run();
+		}
+	}
+
+	private static class Counted implements ReferenceCounted {
+		final AtomicInteger references = new AtomicInteger(1);
+		final int value;
+
+		Counted(int value) {
+			this.value = value;
+		}
+
+		@Override
+		public boolean tryRetain() {
+			int count;
+			do {
+				count = references.get();
+				if (count <= 0)
+					return false;
+			} while (!references.compareAndSet(count, count + 1));
+			return true;
+		}
+
+		@Override
+		public void release() {
+			references.decrementAndGet();
+		}
+	}
+
+	@Test
+	void testInlineDelivery() {
+		var topic = new Topic<Integer>("test");
+		var received = new ArrayList<Integer>();
+		var subscription = topic.subscribe(received::add);
+
+		topic.publish(1);
+		topic.publish(2);
+		subscription.close();
+		topic.publish(3);
+
+		assertEquals(List.of(1, 2), received);
+		assertEquals(2, subscription.delivered());
+	}
+
+	@Test
+	void testQueuedDeliveryIsInOrder() throws InterruptedException {
+		var executor = Executors.newSingleThreadExecutor();
+		try {
+			var topic = new Topic<Integer>("test", 1024);
+			var received = new CopyOnWriteArrayList<Integer>();
+			var done = new CountDownLatch(1);
+			topic.subscribe(executor, message -> {
+				received.add(message);
+				if (message == 999)
+					done.countDown();
+			});
+
+			for (int i = 0; i < 1000; i++)
+				topic.publish(i);
+
+			assertTrue(done.await(5, TimeUnit.SECONDS));
+			for (int i = 0; i < 1000; i++)
+				assertEquals(i, (int) received.get(i));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void testSlowSubscriberDropsOldest() {
+		var executor = new ManualExecutor();
+		var topic = new Topic<Integer>("test", 8);
+		var slow = new ArrayList<Integer>();
+		var fast = new ArrayList<Integer>();
+		var slowSubscription = topic.subscribe(executor, slow::add);
+		topic.subscribe(fast::add);
+
+		for (int i = 0; i < 20; i++)
+			topic.publish(i);
+
+		assertEquals(20, fast.size()); // unaffected by the slow subscriber
+		assertEquals(20, slowSubscription.lag());
+
+		executor.runAll();
+		assertEquals(List.of(13, 14, 15, 16, 17, 18, 19), slow);
+		assertEquals(13, slowSubscription.dropped());
+		assertEquals(0, slowSubscription.lag());
+		assertEquals(6, slowSubscription.lagHistogram().max());
+	}
+
+	@Test
+	void testReferenceCountedMessagesLiveWhileQueued() {
+		var executor = new ManualExecutor();
+		var topic = new Topic<Counted>("test", 4);
+		var values = new ArrayList<Integer>();
+		topic.subscribe(executor, message -> values.add(message.value));
+
+		var messages = new ArrayList<Counted>();
+		for (int i = 0; i < 6; i++) {
+			var message = new Counted(i);
+			messages.add(message);
+			topic.publish(message);
+			message.release(); // the producer's own reference
+		}
+
+		// the oldest two have left the ring, and nobody else holds them
+		assertEquals(0, messages.get(0).references.get());
+		assertEquals(0, messages.get(1).references.get());
+		assertEquals(1, messages.get(5).references.get());
+
+		executor.runAll();
+		assertEquals(List.of(3, 4, 5), values);
+		assertEquals(1, messages.get(5).references.get()); // delivery took and gave back a reference
+
+		var released = new Counted(9);
+		released.release();
+		assertThrows(IllegalStateException.class, () -> topic.publish(released));
+	}
+
+	@Test
+	void testClosingDuringDeliveryDoesNotSkipOthers() {
+		var topic = new Topic<Integer>("test");
+		var received = new ArrayList<Integer>();
+		var once = new AtomicReference<Subscription<Integer>>();
+		once.set(topic.subscribe(message -> once.get().close()));
+		topic.subscribe(received::add);
+
+		topic.publish(1);
+		topic.publish(2);
+		assertEquals(List.of(1, 2), received);
+	}
+
+	@Test
+	void testSubscribingAndClosingWhilePublishing() throws Exception {
+		var executor = Executors.newSingleThreadExecutor();
+		var churners = Executors.newFixedThreadPool(2);
+		try {
+			var topic = new Topic<Integer>("test");
+			var received = new AtomicInteger();
+			topic.subscribe(message -> received.incrementAndGet());
+
+			var stop = new AtomicBoolean();
+			Callable<Void> churn = () -> {
+				var subscriptions = new ArrayList<Subscription<Integer>>();
+				while (!stop.get()) {
+					for (int i = 0; i < 4; i++) {
+						subscriptions.add(topic.subscribe(message -> { }));
+						subscriptions.add(topic.subscribe(executor, message -> { }));
+					}
+					// from the end, where the producer is most likely to be
+					for (int i = subscriptions.size() - 1; i >= 0; i--)
+						subscriptions.remove(i).close();
+				}
+				return null;
+			};
+			var first = churners.submit(churn);
+			var second = churners.submit(churn);
+
+			int published = 0;
+			long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+			try {
+				while (System.nanoTime() < end)
+					topic.publish(published++);
+			} finally {
+				stop.set(true);
+			}
+
+			first.get(5, TimeUnit.SECONDS);
+			second.get(5, TimeUnit.SECONDS);
+			assertEquals(published, received.get()); // the steady subscriber missed nothing
+		} finally {
+			churners.shutdownNow();
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void testSubscriberExceptionsDoNotStopDelivery() {
+		var executor = new ManualExecutor();
+		var topic = new Topic<Integer>("test");
+		var received = new ArrayList<Integer>();
+		var errors = new AtomicInteger();
+		topic.subscribe(executor, message -> {
+			if (message == 1)
+				throw new RuntimeException("expected");
+			received.add(message);
+		});
+
+		var thread = Thread.currentThread();
+		var handler = thread.getUncaughtExceptionHandler();
+		thread.setUncaughtExceptionHandler((t, e) -> errors.incrementAndGet());
+		try {
+			topic.publish(1);
+			topic.publish(2);
+			executor.runAll();
+		} finally {
+			thread.setUncaughtExceptionHandler(handler);
+		}
+
+		assertEquals(1, errors.get());
+		assertEquals(List.of(2), received);
+	}
+}
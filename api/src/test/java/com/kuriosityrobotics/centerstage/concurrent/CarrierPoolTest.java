@@ -0,0 +1,164 @@
+package com.kuriosityrobotics.centerstage.concurrent;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CarrierPoolTest {
+	@Test
+	void testReusesWorkers() throws InterruptedException {
+		var pool = new CarrierPool("test", 4, 60_000);
+		var workers = ConcurrentHashMap.<Thread>newKeySet();
+
+		for (int i = 0; i < 100; i++) {
+			try (var scope = HardwareTaskScope.open(InterruptedException.class, pool)) {
+				scope.fork(() -> workers.add(Thread.currentThread()));
+				scope.fork(() -> workers.add(Thread.currentThread()));
+				scope.join();
+			}
+			awaitIdle(pool);
+		}
+
+		assertTrue(pool.created() <= 4, "created " + pool.created() + " workers");
+		assertEquals(pool.created(), workers.size());
+	}
+
+	@Test
+	void testWithoutIdleWorkersStartsAThreadPerSubtask() throws InterruptedException {
+		var pool = new CarrierPool("test", 0, 60_000);
+		for (int i = 0; i < 10; i++) {
+			try (var scope = HardwareTaskScope.open(InterruptedException.class, pool)) {
+				scope.fork(() -> {});
+				scope.join();
+			}
+		}
+
+		assertEquals(10, pool.created());
+		assertEquals(0, pool.idle());
+	}
+
+	@Test
+	void testFailureCancelsSiblings() {
+		var pool = new CarrierPool("test", 4, 60_000);
+		var interrupted = new CountDownLatch(1);
+
+		assertThrows(IllegalStateException.class, () -> {
+			try (var scope = HardwareTaskScope.open(IllegalStateException.class, pool)) {
+				scope.fork(() -> {
+					try {
+						Thread.sleep(10_000);
+					} catch (InterruptedException e) {
+						interrupted.countDown();
+						throw e;
+					}
+				});
+				scope.fork(() -> {
+					throw new IllegalStateException("failed"); // shuts the scope down from a worker
+				});
+				scope.join();
+			}
+		});
+
+		assertEquals(0, interrupted.getCount(), "the sleeping subtask should have been interrupted");
+	}
+
+	@Test
+	void testInterruptsDoNotLeakIntoTheNextSubtask() throws InterruptedException {
+		var pool = new CarrierPool("test", 1, 60_000);
+		try (var scope = HardwareTaskScope.open(InterruptedException.class, pool)) {
+			scope.fork(() -> Thread.currentThread().interrupt());
+			scope.join();
+		}
+		awaitIdle(pool);
+
+		var wasInterrupted = new boolean[1];
+		try (var scope = HardwareTaskScope.open(InterruptedException.class, pool)) {
+			scope.fork(() -> {
+				wasInterrupted[0] = Thread.currentThread().isInterrupted();
+			});
+			scope.join();
+		}
+
+		assertEquals(1, pool.created());
+		assertFalse(wasInterrupted[0]);
+	}
+
+	@Test
+	void testNestedScopes() throws InterruptedException {
+		var pool = new CarrierPool("test", 4, 60_000);
+		try (var outer = HardwareTaskScope.open(InterruptedException.class, pool)) {
+			var result = outer.fork(() -> {
+				try (var inner = HardwareTaskScope.open(InterruptedException.class, pool)) {
+					var a = inner.fork(() -> 1);
+					var b = inner.fork(() -> 2);
+					inner.join();
+					return a.get() + b.get();
+				}
+			});
+			outer.join();
+			assertEquals(3, (int) result.get());
+		}
+	}
+
+	@Test
+	void testIdleWorkersExitAfterKeepAlive() throws InterruptedException {
+		var pool = new CarrierPool("test", 4, 10);
+		Set<Thread> workers = ConcurrentHashMap.newKeySet();
+		try (var scope = HardwareTaskScope.open(InterruptedException.class, pool)) {
+			scope.fork(() -> workers.add(Thread.currentThread()));
+			scope.join();
+		}
+
+		for (var worker : workers)
+			worker.join(1000);
+		assertEquals(0, pool.idle());
+		assertFalse(workers.iterator().next().isAlive());
+	}
+
+	/**
+	 * Compares the fork/join latency of a scope with pooled workers against one which starts a thread per subtask, as
+	 * every scope did before.  Four subtasks per scope, as when the outtake is created.
+	 */
+	@Test
+	@Tag("benchmark")
+	void benchmark() throws InterruptedException {
+		var pooled = new CarrierPool("pooled", CarrierPool.DEFAULT_MAXIMUM_IDLE, 60_000);
+		var unpooled = new CarrierPool("unpooled", 0, 0);
+
+		for (int i = 0; i < 200; i++) { // warm up
+			forkJoin(pooled);
+			forkJoin(unpooled);
+		}
+
+		int iterations = 2000;
+		long pooledNanos = 0, unpooledNanos = 0;
+		for (int i = 0; i < iterations; i++) {
+			pooledNanos += forkJoin(pooled);
+			unpooledNanos += forkJoin(unpooled);
+		}
+
+		System.out.printf("fork/join of 4 subtasks: pooled %.1fus, thread per subtask %.1fus%n",
+			pooledNanos / 1e3 / iterations, unpooledNanos / 1e3 / iterations);
+	}
+
+	// a scope's join can return just before its workers go back to waiting for subtasks
+	private static void awaitIdle(CarrierPool pool) throws InterruptedException {
+		while (pool.idle() < pool.created())
+			Thread.sleep(1);
+	}
+
+	private static long forkJoin(CarrierPool pool) throws InterruptedException {
+		long start = System.nanoTime();
+		try (var scope = HardwareTaskScope.open(InterruptedException.class, pool)) {
+			for (int i = 0; i < 4; i++)
+				scope.fork(() -> {});
+			scope.join();
+		}
+		return System.nanoTime() - start;
+	}
+}
@@ -0,0 +1,202 @@
+package com.kuriosityrobotics.centerstage.concurrent;
+
+import com.kuriosityrobotics.centerstage.util.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.kuriosityrobotics.centerstage.concurrent.ControlLoopScheduler.Phase.*;
+import static com.kuriosityrobotics.centerstage.concurrent.ControlLoopScheduler.Priority.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ControlLoopSchedulerTest {
+	private final ControlLoopScheduler scheduler = new ControlLoopScheduler(2, 2);
+
+	@AfterEach
+	void shutDown() throws InterruptedException {
+		scheduler.shutdownNow();
+		assertTrue(scheduler.awaitTermination(1, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void testRunsAtTheDeclaredRate() throws InterruptedException {
+		var runs = new AtomicInteger();
+		var task = scheduler.schedule("counter", Duration.ofMillis(10), SENSE, HIGH, runs::incrementAndGet);
+
+		Thread.sleep(500);
+		assertTrue(runs.get() >= 40 && runs.get() <= 52, runs.get() + " runs");
+		assertTrue(task.deadlineMisses() <= 2, task.toString()); // the odd preemption by the OS
+		assertEquals("counter", task.name());
+	}
+
+	@Test
+	void testTasksReleasedTogetherRunInPhaseOrder() throws InterruptedException {
+		var order = Collections.synchronizedList(new ArrayList<ControlLoopScheduler.Phase>());
+		// scheduled backwards, and with two control threads, so only the phase can order them
+		scheduler.schedule("actuate", Duration.ofMillis(20), ACTUATE, CRITICAL, () -> order.add(ACTUATE));
+		scheduler.schedule("plan", Duration.ofMillis(20), PLAN, CRITICAL, () -> {
+			sleep(5);
+			order.add(PLAN);
+		});
+		scheduler.schedule("sense", Duration.ofMillis(20), SENSE, HIGH, () -> {
+			sleep(5);
+			order.add(SENSE);
+		});
+
+		Thread.sleep(210);
+		scheduler.shutdown();
+		assertTrue(scheduler.awaitTermination(1, TimeUnit.SECONDS));
+
+		List<ControlLoopScheduler.Phase> phases;
+		synchronized (order) {
+			phases = new ArrayList<>(order);
+		}
+		assertInLockstep(phases);
+	}
+
+	private static void assertInLockstep(List<ControlLoopScheduler.Phase> phases) {
+		assertTrue(phases.size() >= 24, phases.toString());
+		for (int i = 0; i + 2 < phases.size(); i += 3)
+			assertEquals(List.of(SENSE, PLAN, ACTUATE), phases.subList(i, i + 3), phases.toString());
+	}
+
+	@Test
+	void testLoopsSpanLanes() throws InterruptedException {
+		var order = Collections.synchronizedList(new ArrayList<ControlLoopScheduler.Phase>());
+		// the background task reads, and the control tasks act on it
+		scheduler.schedule("actuate", Duration.ofMillis(20), ACTUATE, CRITICAL, () -> order.add(ACTUATE));
+		scheduler.schedule("plan", Duration.ofMillis(20), PLAN, HIGH, () -> order.add(PLAN));
+		scheduler.schedule("sense", Duration.ofMillis(20), SENSE, NORMAL, () -> {
+			sleep(5);
+			order.add(SENSE);
+		});
+
+		Thread.sleep(210);
+		scheduler.shutdown();
+		assertTrue(scheduler.awaitTermination(1, TimeUnit.SECONDS));
+
+		synchronized (order) {
+			assertInLockstep(new ArrayList<>(order));
+		}
+	}
+
+	@Test
+	void testLoopSkipsOverrunReleasesTogether() throws InterruptedException {
+		var order = Collections.synchronizedList(new ArrayList<ControlLoopScheduler.Phase>());
+		var plans = new AtomicInteger();
+		scheduler.schedule("actuate", Duration.ofMillis(20), ACTUATE, CRITICAL, () -> order.add(ACTUATE));
+		scheduler.schedule("plan", Duration.ofMillis(20), PLAN, CRITICAL, () -> {
+			if (plans.incrementAndGet() % 3 == 0)
+				sleep(25); // overruns, so skips the next release
+			order.add(PLAN);
+		});
+		scheduler.schedule("sense", Duration.ofMillis(20), SENSE, HIGH, () -> order.add(SENSE));
+
+		Thread.sleep(400);
+		scheduler.shutdown();
+		assertTrue(scheduler.awaitTermination(1, TimeUnit.SECONDS));
+
+		synchronized (order) {
+			assertInLockstep(new ArrayList<>(order));
+		}
+	}
+
+	@Test
+	void testFastLoopsDoNotWaitForSlowOnes() throws InterruptedException {
+		scheduler.schedule("slow plan", Duration.ofMillis(50), PLAN, CRITICAL, () -> sleep(30));
+		var flush = scheduler.schedule("flush", Duration.ofMillis(10), ACTUATE, CRITICAL, () -> {});
+
+		Thread.sleep(400);
+		// released with the slow plan every 50ms, but starts without waiting for it
+		assertTrue(flush.jitterMicros().percentile(99) < 10_000, flush.toString());
+		assertTrue(flush.runs() >= 30, flush.toString());
+	}
+
+	@Test
+	void testOverrunsAreCountedAndSkipped() throws InterruptedException {
+		var task = scheduler.schedule("slow", Duration.ofMillis(10), PLAN, CRITICAL, () -> sleep(15));
+
+		Thread.sleep(400);
+		long runs = task.runs();
+		assertTrue(task.deadlineMisses() >= runs - 1 && runs > 0, task.toString());
+		// each overrun skips the release it overran, so the task runs every other period instead of back to back
+		assertTrue(runs <= 21, runs + " runs");
+	}
+
+	@Test
+	void testJitterIsRecorded() throws InterruptedException {
+		var task = scheduler.schedule("jitter", Duration.ofMillis(5), SENSE, NORMAL, () -> {});
+		Thread.sleep(200);
+
+		assertTrue(task.jitterMicros().count() >= 30);
+		assertTrue(task.jitterMicros().percentile(50) < 5000, task.toString());
+		assertTrue(scheduler.report().contains("jitter"));
+	}
+
+	@Test
+	void testFailureStopsTheTask() throws InterruptedException {
+		var runs = new AtomicInteger();
+		var task = scheduler.schedule("failing", Duration.ofMillis(5), PLAN, HIGH, () -> {
+			if (runs.incrementAndGet() == 3)
+				throw new IllegalStateException("failed");
+		});
+
+		var e = assertThrows(ExecutionException.class, task::get);
+		assertTrue(e.getCause() instanceof IllegalStateException);
+		Thread.sleep(50);
+		assertEquals(3, runs.get());
+		assertTrue(task.toString().contains("failed"));
+	}
+
+	@Test
+	void testCancel() throws InterruptedException {
+		var runs = new AtomicInteger();
+		var task = scheduler.schedule("cancelled", Duration.ofMillis(5), REPORT, LOW, runs::incrementAndGet);
+		Thread.sleep(50);
+
+		assertTrue(task.cancel(false));
+		int cancelledAt = runs.get();
+		Thread.sleep(50);
+
+		assertTrue(runs.get() <= cancelledAt + 1);
+		assertTrue(task.isCancelled());
+		assertThrows(CancellationException.class, task::get);
+	}
+
+	@Test
+	void testGeneralPoolRunsSubmittedTasks() throws InterruptedException {
+		var ran = new CountDownLatch(2);
+		scheduler.execute(ran::countDown);
+		scheduler.schedule(ran::countDown, 10, TimeUnit.MILLISECONDS);
+		assertTrue(ran.await(1, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void testScheduleFallsBackOnOtherExecutors() throws InterruptedException {
+		var executor = java.util.concurrent.Executors.newSingleThreadScheduledExecutor();
+		try {
+			var ran = new CountDownLatch(3);
+			ControlLoopScheduler.schedule(executor, "fallback", Duration.ofMillis(5), SENSE, HIGH, ran::countDown);
+			assertTrue(ran.await(1, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
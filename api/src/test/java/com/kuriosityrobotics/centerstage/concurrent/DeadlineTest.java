@@ -0,0 +1,149 @@
+package com.kuriosityrobotics.centerstage.concurrent;
+
+import com.kuriosityrobotics.centerstage.util.Duration;
+import com.kuriosityrobotics.centerstage.util.Instant;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadlineTest {
+	@Test
+	void testSubtasksInheritTheScopeDeadline() throws InterruptedException {
+		var deadline = Instant.now().add(Duration.ofSeconds(10));
+		try (var scope = HardwareTaskScope.openUntil(InterruptedException.class, deadline)) {
+			assertEquals(Optional.of(deadline), Deadline.current());
+
+			var inherited = scope.fork(Deadline::current);
+			scope.join();
+			assertEquals(Optional.of(deadline), inherited.get());
+		}
+
+		assertEquals(Optional.empty(), Deadline.current());
+	}
+
+	@Test
+	void testNestedScopesCanOnlyMakeTheDeadlineEarlier() throws InterruptedException {
+		var outer = Instant.now().add(Duration.ofSeconds(10));
+		var later = outer.add(Duration.ofSeconds(5));
+
+		try (var scope = HardwareTaskScope.openUntil(InterruptedException.class, outer)) {
+			var nestedLater = scope.fork(() -> {
+				try (var inner = HardwareTaskScope.openUntil(InterruptedException.class, later)) {
+					return inner.deadline().orElseThrow();
+				}
+			});
+			var nestedPlain = scope.fork(() -> {
+				try (var inner = HardwareTaskScope.open()) {
+					return inner.deadline().orElseThrow();
+				}
+			});
+			scope.join();
+
+			assertTrue(nestedLater.get().equals(outer));
+			assertTrue(nestedPlain.get().equals(outer));
+		}
+	}
+
+	@Test
+	void testEarlierNestedDeadlineReachesSubtasks() throws InterruptedException {
+		var outer = Instant.now().add(Duration.ofSeconds(10));
+		var earlier = outer.minus(Duration.ofSeconds(5));
+
+		try (var scope = HardwareTaskScope.openUntil(InterruptedException.class, outer);
+			 var inner = HardwareTaskScope.openUntil(InterruptedException.class, earlier)) {
+			var subtask = inner.fork(() -> Deadline.current().orElseThrow());
+			inner.join();
+			assertTrue(subtask.get().equals(earlier));
+		}
+	}
+
+	@Test
+	void testJoinStopsAtTheDeadline() throws InterruptedException {
+		long start = System.nanoTime();
+		try (var scope = HardwareTaskScope.openWithin(InterruptedException.class, Duration.ofMillis(100))) {
+			var respectful = scope.fork(() -> Deadline.sleep(Duration.ofSeconds(10)));
+			scope.fork(() -> Thread.sleep(10_000)); // ignores the deadline, so is interrupted
+			scope.join();
+
+			assertFalse(respectful.get());
+			assertTrue(scope.hasExpired());
+		}
+
+		long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+		assertTrue(elapsedMillis >= 100 && elapsedMillis < 1000, "took " + elapsedMillis + "ms");
+	}
+
+	@Test
+	void testJoinBeforeTheDeadlineHasNotExpired() throws InterruptedException {
+		try (var scope = HardwareTaskScope.openWithin(InterruptedException.class, Duration.ofSeconds(10))) {
+			scope.fork(() -> Deadline.sleep(Duration.ofMillis(10)));
+			scope.join();
+			assertFalse(scope.hasExpired());
+		}
+	}
+
+	@Test
+	void testJoinUntilThrowsOnTimeout() {
+		try (var scope = HardwareTaskScope.open()) {
+			scope.fork(() -> Thread.sleep(10_000));
+			assertThrows(TimeoutException.class, () -> scope.join(Duration.ofMillis(50)));
+			assertTrue(scope.isShutdown());
+		}
+	}
+
+	@Test
+	void testAwaitReturnsAtTheDeadline() throws InterruptedException {
+		var lock = new ReentrantLock();
+		var condition = lock.newCondition();
+
+		try (var scope = HardwareTaskScope.openWithin(InterruptedException.class, Duration.ofMillis(50))) {
+			lock.lock();
+			try {
+				assertFalse(Deadline.await(condition));
+			} finally {
+				lock.unlock();
+			}
+			assertTrue(Deadline.hasExpired());
+			assertEquals(0, Deadline.remaining().orElseThrow().toNanos());
+		}
+
+		assertFalse(Deadline.hasExpired());
+	}
+
+	@Test
+	void testPooledWorkersDoNotKeepDeadlines() throws InterruptedException {
+		var pool = new CarrierPool("test", 1, 60_000);
+		try (var scope = new DeadlineScope(pool, Instant.now().add(Duration.ofSeconds(10)))) {
+			scope.fork(() -> null);
+			scope.join();
+		}
+		while (pool.idle() < pool.created())
+			Thread.sleep(1);
+
+		try (var scope = HardwareTaskScope.open(InterruptedException.class, pool)) {
+			var deadline = scope.fork(Deadline::current);
+			scope.join();
+			assertEquals(Optional.empty(), deadline.get());
+		}
+		assertEquals(1, pool.created());
+	}
+
+	private static final class DeadlineScope extends StructuredTaskScope<Object> {
+		DeadlineScope(CarrierPool pool, Instant deadline) {
+			super(null, pool, deadline);
+		}
+
+		void fork(java.util.concurrent.Callable<Object> task) {
+			forkInner(task);
+		}
+
+		void join() throws InterruptedException {
+			joinInner();
+		}
+	}
+}
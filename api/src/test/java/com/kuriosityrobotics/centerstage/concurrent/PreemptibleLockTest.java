@@ -1,9 +1,18 @@
 package com.kuriosityrobotics.centerstage.concurrent;
 
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -100,4 +109,303 @@ public class PreemptibleLockTest {
 		assertFalse(lock.isLocked());
 	}
 
-}
\ No newline at end of file
+	@Test
+	void testLockInterruptiblyPreemptsHolder() throws InterruptedException {
+		var lock = new PreemptibleLock();
+		var holding = new CountDownLatch(1);
+		var preempted = new AtomicBoolean();
+
+		var holder = new Thread(() -> {
+			lock.lock();
+			try {
+				holding.countDown();
+				Thread.sleep(10_000);
+			} catch (InterruptedException e) {
+				preempted.set(true);
+			} finally {
+				lock.unlock();
+			}
+		});
+		holder.start();
+		holding.await();
+
+		lock.lockInterruptibly();
+		try {
+			assertTrue(preempted.get());
+			assertTrue(lock.isHeldByCurrentThread());
+		} finally {
+			lock.unlock();
+		}
+		holder.join();
+	}
+
+	@Test
+	void testReentrantLockingDoesNotPreemptSelf() throws InterruptedException {
+		var lock = new PreemptibleLock();
+		lock.lockInterruptibly();
+		lock.lock();
+		assertTrue(lock.tryLock(1, TimeUnit.SECONDS));
+		assertEquals(3, lock.getHoldCount());
+		assertFalse(Thread.currentThread().isInterrupted());
+
+		lock.unlock();
+		lock.unlock();
+		assertTrue(lock.isLocked());
+		lock.unlock();
+		assertFalse(lock.isLocked());
+	}
+
+	@Test
+	void testTryLockDoesNotPreempt() throws InterruptedException {
+		var lock = new PreemptibleLock();
+		var holding = new CountDownLatch(1);
+		var release = new CountDownLatch(1);
+		var preempted = new AtomicBoolean();
+
+		var holder = new Thread(() -> {
+			lock.lock();
+			try {
+				holding.countDown();
+				release.await();
+			} catch (InterruptedException e) {
+				preempted.set(true);
+			} finally {
+				lock.unlock();
+			}
+		});
+		holder.start();
+		holding.await();
+
+		assertFalse(lock.tryLock());
+		release.countDown();
+		holder.join();
+
+		assertFalse(preempted.get());
+		assertTrue(lock.tryLock());
+		lock.unlock();
+	}
+
+	@Test
+	void testTryLockWithTimeoutGivesUpOnAStubbornHolder() throws InterruptedException {
+		var lock = new PreemptibleLock();
+		var holding = new CountDownLatch(1);
+		var release = new CountDownLatch(1);
+		var interrupts = new AtomicInteger();
+
+		var holder = new Thread(() -> {
+			lock.lock();
+			try {
+				holding.countDown();
+				while (true) {
+					try {
+						release.await();
+						break;
+					} catch (InterruptedException e) {
+						interrupts.incrementAndGet(); // ignores preemption
+					}
+				}
+			} finally {
+				lock.unlock();
+			}
+		});
+		holder.start();
+		holding.await();
+
+		assertFalse(lock.tryLock(100, TimeUnit.MILLISECONDS));
+		assertEquals(1, interrupts.get());
+
+		release.countDown();
+		holder.join();
+		assertTrue(lock.tryLock(100, TimeUnit.MILLISECONDS));
+		lock.unlock();
+	}
+
+	@Test
+	void testWaitingThreadCanBeInterrupted() throws InterruptedException {
+		var lock = new PreemptibleLock();
+		lock.lock(); // the main thread holds the lock and ignores preemption
+
+		var failed = new AtomicBoolean();
+		var waiter = new Thread(() -> {
+			try {
+				lock.lockInterruptibly();
+				lock.unlock();
+			} catch (InterruptedException e) {
+				failed.set(true);
+			}
+		});
+		waiter.start();
+		while (!lock.hasQueuedThreads())
+			Thread.onSpinWait();
+		Thread.interrupted(); // the waiter preempted this thread
+
+		waiter.interrupt();
+		waiter.join();
+		assertTrue(failed.get());
+		assertTrue(lock.isHeldByCurrentThread());
+		lock.unlock();
+	}
+
+	@Test
+	void testConditionWaitDoesNotCountAsHolding() throws InterruptedException {
+		var lock = new PreemptibleLock();
+		var condition = lock.newCondition();
+		var waiting = new CountDownLatch(1);
+		var preempted = new AtomicBoolean();
+
+		var waiter = new Thread(() -> {
+			lock.lock();
+			try {
+				waiting.countDown();
+				condition.await();
+				assertTrue(lock.isHeldByCurrentThread());
+			} catch (InterruptedException e) {
+				preempted.set(true);
+			} finally {
+				lock.unlock();
+			}
+		});
+		waiter.start();
+		waiting.await();
+		while (lock.isLocked()) // until the waiter is waiting
+			Thread.onSpinWait();
+
+		lock.lock(); // the waiter has released the lock, so isn't preempted
+		try {
+			condition.signal();
+		} finally {
+			lock.unlock();
+		}
+
+		waiter.join();
+		assertFalse(preempted.get());
+		assertFalse(lock.isLocked());
+	}
+
+	@Test
+	void testFairLockServesWaitersInOrder() throws InterruptedException {
+		var lock = new PreemptibleLock(true);
+		assertTrue(lock.isFair());
+		lock.lock();
+
+		var order = new ArrayList<Integer>();
+		var waiters = new ArrayList<Thread>();
+		for (int i = 0; i < 5; i++) {
+			int id = i;
+			var waiter = new Thread(() -> {
+				lock.lock();
+				try {
+					order.add(id);
+				} finally {
+					lock.unlock();
+				}
+			});
+			waiter.start();
+			waiters.add(waiter);
+			while (lock.getQueueLength() <= i)
+				Thread.onSpinWait();
+		}
+
+		Thread.interrupted(); // the first waiter preempted this thread
+		lock.unlock();
+		for (var waiter : waiters)
+			waiter.join();
+
+		assertEquals(List.of(0, 1, 2, 3, 4), order);
+	}
+
+	/**
+	 * A thread preempting the holder must never interrupt a thread which has already let go of the lock, even when
+	 * the lock changes hands as it preempts.
+	 */
+	@Test
+	void testPreemptionNeverReachesFormerHolders() throws InterruptedException {
+		var lock = new PreemptibleLock();
+		var strayInterrupts = new AtomicInteger();
+		var stop = new AtomicBoolean();
+
+		var threads = new ArrayList<Thread>();
+		for (int i = 0; i < 4; i++) {
+			var thread = new Thread(() -> {
+				while (!stop.get()) {
+					lock.lock();
+					lock.unlock();
+					Thread.interrupted(); // preempted while holding, which is fine
+
+					for (int spin = 0; spin < 100; spin++)
+						Thread.onSpinWait();
+					if (Thread.interrupted())
+						strayInterrupts.incrementAndGet();
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+
+		Thread.sleep(500);
+		stop.set(true);
+		for (var thread : threads)
+			thread.join();
+
+		assertEquals(0, strayInterrupts.get());
+		assertFalse(lock.isLocked());
+	}
+
+	/**
+	 * Compares an uncontended lock and unlock of this lock with the implementation it replaced, which wrapped
+	 * {@link ReentrantLock} in a second lock and condition, and with a plain {@link ReentrantLock}.
+	 */
+	@Test
+	@Tag("benchmark")
+	void benchmark() {
+		int iterations = 2_000_000;
+		var locks = List.<Lock>of(new PreemptibleLock(), new WrappedReentrantLock(), new ReentrantLock());
+		for (var lock : locks) // warm up
+			lockUnlock(lock, iterations);
+
+		for (var lock : locks) {
+			long nanos = lockUnlock(lock, iterations);
+			System.out.printf("%s: %.1fns per lock and unlock%n", lock.getClass().getSimpleName(), (double) nanos / iterations);
+		}
+	}
+
+	private static long lockUnlock(Lock lock, int iterations) {
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			lock.lock();
+			lock.unlock();
+		}
+		return System.nanoTime() - start;
+	}
+
+	// the previous implementation of PreemptibleLock, for comparison
+	private static final class WrappedReentrantLock extends ReentrantLock {
+		private final ReentrantLock acquisitionLock = new ReentrantLock();
+		private final Condition acquisitionCondition = acquisitionLock.newCondition();
+
+		@Override
+		public void unlock() {
+			acquisitionLock.lock();
+			try {
+				super.unlock();
+				acquisitionCondition.signalAll();
+			} finally {
+				acquisitionLock.unlock();
+			}
+		}
+
+		@Override
+		public void lock() {
+			acquisitionLock.lock();
+			try {
+				if (!isHeldByCurrentThread() && isLocked())
+					getOwner().interrupt();
+
+				while (!super.tryLock())
+					acquisitionCondition.awaitUninterruptibly();
+			} finally {
+				acquisitionLock.unlock();
+			}
+		}
+	}
+}
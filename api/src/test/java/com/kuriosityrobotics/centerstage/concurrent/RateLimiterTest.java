@@ -0,0 +1,144 @@
+package com.kuriosityrobotics.centerstage.concurrent;
+
+import com.kuriosityrobotics.centerstage.util.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+	@Test
+	void testUsesAreSpacedByTheMinimumDelay() throws InterruptedException {
+		var limiter = new RateLimiter(Duration.ofMillis(5));
+		long start = System.nanoTime();
+		for (int i = 0; i < 11; i++)
+			limiter.use();
+
+		long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+		assertTrue(elapsedMillis >= 50 && elapsedMillis < 100, "took " + elapsedMillis + "ms");
+	}
+
+	@Test
+	void testSubMillisecondDelays() throws InterruptedException {
+		var limiter = new RateLimiter(Duration.ofNanos(200_000));
+		long start = System.nanoTime();
+		for (int i = 0; i < 101; i++)
+			limiter.use();
+
+		long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+		assertTrue(elapsedMillis >= 20 && elapsedMillis < 60, "took " + elapsedMillis + "ms");
+	}
+
+	@Test
+	void testTryUse() throws InterruptedException {
+		var limiter = new RateLimiter(Duration.ofMillis(50));
+		assertTrue(limiter.tryUse());
+		assertFalse(limiter.tryUse());
+		assertFalse(limiter.tryUse(Duration.ofMillis(10)));
+		assertTrue(limiter.tryUse(Duration.ofMillis(100)));
+	}
+
+	@Test
+	void testTokenBucketAllowsBursts() throws InterruptedException {
+		var limiter = new RateLimiter(Duration.ofMillis(50), 3);
+		for (int i = 0; i < 3; i++)
+			assertTrue(limiter.tryUse(), "use " + i + " of the burst");
+		assertFalse(limiter.tryUse());
+
+		Thread.sleep(110); // refills two uses
+		assertTrue(limiter.tryUse());
+		assertTrue(limiter.tryUse());
+		assertFalse(limiter.tryUse());
+	}
+
+	@Test
+	void testTokenBucketDoesNotOverfill() throws InterruptedException {
+		var limiter = new RateLimiter(Duration.ofMillis(10), 2);
+		Thread.sleep(100);
+		assertTrue(limiter.tryUse());
+		assertTrue(limiter.tryUse());
+		assertFalse(limiter.tryUse());
+	}
+
+	@Test
+	void testUseIsInterruptible() {
+		var limiter = new RateLimiter(Duration.ofSeconds(10));
+		assertTrue(limiter.tryUse());
+
+		Thread.currentThread().interrupt();
+		assertThrows(InterruptedException.class, limiter::use);
+		assertFalse(Thread.currentThread().isInterrupted());
+	}
+
+	@Test
+	void testFairRateLimiterServesWaitersInOrder() throws InterruptedException {
+		var limiter = new FairRateLimiter(Duration.ofMillis(20));
+		limiter.use();
+
+		var order = Collections.synchronizedList(new ArrayList<Integer>());
+		var waiters = new ArrayList<Thread>();
+		for (int i = 0; i < 5; i++) {
+			int id = i;
+			var waiter = new Thread(() -> {
+				try {
+					limiter.use();
+					order.add(id);
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			});
+			waiter.start();
+			waiters.add(waiter);
+			Thread.sleep(2); // so each waiter reserves before the next starts
+		}
+
+		assertFalse(limiter.tryUse()); // there are waiters
+		for (var waiter : waiters)
+			waiter.join();
+
+		assertEquals(List.of(0, 1, 2, 3, 4), order);
+	}
+
+	@Test
+	void testFairRateLimiterTimeoutAndInterrupt() throws InterruptedException {
+		var limiter = new FairRateLimiter(Duration.ofMillis(50));
+		assertTrue(limiter.tryUse());
+		assertFalse(limiter.tryUse(Duration.ofMillis(10)));
+
+		Thread.currentThread().interrupt();
+		assertThrows(InterruptedException.class, limiter::use);
+
+		// the interrupted waiter gave its time back
+		assertTrue(limiter.tryUse(Duration.ofMillis(70)));
+		assertFalse(limiter.tryUse());
+	}
+
+	@Test
+	void testTryUseDoesNotAllocate() {
+		var limiter = new RateLimiter(Duration.ofNanos(1), 8);
+		var fair = new FairRateLimiter(Duration.ofNanos(1));
+		for (int i = 0; i < 100_000; i++) { // warm up
+			limiter.tryUse();
+			fair.tryUse();
+		}
+
+		long before = allocatedBytes();
+		for (int i = 0; i < 100_000; i++) {
+			limiter.tryUse();
+			fair.tryUse();
+		}
+		long allocated = allocatedBytes() - before;
+
+		assertTrue(allocated < 1024, "allocated " + allocated + " bytes");
+	}
+
+	private static long allocatedBytes() {
+		var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
@@ -0,0 +1,125 @@
+package com.kuriosityrobotics.centerstage.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskTraceTest {
+	private static final Pattern EVENT = Pattern.compile("\\{\"ph\":\"(.)\".*?\"tid\":(\\d+)");
+
+	@Test
+	void testOffUnlessStarted() throws InterruptedException, IOException {
+		var trace = TaskTrace.start();
+		trace.stop();
+
+		try (var scope = HardwareTaskScope.open()) {
+			scope.fork(() -> {});
+			scope.join();
+		}
+
+		assertNull(TaskTrace.active());
+		assertEquals(0, trace.size());
+		assertEquals(0, count(json(trace), "\"ph\":\"B\""));
+	}
+
+	@Test
+	void testRecordsScopesForksAndJoins() throws InterruptedException, IOException {
+		var trace = TaskTrace.start();
+		try {
+			try (var scope = HardwareTaskScope.open()) {
+				scope.fork(() -> Thread.sleep(5));
+				scope.fork(() -> {
+					try (var inner = HardwareTaskScope.open()) {
+						inner.fork(() -> Thread.sleep(5));
+						inner.join();
+					}
+				});
+				scope.join();
+			}
+		} finally {
+			trace.stop();
+		}
+
+		var json = json(trace);
+		assertEquals(0, trace.dropped());
+		assertEquals(2, count(json, "\"name\":\"scope "), json);
+		assertEquals(2, count(json, "\"name\":\"join "), json);
+		assertEquals(3, count(json, "\"name\":\"fork "), json);
+		assertEquals(3, count(json, "\"ph\":\"s\""), json);
+		assertEquals(3, count(json, "\"ph\":\"f\""), json);
+		assertEquals(3, count(json, "\"outcome\":\"success\""), json);
+		assertTrue(json.contains("\"name\":\"thread_name\""), json);
+		assertNestedPerThread(json);
+	}
+
+	@Test
+	void testRecordsFailuresAndShutdowns() throws IOException {
+		var trace = TaskTrace.start();
+		try (var scope = HardwareTaskScope.open(IllegalStateException.class)) {
+			scope.fork(() -> Thread.sleep(10_000));
+			scope.fork(() -> {
+				throw new IllegalStateException();
+			});
+			assertThrows(IllegalStateException.class, scope::join);
+		} finally {
+			trace.stop();
+		}
+
+		var json = json(trace);
+		assertEquals(1, count(json, "\"name\":\"shutdown "), json);
+		assertEquals(1, count(json, "\"outcome\":\"failed\""), json);
+		assertEquals(1, count(json, "\"outcome\":\"cancelled\""), json);
+		assertNestedPerThread(json);
+	}
+
+	@Test
+	void testDropsEventsWhichDontFit() throws InterruptedException, IOException {
+		var trace = TaskTrace.start(4);
+		try (var scope = HardwareTaskScope.open()) {
+			for (int i = 0; i < 4; i++)
+				scope.fork(() -> {});
+			scope.join();
+		} finally {
+			trace.stop();
+		}
+
+		assertEquals(4, trace.size());
+		assertTrue(trace.dropped() > 0);
+		assertTrue(json(trace).endsWith("]}\n"));
+	}
+
+	private static String json(TaskTrace trace) throws IOException {
+		var out = new StringWriter();
+		trace.writeTo(out);
+		return out.toString();
+	}
+
+	private static int count(String s, String of) {
+		int count = 0;
+		for (int i = s.indexOf(of); i >= 0; i = s.indexOf(of, i + 1))
+			count++;
+		return count;
+	}
+
+	/**
+	 * Checks that every slice on each thread ends after it begins, and none are left open.
+	 */
+	private static void assertNestedPerThread(String json) {
+		var depths = new HashMap<String, Integer>();
+		Matcher event = EVENT.matcher(json);
+		while (event.find()) {
+			int change = event.group(1).equals("B") ? 1 : event.group(1).equals("E") ? -1 : 0;
+			int depth = depths.merge(event.group(2), change, Integer::sum);
+			assertTrue(depth >= 0, json);
+		}
+
+		for (int depth : depths.values())
+			assertEquals(0, depth, json);
+	}
+}
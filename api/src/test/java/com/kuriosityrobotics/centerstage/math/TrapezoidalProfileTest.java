@@ -0,0 +1,82 @@
+package com.kuriosityrobotics.centerstage.math;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class TrapezoidalProfileTest {
+	private static final double EPSILON = 1e-9;
+
+	@Test
+	void testTrapezoid() {
+		// 0.5 s to reach 1 m/s, covering 0.25 m each way, and 0.5 s cruising in between
+		var profile = new TrapezoidalProfile(0, 1, 1, 2);
+		assertEquals(1.5, profile.duration(), EPSILON);
+
+		assertEquals(0.25, profile.position(0.5), EPSILON);
+		assertEquals(0.5, profile.position(0.75), EPSILON);
+		assertEquals(0.75, profile.position(1), EPSILON);
+		assertEquals(1, profile.position(1.5), EPSILON);
+
+		assertEquals(0.5, profile.velocity(0.25), EPSILON);
+		assertEquals(1, profile.velocity(0.75), EPSILON);
+		assertEquals(0.5, profile.velocity(1.25), EPSILON);
+
+		assertEquals(2, profile.acceleration(0.25), EPSILON);
+		assertEquals(0, profile.acceleration(0.75), EPSILON);
+		assertEquals(-2, profile.acceleration(1.25), EPSILON);
+	}
+
+	@Test
+	void testTriangleWhenTooShortToCruise() {
+		// would need 0.25 m each way to reach 1 m/s
+		var profile = new TrapezoidalProfile(0, 0.2, 1, 2);
+		double peakTime = Math.sqrt(0.1 / (2 / 2.));
+		assertEquals(2 * peakTime, profile.duration(), EPSILON);
+		assertEquals(0.1, profile.position(peakTime), EPSILON);
+		assertTrue(profile.velocity(peakTime) < 1);
+		assertEquals(0.2, profile.end(), EPSILON);
+	}
+
+	@Test
+	void testBackwards() {
+		var profile = new TrapezoidalProfile(1, 0, 1, 2);
+		assertEquals(1.5, profile.duration(), EPSILON);
+		assertEquals(0.75, profile.position(0.5), EPSILON);
+		assertEquals(-1, profile.velocity(0.75), EPSILON);
+		assertEquals(-2, profile.acceleration(0.25), EPSILON);
+		assertEquals(2, profile.acceleration(1.25), EPSILON);
+	}
+
+	@Test
+	void testContinuous() {
+		var profile = new TrapezoidalProfile(0.1, 0.6, 1, 6);
+		double dt = 1e-4;
+		for (double t = 0; t < profile.duration(); t += dt) {
+			double velocity = (profile.position(t + dt) - profile.position(t)) / dt;
+			assertEquals(profile.velocity(t + dt / 2), velocity, 1e-3, "at " + t);
+			assertTrue(Math.abs(profile.velocity(t)) <= 1 + EPSILON);
+		}
+	}
+
+	@Test
+	void testHoldsOutsideMove() {
+		var profile = new TrapezoidalProfile(0.3, 0.1, 1, 2);
+		assertEquals(0.3, profile.position(-1), EPSILON);
+		assertEquals(0.1, profile.position(10), EPSILON);
+		assertEquals(0, profile.velocity(10), EPSILON);
+		assertEquals(0, profile.acceleration(10), EPSILON);
+
+		var stationary = new TrapezoidalProfile(0.3, 0.3, 1, 2);
+		assertEquals(0, stationary.duration(), EPSILON);
+		assertEquals(0.3, stationary.position(0.1), EPSILON);
+	}
+
+	@Test
+	void testRejectsNonPositiveLimits() {
+		assertThrows(IllegalArgumentException.class, () -> new TrapezoidalProfile(0, 1, 0, 1));
+		assertThrows(IllegalArgumentException.class, () -> new TrapezoidalProfile(0, 1, 1, -1));
+	}
+}
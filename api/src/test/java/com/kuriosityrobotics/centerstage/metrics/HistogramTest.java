@@ -0,0 +1,61 @@
+package com.kuriosityrobotics.centerstage.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+class HistogramTest {
+	@Test
+	void testBucketsCoverValues() {
+		for (long value : new long[]{0, 1, 31, 32, 33, 63, 64, 1000, 123_456_789, Long.MAX_VALUE}) {
+			int index = Histogram.indexFor(value);
+			assertTrue(Histogram.highestValueAt(index) >= value, "bucket too low for " + value);
+			if (index > 0)
+				assertTrue(Histogram.highestValueAt(index - 1) < value, "bucket too high for " + value);
+		}
+	}
+
+	@Test
+	void testPercentiles() {
+		var histogram = new Histogram();
+		for (int i = 1; i <= 10_000; i++)
+			histogram.record(i);
+
+		assertEquals(10_000, histogram.count());
+		assertEquals(5000.5, histogram.mean(), 1e-9);
+		assertEquals(10_000, histogram.max());
+		assertEquals(5000, histogram.percentile(50), 5000 * 0.04);
+		assertEquals(9900, histogram.percentile(99), 9900 * 0.04);
+		assertEquals(10_000, histogram.percentile(100));
+	}
+
+	@Test
+	void testEmpty() {
+		var histogram = new Histogram();
+		assertEquals(0, histogram.count());
+		assertEquals(0, histogram.mean());
+		assertEquals(0, histogram.percentile(50));
+	}
+
+	@Test
+	void testConcurrentRecording() throws InterruptedException {
+		var histogram = new Histogram();
+		var threads = new ArrayList<Thread>();
+		for (int t = 0; t < 8; t++) {
+			var thread = new Thread(() -> {
+				for (int i = 0; i < 10_000; i++)
+					histogram.record(i % 100);
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (var thread : threads)
+			thread.join();
+
+		assertEquals(80_000, histogram.count());
+		assertEquals(99, histogram.max());
+	}
+}
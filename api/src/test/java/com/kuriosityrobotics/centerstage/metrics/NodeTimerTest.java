@@ -0,0 +1,101 @@
+package com.kuriosityrobotics.centerstage.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.kuriosityrobotics.centerstage.util.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+class NodeTimerTest {
+	@AfterEach
+	void clear() {
+		NodeTimers.clear();
+	}
+
+	@Test
+	void testRunTime() throws InterruptedException {
+		var timer = NodeTimers.forNode("run time", Duration.ofMillis(100));
+		long start = timer.start();
+		Thread.sleep(20);
+		timer.stop(start);
+
+		assertEquals(1, timer.runs());
+		assertTrue(timer.runTimeMicros().max() >= 20_000, timer.toString());
+		assertEquals(0, timer.overruns());
+	}
+
+	@Test
+	void testOverrunsAndLateStarts() throws InterruptedException {
+		var timer = NodeTimers.forNode("overruns", Duration.ofMillis(5));
+		timer.stop(timer.start());
+
+		long start = timer.start(); // on time, but overruns
+		Thread.sleep(10);
+		timer.stop(start);
+
+		timer.stop(timer.start()); // so this starts late
+
+		assertEquals(3, timer.runs());
+		assertEquals(1, timer.overruns());
+		assertEquals(1, timer.lateStarts());
+		assertTrue(timer.latenessMicros().max() >= 4000, timer.toString());
+	}
+
+	@Test
+	void testLatenessAgainstDueTime() {
+		var timer = NodeTimers.forNode("due time", Duration.ofMillis(5));
+		timer.stop(timer.start(System.nanoTime() - 3_000_000));
+		timer.stop(timer.start(System.nanoTime() + 3_000_000)); // early
+
+		assertEquals(1, timer.lateStarts());
+		assertEquals(2, timer.latenessMicros().count());
+		assertEquals(0, timer.latenessMicros().percentile(50));
+	}
+
+	@Test
+	void testNoPeriod() {
+		var timer = NodeTimers.forNode("no period");
+		timer.wrap(() -> sleep(2)).run();
+		timer.wrap(() -> sleep(2)).run();
+
+		assertNull(timer.period());
+		assertEquals(2, timer.runs());
+		assertEquals(0, timer.latenessMicros().count());
+		assertEquals(0, timer.overruns());
+	}
+
+	@Test
+	void testRegistry() throws IOException {
+		var b = NodeTimers.forNode("b", Duration.ofMillis(20));
+		var a = NodeTimers.forNode("a");
+		assertThrows(IllegalArgumentException.class, () -> NodeTimers.forNode("b", Duration.ofMillis(50)));
+		b.stop(b.start());
+
+		var csv = new StringWriter();
+		NodeTimers.writeTo(csv);
+		var lines = csv.toString().split("\n");
+		assertTrue(lines[0].startsWith("node,period_us,runs,"), lines[0]);
+		assertTrue(lines[1].startsWith("a,0,0,"), lines[1]);
+		assertTrue(lines[2].startsWith("b,20000,1,"), lines[2]);
+
+		NodeTimers.clear();
+		assertTrue(NodeTimers.all().isEmpty());
+		a.stop(a.start()); // timers already handed out keep working
+		assertEquals(1, a.runs());
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
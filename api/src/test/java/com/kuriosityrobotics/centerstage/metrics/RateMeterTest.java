@@ -0,0 +1,33 @@
+package com.kuriosityrobotics.centerstage.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.kuriosityrobotics.centerstage.util.Duration;
+import com.kuriosityrobotics.centerstage.util.Instant;
+import com.kuriosityrobotics.centerstage.util.ManualClock;
+
+import org.junit.jupiter.api.Test;
+
+class RateMeterTest {
+	@Test
+	void testRateOverWindow() {
+		var clock = new ManualClock(Instant.createInstant(0));
+		var counter = new Counter();
+		var meter = new RateMeter(counter, clock, Duration.ofSeconds(1));
+
+		counter.add(10);
+		clock.advance(Duration.ofMillis(500));
+		assertEquals(0, meter.perSecond()); // window not complete yet
+
+		counter.add(40);
+		clock.advance(Duration.ofMillis(500));
+		assertEquals(50, meter.perSecond(), 1e-9);
+
+		counter.add(5);
+		clock.advance(Duration.ofMillis(200));
+		assertEquals(50, meter.perSecond(), 1e-9); // holds the last complete window
+
+		clock.advance(Duration.ofMillis(800));
+		assertEquals(5, meter.perSecond(), 1e-9);
+	}
+}
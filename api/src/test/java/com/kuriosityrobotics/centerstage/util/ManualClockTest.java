@@ -0,0 +1,28 @@
+package com.kuriosityrobotics.centerstage.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class ManualClockTest {
+	@Test
+	void testOnlyMovesWhenTold() throws InterruptedException {
+		var clock = new ManualClock(Instant.createInstant(1_000));
+		Thread.sleep(10);
+		assertEquals(1_000, clock.now().nanos());
+
+		clock.advance(Duration.ofMillis(5));
+		assertEquals(5_001_000, clock.now().nanos());
+
+		clock.set(Instant.createInstant(6_000_000));
+		assertEquals(6_000_000, clock.now().nanos());
+	}
+
+	@Test
+	void testCannotMoveBackwards() {
+		var clock = new ManualClock(Instant.createInstant(1_000));
+		assertThrows(IllegalArgumentException.class, () -> clock.set(Instant.createInstant(999)));
+		assertThrows(IllegalArgumentException.class, () -> clock.advance(Duration.ofNanos(-1)));
+	}
+}